@@ -1202,17 +1202,7 @@ public class EdgeKey {
      * @return the date type of this accumulo edge key
      */
     public static DATE_TYPE getDateType(Key key) {
-        
-        EdgeColumnParts parts = new EdgeColumnParts(key);
-        
-        EDGE_VERSION version = EDGE_VERSION.getEdgeVersion(parts);
-        
-        if (version == EDGE_VERSION.DATE_STATS_PROTOBUF) {
-            return DATE_TYPE.parse(parts.get(8));
-        } else if (version == EDGE_VERSION.DATE_PROTOBUF) {
-            return DATE_TYPE.parse(parts.get(6));
-        } else {
-            return DATE_TYPE.OLD_EVENT;
-        }
+        // iterators calling this for every key should keep their own EdgeKeyView instead
+        return new EdgeKeyView().set(key).getDateType();
     }
 }
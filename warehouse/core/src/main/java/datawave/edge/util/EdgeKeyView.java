@@ -0,0 +1,322 @@
+package datawave.edge.util;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+
+import static datawave.edge.util.EdgeKey.*;
+
+/**
+ * A reusable view over the fields of an edge table key. Unlike {@link EdgeKey#decode(Key)}, which creates a builder, a string for every part of the column
+ * family and qualifier and copies of the key's text for every key, the view only records where the parts of the row, column family and column qualifier
+ * start and end in the key's own byte arrays. The fields are exposed as {@link ByteSequence}s over those arrays, so server side iterators can keep a single
+ * view and call {@link #set(Key)} for every key they touch.
+ *
+ * The view is only valid until the next call to {@link #set(Key)}, and only as long as the key it was set to is not modified. The source and sink are
+ * returned as they are in the row, without unescaping, matching {@link EdgeKey#decodeForInternal(Key)}.
+ */
+public class EdgeKeyView {
+    
+    private static final int MAX_PARTS = 9;
+    private static final byte ROW_SEPARATOR_BYTE = 0;
+    private static final byte COL_SUB_SEPARATOR_BYTE = (byte) COL_SUB_SEPARATOR;
+    private static final byte[][] STATS_TYPE_BYTES = new byte[STATS_TYPE.values().length][];
+    
+    static {
+        for (STATS_TYPE statsType : STATS_TYPE.values()) {
+            STATS_TYPE_BYTES[statsType.ordinal()] = statsType.name().getBytes();
+        }
+    }
+    
+    private byte[] row;
+    private int rowOffset;
+    private int rowLength;
+    private int rowSeparator;
+    
+    private byte[] colFam;
+    private byte[] colQual;
+    
+    // the start and end offsets of the column family and qualifier parts, the first numColfParts in the column family and the rest in the qualifier
+    private final int[] partStart = new int[MAX_PARTS];
+    private final int[] partEnd = new int[MAX_PARTS];
+    private int numParts;
+    private int numColfParts;
+    
+    private EDGE_FORMAT format;
+    private EDGE_VERSION version;
+    
+    /**
+     * Point this view at a key from the edge table
+     *
+     * @param key
+     *            a key from the Datawave edge table
+     * @return this view
+     */
+    public EdgeKeyView set(Key key) {
+        ByteSequence rowData = key.getRowData();
+        row = rowData.getBackingArray();
+        rowOffset = rowData.offset();
+        rowLength = rowData.length();
+        
+        // the decoder threw an exception when there was no row key, so maintain that here
+        if (rowLength == 0) {
+            throw new IllegalStateException("Invalid row identifier");
+        }
+        
+        rowSeparator = -1;
+        for (int i = rowOffset; i < rowOffset + rowLength; i++) {
+            if (row[i] == ROW_SEPARATOR_BYTE) {
+                rowSeparator = i;
+                break;
+            }
+        }
+        
+        ByteSequence colFamData = key.getColumnFamilyData();
+        ByteSequence colQualData = key.getColumnQualifierData();
+        colFam = colFamData.getBackingArray();
+        colQual = colQualData.getBackingArray();
+        
+        numParts = 0;
+        boolean valid = split(colFam, colFamData.offset(), colFamData.length());
+        numColfParts = numParts;
+        valid = valid && split(colQual, colQualData.offset(), colQualData.length());
+        
+        format = startsWith(colFam, colFamData.offset(), colFamData.length(), STATS_BYTES) ? EDGE_FORMAT.STATS : EDGE_FORMAT.STANDARD;
+        version = valid ? getEdgeVersion() : EDGE_VERSION.UNKNOWN;
+        return this;
+    }
+    
+    /**
+     * Get the first of the separated parts of a column without creating any strings, e.g. the attribute1 of an edge column qualifier in the metadata table
+     *
+     * @param column
+     * @return the bytes of the column up to the first column separator
+     */
+    public static ByteSequence getFirstPart(ByteSequence column) {
+        byte[] bytes = column.getBackingArray();
+        int end = column.offset() + column.length();
+        for (int i = column.offset(); i < end; i++) {
+            if (bytes[i] == COL_SEPARATOR_BYTE) {
+                return new ArrayByteSequence(bytes, column.offset(), i - column.offset());
+            }
+        }
+        return column;
+    }
+    
+    private boolean split(byte[] bytes, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i <= end; i++) {
+            if (i == end || bytes[i] == COL_SEPARATOR_BYTE) {
+                if (numParts == MAX_PARTS) {
+                    return false;
+                }
+                partStart[numParts] = start;
+                partEnd[numParts++] = i;
+                start = i + 1;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean startsWith(byte[] bytes, int offset, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean partEquals(int index, byte[] expected) {
+        int start = partStart[index];
+        return partEnd[index] - start == expected.length && startsWith(partBytes(index), start, expected.length, expected);
+    }
+    
+    private byte[] partBytes(int index) {
+        return index < numColfParts ? colFam : colQual;
+    }
+    
+    /**
+     * The same rules as {@link EDGE_VERSION#getEdgeVersion(java.util.List)}, applied to the part offsets
+     */
+    private EDGE_VERSION getEdgeVersion() {
+        if (numParts < 4) {
+            return EDGE_VERSION.UNKNOWN;
+        }
+        if (partEquals(0, STATS_BYTES)) {
+            switch (numParts) {
+                case 6:
+                    return EDGE_VERSION.STATS_BASE;
+                case 7:
+                    return EDGE_VERSION.STATS_ATTRIBUTE2;
+                case 8:
+                    return EDGE_VERSION.STATS_PROTOBUF;
+                case 9:
+                    return EDGE_VERSION.DATE_STATS_PROTOBUF;
+                default:
+                    return EDGE_VERSION.UNKNOWN;
+            }
+        } else {
+            switch (numParts) {
+                case 4:
+                    return EDGE_VERSION.BASE;
+                case 5:
+                    return EDGE_VERSION.BASE_ATTRIBUTE2;
+                case 6:
+                    return EDGE_VERSION.PROTOBUF;
+                case 7:
+                    return EDGE_VERSION.DATE_PROTOBUF;
+                default:
+                    return EDGE_VERSION.UNKNOWN;
+            }
+        }
+    }
+    
+    private ByteSequence part(int index) {
+        if (index < 0 || version == EDGE_VERSION.UNKNOWN) {
+            return null;
+        }
+        return new ArrayByteSequence(partBytes(index), partStart[index], partEnd[index] - partStart[index]);
+    }
+    
+    private int subSeparator(int index) {
+        byte[] bytes = partBytes(index);
+        for (int i = partStart[index]; i < partEnd[index]; i++) {
+            if (bytes[i] == COL_SUB_SEPARATOR_BYTE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private ByteSequence sourcePart(int index) {
+        ByteSequence part = part(index);
+        if (null == part || version.getFormat() == EDGE_FORMAT.STATS) {
+            return part;
+        }
+        int separator = subSeparator(index);
+        return separator < 0 ? part : part.subSequence(0, separator - partStart[index]);
+    }
+    
+    private ByteSequence sinkPart(int index) {
+        ByteSequence part = part(index);
+        if (null == part || version.getFormat() == EDGE_FORMAT.STATS) {
+            return null;
+        }
+        int separator = subSeparator(index);
+        if (separator < 0) {
+            return null;
+        }
+        byte[] bytes = partBytes(index);
+        int end = separator + 1;
+        while (end < partEnd[index] && bytes[end] != COL_SUB_SEPARATOR_BYTE) {
+            end++;
+        }
+        return new ArrayByteSequence(bytes, separator + 1, end - separator - 1);
+    }
+    
+    public EDGE_VERSION getVersion() {
+        return version;
+    }
+    
+    public EDGE_FORMAT getFormat() {
+        return format;
+    }
+    
+    /**
+     * @return the stats type, or null if this is not a stats edge
+     */
+    public STATS_TYPE getStatsType() {
+        if (version.getFormat() != EDGE_FORMAT.STATS || version == EDGE_VERSION.UNKNOWN) {
+            return null;
+        }
+        int index = version.getStatsTypeIndex();
+        for (STATS_TYPE statsType : STATS_TYPE.values()) {
+            if (partEquals(index, STATS_TYPE_BYTES[statsType.ordinal()])) {
+                return statsType;
+            }
+        }
+        return null;
+    }
+    
+    public ByteSequence getSourceData() {
+        if (format == EDGE_FORMAT.STATS || rowSeparator <= rowOffset) {
+            return new ArrayByteSequence(row, rowOffset, rowLength);
+        }
+        return new ArrayByteSequence(row, rowOffset, rowSeparator - rowOffset);
+    }
+    
+    /**
+     * @return the sink, or null if this is a stats edge or the row has no sink
+     */
+    public ByteSequence getSinkData() {
+        if (format == EDGE_FORMAT.STATS || rowSeparator <= rowOffset) {
+            return null;
+        }
+        return new ArrayByteSequence(row, rowSeparator + 1, rowOffset + rowLength - rowSeparator - 1);
+    }
+    
+    public ByteSequence getType() {
+        return part(version.getTypeIndex());
+    }
+    
+    public ByteSequence getRelationship() {
+        return part(version.getRelationshipIndex());
+    }
+    
+    public ByteSequence getSourceRelationship() {
+        return sourcePart(version.getRelationshipIndex());
+    }
+    
+    public ByteSequence getSinkRelationship() {
+        return sinkPart(version.getRelationshipIndex());
+    }
+    
+    public ByteSequence getAttribute1() {
+        return part(version.getCategoryIndex());
+    }
+    
+    public ByteSequence getSourceAttribute1() {
+        return sourcePart(version.getCategoryIndex());
+    }
+    
+    public ByteSequence getSinkAttribute1() {
+        return sinkPart(version.getCategoryIndex());
+    }
+    
+    public ByteSequence getAttribute2() {
+        return version.hasAttribute2() ? part(version.getAttribute2Index()) : null;
+    }
+    
+    public ByteSequence getAttribute3() {
+        return version.hasAttribute3() ? part(version.getAttribute3Index()) : null;
+    }
+    
+    public ByteSequence getYyyymmdd() {
+        return part(version.getYMDIndex());
+    }
+    
+    /**
+     * Get the date type without creating any objects, using the same rules as {@link EdgeKey#getDateType(Key)}
+     *
+     * @return the date type, or null if the date type part is not recognized
+     */
+    public DATE_TYPE getDateType() {
+        int index = version.getDateTypeIndex();
+        if (index < 0) {
+            return DATE_TYPE.OLD_EVENT;
+        }
+        int length = partEnd[index] - partStart[index];
+        for (DATE_TYPE dateType : DATE_TYPE.values()) {
+            String abbreviation = dateType.abbreviation;
+            if (abbreviation.length() == length && (length == 0 || abbreviation.charAt(0) == partBytes(index)[partStart[index]])) {
+                return dateType;
+            }
+        }
+        return null;
+    }
+}
@@ -43,4 +43,9 @@ public class AgeOffConfigParams {
      * A flag denoting whether the age off should be disabled on system initialized major compactions (non-full majc)
      */
     public static final String DISABLE_ON_NON_FULL_MAJC = "disableOnNonFullMajc";
+    
+    /**
+     * A flag denoting whether runs of REGEX rules with literal patterns should be compiled into a single matcher. Defaults to true.
+     */
+    public static final String COMPILE_RULES = "compileRules";
 }
@@ -37,6 +37,10 @@ import java.util.concurrent.TimeUnit;
  * allow all records younger thatn that interval to be passed through. The units definition is used for both {@code AgeOffConfigParams.TTL} and
  * {@code AgeOffConfigParams.TTL_SHORT_CIRCUIT}.
  * 
+ * <p>
+ * Consecutive column family, column qualifier and column visibility REGEX rules whose patterns are literal words are compiled into a single
+ * {@code LiteralRegexRuleGroup}, which matches all of them in one pass over the key field. This can be turned off by setting
+ * {@code AgeOffConfigParams.COMPILE_RULES} to false.
  * 
  * <p>
  * The filtering rules are stored in a configuration file, which may be stored in the local file system, or in HDFS. If it is stored in the local filesystem,
@@ -124,6 +128,9 @@ public class ConfigurableAgeOffFilter extends Filter implements OptionDescriber
     // The system-initialized compactions are on data just imported in which case they are not expected to remove much.
     protected boolean disabled = false;
     
+    // compile runs of REGEX rules with literal patterns into a single matcher, see LiteralRegexRuleGroup
+    protected boolean compileRules = true;
+    
     public ConfigurableAgeOffFilter() {
         
     }
@@ -194,6 +201,8 @@ public class ConfigurableAgeOffFilter extends Filter implements OptionDescriber
         
         this.disabled = other.disabled;
         
+        this.compileRules = other.compileRules;
+        
         this.filterList = Lists.newArrayList(other.filterList);
         
         this.scanStart = other.scanStart;
@@ -314,6 +323,9 @@ public class ConfigurableAgeOffFilter extends Filter implements OptionDescriber
         
         Preconditions.checkNotNull(options, "Configuration filename and " + "the default ttl must be set for the ConfigurableAgeOffFilter");
         
+        String compileRulesStr = options.get(AgeOffConfigParams.COMPILE_RULES);
+        compileRules = (compileRulesStr == null) || Boolean.parseBoolean(compileRulesStr);
+        
         long sessionScanStart = options.containsKey(AgeOffConfigParams.SCAN_START_TIMESTAMP) ? Long.parseLong(options
                         .get(AgeOffConfigParams.SCAN_START_TIMESTAMP)) : System.currentTimeMillis();
         
@@ -382,6 +394,9 @@ public class ConfigurableAgeOffFilter extends Filter implements OptionDescriber
         
         copyRules(watcherKey);
         
+        if (compileRules) {
+            filterList = LiteralRegexRuleGroup.compile(filterList);
+        }
     }
     
     private long getLongProperty(final String prop, final long defaultValue) {
@@ -428,6 +443,7 @@ public class ConfigurableAgeOffFilter extends Filter implements OptionDescriber
         options.put(AgeOffConfigParams.FILTER_CONFIG, "URL to the age off filter configuration file.");
         options.put(AgeOffConfigParams.DISABLE_ON_NON_FULL_MAJC,
                         "If set to 'true', then filters will be disabled for system-initialized full major compactions (non-full majc)");
+        options.put(AgeOffConfigParams.COMPILE_RULES, "If set to 'false', then REGEX rules with literal patterns will not be compiled into a single matcher");
         return new IteratorOptions("cfgAgeoff", "ConfigurableAgeOffFilter removes entries with timestamps more than <ttl> milliseconds old", options, null);
     }
     
@@ -1,11 +1,14 @@
 package datawave.iterators.filter;
 
+import java.io.IOException;
+import java.util.Collection;
+
 import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
-import org.apache.hadoop.io.Text;
+import org.apache.accumulo.core.data.Range;
 
-import datawave.edge.util.EdgeKey;
-import datawave.util.StringUtils;
+import datawave.edge.util.EdgeKeyView;
 
 /**
  * Removes the optional attributes, "attribute2" and "attribute3" fields, from the edge entries in the metadata table. Should be used only at scan time in
@@ -13,22 +16,43 @@ import datawave.util.StringUtils;
  */
 public class EdgeMetadataCQStrippingIterator extends WrappingIterator {
     
+    private static final byte[] EMPTY = new byte[0];
+    
+    // the transformed top key, as getTopKey is called several times for each key
+    private Key topKey = null;
+    
     @Override
     public Key getTopKey() {
-        Key key = super.getTopKey();
-        if (key.getColumnFamily().equals(datawave.data.ColumnFamilyConstants.COLF_EDGE)) {
-            return transformKey(key);
-        } else {
-            return key;
+        if (topKey == null) {
+            Key key = super.getTopKey();
+            if (key.getColumnFamily().equals(datawave.data.ColumnFamilyConstants.COLF_EDGE)) {
+                topKey = transformKey(key);
+            } else {
+                topKey = key;
+            }
         }
-        
+        return topKey;
+    }
+    
+    @Override
+    public void next() throws IOException {
+        topKey = null;
+        super.next();
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        topKey = null;
+        super.seek(range, columnFamilies, inclusive);
     }
     
     public static Key transformKey(Key key) {
-        String[] pieces = StringUtils.split(key.getColumnQualifier().toString(), EdgeKey.COL_SEPARATOR);
-        Text cq = new Text(pieces[0]);
+        ByteSequence row = key.getRowData();
+        ByteSequence cf = key.getColumnFamilyData();
+        ByteSequence cq = EdgeKeyView.getFirstPart(key.getColumnQualifierData());
         // notice that the visibility is being thrown away here now. It is not needed unless
         // optional attributes 2 and 3 are present.
-        return new Key(key.getRow(), key.getColumnFamily(), cq, new Text(), key.getTimestamp());
+        return new Key(row.getBackingArray(), row.offset(), row.length(), cf.getBackingArray(), cf.offset(), cf.length(), cq.getBackingArray(), cq.offset(),
+                        cq.length(), EMPTY, 0, 0, key.getTimestamp());
     }
 }
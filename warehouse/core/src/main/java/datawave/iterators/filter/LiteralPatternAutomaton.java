@@ -0,0 +1,301 @@
+package datawave.iterators.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An Aho-Corasick automaton which finds, in a single pass over a field's bytes, the best priority pattern that the field contains. Each pattern is a literal
+ * string which may be anchored to the start and/or end of the field, which covers the REGEX patterns of age off rules that are plain words or alternations of
+ * words. A LiteralPatternAutomaton is an immutable object, and as such is inherently threadsafe.
+ */
+public final class LiteralPatternAutomaton {
+    private final static Logger log = Logger.getLogger(LiteralPatternAutomaton.class);
+    protected static final int NO_MATCH = -1;
+    private static final int[] NO_OUTPUTS = new int[0];
+    
+    protected final int charClassCount;
+    protected final short[] charClasses;
+    protected final int[] transitionTable;
+    // the patterns ending at each state, including those reached through the failure links
+    protected final int[][] stateOutputs;
+    protected final int[] patternLengths;
+    protected final boolean[] patternStartAnchored;
+    protected final boolean[] patternEndAnchored;
+    protected final int[] patternPriorities;
+    
+    LiteralPatternAutomaton(int charClassCount, short[] charClasses, int[] transitionTable, int[][] stateOutputs, int[] patternLengths,
+                    boolean[] patternStartAnchored, boolean[] patternEndAnchored, int[] patternPriorities) {
+        this.charClassCount = charClassCount;
+        this.charClasses = charClasses;
+        this.transitionTable = transitionTable;
+        this.stateOutputs = stateOutputs;
+        this.patternLengths = patternLengths;
+        this.patternStartAnchored = patternStartAnchored;
+        this.patternEndAnchored = patternEndAnchored;
+        this.patternPriorities = patternPriorities;
+    }
+    
+    public int size() {
+        return stateOutputs.length;
+    }
+    
+    /**
+     * Scan the specified bytes, returning the best (lowest) priority of the patterns found, or -1 if no pattern was found.
+     */
+    public int scan(byte[] bytes, int offset, int length) {
+        int best = NO_MATCH;
+        int end = offset + length;
+        int curState = 0;
+        for (int i = offset; i < end; i++) {
+            curState = transitionTable[curState * charClassCount + charClasses[0xff & (int) bytes[i]]];
+            for (int pattern : stateOutputs[curState]) {
+                int priority = patternPriorities[pattern];
+                if (best != NO_MATCH && priority >= best) {
+                    continue;
+                }
+                if (patternStartAnchored[pattern] && i + 1 - patternLengths[pattern] != offset) {
+                    continue;
+                }
+                if (patternEndAnchored[pattern] && !isEnd(bytes, i + 1, end)) {
+                    continue;
+                }
+                best = priority;
+            }
+            if (best == 0) {
+                break;
+            }
+        }
+        return best;
+    }
+    
+    public int scan(byte[] bytes) {
+        return scan(bytes, 0, bytes.length);
+    }
+    
+    /**
+     * Without the MULTILINE flag, a REGEX {@code $} matches at the end of the input or before a line terminator at the end of the input.
+     */
+    private static boolean isEnd(byte[] bytes, int from, int end) {
+        switch (end - from) {
+            case 0:
+                return true;
+            case 1:
+                return bytes[from] == '\n' || bytes[from] == '\r';
+            case 2:
+                // \r\n, or U+0085 encoded in UTF-8
+                return (bytes[from] == '\r' && bytes[from + 1] == '\n') || (bytes[from] == (byte) 0xc2 && bytes[from + 1] == (byte) 0x85);
+            case 3:
+                // U+2028 or U+2029 encoded in UTF-8
+                return bytes[from] == (byte) 0xe2 && bytes[from + 1] == (byte) 0x80 && (bytes[from + 2] == (byte) 0xa8 || bytes[from + 2] == (byte) 0xa9);
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * A literal pattern parsed from a REGEX.
+     */
+    public static class Literal {
+        final byte[] bytes;
+        final boolean startAnchored;
+        final boolean endAnchored;
+        
+        Literal(byte[] bytes, boolean startAnchored, boolean endAnchored) {
+            this.bytes = bytes;
+            this.startAnchored = startAnchored;
+            this.endAnchored = endAnchored;
+        }
+        
+        @Override
+        public String toString() {
+            return (startAnchored ? "^" : "") + new String(bytes, StandardCharsets.US_ASCII) + (endAnchored ? "$" : "");
+        }
+    }
+    
+    /**
+     * Parse a REGEX into the literals that it matches when it is an alternation of printable ASCII words, each optionally anchored with {@code ^} and
+     * {@code $}. Escaped punctuation is treated as a literal character.
+     *
+     * @param regex
+     *            the REGEX
+     * @return the literals, or null if the REGEX uses any other construct and so must be evaluated as a REGEX
+     */
+    public static List<Literal> parseLiterals(String regex) {
+        if (regex == null || regex.isEmpty()) {
+            return null;
+        }
+        List<Literal> literals = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean startAnchored = false;
+        boolean endAnchored = false;
+        for (int i = 0; i <= regex.length(); i++) {
+            if (i == regex.length() || regex.charAt(i) == '|') {
+                if (current.length() == 0) {
+                    return null;
+                }
+                literals.add(new Literal(current.toString().getBytes(StandardCharsets.US_ASCII), startAnchored, endAnchored));
+                current.setLength(0);
+                startAnchored = false;
+                endAnchored = false;
+                continue;
+            }
+            char c = regex.charAt(i);
+            if (endAnchored) {
+                // nothing may follow the $ anchor in an alternative
+                return null;
+            } else if (c == '^' && current.length() == 0 && !startAnchored) {
+                startAnchored = true;
+            } else if (c == '$') {
+                endAnchored = true;
+            } else if (c == '\\') {
+                if (++i == regex.length()) {
+                    return null;
+                }
+                c = regex.charAt(i);
+                if (Character.isLetterOrDigit(c) || c < 0x20 || c > 0x7e) {
+                    // character classes, back references and quoting
+                    return null;
+                }
+                current.append(c);
+            } else if (c < 0x20 || c > 0x7e || ".?*+()[]{}^".indexOf(c) >= 0) {
+                return null;
+            } else {
+                current.append(c);
+            }
+        }
+        return literals;
+    }
+    
+    /**
+     * Automaton construction.
+     */
+    public static class Builder {
+        private final List<Map<Byte,Integer>> transitionMaps = new ArrayList<>();
+        private final List<List<Integer>> outputLists = new ArrayList<>();
+        private final List<Literal> patterns = new ArrayList<>();
+        private final List<Integer> priorities = new ArrayList<>();
+        
+        public Builder() {
+            addState();
+        }
+        
+        private int addState() {
+            transitionMaps.add(new HashMap<Byte,Integer>());
+            outputLists.add(new ArrayList<Integer>());
+            return transitionMaps.size() - 1;
+        }
+        
+        public int size() {
+            return patterns.size();
+        }
+        
+        /**
+         * Add a literal pattern to the automaton under construction, along with the priority reported when it is found. Lower priorities are preferred.
+         */
+        public Builder addLiteral(Literal literal, int priority) {
+            if (priority < 0) {
+                throw new IllegalArgumentException("Priority must not be negative: " + priority);
+            }
+            int curState = 0;
+            for (byte b : literal.bytes) {
+                Integer nextState = transitionMaps.get(curState).get(b);
+                if (nextState == null) {
+                    nextState = addState();
+                    transitionMaps.get(curState).put(b, nextState);
+                }
+                curState = nextState;
+            }
+            outputLists.get(curState).add(patterns.size());
+            patterns.add(literal);
+            priorities.add(priority);
+            return this;
+        }
+        
+        public LiteralPatternAutomaton build() {
+            long startTime = System.currentTimeMillis();
+            int numStates = transitionMaps.size();
+            
+            // Only create transition table entries for characters which appear in a pattern. All other characters share class 0, which always returns
+            // to the start state.
+            short[] charClasses = new short[256];
+            List<Byte> classReps = new ArrayList<>();
+            classReps.add(null);
+            for (Map<Byte,Integer> transMap : transitionMaps) {
+                for (byte b : transMap.keySet()) {
+                    if (charClasses[0xff & (int) b] == 0) {
+                        charClasses[0xff & (int) b] = (short) classReps.size();
+                        classReps.add(b);
+                    }
+                }
+            }
+            int charClassCount = classReps.size();
+            
+            // Build the transition table breadth first, following the failure link of a state for the characters which do not extend it.
+            int[] transitionTable = new int[numStates * charClassCount];
+            int[] failure = new int[numStates];
+            int[][] stateOutputs = new int[numStates][];
+            Queue<Integer> queue = new ArrayDeque<>();
+            queue.add(0);
+            while (!queue.isEmpty()) {
+                int state = queue.remove();
+                List<Integer> outputs = new ArrayList<>(outputLists.get(state));
+                if (state != 0) {
+                    for (int output : stateOutputs[failure[state]]) {
+                        outputs.add(output);
+                    }
+                }
+                stateOutputs[state] = toArray(outputs);
+                
+                Map<Byte,Integer> transMap = transitionMaps.get(state);
+                for (int charClass = 1; charClass < charClassCount; charClass++) {
+                    Integer nextState = transMap.get(classReps.get(charClass));
+                    int fallback = (state == 0) ? 0 : transitionTable[failure[state] * charClassCount + charClass];
+                    if (nextState == null) {
+                        transitionTable[state * charClassCount + charClass] = fallback;
+                    } else {
+                        transitionTable[state * charClassCount + charClass] = nextState;
+                        failure[nextState] = fallback;
+                        queue.add(nextState);
+                    }
+                }
+            }
+            
+            int[] patternLengths = new int[patterns.size()];
+            boolean[] patternStartAnchored = new boolean[patterns.size()];
+            boolean[] patternEndAnchored = new boolean[patterns.size()];
+            int[] patternPriorities = new int[patterns.size()];
+            for (int i = 0; i < patterns.size(); i++) {
+                patternLengths[i] = patterns.get(i).bytes.length;
+                patternStartAnchored[i] = patterns.get(i).startAnchored;
+                patternEndAnchored[i] = patterns.get(i).endAnchored;
+                patternPriorities[i] = priorities.get(i);
+            }
+            
+            if (log.isTraceEnabled()) {
+                log.trace(String.format("Constructed automaton on %d patterns with %d states and %d character classes in %dms", patterns.size(), numStates,
+                                charClassCount, System.currentTimeMillis() - startTime));
+            }
+            
+            return new LiteralPatternAutomaton(charClassCount, charClasses, transitionTable, stateOutputs, patternLengths, patternStartAnchored,
+                            patternEndAnchored, patternPriorities);
+        }
+        
+        private static int[] toArray(List<Integer> list) {
+            if (list.isEmpty()) {
+                return NO_OUTPUTS;
+            }
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package datawave.iterators.filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import datawave.iterators.filter.ageoff.AgeOffPeriod;
+import datawave.iterators.filter.ageoff.AppliedRule;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.log4j.Logger;
+
+/**
+ * A run of consecutive column family, column qualifier or column visibility REGEX rules, compiled into a single {@link LiteralPatternAutomaton}. The rules in
+ * a run test the same key field, and every pattern is an alternation of literal words, so the automaton finds the first rule of the run that matches in one
+ * pass over the field's bytes. This replaces decoding the field into a String and evaluating each REGEX in turn.
+ *
+ * A group is applied exactly as its rules would be in sequence: the first matching rule in configuration order determines the cut off, and the group is not
+ * applied when none of its rules match.
+ */
+public class LiteralRegexRuleGroup extends AppliedRule {
+    
+    private static final Logger log = Logger.getLogger(LiteralRegexRuleGroup.class);
+    
+    /**
+     * The key fields that the built in REGEX rules test
+     */
+    enum KeyField {
+        COLUMN_FAMILY {
+            @Override
+            ByteSequence get(Key k) {
+                return k.getColumnFamilyData();
+            }
+        },
+        COLUMN_QUALIFIER {
+            @Override
+            ByteSequence get(Key k) {
+                return k.getColumnQualifierData();
+            }
+        },
+        COLUMN_VISIBILITY {
+            @Override
+            ByteSequence get(Key k) {
+                return k.getColumnVisibilityData();
+            }
+        };
+        
+        abstract ByteSequence get(Key k);
+        
+        /**
+         * Only the built in classes are compiled, since a subclass may test a different field
+         */
+        static KeyField forRule(AppliedRule rule) {
+            if (rule.getClass() == ColumnFamilyRegexFilter.class) {
+                return COLUMN_FAMILY;
+            } else if (rule.getClass() == ColumnQualifierRegexFilter.class) {
+                return COLUMN_QUALIFIER;
+            } else if (rule.getClass() == ColumnVisibilityRegexFilter.class) {
+                return COLUMN_VISIBILITY;
+            }
+            return null;
+        }
+    }
+    
+    private final KeyField keyField;
+    private final List<RegexFilterBase> rules;
+    private final long[] cutOffs;
+    private final LiteralPatternAutomaton automaton;
+    private boolean ruleApplied = false;
+    
+    LiteralRegexRuleGroup(KeyField keyField, List<RegexFilterBase> rules, LiteralPatternAutomaton automaton) {
+        this.keyField = keyField;
+        this.rules = rules;
+        this.automaton = automaton;
+        this.cutOffs = new long[rules.size()];
+        for (int i = 0; i < cutOffs.length; i++) {
+            cutOffs[i] = rules.get(i).getCutOffMilliseconds();
+        }
+    }
+    
+    /**
+     * Replace each run of consecutive REGEX rules testing the same key field with literal patterns by a single group. All other rules, and REGEX rules which
+     * use any other REGEX construct, are kept as they are.
+     *
+     * @param filterList
+     *            the rules in configuration order
+     * @return the compiled rules in configuration order
+     */
+    public static List<AppliedRule> compile(Collection<AppliedRule> filterList) {
+        List<AppliedRule> compiled = new ArrayList<>(filterList.size());
+        KeyField runField = null;
+        List<RegexFilterBase> run = new ArrayList<>();
+        LiteralPatternAutomaton.Builder builder = new LiteralPatternAutomaton.Builder();
+        
+        for (AppliedRule rule : filterList) {
+            KeyField keyField = KeyField.forRule(rule);
+            List<LiteralPatternAutomaton.Literal> literals = (keyField == null) ? null : LiteralPatternAutomaton
+                            .parseLiterals(((RegexFilterBase) rule).getPatternStr());
+            if (keyField != runField || literals == null) {
+                addRun(compiled, runField, run, builder);
+                run = new ArrayList<>();
+                builder = new LiteralPatternAutomaton.Builder();
+                runField = null;
+            }
+            if (literals == null) {
+                compiled.add(rule);
+            } else {
+                for (LiteralPatternAutomaton.Literal literal : literals) {
+                    builder.addLiteral(literal, run.size());
+                }
+                run.add((RegexFilterBase) rule);
+                runField = keyField;
+            }
+        }
+        addRun(compiled, runField, run, builder);
+        
+        if (log.isDebugEnabled() && compiled.size() != filterList.size()) {
+            log.debug("Compiled " + filterList.size() + " age off rules into " + compiled.size());
+        }
+        return compiled;
+    }
+    
+    private static void addRun(List<AppliedRule> compiled, KeyField keyField, List<RegexFilterBase> run, LiteralPatternAutomaton.Builder builder) {
+        if (!run.isEmpty()) {
+            compiled.add(new LiteralRegexRuleGroup(keyField, run, builder.build()));
+        }
+    }
+    
+    @Override
+    public boolean accept(AgeOffPeriod period, Key k, Value v) {
+        ByteSequence field = keyField.get(k);
+        int match = automaton.scan(field.getBackingArray(), field.offset(), field.length());
+        if (match == LiteralPatternAutomaton.NO_MATCH) {
+            ruleApplied = false;
+            return true;
+        }
+        ruleApplied = true;
+        return k.getTimestamp() > cutOffs[match];
+    }
+    
+    @Override
+    public boolean accept(Key key, Value value) {
+        // each rule in the group has its own age off period
+        return accept(null, key, value);
+    }
+    
+    @Override
+    public boolean isFilterRuleApplied() {
+        return ruleApplied;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        return o == this;
+    }
+    
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+    
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + " [keyField=" + keyField + ", rules=" + rules + "]";
+    }
+}
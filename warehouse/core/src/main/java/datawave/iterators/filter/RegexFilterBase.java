@@ -121,6 +121,14 @@ public abstract class RegexFilterBase extends AppliedRule {
         ruleApplied = false;
     }
     
+    String getPatternStr() {
+        return patternStr;
+    }
+    
+    long getCutOffMilliseconds() {
+        return getPeriod().getCutOffMilliseconds();
+    }
+    
     @Override
     public boolean isFilterRuleApplied() {
         return ruleApplied;
@@ -0,0 +1,38 @@
+package datawave.util;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * Estimates the heap used by key/value pairs held in memory, for caches and queues which are bounded by their size in bytes rather than by their number of
+ * entries.
+ */
+public class KeyValueSizeEstimator {
+    
+    /**
+     * Estimated overhead of the entry, key and value objects beyond the bytes of the key and value
+     */
+    public static final int ENTRY_OVERHEAD = 96;
+    
+    private KeyValueSizeEstimator() {}
+    
+    /**
+     * Estimate the heap used by a key/value pair
+     *
+     * @param key
+     *            the key, may be null
+     * @param value
+     *            the value, may be null
+     * @return the estimated size in bytes
+     */
+    public static long sizeOf(Key key, Value value) {
+        long size = ENTRY_OVERHEAD;
+        if (null != key) {
+            size += key.getSize();
+        }
+        if (null != value) {
+            size += value.getSize();
+        }
+        return size;
+    }
+}
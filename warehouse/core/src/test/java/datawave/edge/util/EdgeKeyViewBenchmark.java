@@ -0,0 +1,111 @@
+package datawave.edge.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Compares the per key cost of decoding edge keys into an {@link EdgeKey} with reading the same fields through a reused {@link EdgeKeyView}. This is not run
+ * as part of the build; run the main method with the test classpath, optionally passing the number of keys (default 100000).
+ */
+public class EdgeKeyViewBenchmark {
+    
+    private static final int WARMUP_PASSES = 5;
+    private static final int PASSES = 20;
+    
+    private static List<Key> generate(int numKeys) {
+        Random random = new Random(42);
+        String[] dateTypes = {"A", "B", "C"};
+        List<Key> keys = new ArrayList<>(numKeys);
+        for (int i = 0; i < numKeys; i++) {
+            String source = "source" + random.nextInt(1000);
+            String date = String.format("2018%02d%02d", 1 + random.nextInt(12), 1 + random.nextInt(28));
+            String dateType = dateTypes[random.nextInt(dateTypes.length)];
+            if (random.nextInt(4) == 0) {
+                keys.add(new Key(new Text(source), new Text("STATS/ACTIVITY/TYPE" + random.nextInt(10) + "/FROM"), new Text(date + "/CAT1/ATTR2/ATTR3/"
+                                + dateType), new Text("ALL"), 814l));
+            } else {
+                keys.add(new Key(new Text(source + '\0' + "sink" + random.nextInt(1000)), new Text("TYPE" + random.nextInt(10) + "/FROM-TO"), new Text(date
+                                + "/CAT1-CAT2/ATTR2/ATTR3/" + dateType), new Text("ALL"), 814l));
+            }
+        }
+        return keys;
+    }
+    
+    private interface Pass {
+        long run(List<Key> keys);
+    }
+    
+    private static void run(String name, Pass pass, List<Key> keys) {
+        long result = 0;
+        for (int i = 0; i < WARMUP_PASSES; i++) {
+            result += pass.run(keys);
+        }
+        
+        System.gc();
+        long start = System.nanoTime();
+        for (int i = 0; i < PASSES; i++) {
+            result += pass.run(keys);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%-24s %8.1f ns/key (%d)", name, (double) elapsed / PASSES / keys.size(), result));
+    }
+    
+    public static void main(String[] args) {
+        List<Key> keys = generate(args.length > 0 ? Integer.parseInt(args[0]) : 100000);
+        
+        run("EdgeKey.decode", new Pass() {
+            @Override
+            public long run(List<Key> keys) {
+                long result = 0;
+                for (Key key : keys) {
+                    EdgeKey edgeKey = EdgeKey.decodeForInternal(key);
+                    result += edgeKey.getYyyymmdd().length() + edgeKey.getType().length() + edgeKey.getDateType().ordinal();
+                }
+                return result;
+            }
+        }, keys);
+        run("EdgeKeyView", new Pass() {
+            private final EdgeKeyView view = new EdgeKeyView();
+            
+            @Override
+            public long run(List<Key> keys) {
+                long result = 0;
+                for (Key key : keys) {
+                    view.set(key);
+                    ByteSequence date = view.getYyyymmdd();
+                    result += date.length() + view.getType().length() + view.getDateType().ordinal();
+                }
+                return result;
+            }
+        }, keys);
+        run("EdgeColumnParts date type", new Pass() {
+            @Override
+            public long run(List<Key> keys) {
+                long result = 0;
+                for (Key key : keys) {
+                    EdgeKey.EdgeColumnParts parts = new EdgeKey.EdgeColumnParts(key);
+                    EdgeKey.EDGE_VERSION version = EdgeKey.EDGE_VERSION.getEdgeVersion(parts);
+                    result += EdgeKey.DATE_TYPE.parse(parts.get(version.getDateTypeIndex())).ordinal();
+                }
+                return result;
+            }
+        }, keys);
+        run("EdgeKeyView date type", new Pass() {
+            private final EdgeKeyView view = new EdgeKeyView();
+            
+            @Override
+            public long run(List<Key> keys) {
+                long result = 0;
+                for (Key key : keys) {
+                    result += view.set(key).getDateType().ordinal();
+                }
+                return result;
+            }
+        }, keys);
+    }
+}
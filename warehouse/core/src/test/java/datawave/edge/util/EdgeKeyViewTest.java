@@ -0,0 +1,124 @@
+package datawave.edge.util;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EdgeKeyViewTest {
+    private EdgeTableTestKeyHelper testKeyHelper;
+    private EdgeKeyView view;
+    
+    @Before
+    public void before() {
+        testKeyHelper = new EdgeTableTestKeyHelper();
+        view = new EdgeKeyView();
+    }
+    
+    private static String string(ByteSequence bytes) {
+        return bytes == null ? null : bytes.toString();
+    }
+    
+    /**
+     * Verify the view exposes the same fields as the decoded edge key
+     */
+    private void verifySameAsDecoded(Key key) {
+        EdgeKey edgeKey = EdgeKey.decodeForInternal(key);
+        view.set(key);
+        String errorMessage = key.toString();
+        
+        Assert.assertEquals(errorMessage, edgeKey.getFormat(), view.getFormat());
+        Assert.assertEquals(errorMessage, edgeKey.getSourceData(), string(view.getSourceData()));
+        Assert.assertEquals(errorMessage, edgeKey.getType(), string(view.getType()));
+        Assert.assertEquals(errorMessage, edgeKey.getYyyymmdd(), string(view.getYyyymmdd()));
+        Assert.assertEquals(errorMessage, edgeKey.getSourceRelationship(), string(view.getSourceRelationship()));
+        Assert.assertEquals(errorMessage, edgeKey.getSourceAttribute1(), string(view.getSourceAttribute1()));
+        Assert.assertEquals(errorMessage, edgeKey.getDateType(), view.getDateType());
+        Assert.assertEquals(errorMessage, EdgeKey.getDateType(key), view.getDateType());
+        if (edgeKey.getFormat() == EdgeKey.EDGE_FORMAT.STATS) {
+            Assert.assertEquals(errorMessage, edgeKey.getStatsType(), view.getStatsType());
+            Assert.assertNull(errorMessage, view.getSinkData());
+            Assert.assertNull(errorMessage, view.getSinkRelationship());
+        } else {
+            Assert.assertEquals(errorMessage, edgeKey.getSinkData(), string(view.getSinkData()));
+            Assert.assertEquals(errorMessage, edgeKey.getRelationship(), string(view.getRelationship()));
+            Assert.assertEquals(errorMessage, edgeKey.getSinkRelationship(), string(view.getSinkRelationship()));
+            Assert.assertEquals(errorMessage, edgeKey.getAttribute1(), string(view.getAttribute1()));
+            Assert.assertEquals(errorMessage, edgeKey.getSinkAttribute1(), string(view.getSinkAttribute1()));
+        }
+        if (view.getVersion().hasAttribute2()) {
+            Assert.assertEquals(errorMessage, edgeKey.getAttribute2(), string(view.getAttribute2()));
+        } else {
+            Assert.assertNull(errorMessage, view.getAttribute2());
+        }
+        if (view.getVersion().hasAttribute3()) {
+            Assert.assertEquals(errorMessage, edgeKey.getAttribute3(), string(view.getAttribute3()));
+        } else {
+            Assert.assertNull(errorMessage, view.getAttribute3());
+        }
+    }
+    
+    @Test
+    public void testAllVersions() {
+        // this also verifies that reusing the view has no impact on correctness
+        verifySameAsDecoded(testKeyHelper.refStatsBase);
+        Assert.assertEquals(EdgeKey.EDGE_VERSION.STATS_BASE, view.getVersion());
+        verifySameAsDecoded(testKeyHelper.refStatsAttribute2);
+        Assert.assertEquals(EdgeKey.EDGE_VERSION.STATS_ATTRIBUTE2, view.getVersion());
+        verifySameAsDecoded(testKeyHelper.refBase);
+        Assert.assertEquals(EdgeKey.EDGE_VERSION.BASE, view.getVersion());
+        verifySameAsDecoded(testKeyHelper.refBaseAttribute2);
+        Assert.assertEquals(EdgeKey.EDGE_VERSION.BASE_ATTRIBUTE2, view.getVersion());
+        verifySameAsDecoded(testKeyHelper.refStatsProtobuf);
+        Assert.assertEquals(EdgeKey.EDGE_VERSION.STATS_PROTOBUF, view.getVersion());
+        verifySameAsDecoded(testKeyHelper.refProtobuf);
+        Assert.assertEquals(EdgeKey.EDGE_VERSION.PROTOBUF, view.getVersion());
+        verifySameAsDecoded(testKeyHelper.refStatsDateProtobuf);
+        Assert.assertEquals(EdgeKey.EDGE_VERSION.DATE_STATS_PROTOBUF, view.getVersion());
+        verifySameAsDecoded(testKeyHelper.refDateProtobuf);
+        Assert.assertEquals(EdgeKey.EDGE_VERSION.DATE_PROTOBUF, view.getVersion());
+    }
+    
+    @Test
+    public void testDateTypes() {
+        for (EdgeKey.DATE_TYPE dateType : new EdgeKey.DATE_TYPE[] {EdgeKey.DATE_TYPE.ACTIVITY_ONLY, EdgeKey.DATE_TYPE.EVENT_ONLY,
+                        EdgeKey.DATE_TYPE.ACTIVITY_AND_EVENT}) {
+            Key key = new Key(new Text("SOURCE\0SINK"), new Text("TYPE/SOURCEREL-SINKREL"), new Text("20180101/CAT1-CAT2/ATTR2/ATTR3/" + dateType));
+            Assert.assertEquals(dateType, view.set(key).getDateType());
+        }
+        
+        Key unknownDateType = new Key(new Text("SOURCE\0SINK"), new Text("TYPE/SOURCEREL-SINKREL"), new Text("20180101/CAT1-CAT2/ATTR2/ATTR3/X"));
+        Assert.assertNull(view.set(unknownDateType).getDateType());
+    }
+    
+    @Test
+    public void testUnknownVersion() {
+        Key key = new Key(new Text("SOURCE\0SINK"), new Text("TYPE"), new Text("20180101"));
+        view.set(key);
+        Assert.assertEquals(EdgeKey.EDGE_VERSION.UNKNOWN, view.getVersion());
+        Assert.assertEquals("SOURCE", string(view.getSourceData()));
+        Assert.assertNull(view.getType());
+        Assert.assertNull(view.getYyyymmdd());
+        Assert.assertEquals(EdgeKey.DATE_TYPE.OLD_EVENT, view.getDateType());
+        
+        // too many parts for any version
+        key = new Key(new Text("SOURCE\0SINK"), new Text("TYPE/SOURCEREL-SINKREL"), new Text("20180101/A/B/C/D/E/F/G/H/I"));
+        Assert.assertEquals(EdgeKey.EDGE_VERSION.UNKNOWN, view.set(key).getVersion());
+    }
+    
+    @Test
+    public void testGetFirstPart() {
+        Key key = new Key(new Text("TYPE/RELATIONSHIP"), new Text("edge"), new Text("ATTR1/ATTR2/ATTR3"));
+        Assert.assertEquals("ATTR1", string(EdgeKeyView.getFirstPart(key.getColumnQualifierData())));
+        Assert.assertEquals("edge", string(EdgeKeyView.getFirstPart(key.getColumnFamilyData())));
+        Assert.assertEquals("", string(EdgeKeyView.getFirstPart(new Key("row", "edge", "/ATTR2").getColumnQualifierData())));
+        Assert.assertEquals("", string(EdgeKeyView.getFirstPart(new Key("row", "edge", "").getColumnQualifierData())));
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testEmptyRow() {
+        view.set(new Key(new Text(""), new Text("TYPE/SOURCEREL-SINKREL"), new Text("20180101/CAT1-CAT2/ATTR2/ATTR3/A")));
+    }
+}
@@ -0,0 +1,146 @@
+package datawave.iterators.filter;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import datawave.iterators.filter.ageoff.AppliedRule;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConfigurableAgeOffFilterTest {
+    
+    private static final long ONE_DAY = 1000L * 60 * 60 * 24;
+    
+    private static final String[] COLUMN_FAMILIES = {"foo", "foobar", "xfoobarx", "bar", "xbarx", "oba", "baz", "xyz", "ba", "none", ""};
+    private static final String[] COLUMN_QUALIFIERS = {"abcd", "xbcdx", "zabc", "zzz", ""};
+    private static final String[] COLUMN_VISIBILITIES = {"PRIVATE", "PRIV&A", "PUBLIC", ""};
+    private static final double[] AGES_IN_DAYS = {0.5, 1.5, 3, 7, 12, 25, 45, 90};
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private long scanStart;
+    private File rules;
+    
+    @Before
+    public void setUp() throws IOException {
+        scanStart = System.currentTimeMillis();
+        rules = temporaryFolder.newFile("ageoff-rules.xml");
+        try (Writer writer = new FileWriter(rules)) {
+            writer.write("<ageoffConfiguration>\n");
+            writer.write("    <rules>\n");
+            // a run of column family rules with overlapping literals and different periods
+            writeRule(writer, ColumnFamilyRegexFilter.class, 1, "foo|foobar");
+            writeRule(writer, ColumnFamilyRegexFilter.class, 10, "^bar$|oba");
+            writeRule(writer, ColumnFamilyRegexFilter.class, 5, "bar");
+            // a different key field ends the run
+            writeRule(writer, ColumnQualifierRegexFilter.class, 3, "abc|bcd");
+            writeRule(writer, ColumnQualifierRegexFilter.class, 20, "^zabc$|bcd");
+            // a rule that cannot be compiled ends the run
+            writeRule(writer, ColumnFamilyRegexFilter.class, 30, "ba.");
+            writeRule(writer, ColumnVisibilityRegexFilter.class, 2, "PRIVATE|PRIV");
+            writeRule(writer, ColumnFamilyRegexFilter.class, 40, "xyz|^ba$");
+            writer.write("    </rules>\n");
+            writer.write("</ageoffConfiguration>\n");
+        }
+    }
+    
+    private static void writeRule(Writer writer, Class<?> filterClass, int ttlDays, String pattern) throws IOException {
+        writer.write("        <rule>\n");
+        writer.write("            <filterClass>" + filterClass.getName() + "</filterClass>\n");
+        writer.write("            <ttl units=\"d\">" + ttlDays + "</ttl>\n");
+        writer.write("            <matchPattern>" + pattern + "</matchPattern>\n");
+        writer.write("        </rule>\n");
+    }
+    
+    private ConfigurableAgeOffFilter createFilter(boolean compileRules) throws IOException {
+        Map<String,String> options = new HashMap<>();
+        options.put(AgeOffConfigParams.TTL, "60");
+        options.put(AgeOffConfigParams.TTL_UNITS, AgeOffTtlUnits.DAYS);
+        options.put(AgeOffConfigParams.FILTER_CONFIG, rules.getAbsolutePath());
+        options.put(AgeOffConfigParams.SCAN_START_TIMESTAMP, Long.toString(scanStart));
+        options.put(AgeOffConfigParams.COMPILE_RULES, Boolean.toString(compileRules));
+        
+        ConfigurableAgeOffFilter filter = new ConfigurableAgeOffFilter();
+        filter.init(new SortedMapIterator(new TreeMap<Key,Value>()), options, null);
+        return filter;
+    }
+    
+    private static int countGroups(ConfigurableAgeOffFilter filter) {
+        int count = 0;
+        for (AppliedRule rule : filter.filterList) {
+            if (rule instanceof LiteralRegexRuleGroup) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Test
+    public void testCompiledRulesMatchUncompiledRules() throws IOException {
+        ConfigurableAgeOffFilter compiled = createFilter(true);
+        ConfigurableAgeOffFilter uncompiled = createFilter(false);
+        
+        // the run of three column family rules, the run of two column qualifier rules, and the two single rules after "ba." are grouped
+        Assert.assertEquals(4, countGroups(compiled));
+        Assert.assertEquals(0, countGroups(uncompiled));
+        Assert.assertEquals(5, compiled.filterList.size());
+        Assert.assertEquals(8, uncompiled.filterList.size());
+        
+        int accepted = 0;
+        int rejected = 0;
+        Value value = new Value(new byte[0]);
+        for (String cf : COLUMN_FAMILIES) {
+            for (String cq : COLUMN_QUALIFIERS) {
+                for (String cv : COLUMN_VISIBILITIES) {
+                    for (double age : AGES_IN_DAYS) {
+                        Key key = new Key("row", cf, cq, cv, scanStart - (long) (age * ONE_DAY));
+                        boolean expected = uncompiled.accept(key, value);
+                        Assert.assertEquals("Mismatch for " + key, expected, compiled.accept(key, value));
+                        if (expected) {
+                            accepted++;
+                        } else {
+                            rejected++;
+                        }
+                    }
+                }
+            }
+        }
+        
+        // both outcomes are exercised
+        Assert.assertTrue(accepted > 0);
+        Assert.assertTrue(rejected > 0);
+    }
+    
+    @Test
+    public void testFirstMatchingRuleApplies() throws IOException {
+        for (boolean compileRules : new boolean[] {true, false}) {
+            ConfigurableAgeOffFilter filter = createFilter(compileRules);
+            Value value = new Value(new byte[0]);
+            
+            // foobar matches the first (1 day) and second (10 day) rules, the first applies
+            Assert.assertFalse(filter.accept(new Key("row", "foobar", "zzz", "", scanStart - 2 * ONE_DAY), value));
+            // bar matches the second (10 day) and third (5 day) rules, the second applies
+            Assert.assertTrue(filter.accept(new Key("row", "bar", "zzz", "", scanStart - 7 * ONE_DAY), value));
+            // xbarx only matches the third (5 day) rule
+            Assert.assertFalse(filter.accept(new Key("row", "xbarx", "zzz", "", scanStart - 7 * ONE_DAY), value));
+            // zabc matches the first (3 day) qualifier rule
+            Assert.assertFalse(filter.accept(new Key("row", "none", "zabc", "", scanStart - 7 * ONE_DAY), value));
+            // nothing matches, so the default (60 day) ttl applies
+            Assert.assertTrue(filter.accept(new Key("row", "none", "zzz", "", scanStart - 45 * ONE_DAY), value));
+            Assert.assertFalse(filter.accept(new Key("row", "none", "zzz", "", scanStart - 90 * ONE_DAY), value));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package datawave.iterators.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LiteralPatternAutomatonTest {
+    
+    private static LiteralPatternAutomaton build(String... regexes) {
+        LiteralPatternAutomaton.Builder builder = new LiteralPatternAutomaton.Builder();
+        for (int i = 0; i < regexes.length; i++) {
+            for (LiteralPatternAutomaton.Literal literal : LiteralPatternAutomaton.parseLiterals(regexes[i])) {
+                builder.addLiteral(literal, i);
+            }
+        }
+        return builder.build();
+    }
+    
+    private static int scan(LiteralPatternAutomaton automaton, String field) {
+        return automaton.scan(field.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * The index of the first REGEX which finds a match in the field, as the rules would be evaluated in sequence
+     */
+    private static int firstMatch(List<Pattern> patterns, String field) {
+        for (int i = 0; i < patterns.size(); i++) {
+            if (patterns.get(i).matcher(field).find()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    @Test
+    public void testParseLiterals() {
+        Assert.assertEquals("[BAZ]", String.valueOf(LiteralPatternAutomaton.parseLiterals("BAZ")));
+        Assert.assertEquals("[^edge, foo$, ^bar$]", String.valueOf(LiteralPatternAutomaton.parseLiterals("^edge|foo$|^bar$")));
+        Assert.assertEquals("[a.b, c|d]", String.valueOf(LiteralPatternAutomaton.parseLiterals("a\\.b|c\\|d")));
+        Assert.assertEquals("[fi-, a b]", String.valueOf(LiteralPatternAutomaton.parseLiterals("fi-|a b")));
+        
+        // anything else must be evaluated as a REGEX
+        for (String regex : new String[] {null, "", "^", "$", "a||b", "|a", "^edge*", "a.b", "a+", "(a)", "[ab]", "a{2}", "a?", "\\d", "\\Qa\\E", "a$b",
+                        "a^b", "^^a", "\\", "caf\u00e9"}) {
+            Assert.assertNull(regex, LiteralPatternAutomaton.parseLiterals(regex));
+        }
+    }
+    
+    @Test
+    public void testScan() {
+        LiteralPatternAutomaton automaton = build("BAZ", "^edge|foo$", "^bar$", "ba");
+        Assert.assertEquals(0, scan(automaton, "xBAZx"));
+        Assert.assertEquals(1, scan(automaton, "edges"));
+        Assert.assertEquals(3, scan(automaton, "an edge ba"));
+        Assert.assertEquals(1, scan(automaton, "a foo"));
+        Assert.assertEquals(1, scan(automaton, "a foo\n"));
+        Assert.assertEquals(-1, scan(automaton, "a foo\n\n"));
+        Assert.assertEquals(2, scan(automaton, "bar"));
+        Assert.assertEquals(3, scan(automaton, "bars"));
+        Assert.assertEquals(0, scan(automaton, "bar BAZ"));
+        Assert.assertEquals(-1, scan(automaton, "nothing"));
+        Assert.assertEquals(-1, scan(automaton, ""));
+        
+        // a match may be offset within a larger array
+        byte[] bytes = "xxedgexx".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(1, automaton.scan(bytes, 2, 4));
+        Assert.assertEquals(-1, automaton.scan(bytes, 1, 5));
+    }
+    
+    @Test
+    public void testOverlappingPatterns() {
+        // the failure links must report patterns which are suffixes of other partial matches
+        LiteralPatternAutomaton automaton = build("abcd", "bc", "abx", "c");
+        Assert.assertEquals(1, scan(automaton, "abce"));
+        Assert.assertEquals(0, scan(automaton, "xabcd"));
+        Assert.assertEquals(2, scan(automaton, "aabx"));
+        Assert.assertEquals(3, scan(automaton, "ac"));
+    }
+    
+    @Test
+    public void fuzzAgainstRegex() {
+        Random random = new Random(42);
+        String alphabet = "abc.-";
+        for (int iteration = 0; iteration < 200; iteration++) {
+            int numRules = 1 + random.nextInt(6);
+            List<String> regexes = new ArrayList<>();
+            List<Pattern> patterns = new ArrayList<>();
+            for (int i = 0; i < numRules; i++) {
+                StringBuilder regex = new StringBuilder();
+                int numAlternatives = 1 + random.nextInt(3);
+                for (int j = 0; j < numAlternatives; j++) {
+                    if (j > 0) {
+                        regex.append('|');
+                    }
+                    if (random.nextInt(4) == 0) {
+                        regex.append('^');
+                    }
+                    int length = 1 + random.nextInt(3);
+                    for (int k = 0; k < length; k++) {
+                        char c = alphabet.charAt(random.nextInt(alphabet.length()));
+                        regex.append(c == '.' ? "\\." : String.valueOf(c));
+                    }
+                    if (random.nextInt(4) == 0) {
+                        regex.append('$');
+                    }
+                }
+                regexes.add(regex.toString());
+                patterns.add(Pattern.compile(regex.toString()));
+            }
+            LiteralPatternAutomaton automaton = build(regexes.toArray(new String[regexes.size()]));
+            
+            for (int i = 0; i < 50; i++) {
+                StringBuilder field = new StringBuilder();
+                int length = random.nextInt(10);
+                for (int k = 0; k < length; k++) {
+                    field.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                if (random.nextInt(10) == 0) {
+                    field.append('\n');
+                }
+                Assert.assertEquals(regexes + " " + field, firstMatch(patterns, field.toString()), scan(automaton, field.toString()));
+            }
+        }
+    }
+}
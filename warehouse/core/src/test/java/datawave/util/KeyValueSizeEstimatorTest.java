@@ -0,0 +1,20 @@
+package datawave.util;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeyValueSizeEstimatorTest {
+    
+    @Test
+    public void testSizeOf() {
+        Key key = new Key("row", "cf", "cq", "cv", 1l);
+        Value value = new Value(new byte[100]);
+        
+        Assert.assertEquals(KeyValueSizeEstimator.ENTRY_OVERHEAD + key.getSize() + 100, KeyValueSizeEstimator.sizeOf(key, value));
+        Assert.assertEquals(KeyValueSizeEstimator.ENTRY_OVERHEAD + key.getSize(), KeyValueSizeEstimator.sizeOf(key, null));
+        Assert.assertEquals(KeyValueSizeEstimator.ENTRY_OVERHEAD + 100, KeyValueSizeEstimator.sizeOf(null, value));
+        Assert.assertEquals(KeyValueSizeEstimator.ENTRY_OVERHEAD, KeyValueSizeEstimator.sizeOf(null, null));
+    }
+}
@@ -36,6 +36,16 @@ public class CSVHelper extends DataTypeHelperImpl {
      */
     public static final String PROCESS_EXTRA_FIELDS = ".data.process.extra.fields";
     
+    /**
+     * Parameter to specify that quoted fields may contain newlines, so a record may span multiple lines. Only supported with the "," and "\t" separators.
+     * <p>
+     * A split which starts part way through a file skips lines until one starts a record with as many fields as the header. Files are therefore only split
+     * when a header is configured and extra fields are not processed. Even then, a line within a quoted field whose quotes balance and which has as many
+     * fields as the header is taken as the start of a record, so a split may begin in the middle of a record. Compress files whose quoted fields can contain
+     * complete records, so that they are never split.
+     */
+    public static final String MULTI_LINE_RECORDS = ".data.multiline.records";
+    
     /**
      * Parameter to explicitly specify a subset of fields that should be added to the event, all others are dropped.
      */
@@ -122,6 +132,7 @@ public class CSVHelper extends DataTypeHelperImpl {
     private String separator = null;
     private boolean skipHeaderRow = false;
     private boolean processExtraFields = false;
+    private boolean multiLineRecords = false;
     private Map<String,String> multiValuedFields = new HashMap<>();
     private Map<String,String> multiValuedFieldsBlacklist = new HashMap<>();
     private boolean hasMultiValuedFieldsBlacklist = false;
@@ -164,6 +175,9 @@ public class CSVHelper extends DataTypeHelperImpl {
         // Get the process extra fields property
         this.processExtraFields = config.getBoolean(this.getType().typeName() + PROCESS_EXTRA_FIELDS, false);
         
+        // Get the multi-line records property
+        this.multiLineRecords = config.getBoolean(this.getType().typeName() + MULTI_LINE_RECORDS, false);
+        
         // Get the whitelist of event fields to keep.
         Collection<String> cw = config.getStringCollection(this.getType().typeName() + FIELD_WHITELIST);
         if (cw != null && !cw.isEmpty()) {
@@ -265,6 +279,14 @@ public class CSVHelper extends DataTypeHelperImpl {
         return processExtraFields;
     }
     
+    public boolean multiLineRecords() {
+        return multiLineRecords;
+    }
+    
+    public void setMultiLineRecords(boolean multiLineRecords) {
+        this.multiLineRecords = multiLineRecords;
+    }
+    
     public Map<String,String> getMultiValuedFields() {
         return multiValuedFields;
     }
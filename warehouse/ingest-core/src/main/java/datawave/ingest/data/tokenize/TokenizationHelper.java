@@ -96,6 +96,9 @@ public class TokenizationHelper {
     public static final String TOKEN_OFFSET_CACHE_MAX_SIZE = ".token.offset.cache.max.size";
     private int tokenOffsetCacheMaxSize = 10000;
     
+    public static final String TOKENIZATION_CACHE_MAX_SIZE = ".tokenization.cache.max.size";
+    private int tokenizationCacheMaxSize = 100000;
+    
     public static final String TERM_LENGTH_MINIMUM = ".term.length.minimum";
     private int termLengthMinimum = 1;
     
@@ -145,6 +148,7 @@ public class TokenizationHelper {
         termLengthMinimum = conf.getInt(helper.getType().typeName() + TERM_LENGTH_MINIMUM, termLengthMinimum);
         termLengthWarningLimit = conf.getInt(helper.getType().typeName() + TERM_LENGTH_WARNING_LIMIT, termLengthWarningLimit);
         tokenOffsetCacheMaxSize = conf.getInt(helper.getType().typeName() + TOKEN_OFFSET_CACHE_MAX_SIZE, tokenOffsetCacheMaxSize);
+        tokenizationCacheMaxSize = conf.getInt(helper.getType().typeName() + TOKENIZATION_CACHE_MAX_SIZE, tokenizationCacheMaxSize);
         synonymGenerationEnabled = conf.getBoolean(helper.getType().typeName() + SYNONYM_CREATE, synonymGenerationEnabled);
         termWordTokensEnabled = conf.getBoolean(helper.getType().typeName() + TERM_WORD_TOKENS, termWordTokensEnabled);
         dirtyWordTokensEnabled = conf.getBoolean(helper.getType().typeName() + DIRTY_WORD_TOKENS, dirtyWordTokensEnabled);
@@ -243,6 +247,13 @@ public class TokenizationHelper {
         return tokenOffsetCacheMaxSize;
     }
     
+    /**
+     * @return the maximum number of tokens held by the tokenization cache, zero to disable it
+     */
+    public int getTokenizationCacheMaxSize() {
+        return tokenizationCacheMaxSize;
+    }
+    
     public String[] getTermTypeBlacklist() {
         return termTypeBlacklist;
     }
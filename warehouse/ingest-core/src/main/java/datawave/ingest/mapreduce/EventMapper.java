@@ -3,6 +3,7 @@ package datawave.ingest.mapreduce;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import datawave.data.normalizer.DateNormalizer;
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.Type;
@@ -27,6 +28,7 @@ import datawave.ingest.mapreduce.job.metrics.MetricsConfiguration;
 import datawave.ingest.mapreduce.job.metrics.MetricsService;
 import datawave.ingest.mapreduce.job.metrics.ReusableMetricsLabels;
 import datawave.ingest.mapreduce.job.statsd.StatsDEnabledMapper;
+import datawave.ingest.mapreduce.job.writer.BufferedContextWriter;
 import datawave.ingest.mapreduce.job.writer.BulkContextWriter;
 import datawave.ingest.mapreduce.job.writer.ContextWriter;
 import datawave.ingest.mapreduce.job.writer.LiveContextWriter;
@@ -44,6 +46,8 @@ import datawave.util.time.TraceStopwatch;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.CounterGroup;
 import org.apache.hadoop.mapreduce.Counters;
@@ -53,10 +57,13 @@ import org.apache.log4j.Logger;
 import org.apache.log4j.NDC;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -66,6 +73,11 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -78,9 +90,11 @@ import java.util.concurrent.TimeUnit;
  * is within the window, then the map will parse the Event into a map of field names and field values, the map method will call the process() method on each
  * DataTypeHandler implementation that has been configured for the Type of Event.
  *
- * This class no longer supports processing events in a multi-threaded fashion as that was proven to NOT be beneficial in the long run (i.e. The bulk of the
- * time is spent in the ContextWriter which is synchronized. Also multithreading mean potentially more memory use which we should already be maximizing per
- * machine in the hadoop map-reduce cluster.)
+ * By default events are processed on the mapper thread. If the THREADS parameter is set to more than one, then the handlers are applied to the events by a
+ * bounded pool of worker threads instead. Each worker thread gets its own instances of the DataTypeHandlers, and each event is written to its own
+ * BufferedContextWriter. The buffered output is written to the ContextWriter by the mapper thread in the order that the events were read, so the output is
+ * the same as when processing in a single thread. Note that multithreading means potentially more memory use, and that the event metrics are only supported
+ * when processing in a single thread.
  *
  *
  *
@@ -107,6 +121,17 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     public static final String CONTEXT_WRITER_OUTPUT_TABLE_COUNTERS = "ingest.event.mapper.context.writer.output.table.counters";
     public static final String FILE_NAME_COUNTERS = "ingest.event.mapper.file.name.counters";
     
+    /**
+     * The number of worker threads used to process events. One (the default) processes the events on the mapper thread.
+     */
+    public static final String THREADS = "ingest.event.mapper.threads";
+    
+    /**
+     * The maximum number of events read ahead of the oldest event still being processed when using worker threads. Defaults to four times the number of
+     * threads.
+     */
+    public static final String THREADS_QUEUE_SIZE = "ingest.event.mapper.threads.queue.size";
+    
     protected boolean createSequenceFileName = true;
     
     protected boolean createRawFileName = true;
@@ -156,6 +181,12 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     private MetricsService<K2,V2> metricsService;
     private ReusableMetricsLabels metricsLabels;
     
+    private ExecutorService workerPool = null;
+    private int maxPendingEvents = 0;
+    private final Deque<Future<EventTask>> pendingEvents = new ArrayDeque<>();
+    private final ThreadLocal<EventWorker> eventWorker = new ThreadLocal<>();
+    private final List<EventWorker> eventWorkers = Collections.synchronizedList(new ArrayList<EventWorker>());
+    
     /**
      * Set up the datatype handlers
      */
@@ -259,6 +290,17 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         
         validators = ArrayListMultimap.create();
         
+        int threads = context.getConfiguration().getInt(THREADS, 1);
+        if (threads > 1) {
+            if (metricsEnabled) {
+                log.warn("Metrics are only supported when processing events in a single thread, ignoring " + THREADS + " of " + threads);
+            } else {
+                workerPool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("EventMapper-worker-%d").setDaemon(true).build());
+                maxPendingEvents = context.getConfiguration().getInt(THREADS_QUEUE_SIZE, threads * 4);
+                log.info("EventMapper processing events with " + threads + " worker threads");
+            }
+        }
+        
         if (null != split) {
             if (filterConf.getBoolean(FILE_NAME_COUNTERS, true)) {
                 getCounter(context, IngestInput.FILE_NAME.name(), split.getPath().toString()).increment(1);
@@ -285,69 +327,81 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         // Do not load the type twice
         if (!typeMap.containsKey(typeStr)) {
             
-            typeMap.put(typeStr, new ArrayList<DataTypeHandler<K1>>());
-            
             long myInterval = context.getConfiguration().getLong(typeStr + "." + DISCARD_INTERVAL, interval);
             
             dataTypeDiscardIntervalCache.put(typeStr, myInterval);
             
             log.info("Setting up type: " + typeStr + " with interval " + myInterval);
             
-            if (!TypeRegistry.getTypeNames().contains(typeStr)) {
-                log.warn("Attempted to load configuration for a type that does not exist in the registry: " + typeStr);
-            } else {
-                Type t = TypeRegistry.getType(typeStr);
-                String fieldValidators = context.getConfiguration().get(typeStr + FieldValidator.FIELD_VALIDATOR_NAMES);
-                
-                if (fieldValidators != null) {
-                    String[] validatorClasses = StringUtils.split(fieldValidators, ",");
-                    for (String validatorClass : validatorClasses) {
-                        try {
-                            Class<? extends FieldValidator> clazz = Class.forName(validatorClass).asSubclass(FieldValidator.class);
-                            FieldValidator validator = clazz.newInstance();
-                            validator.init(t, context.getConfiguration());
-                            validators.put(typeStr, validator);
-                        } catch (ClassNotFoundException e) {
-                            log.error("Error finding validator " + validatorClass, e);
-                        } catch (InstantiationException | IllegalAccessException e) {
-                            log.error("Error creating validator " + validatorClass, e);
-                        }
+            typeMap.put(typeStr, createDataTypeHandlers(typeStr, context, validators));
+            
+            log.info("EventMapper configured with the following handlers for " + typeStr + ": " + typeMap.get(typeStr));
+        }
+        
+        return typeMap.get(typeStr);
+    }
+    
+    /**
+     * Create and set up new instances of the data type handlers for a given type name. The field validators for the type are added to the given validators.
+     *
+     * @return the data type handlers
+     */
+    private List<DataTypeHandler<K1>> createDataTypeHandlers(String typeStr, Context context, Multimap<String,FieldValidator> validators) {
+        List<DataTypeHandler<K1>> handlers = new ArrayList<>();
+        
+        if (!TypeRegistry.getTypeNames().contains(typeStr)) {
+            log.warn("Attempted to load configuration for a type that does not exist in the registry: " + typeStr);
+        } else {
+            Type t = TypeRegistry.getType(typeStr);
+            String fieldValidators = context.getConfiguration().get(typeStr + FieldValidator.FIELD_VALIDATOR_NAMES);
+            
+            if (fieldValidators != null) {
+                String[] validatorClasses = StringUtils.split(fieldValidators, ",");
+                for (String validatorClass : validatorClasses) {
+                    try {
+                        Class<? extends FieldValidator> clazz = Class.forName(validatorClass).asSubclass(FieldValidator.class);
+                        FieldValidator validator = clazz.newInstance();
+                        validator.init(t, context.getConfiguration());
+                        validators.put(typeStr, validator);
+                    } catch (ClassNotFoundException e) {
+                        log.error("Error finding validator " + validatorClass, e);
+                    } catch (InstantiationException | IllegalAccessException e) {
+                        log.error("Error creating validator " + validatorClass, e);
                     }
                 }
-                
-                String[] handlerClassNames = t.getDefaultDataTypeHandlers();
-                
-                if (handlerClassNames != null) {
-                    for (String handlerClassName : handlerClassNames) {
-                        log.info("Configuring handler: " + handlerClassName);
-                        try {
-                            @SuppressWarnings("unchecked")
-                            Class<? extends DataTypeHandler<K1>> clazz = (Class<? extends DataTypeHandler<K1>>) Class.forName(handlerClassName);
-                            DataTypeHandler<K1> h = clazz.newInstance();
-                            // Create a counter initialized to zero for all handler types.
-                            getCounter(context, IngestOutput.ROWS_CREATED.name(), h.getClass().getSimpleName()).increment(0);
-                            // Trick here. Set the data.name parameter to type T, then call setup on the DataTypeHandler
-                            Configuration clone = new Configuration(context.getConfiguration());
-                            clone.set(DataTypeHelper.Properties.DATA_NAME, t.typeName());
-                            // Use the StandaloneReporter and StandaloneTaskAttemptContext for the Handlers. Because the StandaloneTaskAttemptContext
-                            // is a subclass of TaskInputOutputContext and TaskAttemptContext is not. We are using this to record the counters during
-                            // processing. We will need to add the counters in the StandaloneReporter to the Map.Context in the close call.
-                            // TaskAttemptContext newContext = new TaskAttemptContext(clone, context.getTaskAttemptID());
-                            StandaloneTaskAttemptContext<K1,V1,K2,V2> newContext = new StandaloneTaskAttemptContext<>(clone, reporter);
-                            h.setup(newContext);
-                            typeMap.get(typeStr).add(h);
-                        } catch (ClassNotFoundException e) {
-                            log.error("Error finding DataTypeHandler " + handlerClassName, e);
-                        } catch (InstantiationException | IllegalAccessException e) {
-                            log.error("Error creating DataTypeHandler " + handlerClassName, e);
-                        }
+            }
+            
+            String[] handlerClassNames = t.getDefaultDataTypeHandlers();
+            
+            if (handlerClassNames != null) {
+                for (String handlerClassName : handlerClassNames) {
+                    log.info("Configuring handler: " + handlerClassName);
+                    try {
+                        @SuppressWarnings("unchecked")
+                        Class<? extends DataTypeHandler<K1>> clazz = (Class<? extends DataTypeHandler<K1>>) Class.forName(handlerClassName);
+                        DataTypeHandler<K1> h = clazz.newInstance();
+                        // Create a counter initialized to zero for all handler types.
+                        getCounter(context, IngestOutput.ROWS_CREATED.name(), h.getClass().getSimpleName()).increment(0);
+                        // Trick here. Set the data.name parameter to type T, then call setup on the DataTypeHandler
+                        Configuration clone = new Configuration(context.getConfiguration());
+                        clone.set(DataTypeHelper.Properties.DATA_NAME, t.typeName());
+                        // Use the StandaloneReporter and StandaloneTaskAttemptContext for the Handlers. Because the StandaloneTaskAttemptContext
+                        // is a subclass of TaskInputOutputContext and TaskAttemptContext is not. We are using this to record the counters during
+                        // processing. We will need to add the counters in the StandaloneReporter to the Map.Context in the close call.
+                        // TaskAttemptContext newContext = new TaskAttemptContext(clone, context.getTaskAttemptID());
+                        StandaloneTaskAttemptContext<K1,V1,K2,V2> newContext = new StandaloneTaskAttemptContext<>(clone, reporter);
+                        h.setup(newContext);
+                        handlers.add(h);
+                    } catch (ClassNotFoundException e) {
+                        log.error("Error finding DataTypeHandler " + handlerClassName, e);
+                    } catch (InstantiationException | IllegalAccessException e) {
+                        log.error("Error creating DataTypeHandler " + handlerClassName, e);
                     }
                 }
             }
-            log.info("EventMapper configured with the following handlers for " + typeStr + ": " + typeMap.get(typeStr));
         }
         
-        return typeMap.get(typeStr);
+        return handlers;
     }
     
     private List<String> getDataTypeFilterClassNames() {
@@ -381,7 +435,7 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         }
         
         // ensure this datatype's handlers etc are loaded such that the dataTypeDiscardIntervalCache and validators are filled as well
-        List<DataTypeHandler<K1>> typeHandlers = loadDataType(value.getDataType().typeName(), context);
+        loadDataType(value.getDataType().typeName(), context);
         
         // This is a little bit fragile, but there is no other way
         // to get the context on a partitioner, and we are only
@@ -414,6 +468,9 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
             EventErrorSummary errorSummary = (EventErrorSummary) (value.getAuxData());
             value.setAuxData(null);
             
+            // write the output of the events being processed first, so that the purge is written in the same order as when processing in a single thread
+            commitEvents(0, context);
+            
             // delete these keys from the error table. If this fails then nothing will have changed
             if (log.isInfoEnabled())
                 log.info("Purging event from the " + errorSummary.getTableName() + " table");
@@ -450,10 +507,10 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
             return;
         }
         
-        // Add the list of handlers with the ALL specified handlers
-        List<DataTypeHandler<K1>> handlers = new ArrayList<>();
-        handlers.addAll(typeHandlers);
-        handlers.addAll(loadDataType(TypeRegistry.ALL_PREFIX, context));
+        // Add the types of the handlers with the ALL specified handlers
+        List<String> handlerTypes = new ArrayList<>();
+        handlerTypes.add(value.getDataType().typeName());
+        handlerTypes.add(TypeRegistry.ALL_PREFIX);
         
         // Always include any event errors in the counters
         for (String error : value.getErrors()) {
@@ -463,10 +520,10 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         // switch over to the errorHandlerList if still a fatal error
         if (value.fatalError()) {
             // now clear out the handlers to avoid processing this event
-            handlers.clear();
+            handlerTypes.clear();
             if (!value.ignorableError()) {
                 // since this is not an ignorable error, lets add the error handlers back into the list
-                handlers.addAll(loadDataType(TypeRegistry.ERROR_PREFIX, context));
+                handlerTypes.add(TypeRegistry.ERROR_PREFIX);
                 
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR).increment(1);
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR.name(), "ValidationError").increment(1);
@@ -478,49 +535,30 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
             context.progress();
         }
         
+        // Hand the event off to the worker threads if configured
+        if (workerPool != null) {
+            try {
+                submitEvent(key, value, handlerTypes, context);
+            } finally {
+                // Remove ORIG_FILE from NDC that was populated by reprocessing events from the error tables
+                if (reprocessedNDCPush) {
+                    NDC.pop();
+                }
+            }
+            offset++;
+            return;
+        }
+        
+        List<DataTypeHandler<K1>> handlers = new ArrayList<>();
+        for (String handlerType : handlerTypes) {
+            handlers.addAll(loadDataType(handlerType, context));
+        }
+        
         Multimap<String,NormalizedContentInterface> fields = HashMultimap.create();
         try {
             processEvent(key, value, handlers, fields, context);
         } catch (Exception e) {
-            // Rollback anything written for this event
-            contextWriter.rollback();
-            
-            // Fail job on constraint violations
-            if (e instanceof ConstraintChecker.ConstraintViolationException) {
-                throw ((RuntimeException) e);
-            }
-            
-            // ensure they know we are still working on it
-            context.progress();
-            
-            // log error
-            log.error("Runtime exception processing event", e);
-            
-            // now lets dump to the errors table
-            // first set the exception on the event if not a field normalization error in which case the fields contain the errors
-            if (!(e instanceof FieldNormalizationError)) {
-                value.setAuxData(e);
-            }
-            for (DataTypeHandler<K1> handler : loadDataType(TypeRegistry.ERROR_PREFIX, context)) {
-                if (log.isTraceEnabled())
-                    log.trace("executing handler: " + handler.getClass().getName());
-                try {
-                    executeHandler(key, value, fields, handler, context);
-                    context.progress();
-                } catch (Exception e2) {
-                    // This is a real bummer, we had a critical exception attempting to throw the event into the error table.
-                    // lets terminate this job
-                    log.error("Failed to process error data handlers for an event", e2);
-                    throw new IOException("Failed to process error data handlers for an event", e2);
-                }
-            }
-            
-            // now create some counters
-            getCounter(context, IngestProcess.RUNTIME_EXCEPTION).increment(1);
-            List<String> exceptions = getExceptionSynopsis(e);
-            for (String exception : exceptions) {
-                getCounter(context, IngestProcess.RUNTIME_EXCEPTION.name(), exception).increment(1);
-            }
+            handleEventException(e, key, value, fields, loadDataType(TypeRegistry.ERROR_PREFIX, context), context, contextWriter);
         } finally {
             // Remove ORIG_FILE from NDC that was populated by reprocessing events from the error tables
             if (reprocessedNDCPush) {
@@ -545,6 +583,139 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         }
     }
     
+    /**
+     * Rollback anything written for an event which failed processing, and write the event using the error handlers instead.
+     *
+     * @param e
+     *            The exception thrown while processing the event
+     * @param errorHandlers
+     *            The error handlers to apply
+     * @param writer
+     *            The context writer the event was written to
+     */
+    private void handleEventException(Exception e, K1 key, RawRecordContainer value, Multimap<String,NormalizedContentInterface> fields,
+                    List<DataTypeHandler<K1>> errorHandlers, Context context, ContextWriter<K2,V2> writer) throws IOException, InterruptedException {
+        // Rollback anything written for this event
+        writer.rollback();
+        
+        // Fail job on constraint violations
+        if (e instanceof ConstraintChecker.ConstraintViolationException) {
+            throw ((RuntimeException) e);
+        }
+        
+        // ensure they know we are still working on it
+        context.progress();
+        
+        // log error
+        log.error("Runtime exception processing event", e);
+        
+        // now lets dump to the errors table
+        // first set the exception on the event if not a field normalization error in which case the fields contain the errors
+        if (!(e instanceof FieldNormalizationError)) {
+            value.setAuxData(e);
+        }
+        for (DataTypeHandler<K1> handler : errorHandlers) {
+            if (log.isTraceEnabled())
+                log.trace("executing handler: " + handler.getClass().getName());
+            try {
+                executeHandler(key, value, fields, handler, context, writer);
+                context.progress();
+            } catch (Exception e2) {
+                // This is a real bummer, we had a critical exception attempting to throw the event into the error table.
+                // lets terminate this job
+                log.error("Failed to process error data handlers for an event", e2);
+                throw new IOException("Failed to process error data handlers for an event", e2);
+            }
+        }
+        
+        // now create some counters
+        getCounter(context, IngestProcess.RUNTIME_EXCEPTION).increment(1);
+        List<String> exceptions = getExceptionSynopsis(e);
+        for (String exception : exceptions) {
+            getCounter(context, IngestProcess.RUNTIME_EXCEPTION.name(), exception).increment(1);
+        }
+    }
+    
+    /**
+     * Submit an event to the worker threads, and write the output of the oldest events if too many are pending.
+     */
+    @SuppressWarnings("unchecked")
+    private void submitEvent(K1 key, V1 value, List<String> handlerTypes, Context context) throws IOException, InterruptedException {
+        // the record reader may reuse the key and value, so the task gets its own copies
+        K1 keyCopy = (key instanceof Writable) ? (K1) WritableUtils.clone((Writable) key, context.getConfiguration()) : key;
+        EventTask task = new EventTask(keyCopy, value.copy(), handlerTypes, offset, NDC.cloneStack(), context);
+        pendingEvents.add(workerPool.submit(task));
+        commitEvents(maxPendingEvents, context);
+    }
+    
+    /**
+     * Write the output of the oldest submitted events to the context writer until no more than maxPending events remain. The output is written in the order
+     * that the events were read, regardless of the order in which the worker threads finish them.
+     */
+    private void commitEvents(int maxPending, Context context) throws IOException, InterruptedException {
+        while (pendingEvents.size() > maxPending) {
+            EventTask task;
+            try {
+                task = pendingEvents.removeFirst().get();
+            } catch (ExecutionException e) {
+                // nothing after the failed event may be written, and the job fails just as it would in a single thread
+                for (Future<EventTask> pending : pendingEvents) {
+                    pending.cancel(true);
+                }
+                pendingEvents.clear();
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("Failed to process an event", cause);
+            }
+            
+            try {
+                contextWriter.write(task.writer.getEntries(), context);
+            } finally {
+                contextWriter.commit(context);
+                context.progress();
+            }
+            
+            getCounter(context, IngestOutput.EVENTS_PROCESSED.name(), task.value.getDataType().typeName().toUpperCase()).increment(1);
+        }
+    }
+    
+    /**
+     * @return the worker state of the current worker thread
+     */
+    private EventWorker getEventWorker() {
+        EventWorker worker = eventWorker.get();
+        if (worker == null) {
+            worker = new EventWorker();
+            eventWorker.set(worker);
+            eventWorkers.add(worker);
+        }
+        return worker;
+    }
+    
+    /**
+     * @return the handlers of the mapper thread and of all of the worker threads
+     */
+    private List<DataTypeHandler<K1>> getAllHandlers() {
+        List<DataTypeHandler<K1>> handlers = new ArrayList<>();
+        for (List<DataTypeHandler<K1>> typeHandlers : typeMap.values()) {
+            handlers.addAll(typeHandlers);
+        }
+        synchronized (eventWorkers) {
+            for (EventWorker worker : eventWorkers) {
+                for (List<DataTypeHandler<K1>> typeHandlers : worker.typeMap.values()) {
+                    handlers.addAll(typeHandlers);
+                }
+            }
+        }
+        return handlers;
+    }
+    
     /**
      * Get an exception synopsis that is suitable as a counter. We want at a minimum the exception name and a useful location. A useful location is defined as
      * the highest location that is in the datawave.ingest package
@@ -598,16 +769,29 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     @Override
     public void cleanup(Context context) throws IOException, InterruptedException {
         
+        // Write the output of any events still being processed by the worker threads
+        if (workerPool != null) {
+            try {
+                commitEvents(0, context);
+            } finally {
+                workerPool.shutdownNow();
+                if (!workerPool.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.warn("Timed out waiting for the EventMapper worker threads to terminate");
+                }
+            }
+        }
+        
+        List<DataTypeHandler<K1>> allHandlers = getAllHandlers();
+        
         // Write the metadata to the output
-        for (List<DataTypeHandler<K1>> handlers : typeMap.values()) {
-            for (DataTypeHandler<K1> h : handlers)
-                if (h.getMetadata() != null) {
-                    try {
-                        contextWriter.write(h.getMetadata().getBulkMetadata(), context);
-                    } finally {
-                        contextWriter.commit(context);
-                    }
+        for (DataTypeHandler<K1> h : allHandlers) {
+            if (h.getMetadata() != null) {
+                try {
+                    contextWriter.write(h.getMetadata().getBulkMetadata(), context);
+                } finally {
+                    contextWriter.commit(context);
                 }
+            }
         }
         
         // dump any unflushed metrics
@@ -618,11 +802,11 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         // cleanup the context writer
         contextWriter.cleanup(context);
         
-        for (List<DataTypeHandler<K1>> handlers : typeMap.values()) {
-            for (DataTypeHandler<K1> h : handlers)
-                h.close(context);
+        for (DataTypeHandler<K1> h : allHandlers) {
+            h.close(context);
         }
         typeMap.clear();
+        eventWorkers.clear();
         
         // Add the counters from the standalone reporter to this context.
         Counters counters = reporter.getCounters();
@@ -657,6 +841,14 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
      */
     public void processEvent(K1 key, RawRecordContainer value, List<DataTypeHandler<K1>> handlers, Multimap<String,NormalizedContentInterface> fields,
                     Context context) throws Exception {
+        processEvent(key, value, handlers, fields, context, validators, contextWriter, offset);
+    }
+    
+    /**
+     * Apply a list of handlers to an event using the given validators, context writer and offset of the event in the input split.
+     */
+    private void processEvent(K1 key, RawRecordContainer value, List<DataTypeHandler<K1>> handlers, Multimap<String,NormalizedContentInterface> fields,
+                    Context context, Multimap<String,FieldValidator> validators, ContextWriter<K2,V2> writer, long offset) throws Exception {
         IngestHelperInterface previousHelper = null;
         
         for (DataTypeHandler<K1> handler : handlers) {
@@ -681,7 +873,7 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
             if (null == previousHelper || !previousHelper.getClass().getName().equals(thisHelper.getClass().getName())) {
                 fields.clear();
                 Throwable e = null;
-                for (Map.Entry<String,NormalizedContentInterface> entry : getFields(value, handler).entries()) {
+                for (Map.Entry<String,NormalizedContentInterface> entry : getFields(value, handler, offset).entries()) {
                     // noinspection ThrowableResultOfMethodCallIgnored
                     if (entry.getValue().getError() != null) {
                         e = entry.getValue().getError();
@@ -709,7 +901,7 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
                 validator.validate(value, fields);
             }
             
-            executeHandler(key, value, fields, handler, context);
+            executeHandler(key, value, fields, handler, context, writer);
             
             context.progress();
         }
@@ -724,6 +916,10 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     }
     
     public Multimap<String,NormalizedContentInterface> getFields(RawRecordContainer value, DataTypeHandler<K1> handler) throws Exception {
+        return getFields(value, handler, offset);
+    }
+    
+    private Multimap<String,NormalizedContentInterface> getFields(RawRecordContainer value, DataTypeHandler<K1> handler, long offset) throws Exception {
         Multimap<String,NormalizedContentInterface> newFields;
         // Parse the event into its field names and field values using the DataTypeHandler's BaseIngestHelper object.
         newFields = handler.getHelper(value.getDataType()).getEventFields(value);
@@ -782,9 +978,14 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         return newFields;
     }
     
-    @SuppressWarnings("unchecked")
     public void executeHandler(K1 key, RawRecordContainer event, Multimap<String,NormalizedContentInterface> fields, DataTypeHandler<K1> handler,
                     Context context) throws Exception {
+        executeHandler(key, event, fields, handler, context, contextWriter);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void executeHandler(K1 key, RawRecordContainer event, Multimap<String,NormalizedContentInterface> fields, DataTypeHandler<K1> handler,
+                    Context context, ContextWriter<K2,V2> writer) throws Exception {
         long count = 0;
         
         TraceStopwatch handlerTimer = null;
@@ -806,11 +1007,11 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR).increment(1);
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR.name(), "NullMultiMap").increment(1);
             } else {
-                contextWriter.write(r, context);
+                writer.write(r, context);
                 count = r.size();
             }
         } else {
-            count = ((ExtendedDataTypeHandler<K1,K2,V2>) handler).process(key, event, fields, context, contextWriter);
+            count = ((ExtendedDataTypeHandler<K1,K2,V2>) handler).process(key, event, fields, context, writer);
             if (count == -1) {
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR).increment(1);
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR.name(), "NegOneCount").increment(1);
@@ -850,4 +1051,69 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         return this.typeMap;
     }
     
+    /**
+     * The handlers and validators of a worker thread. The handlers are not expected to be thread safe, so each worker thread creates its own instances.
+     */
+    private class EventWorker {
+        private final Map<String,List<DataTypeHandler<K1>>> typeMap = new HashMap<>();
+        private final Multimap<String,FieldValidator> validators = ArrayListMultimap.create();
+        
+        private List<DataTypeHandler<K1>> loadDataType(String typeStr, Context context) {
+            List<DataTypeHandler<K1>> handlers = typeMap.get(typeStr);
+            if (handlers == null) {
+                // the handlers may share state during setup, so only one is set up at a time
+                synchronized (eventWorkers) {
+                    handlers = createDataTypeHandlers(typeStr, context, validators);
+                }
+                typeMap.put(typeStr, handlers);
+            }
+            return handlers;
+        }
+    }
+    
+    /**
+     * Apply the handlers to a copy of an event on a worker thread. The output is buffered until the mapper thread writes it to the context writer.
+     */
+    private class EventTask implements Callable<EventTask> {
+        private final K1 key;
+        private final RawRecordContainer value;
+        private final List<String> handlerTypes;
+        private final long offset;
+        private final Stack<?> ndc;
+        private final Context context;
+        private final BufferedContextWriter<K2,V2> writer = new BufferedContextWriter<>();
+        
+        private EventTask(K1 key, RawRecordContainer value, List<String> handlerTypes, long offset, Stack<?> ndc, Context context) {
+            this.key = key;
+            this.value = value;
+            this.handlerTypes = handlerTypes;
+            this.offset = offset;
+            this.ndc = ndc;
+            this.context = context;
+        }
+        
+        @Override
+        public EventTask call() throws Exception {
+            // the sequence file name is taken from the NDC of the mapper thread
+            NDC.inherit(ndc);
+            try {
+                EventWorker worker = getEventWorker();
+                List<DataTypeHandler<K1>> handlers = new ArrayList<>();
+                for (String handlerType : handlerTypes) {
+                    handlers.addAll(worker.loadDataType(handlerType, context));
+                }
+                
+                Multimap<String,NormalizedContentInterface> fields = HashMultimap.create();
+                try {
+                    processEvent(key, value, handlers, fields, context, worker.validators, writer, offset);
+                } catch (Exception e) {
+                    handleEventException(e, key, value, fields, worker.loadDataType(TypeRegistry.ERROR_PREFIX, context), context, writer);
+                }
+                writer.commit(context);
+            } finally {
+                NDC.remove();
+            }
+            return this;
+        }
+    }
 }
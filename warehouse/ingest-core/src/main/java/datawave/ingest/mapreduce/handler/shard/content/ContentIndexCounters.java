@@ -30,7 +30,8 @@ public class ContentIndexCounters {
                     TOKENIZER_OFFSET_CACHE_POSITIONS_OVERFLOWED = "Tokenizer Offset Cache Positions Overflowed",
                     CONTENT_RECORDS_CREATED = "Content Records Created", TRUNCATION_COUNTER = "Truncated Tokens",
                     LENGTH_WARNING_COUNTER = "Term Length Warnings", CONTENT_RECORDS_LIVE = "Content Records Live Ingest",
-                    CONTENT_RECORDS_BULK = "Content Records Bulk Ingest";
+                    CONTENT_RECORDS_BULK = "Content Records Bulk Ingest", TOKENIZATION_CACHE_HITS = "Tokenization Cache Hits",
+                    TOKENIZATION_CACHE_MISSES = "Tokenization Cache Misses", TOKENIZATION_CACHE_MICROS_SAVED = "Tokenization Cache Time Saved (us)";
     
     public static final String COUNTER_GROUP_NAME = "Content Index Counters";
     public static final String TOKENIZER_TIME_GROUP_NAME = "Tokenizer Time Counters";
@@ -63,6 +64,9 @@ public class ContentIndexCounters {
         group.put(TOKEN_OFFSET_CACHE_EXISTS, new AtomicInteger(0));
         group.put(TRUNCATION_COUNTER, new AtomicInteger(0));
         group.put(LENGTH_WARNING_COUNTER, new AtomicInteger(0));
+        group.put(TOKENIZATION_CACHE_HITS, new AtomicInteger(0));
+        group.put(TOKENIZATION_CACHE_MISSES, new AtomicInteger(0));
+        group.put(TOKENIZATION_CACHE_MICROS_SAVED, new AtomicInteger(0));
     }
     
     /**
@@ -149,7 +153,7 @@ public class ContentIndexCounters {
             
             val.addAndGet(value);
         } else {
-            group.put(counterName, new AtomicInteger(1));
+            group.put(counterName, new AtomicInteger(value));
         }
     }
     
@@ -0,0 +1,109 @@
+package datawave.ingest.mapreduce.handler.shard.content;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * A least recently used cache of the tokens produced by an analyzer for a field's content, keyed by a hash of the field name and the content. This allows
+ * content that recurs across records (e.g. forwarded messages) to skip tokenization. The cache is bounded by the total number of tokens held, and content
+ * producing more tokens than that is never cached.
+ */
+public class TokenizationCache {
+    
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    
+    /**
+     * A token as produced by the analyzer, before any filtering, with the type as reported by the analyzer
+     */
+    public static class Token {
+        public final String term;
+        public final String type;
+        public final int positionIncrement;
+        public final boolean truncated;
+        
+        public Token(String term, String type, int positionIncrement, boolean truncated) {
+            this.term = term;
+            this.type = type;
+            this.positionIncrement = positionIncrement;
+            this.truncated = truncated;
+        }
+    }
+    
+    /**
+     * The tokens for a field's content and the time it took to produce them
+     */
+    public static class Tokens {
+        public final List<Token> tokens;
+        public final long tokenizationMicros;
+        
+        public Tokens(List<Token> tokens, long tokenizationMicros) {
+            this.tokens = tokens;
+            this.tokenizationMicros = tokenizationMicros;
+        }
+    }
+    
+    // The max size in terms of tokens
+    private final int maxNumTokens;
+    
+    // The current size in terms of tokens (i.e. not in terms of keys)
+    private int numTokens = 0;
+    
+    private final LinkedHashMap<HashCode,Tokens> cache = new LinkedHashMap<>(16, 0.75f, true);
+    
+    public TokenizationCache(int maxNumTokens) {
+        this.maxNumTokens = maxNumTokens;
+    }
+    
+    /**
+     * @return the key for the content of a field
+     */
+    public static HashCode hash(String fieldName, String content) {
+        return HASH_FUNCTION.newHasher().putUnencodedChars(fieldName).putChar('\u0000').putUnencodedChars(content).hash();
+    }
+    
+    /**
+     * @return the cached tokens for the key, or null if not cached
+     */
+    public Tokens get(HashCode key) {
+        return cache.get(key);
+    }
+    
+    /**
+     * Cache the tokens for a key, evicting the least recently used entries as needed.
+     */
+    public void put(HashCode key, Tokens tokens) {
+        if (tokens.tokens.size() > maxNumTokens) {
+            return;
+        }
+        Tokens previous = cache.put(key, tokens);
+        if (previous != null) {
+            numTokens -= previous.tokens.size();
+        }
+        numTokens += tokens.tokens.size();
+        
+        Iterator<Map.Entry<HashCode,Tokens>> eldest = cache.entrySet().iterator();
+        while (numTokens > maxNumTokens && eldest.hasNext()) {
+            numTokens -= eldest.next().getValue().tokens.size();
+            eldest.remove();
+        }
+    }
+    
+    public int size() {
+        return this.numTokens;
+    }
+    
+    public int getCapacity() {
+        return this.maxNumTokens;
+    }
+    
+    public void clear() {
+        cache.clear();
+        numTokens = 0;
+    }
+}
@@ -2,10 +2,13 @@ package datawave.ingest.mapreduce.handler.tokenize;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.config.NormalizedContentInterface;
@@ -26,6 +29,7 @@ import datawave.ingest.mapreduce.handler.shard.content.BoundedOffsetQueue.Offset
 import datawave.ingest.mapreduce.handler.shard.content.ContentIndexCounters;
 import datawave.ingest.mapreduce.handler.shard.content.OffsetQueue;
 import datawave.ingest.mapreduce.handler.shard.content.TermAndZone;
+import datawave.ingest.mapreduce.handler.shard.content.TokenizationCache;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
 import datawave.ingest.protobuf.TermWeight;
 import datawave.ingest.util.BloomFilterUtil;
@@ -51,6 +55,7 @@ import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.hash.HashCode;
 
 /**
  * Content indexing column based handler. will provide content tokenization, which will include storing offsets, and the TERM_COUNT for that event.
@@ -103,6 +108,8 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
     
     private int termPosition = 0;
     
+    protected TokenizationCache tokenizationCache = null;
+    
     @Override
     public void setup(TaskAttemptContext context) {
         super.setup(context);
@@ -128,6 +135,10 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         
         tokenOffsetCache = new BoundedOffsetQueue(tokenHelper.getTokenOffsetCacheMaxSize());
         
+        if (tokenHelper.getTokenizationCacheMaxSize() > 0) {
+            tokenizationCache = new TokenizationCache(tokenHelper.getTokenizationCacheMaxSize());
+        }
+        
         // Conditionally create an NGrams factory
         if (this.getBloomFiltersEnabled()) {
             this.bloomFilterUtil = newBloomFilterUtil(this.conf);
@@ -329,6 +340,25 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         String modifiedFieldName = indexedFieldName + tokenFieldNameSuffix;
         String content = nci.getIndexedFieldValue();
         
+        // replay the tokens of content we have already seen instead of running the analyzer again
+        HashCode contentHash = null;
+        List<TokenizationCache.Token> tokens = null;
+        if (tokenizationCache != null) {
+            contentHash = TokenizationCache.hash(indexedFieldName, content);
+            TokenizationCache.Tokens cached = tokenizationCache.get(contentHash);
+            if (cached != null) {
+                counters.increment(ContentIndexCounters.TOKENIZATION_CACHE_HITS, reporter);
+                counters.incrementValue(ContentIndexCounters.TOKENIZATION_CACHE_MICROS_SAVED, (int) Math.min(Integer.MAX_VALUE, cached.tokenizationMicros),
+                                reporter);
+                for (TokenizationCache.Token token : cached.tokens) {
+                    processToken(token, nci, modifiedFieldName, indexField, reverseIndexField, reporter);
+                }
+                return;
+            }
+            counters.increment(ContentIndexCounters.TOKENIZATION_CACHE_MISSES, reporter);
+            tokens = new ArrayList<>();
+        }
+        
         TokenStream tokenizer = a.tokenStream(indexedFieldName, new StringReader(content));
         tokenizer.reset();
         
@@ -344,6 +374,7 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
             int heartBeatCount = HeartBeatThread.counter;
             int tokenizerBeats = 0;
             long start = System.currentTimeMillis();
+            long tokenizerNanos = 0;
             
             tokenizerTimeWarned = false;
             
@@ -376,138 +407,23 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                 if (reporter != null)
                     reporter.progress();
                 
-                if (!tokenizer.incrementToken()) {
+                long tokenStart = System.nanoTime();
+                boolean hasToken = tokenizer.incrementToken();
+                tokenizerNanos += System.nanoTime() - tokenStart;
+                if (!hasToken) {
                     break; // eof
                 }
                 
-                // Get the term and any synonyms for it
-                String token = termAtt.toString();
-                String type = typeAtt.type();
-                
-                // term positions aren't reset between fields of the same name, see getShardNamesAndValues.
-                termPosition += posIncrAtt.getPositionIncrement();
-                
-                if (type.startsWith("<") && type.endsWith(">")) {
-                    type = type.substring(1, type.length() - 1); // <FOO> => FOO without regex
-                }
-                
-                // Make sure the term length is greater than the minimum allowed length
-                int tlen = token.length();
-                if (tlen < tokenHelper.getTermLengthMinimum()) {
-                    log.debug("Ignoring token of length " + token.length() + " because it is too short");
-                    counters.increment(ContentIndexCounters.TOO_SHORT_COUNTER, reporter);
-                    continue;
-                }
-                
-                // skip the term if it is over the length limit unless it is a FILE, URL or HTTP_REQUEST
-                if (tlen > tokenHelper.getTermLengthLimit() && (!(type.equals("FILE") || type.equals("URL") || type.equals("HTTP_REQUEST")))) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Ignoring " + type + " token due to excessive length");
-                    }
-                    
-                    counters.increment(ContentIndexCounters.EXCESSIVE_LENGTH_COUNTER, reporter);
-                    continue;
-                }
-                
-                if (tlen > tokenHelper.getTermLengthWarningLimit()) {
-                    log.warn("Encountered long term: " + tlen + " characters, '" + token + "'");
-                    counters.increment(ContentIndexCounters.LENGTH_WARNING_COUNTER, reporter);
-                }
-                
-                if (truncAtt.isTruncated()) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Encountered truncated term: " + tlen + " characters, '" + token + "'");
-                    }
-                    counters.increment(ContentIndexCounters.TRUNCATION_COUNTER, reporter);
-                }
-                
-                if (tokenHelper.isVerboseTermSizeCounters()) {
-                    if (tlen < 10) {
-                        counters.increment(ContentIndexCounters.TERM_SIZE_GROUP_NAME, "SIZE_00" + tlen, reporter);
-                    } else if (tlen < 100) {
-                        counters.increment(ContentIndexCounters.TERM_SIZE_GROUP_NAME, "SIZE_0" + ((tlen / 10) * 10), reporter);
-                    } else {
-                        counters.increment(ContentIndexCounters.TERM_SIZE_GROUP_NAME, "SIZE_100", reporter);
-                    }
-                    
-                    counters.increment(ContentIndexCounters.TERM_TYPE_GROUP_NAME, type + "_TERMS", reporter);
-                }
-                
-                // Track the number of tokens processed
-                counters.increment(ContentIndexCounters.ORIGINAL_PROCESSED_COUNTER, reporter);
-                
-                if (termTypeBlacklist.contains(type)) {
-                    counters.increment(ContentIndexCounters.TERM_TYPE_GROUP_NAME, "BLACKLISTED_BY_TYPE", reporter);
-                    continue;
-                }
-                
-                if (indexField) {
-                    NormalizedContentInterface newField;
-                    Collection<String> synonyms;
-                    
-                    if (tokenHelper.isSynonymGenerationEnabled()) {
-                        // Get the list of synonyms including the term itself
-                        // Zone is empty in this case.
-                        synonyms = searchUtil.getSynonyms(new String[] {token, ""}, typeAtt.type(), true);
-                    } else {
-                        synonyms = Collections.singletonList(token);
-                    }
-                    
-                    for (String s : synonyms) {
-                        newField = (NormalizedContentInterface) (nci.clone());
-                        newField.setFieldName(modifiedFieldName);
-                        // don't put tokens in the event.
-                        newField.setEventFieldValue(null);
-                        newField.setIndexedFieldValue(s);
-                        index.put(modifiedFieldName, newField);
-                        
-                        // add this token to the event fields so a
-                        // local fi\x00 key gets created
-                        // NOTE: we already assigned it to the
-                        // 'indexOnly' list so it won't show up in
-                        // the event
-                        fields.put(modifiedFieldName, newField);
-                        
-                        if (tokenOffsetCache != null) {
-                            tokenOffsetCache.addOffset(new TermAndZone(s, modifiedFieldName), termPosition);
-                        }
-                    }
-                    
-                    counters.incrementValue(ContentIndexCounters.SYNONYMS_PROCESSED_COUNTER, synonyms.size() - 1, reporter);
-                    if (tokenHelper.isVerboseTermIndexCounters()) {
-                        counters.incrementValue(ContentIndexCounters.SYNONYM_TYPE_GROUP_NAME, type + ContentIndexCounters.SYNONYMS_PROCESSED_TYPE_SUFFIX,
-                                        synonyms.size() - 1, reporter);
-                    }
-                }
-                
-                if (reverseIndexField) {
-                    String rToken = StringUtils.reverse(token);
-                    NormalizedContentInterface newField;
-                    Collection<String> synonyms;
-                    
-                    if (tokenHelper.isSynonymGenerationEnabled()) {
-                        synonyms = searchUtilReverse.getSynonyms(rToken, typeAtt.type(), true);
-                    } else {
-                        synonyms = Collections.singletonList(rToken);
-                    }
-                    
-                    for (String s : synonyms) {
-                        newField = (NormalizedContentInterface) (nci.clone());
-                        newField.setFieldName(modifiedFieldName);
-                        newField.setEventFieldValue(s);
-                        newField.setIndexedFieldValue(s);
-                        reverse.put(modifiedFieldName, newField);
-                        
-                        // NOTE: We don't want fi\x00 keys for reverse
-                        // tokens
-                    }
-                    
-                    counters.incrementValue(ContentIndexCounters.SYNONYMS_PROCESSED_COUNTER, synonyms.size() - 1, reporter);
-                    if (tokenHelper.isVerboseTermIndexCounters()) {
-                        counters.incrementValue(ContentIndexCounters.SYNONYM_TYPE_GROUP_NAME, type + ContentIndexCounters.SYNONYMS_PROCESSED_TYPE_SUFFIX,
-                                        synonyms.size() - 1, reporter);
-                    }
+                TokenizationCache.Token token = new TokenizationCache.Token(termAtt.toString(), typeAtt.type(), posIncrAtt.getPositionIncrement(),
+                                truncAtt.isTruncated());
+                if (tokens != null) {
+                    tokens.add(token);
                 }
+                processToken(token, nci, modifiedFieldName, indexField, reverseIndexField, reporter);
+            }
+            
+            if (tokens != null) {
+                tokenizationCache.put(contentHash, new TokenizationCache.Tokens(tokens, TimeUnit.NANOSECONDS.toMicros(tokenizerNanos)));
             }
             
             final long tokenizerDeltaMsec = tokenizerBeats * HeartBeatThread.INTERVAL;
@@ -533,6 +449,142 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         }
     }
     
+    /**
+     * Filter and count a token produced by the analyzer, and add the token and its synonyms to the index and reverse index as configured.
+     * 
+     */
+    protected void processToken(TokenizationCache.Token t, NormalizedContentInterface nci, String modifiedFieldName, boolean indexField,
+                    boolean reverseIndexField, StatusReporter reporter) {
+        // Get the term and any synonyms for it
+        String token = t.term;
+        String type = t.type;
+        
+        // term positions aren't reset between fields of the same name, see getShardNamesAndValues.
+        termPosition += t.positionIncrement;
+        
+        if (type.startsWith("<") && type.endsWith(">")) {
+            type = type.substring(1, type.length() - 1); // <FOO> => FOO without regex
+        }
+        
+        // Make sure the term length is greater than the minimum allowed length
+        int tlen = token.length();
+        if (tlen < tokenHelper.getTermLengthMinimum()) {
+            log.debug("Ignoring token of length " + token.length() + " because it is too short");
+            counters.increment(ContentIndexCounters.TOO_SHORT_COUNTER, reporter);
+            return;
+        }
+        
+        // skip the term if it is over the length limit unless it is a FILE, URL or HTTP_REQUEST
+        if (tlen > tokenHelper.getTermLengthLimit() && (!(type.equals("FILE") || type.equals("URL") || type.equals("HTTP_REQUEST")))) {
+            if (log.isDebugEnabled()) {
+                log.debug("Ignoring " + type + " token due to excessive length");
+            }
+            
+            counters.increment(ContentIndexCounters.EXCESSIVE_LENGTH_COUNTER, reporter);
+            return;
+        }
+        
+        if (tlen > tokenHelper.getTermLengthWarningLimit()) {
+            log.warn("Encountered long term: " + tlen + " characters, '" + token + "'");
+            counters.increment(ContentIndexCounters.LENGTH_WARNING_COUNTER, reporter);
+        }
+        
+        if (t.truncated) {
+            if (log.isDebugEnabled()) {
+                log.debug("Encountered truncated term: " + tlen + " characters, '" + token + "'");
+            }
+            counters.increment(ContentIndexCounters.TRUNCATION_COUNTER, reporter);
+        }
+        
+        if (tokenHelper.isVerboseTermSizeCounters()) {
+            if (tlen < 10) {
+                counters.increment(ContentIndexCounters.TERM_SIZE_GROUP_NAME, "SIZE_00" + tlen, reporter);
+            } else if (tlen < 100) {
+                counters.increment(ContentIndexCounters.TERM_SIZE_GROUP_NAME, "SIZE_0" + ((tlen / 10) * 10), reporter);
+            } else {
+                counters.increment(ContentIndexCounters.TERM_SIZE_GROUP_NAME, "SIZE_100", reporter);
+            }
+            
+            counters.increment(ContentIndexCounters.TERM_TYPE_GROUP_NAME, type + "_TERMS", reporter);
+        }
+        
+        // Track the number of tokens processed
+        counters.increment(ContentIndexCounters.ORIGINAL_PROCESSED_COUNTER, reporter);
+        
+        if (termTypeBlacklist.contains(type)) {
+            counters.increment(ContentIndexCounters.TERM_TYPE_GROUP_NAME, "BLACKLISTED_BY_TYPE", reporter);
+            return;
+        }
+        
+        if (indexField) {
+            NormalizedContentInterface newField;
+            Collection<String> synonyms;
+            
+            if (tokenHelper.isSynonymGenerationEnabled()) {
+                // Get the list of synonyms including the term itself
+                // Zone is empty in this case.
+                synonyms = searchUtil.getSynonyms(new String[] {token, ""}, t.type, true);
+            } else {
+                synonyms = Collections.singletonList(token);
+            }
+            
+            for (String s : synonyms) {
+                newField = (NormalizedContentInterface) (nci.clone());
+                newField.setFieldName(modifiedFieldName);
+                // don't put tokens in the event.
+                newField.setEventFieldValue(null);
+                newField.setIndexedFieldValue(s);
+                index.put(modifiedFieldName, newField);
+                
+                // add this token to the event fields so a
+                // local fi\x00 key gets created
+                // NOTE: we already assigned it to the
+                // 'indexOnly' list so it won't show up in
+                // the event
+                fields.put(modifiedFieldName, newField);
+                
+                if (tokenOffsetCache != null) {
+                    tokenOffsetCache.addOffset(new TermAndZone(s, modifiedFieldName), termPosition);
+                }
+            }
+            
+            counters.incrementValue(ContentIndexCounters.SYNONYMS_PROCESSED_COUNTER, synonyms.size() - 1, reporter);
+            if (tokenHelper.isVerboseTermIndexCounters()) {
+                counters.incrementValue(ContentIndexCounters.SYNONYM_TYPE_GROUP_NAME, type + ContentIndexCounters.SYNONYMS_PROCESSED_TYPE_SUFFIX,
+                                synonyms.size() - 1, reporter);
+            }
+        }
+        
+        if (reverseIndexField) {
+            String rToken = StringUtils.reverse(token);
+            NormalizedContentInterface newField;
+            Collection<String> synonyms;
+            
+            if (tokenHelper.isSynonymGenerationEnabled()) {
+                synonyms = searchUtilReverse.getSynonyms(rToken, t.type, true);
+            } else {
+                synonyms = Collections.singletonList(rToken);
+            }
+            
+            for (String s : synonyms) {
+                newField = (NormalizedContentInterface) (nci.clone());
+                newField.setFieldName(modifiedFieldName);
+                newField.setEventFieldValue(s);
+                newField.setIndexedFieldValue(s);
+                reverse.put(modifiedFieldName, newField);
+                
+                // NOTE: We don't want fi\x00 keys for reverse
+                // tokens
+            }
+            
+            counters.incrementValue(ContentIndexCounters.SYNONYMS_PROCESSED_COUNTER, synonyms.size() - 1, reporter);
+            if (tokenHelper.isVerboseTermIndexCounters()) {
+                counters.incrementValue(ContentIndexCounters.SYNONYM_TYPE_GROUP_NAME, type + ContentIndexCounters.SYNONYMS_PROCESSED_TYPE_SUFFIX,
+                                synonyms.size() - 1, reporter);
+            }
+        }
+    }
+    
     /**
      * Creates a Term Frequency index key in the "tf" column family.
      * 
@@ -20,10 +20,17 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.Stack;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import datawave.ingest.data.TypeRegistry;
 import datawave.ingest.mapreduce.StandaloneStatusReporter;
@@ -43,6 +50,7 @@ import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.master.thrift.MasterClientService.Iface;
 import org.apache.accumulo.core.master.thrift.MasterMonitorInfo;
 import org.apache.accumulo.core.master.thrift.TableInfo;
+import org.apache.accumulo.core.master.thrift.TabletServerStatus;
 import org.apache.accumulo.core.client.impl.Credentials;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileChecksum;
@@ -71,7 +79,7 @@ import com.google.common.collect.Lists;
  * multiple map files online at once if many jobs have completed, and also attempts to throttle itself to prevent queuing up too many major compactions on the
  * various tablet servers.
  */
-public final class BulkIngestMapFileLoader implements Runnable {
+public class BulkIngestMapFileLoader implements Runnable {
     private static Logger log = Logger.getLogger(BulkIngestMapFileLoader.class);
     private static int SLEEP_TIME = 30000;
     private static int FAILURE_SLEEP_TIME = 10 * 60 * 1000; // 10 minutes
@@ -81,6 +89,9 @@ public final class BulkIngestMapFileLoader implements Runnable {
     private static int MAJC_WAIT_TIMEOUT = 0;// 2 * 60 * 1000;
     private static int SHUTDOWN_PORT = 24111;
     private static boolean FIFO = true;
+    private static int NUM_JOB_THREADS = 1;
+    private static int MAX_IMPORTS_PER_TABLE = 0;
+    private static int MAJC_THRESHOLD_PER_SERVER = 0;
     
     public static final String COMPLETE_FILE_MARKER = "job.complete";
     public static final String LOADING_FILE_MARKER = "job.loading";
@@ -101,8 +112,12 @@ public final class BulkIngestMapFileLoader implements Runnable {
     private URI destHdfs;
     private String jobtracker;
     private StandaloneStatusReporter reporter = new StandaloneStatusReporter();
-    private boolean running;
+    private volatile boolean running;
     private ExecutorService executor;
+    private ExecutorService jobExecutor;
+    private final ConcurrentMap<String,Semaphore> tableImportPermits = new ConcurrentHashMap<>();
+    private final AtomicInteger fsAccessFailures = new AtomicInteger();
+    private final Object reporterLock = new Object();
     
     public static void main(String[] args) throws AccumuloSecurityException, IOException {
         
@@ -114,7 +129,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
         ArrayList<String[]> properties = new ArrayList<>();
         
         if (args.length < 6) {
-            log.error("usage: BulkIngestMapFileLoader hdfsWorkDir jobDirPattern instanceName zooKeepers username password [-sleepTime sleepTime] [-majcThreshold threshold] [-majcCheckInterval count] [-majcDelay majcDelay] [-seqFileHdfs seqFileSystemUri] [-srcHdfs srcFileSystemURI] [-destHdfs destFileSystemURI] [-jt jobTracker] [-shutdownPort portNum] confFile [{confFile}]");
+            log.error("usage: BulkIngestMapFileLoader hdfsWorkDir jobDirPattern instanceName zooKeepers username password [-sleepTime sleepTime] [-majcThreshold threshold] [-majcThresholdPerServer threshold] [-majcCheckInterval count] [-majcDelay majcDelay] [-numJobThreads count] [-maxImportsPerTable count] [-seqFileHdfs seqFileSystemUri] [-srcHdfs srcFileSystemURI] [-destHdfs destFileSystemURI] [-jt jobTracker] [-shutdownPort portNum] confFile [{confFile}]");
             System.exit(-1);
         }
         
@@ -146,6 +161,17 @@ public final class BulkIngestMapFileLoader implements Runnable {
                         log.error("-majcThreshold must be followed by the maximum number of major compactions allowed before waiting", e);
                         System.exit(-2);
                     }
+                } else if ("-majcThresholdPerServer".equalsIgnoreCase(args[i])) {
+                    if (i + 2 > args.length) {
+                        log.error("-majcThresholdPerServer must be followed by the maximum number of major compactions allowed on a tablet server");
+                        System.exit(-2);
+                    }
+                    try {
+                        MAJC_THRESHOLD_PER_SERVER = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        log.error("-majcThresholdPerServer must be followed by the maximum number of major compactions allowed on a tablet server", e);
+                        System.exit(-2);
+                    }
                 } else if ("-majcDelay".equalsIgnoreCase(args[i])) {
                     if (i + 2 > args.length) {
                         log.error("-majcDelay must be followed by the minimum number of ms to elapse between bringing map files online");
@@ -191,6 +217,28 @@ public final class BulkIngestMapFileLoader implements Runnable {
                         log.error("-numThreads must be followed by the number of bulk import threads", e);
                         System.exit(-2);
                     }
+                } else if ("-numJobThreads".equalsIgnoreCase(args[i])) {
+                    if (i + 2 > args.length) {
+                        log.error("-numJobThreads must be followed by the number of job directories to load concurrently");
+                        System.exit(-2);
+                    }
+                    try {
+                        NUM_JOB_THREADS = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        log.error("-numJobThreads must be followed by the number of job directories to load concurrently", e);
+                        System.exit(-2);
+                    }
+                } else if ("-maxImportsPerTable".equalsIgnoreCase(args[i])) {
+                    if (i + 2 > args.length) {
+                        log.error("-maxImportsPerTable must be followed by the maximum number of concurrent bulk imports into any one table");
+                        System.exit(-2);
+                    }
+                    try {
+                        MAX_IMPORTS_PER_TABLE = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        log.error("-maxImportsPerTable must be followed by the maximum number of concurrent bulk imports into any one table", e);
+                        System.exit(-2);
+                    }
                 } else if ("-numHdfsThreads".equalsIgnoreCase(args[i])) {
                     if (i + 2 > args.length) {
                         log.error("-numHdfsThreads must be followed by the number of threads to use for concurrent HDFS operations");
@@ -294,12 +342,18 @@ public final class BulkIngestMapFileLoader implements Runnable {
         
         log.info("Set sleep time to " + SLEEP_TIME + "ms");
         log.info("Will wait to bring map files online if there are more than " + MAJC_THRESHOLD + " running or queued major compactions.");
+        if (MAJC_THRESHOLD_PER_SERVER > 0) {
+            log.info("Will wait to bring map files online if any tablet server has more than " + MAJC_THRESHOLD_PER_SERVER
+                            + " running or queued major compactions.");
+        }
         log.info("Will not bring map files online unless at least " + MAJC_WAIT_TIMEOUT + "ms have passed since last time.");
         log.info("Will check the majcThreshold and majcDelay every " + MAJC_CHECK_INTERVAL + " bulk loads.");
         log.info("Processing a max of " + MAX_DIRECTORIES + " directories");
         log.info("Using " + numBulkThreads + " bulk load threads");
         log.info("Using " + numHdfsThreads + " HDFS operation threads");
         log.info("Using " + numBulkAssignThreads + " bulk assign threads");
+        log.info("Loading up to " + NUM_JOB_THREADS + " job directories concurrently");
+        log.info("Using " + (MAX_IMPORTS_PER_TABLE > 0 ? Integer.toString(MAX_IMPORTS_PER_TABLE) : "unlimited") + " concurrent bulk imports per table");
         log.info("Using " + seqFileHdfs + " as the file system containing the original sequence files");
         log.info("Using " + srcHdfs + " as the source file system");
         log.info("Using " + destHdfs + " as the destination file system");
@@ -363,6 +417,9 @@ public final class BulkIngestMapFileLoader implements Runnable {
         this.jobtracker = jobtracker;
         this.running = true;
         this.executor = Executors.newFixedThreadPool(numHdfsThreads > 0 ? numHdfsThreads : 1);
+        if (NUM_JOB_THREADS > 1) {
+            this.jobExecutor = Executors.newFixedThreadPool(NUM_JOB_THREADS);
+        }
         try {
             if (shutdownPort > 0) {
                 final ServerSocket serverSocket = new ServerSocket(shutdownPort);
@@ -384,110 +441,217 @@ public final class BulkIngestMapFileLoader implements Runnable {
     @Override
     public void run() {
         log.info("Starting process to monitor map files.");
+        try {
+            if (jobExecutor == null) {
+                runSequential();
+            } else {
+                runPipelined();
+            }
+        } finally {
+            if (jobExecutor != null) {
+                log.info("Waiting for job directories in progress to complete");
+                jobExecutor.shutdown();
+                try {
+                    while (!jobExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                        log.info("Still waiting for job directories in progress to complete");
+                    }
+                } catch (InterruptedException e) {
+                    log.warn("Interrupted while waiting for job directories in progress to complete.", e);
+                }
+            }
+            log.info("Shutting down executor service");
+            executor.shutdown();
+        }
+        log.info("Bulk map file loader shutting down.");
+    }
+    
+    /**
+     * Load the job directories one at a time, checking whether map files can be brought online every {@code MAJC_CHECK_INTERVAL} directories.
+     */
+    private void runSequential() {
         long lastOnlineTime = 0;
         long lastLoadMessageTime = 0;
-        int fsAccessFailures = 0;
         Path[] jobDirectories = new Path[0];
         int nextJobIndex = 0;
-        try {
-            while (true) {
-                try {
-                    if (!running)
-                        break;
-                    sleep();
-                    if (!running)
-                        break;
-                    long loadMessageDelta = System.currentTimeMillis() - lastLoadMessageTime;
-                    boolean logMessages = (loadMessageDelta > (5 * 60 * 1000));
+        while (true) {
+            try {
+                if (!running)
+                    break;
+                sleep();
+                if (!running)
+                    break;
+                long loadMessageDelta = System.currentTimeMillis() - lastLoadMessageTime;
+                boolean logMessages = (loadMessageDelta > (5 * 60 * 1000));
+                if (logMessages) {
+                    lastLoadMessageTime = System.currentTimeMillis();
+                }
+                if (!canBringMapFilesOnline(lastOnlineTime, logMessages)) {
                     if (logMessages) {
-                        lastLoadMessageTime = System.currentTimeMillis();
+                        log.info("Waiting for load to decrease before bringing more map files online.");
                     }
-                    if (!canBringMapFilesOnline(lastOnlineTime, logMessages)) {
-                        if (logMessages) {
-                            log.info("Waiting for load to decrease before bringing more map files online.");
+                    continue;
+                }
+                List<Path> processedDirectories = new ArrayList<>();
+                if (nextJobIndex >= jobDirectories.length) {
+                    jobDirectories = getJobDirectories();
+                    nextJobIndex = 0;
+                }
+                if (jobDirectories.length > 0) {
+                    while (processedDirectories.size() < MAJC_CHECK_INTERVAL && jobDirectories.length > 0) {
+                        Path srcJobDirectory = jobDirectories[nextJobIndex++];
+                        if (!running)
+                            break;
+                        // take ownership of the job directory if we can
+                        if (takeOwnershipJobDirectory(srcJobDirectory)) {
+                            processedDirectories.add(srcJobDirectory);
+                            if (loadJobDirectory(srcJobDirectory)) {
+                                // now that we actually processed something, reset the last load message time to force a message on the next round
+                                lastLoadMessageTime = 0;
+                            }
                         }
-                        continue;
+                        if (nextJobIndex >= jobDirectories.length) {
+                            jobDirectories = getJobDirectories();
+                            nextJobIndex = 0;
+                        }
+                        
                     }
-                    List<Path> processedDirectories = new ArrayList<>();
-                    if (nextJobIndex >= jobDirectories.length) {
-                        jobDirectories = getJobDirectories();
-                        nextJobIndex = 0;
+                    if (!processedDirectories.isEmpty()) {
+                        writeStats(processedDirectories.toArray(new Path[processedDirectories.size()]));
+                        lastOnlineTime = System.currentTimeMillis();
                     }
-                    if (jobDirectories.length > 0) {
-                        while (processedDirectories.size() < MAJC_CHECK_INTERVAL && jobDirectories.length > 0) {
-                            Path srcJobDirectory = jobDirectories[nextJobIndex++];
-                            if (!running)
-                                break;
-                            // take ownership of the job directory if we can
-                            if (takeOwnershipJobDirectory(srcJobDirectory)) {
-                                processedDirectories.add(srcJobDirectory);
-                                Path mapFilesDir = new Path(srcJobDirectory, "mapFiles");
-                                reporter.getCounter("MapFileLoader.StartTimes", srcJobDirectory.getName()).increment(System.currentTimeMillis());
-                                Path dstJobDirectory = srcJobDirectory;
-                                URI workingHdfs = srcHdfs;
-                                
-                                try {
-                                    log.info("Started processing " + mapFilesDir);
-                                    long start = System.currentTimeMillis();
-                                    
-                                    // copy the data if needed
-                                    dstJobDirectory = distCpDirectory(srcJobDirectory);
-                                    workingHdfs = destHdfs;
-                                    
-                                    // recreate the map files directory reference in case it moved filesystems
-                                    mapFilesDir = new Path(dstJobDirectory, "mapFiles");
-                                    
-                                    // now if we have a destination work directory, then move then move the files
-                                    bringMapFilesOnline(mapFilesDir);
-                                    
-                                    // ensure everything got loaded
-                                    verifyNothingLeftBehind(mapFilesDir);
-                                    
-                                    cleanUpJobDirectory(mapFilesDir);
-                                    long end = System.currentTimeMillis();
-                                    log.info("Finished processing " + mapFilesDir + ", duration (sec): " + ((end - start) / 1000));
-                                    
-                                    // now that we actually processed something, reset the last load message time to force a message on the next round
-                                    lastLoadMessageTime = 0;
-                                } catch (Exception e) {
-                                    log.error("Failed to process " + mapFilesDir, e);
-                                    boolean marked = markJobDirectoryFailed(workingHdfs, dstJobDirectory);
-                                    if (!marked) {
-                                        ++fsAccessFailures;
-                                        if (fsAccessFailures >= 3) {
-                                            log.error("Too many failures updating marker files.  Exiting...");
-                                            shutdown();
-                                        } else {
-                                            log.warn("Failed to mark " + dstJobDirectory + " as failed. Sleeping in case this was a transient failure.");
-                                            try {
-                                                Thread.sleep(FAILURE_SLEEP_TIME);
-                                            } catch (InterruptedException ie) {
-                                                log.warn("Interrupted while sleeping.", ie);
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                            if (nextJobIndex >= jobDirectories.length) {
-                                jobDirectories = getJobDirectories();
-                                nextJobIndex = 0;
+                }
+            } catch (Exception e) {
+                log.error("Error: " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * Load up to {@code NUM_JOB_THREADS} job directories concurrently, so that the HDFS renames, bulk imports and marker file cleanup of different jobs
+     * overlap. A new job directory is started as soon as another completes rather than after the sleep time, as long as map files can be brought online.
+     */
+    private void runPipelined() {
+        CompletionService<Path> completionService = new ExecutorCompletionService<>(jobExecutor);
+        int inProgress = 0;
+        long lastOnlineTime = 0;
+        long lastLoadMessageTime = 0;
+        while (true) {
+            try {
+                if (!running)
+                    break;
+                // wait for a job directory to complete, or for the sleep time if there are none in progress
+                List<Path> processedDirectories = new ArrayList<>();
+                Future<Path> completed = null;
+                if (inProgress == 0) {
+                    sleep();
+                } else {
+                    completed = completionService.poll(SLEEP_TIME, TimeUnit.MILLISECONDS);
+                }
+                while (completed != null) {
+                    inProgress--;
+                    processedDirectories.add(completed.get());
+                    completed = completionService.poll();
+                }
+                if (!processedDirectories.isEmpty()) {
+                    writeStats(processedDirectories.toArray(new Path[processedDirectories.size()]));
+                    lastOnlineTime = System.currentTimeMillis();
+                    lastLoadMessageTime = 0;
+                }
+                if (!running)
+                    break;
+                if (inProgress >= NUM_JOB_THREADS) {
+                    continue;
+                }
+                long loadMessageDelta = System.currentTimeMillis() - lastLoadMessageTime;
+                boolean logMessages = (loadMessageDelta > (5 * 60 * 1000));
+                if (logMessages) {
+                    lastLoadMessageTime = System.currentTimeMillis();
+                }
+                if (!canBringMapFilesOnline(lastOnlineTime, logMessages)) {
+                    if (logMessages) {
+                        log.info("Waiting for load to decrease before bringing more map files online.");
+                    }
+                    continue;
+                }
+                
+                // the job directories in progress are no longer marked as complete, so they will not be listed again
+                Path[] jobDirectories = getJobDirectories();
+                int started = 0;
+                for (int i = 0; i < jobDirectories.length && started < MAJC_CHECK_INTERVAL && inProgress < NUM_JOB_THREADS && running; i++) {
+                    final Path srcJobDirectory = jobDirectories[i];
+                    // take ownership of the job directory if we can
+                    if (takeOwnershipJobDirectory(srcJobDirectory)) {
+                        completionService.submit(new Callable<Path>() {
+                            @Override
+                            public Path call() {
+                                loadJobDirectory(srcJobDirectory);
+                                return srcJobDirectory;
                             }
-                            
-                        }
-                        if (!processedDirectories.isEmpty()) {
-                            writeStats(processedDirectories.toArray(new Path[processedDirectories.size()]));
-                            lastOnlineTime = System.currentTimeMillis();
-                        }
+                        });
+                        inProgress++;
+                        started++;
                     }
-                } catch (Exception e) {
-                    log.error("Error: " + e.getMessage(), e);
                 }
+                if (logMessages || started > 0) {
+                    log.info("Started " + started + " job directories, " + inProgress + " in progress");
+                }
+            } catch (Exception e) {
+                log.error("Error: " + e.getMessage(), e);
             }
-        } finally {
-            log.info("Shutting down executor service");
-            executor.shutdown();
         }
-        log.info("Bulk map file loader shutting down.");
+    }
+    
+    /**
+     * Copies, loads and cleans up a job directory that we have taken ownership of, marking it as failed if any step fails.
+     *
+     * @return true if the job directory was loaded successfully
+     */
+    protected boolean loadJobDirectory(Path srcJobDirectory) {
+        Path mapFilesDir = new Path(srcJobDirectory, "mapFiles");
+        incrementCounter("MapFileLoader.StartTimes", srcJobDirectory.getName(), System.currentTimeMillis());
+        Path dstJobDirectory = srcJobDirectory;
+        URI workingHdfs = srcHdfs;
+        
+        try {
+            log.info("Started processing " + mapFilesDir);
+            long start = System.currentTimeMillis();
+            
+            // copy the data if needed
+            dstJobDirectory = distCpDirectory(srcJobDirectory);
+            workingHdfs = destHdfs;
+            
+            // recreate the map files directory reference in case it moved filesystems
+            mapFilesDir = new Path(dstJobDirectory, "mapFiles");
+            
+            // now if we have a destination work directory, then move then move the files
+            bringMapFilesOnline(mapFilesDir);
+            
+            // ensure everything got loaded
+            verifyNothingLeftBehind(mapFilesDir);
+            
+            cleanUpJobDirectory(mapFilesDir);
+            long end = System.currentTimeMillis();
+            incrementCounter("MapFileLoader.LoadTimes", srcJobDirectory.getName(), end - start);
+            log.info("Finished processing " + mapFilesDir + ", duration (sec): " + ((end - start) / 1000));
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to process " + mapFilesDir, e);
+            boolean marked = markJobDirectoryFailed(workingHdfs, dstJobDirectory);
+            if (!marked) {
+                if (fsAccessFailures.incrementAndGet() >= 3) {
+                    log.error("Too many failures updating marker files.  Exiting...");
+                    shutdown();
+                } else {
+                    log.warn("Failed to mark " + dstJobDirectory + " as failed. Sleeping in case this was a transient failure.");
+                    try {
+                        Thread.sleep(FAILURE_SLEEP_TIME);
+                    } catch (InterruptedException ie) {
+                        log.warn("Interrupted while sleeping.", ie);
+                    }
+                }
+            }
+            return false;
+        }
     }
     
     protected void shutdown() {
@@ -596,17 +760,22 @@ public final class BulkIngestMapFileLoader implements Runnable {
      */
     public boolean canBringMapFilesOnline(long lastOnlineTime, boolean logInfo) {
         Level level = (logInfo ? Level.INFO : Level.DEBUG);
-        int majC = getMajorCompactionCount();
-        log.log(level, "There are " + majC + " compactions currently running or queued.");
+        int[] majC = getMajorCompactionCounts(level);
+        log.log(level, "There are " + majC[0] + " compactions currently running or queued.");
         
         long delta = System.currentTimeMillis() - lastOnlineTime;
         log.log(level, "Time since map files last brought online: " + (delta / 1000) + "s");
         
-        return (delta > MAJC_WAIT_TIMEOUT) && (majC < MAJC_THRESHOLD);
+        return (delta > MAJC_WAIT_TIMEOUT) && (majC[0] < MAJC_THRESHOLD) && (MAJC_THRESHOLD_PER_SERVER <= 0 || majC[1] < MAJC_THRESHOLD_PER_SERVER);
     }
     
-    private int getMajorCompactionCount() {
+    /**
+     * @return the number of running or queued major compactions across all tablet servers, and on the busiest tablet server
+     */
+    protected int[] getMajorCompactionCounts(Level level) {
         int majC = 0;
+        int serverMajC = 0;
+        String server = null;
         
         ZooKeeperInstance instance = new ZooKeeperInstance(ClientConfiguration.loadDefault().withInstance(instanceName).withZkHosts(zooKeepers));
         
@@ -620,6 +789,22 @@ public final class BulkIngestMapFileLoader implements Runnable {
                 majC += e.getValue().getMajors().getQueued();
                 majC += e.getValue().getMajors().getRunning();
             }
+            
+            if (MAJC_THRESHOLD_PER_SERVER > 0 && mmi.getTServerInfo() != null) {
+                for (TabletServerStatus status : mmi.getTServerInfo()) {
+                    int count = 0;
+                    for (TableInfo tableInfo : status.getTableMap().values()) {
+                        if (tableInfo.getMajors() != null) {
+                            count += tableInfo.getMajors().getQueued() + tableInfo.getMajors().getRunning();
+                        }
+                    }
+                    if (count > serverMajC) {
+                        serverMajC = count;
+                        server = status.getName();
+                    }
+                }
+                log.log(level, "The busiest tablet server " + server + " has " + serverMajC + " compactions currently running or queued.");
+            }
         } catch (Exception e) {
             // Accumulo API changed, catch exception for now until we redeploy
             // accumulo on lightning.
@@ -630,7 +815,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
             }
         }
         
-        return majC;
+        return new int[] {majC, serverMajC};
     }
     
     /**
@@ -766,6 +951,24 @@ public final class BulkIngestMapFileLoader implements Runnable {
             throw new IOException(e);
     }
     
+    /**
+     * @return the permits limiting the concurrent bulk imports into a table, or null if they are unlimited
+     */
+    private Semaphore getTableImportPermits(String tableName) {
+        if (MAX_IMPORTS_PER_TABLE <= 0) {
+            return null;
+        }
+        Semaphore permits = tableImportPermits.get(tableName);
+        if (permits == null) {
+            Semaphore newPermits = new Semaphore(MAX_IMPORTS_PER_TABLE, true);
+            permits = tableImportPermits.putIfAbsent(tableName, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+    
     public ImportRunnable startImport(Path mapFilesDir, String tableName, Path tableDir, TableOperations tops) {
         ImportRunnable runnable = new ImportRunnable(mapFilesDir, tableName, tableDir, tops);
         Thread thread = new Thread(runnable);
@@ -831,10 +1034,27 @@ public final class BulkIngestMapFileLoader implements Runnable {
                 }
                 fileSystem.mkdirs(failuresPath);
                 
-                // import the directory
-                log.info("Bringing Map Files online for " + tableName);
-                tops.importDirectory(tableName, tableDir.toString(), failuresDir, false);
-                log.info("Completed bringing map files online for " + tableName);
+                // import the directory, waiting for another import into the table to complete if we are at the limit
+                int numFiles = fileSystem.listStatus(tableDir).length;
+                Semaphore permits = getTableImportPermits(tableName);
+                long waitStart = System.currentTimeMillis();
+                if (permits != null) {
+                    permits.acquire();
+                }
+                try {
+                    long importStart = System.currentTimeMillis();
+                    log.info("Bringing Map Files online for " + tableName);
+                    tops.importDirectory(tableName, tableDir.toString(), failuresDir, false);
+                    log.info("Completed bringing map files online for " + tableName);
+                    incrementCounter("MapFileLoader.ImportWaitTimes", tableName, importStart - waitStart);
+                    incrementCounter("MapFileLoader.ImportTimes", tableName, System.currentTimeMillis() - importStart);
+                    incrementCounter("MapFileLoader.Imports", tableName, 1);
+                    incrementCounter("MapFileLoader.FilesLoaded", tableName, numFiles);
+                } finally {
+                    if (permits != null) {
+                        permits.release();
+                    }
+                }
                 validateComplete();
             } catch (Exception e) {
                 log.error("Error importing files into table " + tableName + " from directory " + mapFilesDir, e);
@@ -1133,10 +1353,19 @@ public final class BulkIngestMapFileLoader implements Runnable {
         }
     }
     
+    /**
+     * Increment a counter in the current stats. Counters are updated by the concurrent imports and job directories, so access to the reporter is synchronized.
+     */
+    private void incrementCounter(String group, String name, long value) {
+        synchronized (reporterLock) {
+            reporter.getCounter(group, name).increment(value);
+        }
+    }
+    
     private void writeStats(Path[] jobDirectories) throws IOException {
         long now = System.currentTimeMillis();
         for (Path p : jobDirectories)
-            reporter.getCounter("MapFileLoader.EndTimes", p.getName()).increment(now);
+            incrementCounter("MapFileLoader.EndTimes", p.getName(), now);
         // Write out the metrics.
         // We are going to serialize the counters into a file in HDFS.
         // The context was set in the processKeyValues method below, and should not be null. We'll guard against NPE anyway
@@ -1146,7 +1375,14 @@ public final class BulkIngestMapFileLoader implements Runnable {
         CompressionCodec cc = new GzipCodec();
         CompressionType ct = CompressionType.BLOCK;
         
-        Counters c = reporter.getCounters();
+        Counters c;
+        synchronized (reporterLock) {
+            c = reporter.getCounters();
+            if (null != c && c.countCounters() > 0) {
+                // reset reporter so that old metrics don't persist over time
+                this.reporter = new StandaloneStatusReporter();
+            }
+        }
         if (null != c && c.countCounters() > 0) {
             // Serialize the counters to a file in HDFS.
             Path src = new Path(File.createTempFile("MapFileLoader", ".metrics").getAbsolutePath());
@@ -1172,9 +1408,6 @@ public final class BulkIngestMapFileLoader implements Runnable {
                 // If an error occurs in the copy, then we will leave in the local metrics directory.
                 log.error("Error copying metrics file into HDFS, will remain in metrics directory.");
             }
-            
-            // reset reporter so that old metrics don't persist over time
-            this.reporter = new StandaloneStatusReporter();
         }
         
     }
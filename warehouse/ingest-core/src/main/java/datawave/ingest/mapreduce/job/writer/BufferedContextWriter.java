@@ -0,0 +1,69 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import java.io.IOException;
+
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+/**
+ * A context writer that only buffers the entries written to it. This is used by a single worker thread of the EventMapper to collect the output of an event,
+ * which the mapper thread later writes to the real context writer. Nothing is ever written to the context by this writer, so it is not synchronized.
+ *
+ * @param <OK>
+ *            The output key
+ * @param <OV>
+ *            The output value
+ */
+public class BufferedContextWriter<OK,OV> implements ContextWriter<OK,OV> {
+    
+    private Multimap<BulkIngestKey,Value> committed = ArrayListMultimap.create();
+    private Multimap<BulkIngestKey,Value> uncommitted = ArrayListMultimap.create();
+    
+    @Override
+    public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {}
+    
+    @Override
+    public void write(BulkIngestKey key, Value value, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        uncommitted.put(key, value);
+    }
+    
+    @Override
+    public void write(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        uncommitted.putAll(entries);
+    }
+    
+    /**
+     * Move the uncommitted entries into the buffer. Nothing is written to the context.
+     */
+    @Override
+    public void commit(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        committed.putAll(uncommitted);
+        uncommitted = ArrayListMultimap.create();
+    }
+    
+    /**
+     * Drop the entries written since the last commit.
+     */
+    @Override
+    public void rollback() throws IOException, InterruptedException {
+        uncommitted = ArrayListMultimap.create();
+    }
+    
+    @Override
+    public void cleanup(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        commit(context);
+    }
+    
+    /**
+     * @return the committed entries
+     */
+    public Multimap<BulkIngestKey,Value> getEntries() {
+        return committed;
+    }
+}
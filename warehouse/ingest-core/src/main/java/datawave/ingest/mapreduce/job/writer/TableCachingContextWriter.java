@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
 import datawave.ingest.mapreduce.job.reduce.BulkIngestKeyDedupeCombiner;
+import datawave.util.KeyValueSizeEstimator;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
@@ -19,7 +20,8 @@ import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 /**
  * This is a caching context writer that will cache the entries for a table and will only actually flush entries once that cache is full. The cache will be
  * aggregated as the entries are received. This cache will cache values across calls to commit, which means that entries are aggregated across events (see
- * EventMapper contextWriter commit calls).
+ * EventMapper contextWriter commit calls). As the number of entries is a poor measure of the memory used when the keys vary in size, the estimated size of
+ * the cache across all tables is also bounded, and the tables using the most memory are flushed whenever that bound is exceeded.
  * 
  */
 public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestKey,Value> implements ChainedContextWriter<BulkIngestKey,Value> {
@@ -33,6 +35,8 @@ public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestK
     // a counter to keep track of how often the buffer for a table gets fluhed
     public static final String FLUSHED_BUFFER_COUNTER = "TABLE_CACHE_FLUSHES";
     public static final String FLUSHED_BUFFER_TOTAL = "TABLE_CACHE_FLUSHED_ENTRIES";
+    // a counter to keep track of how often the buffer for a table gets flushed because the cache exceeded its size in bytes
+    public static final String SPILLED_BUFFER_COUNTER = "TABLE_CACHE_SPILLS";
     
     // This is the cache configuration
     private static final Map<Text,Integer> tableCacheConf = new HashMap<Text,Integer>();
@@ -41,9 +45,18 @@ public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestK
     // entries
     public static final String TABLES_TO_CACHE_SUFFIX = ".table.context.writer.cache";
     
+    // the maximum estimated size of the cache across all tables in bytes
+    public static final String MAX_CACHE_BYTES = "ingest.table.caching.context.writer.max.bytes";
+    public static final long DEFAULT_MAX_CACHE_BYTES = 64l * 1024 * 1024;
+    
     // This is the cache
     private final Map<Text,Multimap<BulkIngestKey,Value>> aggregatedCache = new HashMap<>();
     
+    // The estimated size of the cache in bytes per table, and in total
+    private final Map<Text,Long> cacheBytes = new HashMap<>();
+    private long totalCacheBytes = 0;
+    private long maxCacheBytes = DEFAULT_MAX_CACHE_BYTES;
+    
     // This is the combiner used to aggregate values
     private CachingContextWriter combinerCache = new CachingContextWriter();
     private BulkIngestKeyDedupeCombiner<BulkIngestKey,Value> combiner = new BulkIngestKeyDedupeCombiner<BulkIngestKey,Value>() {
@@ -76,6 +89,7 @@ public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestK
                 tableCacheConf.put(new Text(tableName), maxCacheSize);
             }
         }
+        maxCacheBytes = conf.getLong(MAX_CACHE_BYTES, DEFAULT_MAX_CACHE_BYTES);
         
         // create and setup the chained context writer
         Class<ContextWriter<BulkIngestKey,Value>> contextWriterClass = null;
@@ -131,14 +145,25 @@ public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestK
     
     private void flushAll(TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
         // pass all of the data through the delegate and clear the cache
-        for (Map.Entry<Text,Multimap<BulkIngestKey,Value>> entries : aggregatedCache.entrySet()) {
-            if (!entries.getValue().isEmpty()) {
-                getCounter(context, FLUSHED_BUFFER_TOTAL, entries.getKey().toString()).increment(entries.getValue().size());
-                getCounter(context, FLUSHED_BUFFER_COUNTER, entries.getKey().toString()).increment(1);
-                contextWriter.write(entries.getValue(), context);
-            }
+        for (Text tableName : new ArrayList<>(aggregatedCache.keySet())) {
+            flushTable(tableName, context);
+        }
+    }
+    
+    /**
+     * Pass the cached entries for a table through the delegate and remove them from the cache.
+     */
+    private void flushTable(Text tableName, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException, InterruptedException {
+        Multimap<BulkIngestKey,Value> entries = aggregatedCache.remove(tableName);
+        Long bytes = cacheBytes.remove(tableName);
+        if (bytes != null) {
+            totalCacheBytes -= bytes;
+        }
+        if (entries != null && !entries.isEmpty()) {
+            getCounter(context, FLUSHED_BUFFER_TOTAL, tableName.toString()).increment(entries.size());
+            getCounter(context, FLUSHED_BUFFER_COUNTER, tableName.toString()).increment(1);
+            contextWriter.write(entries, context);
         }
-        aggregatedCache.clear();
     }
     
     private void cache(BulkIngestKey key, Collection<Value> values, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException,
@@ -146,29 +171,68 @@ public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestK
         List<Value> valueList = new ArrayList<>();
         valueList.addAll(values);
         
+        long bytes = 0;
         Multimap<BulkIngestKey,Value> entries = aggregatedCache.get(key.getTableName());
         if (entries != null) {
-            valueList.addAll(entries.removeAll(key));
+            Collection<Value> cached = entries.removeAll(key);
+            bytes -= estimateSize(key, cached);
+            valueList.addAll(cached);
         } else {
             entries = HashMultimap.create();
             aggregatedCache.put(key.getTableName(), entries);
         }
         
         // reduce the entries as needed
-        if (valueList.size() > 1) {
-            entries.putAll(key, reduceValues(key, valueList, context));
-        } else {
-            entries.putAll(key, valueList);
-        }
+        Collection<Value> reduced = (valueList.size() > 1 ? reduceValues(key, valueList, context) : valueList);
+        entries.putAll(key, reduced);
+        bytes += estimateSize(key, reduced);
+        
+        Long tableBytes = cacheBytes.get(key.getTableName());
+        cacheBytes.put(key.getTableName(), (tableBytes == null ? 0 : tableBytes) + bytes);
+        totalCacheBytes += bytes;
         
         // now flush this tables cache if needed
         if (entries.size() >= tableCacheConf.get(key.getTableName())) {
-            // register that we overran the cache for this table
-            getCounter(context, FLUSHED_BUFFER_TOTAL, key.getTableName().toString()).increment(entries.size());
-            getCounter(context, FLUSHED_BUFFER_COUNTER, key.getTableName().toString()).increment(1);
-            contextWriter.write(entries, context);
-            aggregatedCache.remove(key.getTableName());
+            flushTable(key.getTableName(), context);
+        }
+        
+        // and flush the largest tables while the cache as a whole is too big
+        while (totalCacheBytes > maxCacheBytes && !cacheBytes.isEmpty()) {
+            Text largest = null;
+            for (Map.Entry<Text,Long> entry : cacheBytes.entrySet()) {
+                if (largest == null || entry.getValue() > cacheBytes.get(largest)) {
+                    largest = entry.getKey();
+                }
+            }
+            getCounter(context, SPILLED_BUFFER_COUNTER, largest.toString()).increment(1);
+            flushTable(largest, context);
+        }
+    }
+    
+    /**
+     * @return the estimated size in bytes of the entries cached for a table
+     */
+    long getCacheBytes(Text tableName) {
+        Long bytes = cacheBytes.get(tableName);
+        return (bytes == null ? 0 : bytes);
+    }
+    
+    /**
+     * @return the estimated size in bytes of the entries cached across all tables
+     */
+    long getTotalCacheBytes() {
+        return totalCacheBytes;
+    }
+    
+    /**
+     * Estimate the memory used by the entries for a key in the cache.
+     */
+    private static long estimateSize(BulkIngestKey key, Collection<Value> values) {
+        long size = 0;
+        for (Value value : values) {
+            size += KeyValueSizeEstimator.sizeOf(key.getKey(), value);
         }
+        return size;
     }
     
     /**
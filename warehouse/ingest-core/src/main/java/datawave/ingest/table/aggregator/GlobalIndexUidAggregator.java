@@ -1,5 +1,7 @@
 package datawave.ingest.table.aggregator;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 
@@ -7,6 +9,9 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.log4j.Logger;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 import datawave.ingest.protobuf.Uid;
@@ -15,18 +20,26 @@ import datawave.ingest.protobuf.Uid;
  * Implementation of an Aggregator that aggregates objects of the type Uid.List. This is an optimization for the shardIndex and shardReverseIndex, where the
  * list of UIDs for events will be maintained in the global index for low cardinality terms.
  * 
- * 
+ * This combiner runs on every scan and compaction of the index tables, so the values are not parsed into Uid.List objects. Each value is decoded with a
+ * {@link CodedInputStream} into lists that are reused across values, the UIDs are kept as the undecoded {@link ByteString}s, and the aggregate is written
+ * directly with a {@link CodedOutputStream}. The serialized form is the same as that of the equivalent Uid.List.
  * 
  */
 public class GlobalIndexUidAggregator extends PropogatingCombiner {
     private static final Logger log = Logger.getLogger(GlobalIndexUidAggregator.class);
-    private Uid.List.Builder builder = Uid.List.newBuilder();
+    
+    // tags of the Uid.List fields
+    private static final int IGNORE_TAG = (Uid.List.IGNORE_FIELD_NUMBER << 3) | 0;
+    private static final int COUNT_TAG = (Uid.List.COUNT_FIELD_NUMBER << 3) | 0;
+    private static final int UID_TAG = (Uid.List.UID_FIELD_NUMBER << 3) | 2;
+    private static final int REMOVEDUID_TAG = (Uid.List.REMOVEDUID_FIELD_NUMBER << 3) | 2;
+    private static final int QUARANTINEUID_TAG = (Uid.List.QUARANTINEUID_FIELD_NUMBER << 3) | 2;
     
     /**
      * Using a set instead of a list so that duplicate UIDs are filtered out of the list. This might happen in the case of rows with masked fields that share a
      * UID.
      */
-    private HashSet<String> uids = new HashSet<String>();
+    private HashSet<ByteString> uids = new HashSet<ByteString>();
     
     public GlobalIndexUidAggregator(int max) {
         this.maxUids = max;
@@ -39,17 +52,26 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
     /**
      * List of UIDs to remove.
      */
-    private HashSet<String> uidsToRemove = new HashSet<String>();
+    private HashSet<ByteString> uidsToRemove = new HashSet<ByteString>();
     
     /**
      * List of UIDs to remove.
      */
-    private HashSet<String> quarantinedIds = new HashSet<String>();
+    private HashSet<ByteString> quarantinedIds = new HashSet<ByteString>();
     
     /**
      * List of UIDs to remove.
      */
-    private HashSet<String> releasedUids = new HashSet<String>();
+    private HashSet<ByteString> releasedUids = new HashSet<ByteString>();
+    
+    /**
+     * The lists of the value being decoded, reused across values
+     */
+    private final ArrayList<ByteString> valueUids = new ArrayList<ByteString>();
+    private final ArrayList<ByteString> valueRemovedUids = new ArrayList<ByteString>();
+    private final ArrayList<ByteString> valueQuarantineUids = new ArrayList<ByteString>();
+    private boolean valueIgnore;
+    private long valueCount;
     
     /**
      * flag for whether or not we have seen ignore
@@ -80,17 +102,12 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
         
         // as a backup, we remove the intersection of the UID sets
         
-        builder.setCOUNT(count);
-        
-        if (seenIgnore || count > maxUids) {
-            builder.setIGNORE(true);
-            builder.clearUID();
+        boolean ignore = seenIgnore || count > maxUids;
+        if (ignore) {
             // if we catch seenIgnore, then there is
             // no need to propogate removals.
             propogate = false;
         } else {
-            builder.setIGNORE(false);
-            
             uidsToRemove.removeAll(quarantinedIds);
             uidsToRemove.removeAll(releasedUids);
             quarantinedIds.removeAll(releasedUids);
@@ -103,27 +120,110 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
                     log.debug("Adding released UIDS");
                 uids.addAll(releasedUids);
             }
-            
-            builder.addAllUID(uids);
         }
         
         if (log.isDebugEnabled())
             log.debug("Propogating: " + propogate);
         
-        // clear all removals
-        builder.clearREMOVEDUID();
-        
+        // compute the size first so that the value is written into an array of the exact size
+        int size = CodedOutputStream.computeBoolSize(Uid.List.IGNORE_FIELD_NUMBER, ignore)
+                        + CodedOutputStream.computeUInt64Size(Uid.List.COUNT_FIELD_NUMBER, count);
+        if (!ignore) {
+            size += computeSize(Uid.List.UID_FIELD_NUMBER, uids);
+        }
         if (propogate) {
-            
-            builder.addAllREMOVEDUID(uidsToRemove);
-            builder.addAllQUARANTINEUID(quarantinedIds);
+            size += computeSize(Uid.List.REMOVEDUID_FIELD_NUMBER, uidsToRemove);
+            size += computeSize(Uid.List.QUARANTINEUID_FIELD_NUMBER, quarantinedIds);
+        }
+        
+        byte[] bytes = new byte[size];
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        try {
+            output.writeBool(Uid.List.IGNORE_FIELD_NUMBER, ignore);
+            output.writeUInt64(Uid.List.COUNT_FIELD_NUMBER, count);
+            if (!ignore) {
+                write(output, Uid.List.UID_FIELD_NUMBER, uids);
+            }
+            if (propogate) {
+                write(output, Uid.List.REMOVEDUID_FIELD_NUMBER, uidsToRemove);
+                write(output, Uid.List.QUARANTINEUID_FIELD_NUMBER, quarantinedIds);
+            }
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize the uid list", e);
         }
+        
         if (log.isDebugEnabled())
-            log.debug("Building aggregate. Count is " + count + ", uids.size() is " + uids.size() + ". builder size is " + builder.getUIDList().size());
-        return new Value(builder.build().toByteArray());
+            log.debug("Building aggregate. Count is " + count + ", uids.size() is " + uids.size() + ". ignore is " + ignore);
+        return new Value(bytes);
         
     }
     
+    private static int computeSize(int field, Iterable<ByteString> values) {
+        int size = 0;
+        for (ByteString value : values) {
+            size += CodedOutputStream.computeBytesSize(field, value);
+        }
+        return size;
+    }
+    
+    private static void write(CodedOutputStream output, int field, Iterable<ByteString> values) throws IOException {
+        for (ByteString value : values) {
+            output.writeBytes(field, value);
+        }
+    }
+    
+    /**
+     * Decode a serialized Uid.List into the value fields. Unknown fields are skipped, and the value is rejected if a required field is missing, as
+     * Uid.List.parseFrom would do.
+     * 
+     * @param value
+     * @throws IOException
+     */
+    private void decode(Value value) throws IOException {
+        valueUids.clear();
+        valueRemovedUids.clear();
+        valueQuarantineUids.clear();
+        boolean hasIgnore = false;
+        boolean hasCount = false;
+        
+        CodedInputStream input = CodedInputStream.newInstance(value.get(), 0, value.getSize());
+        boolean done = false;
+        while (!done) {
+            int tag = input.readTag();
+            switch (tag) {
+                case 0:
+                    done = true;
+                    break;
+                case IGNORE_TAG:
+                    valueIgnore = input.readBool();
+                    hasIgnore = true;
+                    break;
+                case COUNT_TAG:
+                    valueCount = input.readUInt64();
+                    hasCount = true;
+                    break;
+                case UID_TAG:
+                    valueUids.add(input.readBytes());
+                    break;
+                case REMOVEDUID_TAG:
+                    valueRemovedUids.add(input.readBytes());
+                    break;
+                case QUARANTINEUID_TAG:
+                    valueQuarantineUids.add(input.readBytes());
+                    break;
+                default:
+                    if (!input.skipField(tag)) {
+                        done = true;
+                    }
+                    break;
+            }
+        }
+        if (!hasIgnore || !hasCount) {
+            throw new InvalidProtocolBufferException("Message missing required fields: " + (hasIgnore ? "" : "IGNORE ") + (hasCount ? "" : "COUNT"));
+        }
+    }
+    
     /**
      * We should closely examine the possible use cases to ensure that we have covered all scenarios.
      * 
@@ -145,15 +245,15 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
             
             // Collect the values, which are serialized Uid.List objects
             try {
-                Uid.List v = Uid.List.parseFrom(value.get());
+                decode(value);
                 
-                long delta = v.getCOUNT();
+                long delta = valueCount;
                 
                 count += delta;
                 /**
                  * Fail fast approach.
                  */
-                if (v.getIGNORE()) {
+                if (valueIgnore) {
                     seenIgnore = true;
                     if (log.isDebugEnabled())
                         log.debug("SeenIgnore is true. Skipping collections");
@@ -163,13 +263,13 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
                 // in the protobuf into our object's uid list.
                 if (delta > 0) {
                     
-                    for (String uid : v.getQUARANTINEUIDList()) {
+                    for (ByteString uid : valueQuarantineUids) {
                         
                         quarantinedIds.remove(uid);
                         releasedUids.add(uid);
                     }
                     
-                    for (String uid : v.getUIDList()) {
+                    for (ByteString uid : valueUids) {
                         
                         // check that a removal has not occurred
                         // if it has, we decrement the count, from above.
@@ -190,36 +290,28 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
                 } else if (delta < 0 && !seenIgnore) {
                     
                     // so that we can perform the decrement
-                    for (String uid : v.getREMOVEDUIDList()) {
+                    for (ByteString uid : valueRemovedUids) {
                         
                         uidsToRemove.add(uid);
-                        
-                        if (uids.contains(uid)) {
-                            
-                            uids.remove(uid);
-                        }
+                        uids.remove(uid);
                         
                     }
                     
-                    for (String uid : v.getQUARANTINEUIDList()) {
-                        quarantinedIds.add(uid);
-                    }
+                    quarantinedIds.addAll(valueQuarantineUids);
                     
                     /**
                      * This is added for backwards compatability. The removal list was added to ensure that removals are propogated across compactions. In the
                      * case where compactions did not occur, and the indices are converted into the newer protobuff, we must use the UID list to maintain
                      * removals for deltas less than 0
                      */
-                    for (String uid : v.getUIDList()) {
+                    for (ByteString uid : valueUids) {
                         // add to uidsToRemove, and decrement count if the uid is in UIDS
                         uidsToRemove.add(uid);
-                        if (uids.contains(uid)) {
-                            uids.remove(uid);
-                        }
+                        uids.remove(uid);
                     }
                 }
                 
-            } catch (InvalidProtocolBufferException e) {
+            } catch (IOException e) {
                 if (key.isDeleted()) {
                     log.warn("Value passed to aggregator for a delete key was not of type Uid.List");
                 } else {
@@ -235,7 +327,6 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
             log.debug("Resetting GlobalIndexUidAggregator");
         count = 0;
         seenIgnore = false;
-        builder = Uid.List.newBuilder();
         uids.clear();
         uidsToRemove.clear();
         releasedUids.clear();
@@ -256,15 +347,20 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
         if ((seenIgnore && count > maxUids) || quarantinedIds.size() > 0)
             return true;
         
-        HashSet<String> uidsCopy = new HashSet<String>(uids);
-        uidsCopy.removeAll(uidsToRemove);
+        // count the uids that are not removed rather than copying the set
+        int remaining = 0;
+        for (ByteString uid : uids) {
+            if (!uidsToRemove.contains(uid)) {
+                remaining++;
+            }
+        }
         
         if (log.isDebugEnabled()) {
-            log.debug(count + " " + uids.size() + " " + uidsToRemove.size() + " " + uidsCopy.size() + " removing " + (count == 0 && uidsCopy.size() == 0));
+            log.debug(count + " " + uids.size() + " " + uidsToRemove.size() + " " + remaining + " removing " + (count == 0 && remaining == 0));
         }
         
         // if <= 0 and uids is empty, we can safely remove
-        if (count <= 0 && uidsCopy.size() == 0)
+        if (count <= 0 && remaining == 0)
             return false;
         else
             return true;
@@ -0,0 +1,70 @@
+package datawave.util.flag;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ * A source of change notifications for the input folders, used by the {@link IncrementalFileDiscovery} in place of repeatedly listing the folders.
+ */
+public interface FileChangeNotifier extends Closeable {
+    
+    /**
+     * Start watching the folders
+     *
+     * @param folders
+     *            the qualified input folders
+     * @param position
+     *            the position previously returned by {@link #getPosition()}, or -1 if there is none
+     * @return true if the notifier resumed from the position, false if changes may have been missed and the folders need to be listed
+     * @throws IOException
+     */
+    boolean start(Collection<Path> folders, long position) throws IOException;
+    
+    /**
+     * Get the changes since the last poll without blocking.
+     *
+     * @return the changes in the order they occurred, or null if changes were lost and the folders need to be listed
+     * @throws IOException
+     */
+    List<FileChange> poll() throws IOException;
+    
+    /**
+     * @return the position to persist in order to resume after the changes returned so far, or -1 if this notifier cannot resume
+     */
+    long getPosition();
+    
+    /**
+     * A file or directory that was created, written or moved into place ({@link Type#UPDATED}), or that was deleted or moved away ({@link Type#REMOVED}).
+     */
+    class FileChange {
+        
+        public enum Type {
+            UPDATED, REMOVED
+        }
+        
+        private final Type type;
+        private final Path path;
+        
+        public FileChange(Type type, Path path) {
+            this.type = type;
+            this.path = path;
+        }
+        
+        public Type getType() {
+            return type;
+        }
+        
+        public Path getPath() {
+            return path;
+        }
+        
+        @Override
+        public String toString() {
+            return type + " " + path;
+        }
+    }
+}
@@ -93,6 +93,7 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
     private static final String COUNTER_LIMIT_HADOOP_1 = "mapreduce.job.counters.limit";
     private static final int COUNTERS_PER_INPUT_FILE = 2;
     protected JobConf config;
+    private IncrementalFileDiscovery discovery;
     
     public FlagMaker(FlagMakerConfig fmconfig) {
         this.fmc = fmconfig;
@@ -169,7 +170,13 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
             }
         } finally {
             executor.shutdown();
-            
+            if (discovery != null) {
+                try {
+                    discovery.close();
+                } catch (IOException e) {
+                    log.warn("Unable to close file discovery", e);
+                }
+            }
         }
         log.info("FlagMaker Exiting.");
     }
@@ -181,6 +188,12 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
     protected void processFlags() throws IOException {
         FileSystem fs = getHadoopFS();
         log.debug("Querying for files");
+        if (fmc.isIncrementalDiscovery()) {
+            if (discovery == null) {
+                discovery = new IncrementalFileDiscovery(fmc, createFileChangeNotifier(fs));
+            }
+            discovery.refresh(fs);
+        }
         for (FlagDataTypeConfig fc : fmc.getFlagConfigs()) {
             long startTime = System.currentTimeMillis();
             String dataName = fc.getDataName();
@@ -188,9 +201,14 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
             log.debug("Checking for files for " + dataName);
             
             for (String folder : fc.getFolder()) {
-                String folderPattern = folder + "/" + fmc.getFilePattern();
-                log.debug("searching for " + dataName + " files in " + folderPattern);
-                FileStatus[] files = fs.globStatus(new Path(folderPattern));
+                FileStatus[] files;
+                if (discovery != null) {
+                    files = discovery.getFiles(folder);
+                } else {
+                    String folderPattern = folder + "/" + fmc.getFilePattern();
+                    log.debug("searching for " + dataName + " files in " + folderPattern);
+                    files = fs.globStatus(new Path(folderPattern));
+                }
                 if (files == null || files.length == 0) {
                     continue;
                 }
@@ -225,6 +243,24 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
         }
     }
     
+    /**
+     * Create the source of change notifications for incremental discovery: the HDFS inotify stream, or a watch service for a local file system
+     * 
+     * @param fs
+     * @return the notifier
+     * @throws IOException
+     */
+    protected FileChangeNotifier createFileChangeNotifier(FileSystem fs) throws IOException {
+        if ("file".equals(fs.getUri().getScheme())) {
+            return new LocalFileChangeNotifier();
+        }
+        return new HdfsFileChangeNotifier(fs.getUri(), fs.getConf());
+    }
+    
+    IncrementalFileDiscovery getDiscovery() {
+        return discovery;
+    }
+    
     private boolean mustHaveMax(FlagDataTypeConfig fc) {
         long now = System.currentTimeMillis();
         boolean mustHaveMax = (now < fc.getLast());
@@ -476,6 +512,14 @@ public class FlagMaker implements Runnable, Observer, SizeValidator {
                 throw new IOException("Failed to rename" + f.toString() + " to " + f2);
             }
             
+            if (discovery != null) {
+                List<Path> flagged = new ArrayList<>();
+                for (InputFile inFile : moved.keySet()) {
+                    flagged.add(inFile.getPath());
+                }
+                discovery.removeFiles(flagged);
+            }
+            
             try {
                 lock.lock();
                 // after we write a file, set the timeout to the forceInterval
@@ -0,0 +1,92 @@
+package datawave.util.flag;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import datawave.util.flag.FileChangeNotifier.FileChange.Type;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSInotifyEventInputStream;
+import org.apache.hadoop.hdfs.client.HdfsAdmin;
+import org.apache.hadoop.hdfs.inotify.Event;
+import org.apache.hadoop.hdfs.inotify.EventBatch;
+import org.apache.hadoop.hdfs.inotify.MissingEventsException;
+import org.apache.log4j.Logger;
+
+/**
+ * A {@link FileChangeNotifier} which reads the HDFS inotify event stream. The position is the transaction id of the last edit read, so the stream can be
+ * resumed after a restart as long as the NameNode still retains the edits. Reading the event stream requires HDFS superuser privileges.
+ */
+public class HdfsFileChangeNotifier implements FileChangeNotifier {
+    
+    private static final Logger log = Logger.getLogger(HdfsFileChangeNotifier.class);
+    
+    private final HdfsAdmin admin;
+    private DFSInotifyEventInputStream stream;
+    private long position = -1;
+    
+    public HdfsFileChangeNotifier(URI uri, Configuration conf) throws IOException {
+        this.admin = new HdfsAdmin(uri, conf);
+    }
+    
+    @Override
+    public boolean start(Collection<Path> folders, long position) throws IOException {
+        if (position >= 0) {
+            this.stream = admin.getInotifyEventStream(position);
+            this.position = position;
+            return true;
+        }
+        this.stream = admin.getInotifyEventStream();
+        this.position = -1;
+        return false;
+    }
+    
+    @Override
+    public List<FileChange> poll() throws IOException {
+        List<FileChange> changes = new ArrayList<>();
+        try {
+            EventBatch batch;
+            while ((batch = stream.poll()) != null) {
+                for (Event event : batch.getEvents()) {
+                    switch (event.getEventType()) {
+                        case CLOSE:
+                            changes.add(new FileChange(Type.UPDATED, new Path(((Event.CloseEvent) event).getPath())));
+                            break;
+                        case RENAME:
+                            Event.RenameEvent rename = (Event.RenameEvent) event;
+                            changes.add(new FileChange(Type.REMOVED, new Path(rename.getSrcPath())));
+                            changes.add(new FileChange(Type.UPDATED, new Path(rename.getDstPath())));
+                            break;
+                        case UNLINK:
+                            changes.add(new FileChange(Type.REMOVED, new Path(((Event.UnlinkEvent) event).getPath())));
+                            break;
+                        default:
+                            // files are picked up once they are closed, so creates, appends and metadata changes can be ignored
+                            break;
+                    }
+                }
+                position = batch.getTxid();
+            }
+        } catch (MissingEventsException e) {
+            log.warn("Missed HDFS inotify events, restarting from the current transaction", e);
+            stream = admin.getInotifyEventStream();
+            position = -1;
+            return null;
+        }
+        return changes;
+    }
+    
+    @Override
+    public long getPosition() {
+        return position;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        stream = null;
+    }
+}
@@ -0,0 +1,439 @@
+package datawave.util.flag;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import datawave.util.StringUtils;
+import datawave.util.flag.FileChangeNotifier.FileChange;
+import datawave.util.flag.config.FlagDataTypeConfig;
+import datawave.util.flag.config.FlagMakerConfig;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.GlobPattern;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps track of the pending files in the input folders so that the FlagMaker does not have to list every folder on each cycle. The folders are listed when
+ * discovery starts (unless the notifier resumes from the cursor), when the notifier reports that changes were lost, and every fullListingIntervalMilliSecs to
+ * reconcile anything that was missed. In between, the pending files are maintained from the change notifications, which costs one getFileStatus per new file
+ * regardless of how many files are staged.
+ *
+ * The pending files and the notifier position are persisted after each refresh that changed them. A full snapshot is only written to the cursor file after a
+ * full listing, or once the journal of changes appended since the last snapshot is as large as the snapshot itself. Otherwise the changes and the new position
+ * are appended to the journal file next to the cursor file, so the cost of a refresh is proportional to the number of changes rather than the number of pending
+ * files.
+ *
+ * The file pattern is matched one path component at a time, so patterns with alternatives spanning a "/" are not supported in this mode.
+ */
+public class IncrementalFileDiscovery implements Closeable {
+    
+    private static final Logger log = Logger.getLogger(IncrementalFileDiscovery.class);
+    
+    // the minimum number of journal entries before the cursor is compacted into a new snapshot
+    private static final int MIN_COMPACTION_ENTRIES = 10000;
+    private static final String ADDED = "+,";
+    private static final String REMOVED = "-,";
+    private static final String POSITION = "@,";
+    
+    private final FileChangeNotifier notifier;
+    private final List<String> folders = new ArrayList<>();
+    private final String filePattern;
+    private final GlobPattern[] globs;
+    private final File cursorFile;
+    private final File journalFile;
+    private final long fullListingInterval;
+    
+    // the qualified path of each folder, keyed by the configured folder
+    private final Map<String,String> folderPaths = new LinkedHashMap<>();
+    // the pending files, keyed by path
+    private final TreeMap<String,FileStatus> pending = new TreeMap<>();
+    // the journal entries for the changes to the pending files which have not been persisted yet
+    private final List<String> changes = new ArrayList<>();
+    private boolean started = false;
+    private boolean compact = false;
+    private int journalEntries = 0;
+    private long lastFullListing = 0;
+    private long cursorPosition = -1;
+    private int fullListings = 0;
+    
+    public IncrementalFileDiscovery(FlagMakerConfig fmc, FileChangeNotifier notifier) {
+        this.notifier = notifier;
+        for (FlagDataTypeConfig fc : fmc.getFlagConfigs()) {
+            folders.addAll(fc.getFolder());
+        }
+        this.filePattern = fmc.getFilePattern();
+        String[] components = StringUtils.split(filePattern, '/');
+        this.globs = new GlobPattern[components.length];
+        for (int i = 0; i < components.length; i++) {
+            globs[i] = new GlobPattern(components[i]);
+        }
+        this.cursorFile = new File(fmc.getDiscoveryCursorFile() != null ? fmc.getDiscoveryCursorFile() : fmc.getFlagFileDirectory() + File.separator
+                        + "flagmaker.cursor");
+        this.journalFile = new File(cursorFile.getPath() + ".journal");
+        this.fullListingInterval = fmc.getFullListingIntervalMilliSecs();
+    }
+    
+    /**
+     * Bring the pending files up to date with the input folders, and persist the changes if there were any.
+     *
+     * @param fs
+     * @throws IOException
+     */
+    public void refresh(FileSystem fs) throws IOException {
+        boolean fullListing = false;
+        if (!started) {
+            List<Path> paths = new ArrayList<>();
+            for (String folder : folders) {
+                Path path = fs.makeQualified(new Path(folder));
+                folderPaths.put(folder, getPathString(path));
+                paths.add(path);
+            }
+            fullListing = !notifier.start(paths, readCursor());
+            started = true;
+        }
+        
+        List<FileChange> changes = notifier.poll();
+        if (changes == null) {
+            log.warn("File change notifications were lost, listing the input folders");
+            fullListing = true;
+        } else if (System.currentTimeMillis() - lastFullListing >= fullListingInterval) {
+            fullListing = true;
+        }
+        
+        if (fullListing) {
+            listAll(fs);
+        } else {
+            for (FileChange change : changes) {
+                apply(fs, change);
+            }
+        }
+        
+        if (compact || !changes.isEmpty() || cursorPosition != notifier.getPosition()) {
+            if (compact || !cursorFile.exists() || journalEntries + changes.size() >= Math.max(MIN_COMPACTION_ENTRIES, pending.size())) {
+                writeCursor();
+            } else {
+                appendJournal();
+            }
+        }
+    }
+    
+    /**
+     * @param folder
+     *            a configured folder
+     * @return the pending files in the folder
+     */
+    public FileStatus[] getFiles(String folder) {
+        String folderPath = folderPaths.get(folder);
+        if (folderPath == null) {
+            return null;
+        }
+        Collection<FileStatus> files = getChildren(folderPath).values();
+        return files.toArray(new FileStatus[files.size()]);
+    }
+    
+    /**
+     * Remove files which are no longer pending, such as those which were just flagged, without waiting for the notifications of their removal
+     *
+     * @param paths
+     */
+    public void removeFiles(Collection<Path> paths) {
+        for (Path path : paths) {
+            remove(getPathString(path));
+        }
+    }
+    
+    public int getFullListings() {
+        return fullListings;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        notifier.close();
+    }
+    
+    private void listAll(FileSystem fs) throws IOException {
+        log.debug("Listing all input folders");
+        for (Map.Entry<String,String> folder : folderPaths.entrySet()) {
+            getChildren(folder.getValue()).clear();
+            FileStatus[] files = fs.globStatus(new Path(folder.getKey() + "/" + filePattern));
+            if (files != null) {
+                for (FileStatus status : files) {
+                    if (status.isDirectory()) {
+                        log.warn("Skipping subdirectory " + status.getPath());
+                        continue;
+                    }
+                    pending.put(getPathString(status.getPath()), status);
+                }
+            }
+        }
+        lastFullListing = System.currentTimeMillis();
+        fullListings++;
+        // the listing replaces everything, so write a new snapshot rather than journaling it
+        changes.clear();
+        compact = true;
+    }
+    
+    private void apply(FileSystem fs, FileChange change) throws IOException {
+        String path = getPathString(change.getPath());
+        if (change.getType() == FileChange.Type.REMOVED) {
+            remove(path);
+            return;
+        }
+        String relative = getRelativePath(path);
+        if (relative == null) {
+            return;
+        }
+        String[] components = StringUtils.split(relative, '/');
+        if (!matches(components)) {
+            return;
+        }
+        FileStatus status;
+        try {
+            status = fs.getFileStatus(change.getPath());
+        } catch (FileNotFoundException e) {
+            // already gone again
+            remove(path);
+            return;
+        }
+        if (components.length == globs.length) {
+            if (status.isDirectory()) {
+                log.warn("Skipping subdirectory " + status.getPath());
+                return;
+            }
+            add(status);
+        } else if (status.isDirectory()) {
+            // a directory was created or moved into place, so pick up whatever is in it already
+            addDirectory(fs, status.getPath(), components.length);
+        }
+    }
+    
+    private void addDirectory(FileSystem fs, Path dir, int depth) throws IOException {
+        for (FileStatus status : fs.listStatus(dir)) {
+            if (!globs[depth].matches(status.getPath().getName())) {
+                continue;
+            }
+            if (depth + 1 == globs.length) {
+                if (status.isDirectory()) {
+                    log.warn("Skipping subdirectory " + status.getPath());
+                    continue;
+                }
+                add(status);
+            } else if (status.isDirectory()) {
+                addDirectory(fs, status.getPath(), depth + 1);
+            }
+        }
+    }
+    
+    private void add(FileStatus status) {
+        pending.put(getPathString(status.getPath()), status);
+        if (!compact) {
+            changes.add(ADDED + format(status));
+        }
+    }
+    
+    private void remove(String path) {
+        if (removePending(path) && !compact) {
+            changes.add(REMOVED + path);
+        }
+    }
+    
+    /**
+     * Remove the path and anything under it from the pending files
+     *
+     * @return whether anything was removed
+     */
+    private boolean removePending(String path) {
+        boolean removed = pending.remove(path) != null;
+        SortedMap<String,FileStatus> children = getChildren(path);
+        if (!children.isEmpty()) {
+            children.clear();
+            removed = true;
+        }
+        return removed;
+    }
+    
+    /**
+     * @return whether the path components match the leading components of the file pattern
+     */
+    private boolean matches(String[] components) {
+        if (components.length == 0 || components.length > globs.length) {
+            return false;
+        }
+        for (int i = 0; i < components.length; i++) {
+            if (!globs[i].matches(components[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @return the path relative to the folder containing it, or null if it is not within a folder
+     */
+    private String getRelativePath(String path) {
+        for (String folderPath : folderPaths.values()) {
+            if (path.startsWith(folderPath + '/')) {
+                return path.substring(folderPath.length() + 1);
+            }
+        }
+        return null;
+    }
+    
+    private SortedMap<String,FileStatus> getChildren(String path) {
+        // '0' sorts immediately after '/'
+        return pending.subMap(path + '/', path + '0');
+    }
+    
+    /**
+     * Paths are compared without the scheme and authority as the notifications do not necessarily include them
+     */
+    private static String getPathString(Path path) {
+        return path.toUri().getPath();
+    }
+    
+    /**
+     * Load the pending files from the cursor file
+     *
+     * @return the persisted notifier position, or -1 if there is none
+     */
+    private long readCursor() {
+        if (!cursorFile.exists()) {
+            return -1;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(cursorFile.toPath(), StandardCharsets.UTF_8)) {
+            String[] header = StringUtils.split(reader.readLine(), ',');
+            long position = Long.parseLong(header[0]);
+            long listingTime = Long.parseLong(header[1]);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                FileStatus status = parse(line);
+                pending.put(getPathString(status.getPath()), status);
+            }
+            lastFullListing = listingTime;
+            position = replayJournal(position);
+            cursorPosition = position;
+            log.info("Loaded " + pending.size() + " pending files from " + cursorFile + " and " + journalEntries + " journal entries at position " + position);
+            return position;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to read cursor file " + cursorFile + ", the input folders will be listed", e);
+            pending.clear();
+            journalEntries = 0;
+            return -1;
+        }
+    }
+    
+    /**
+     * Apply the journaled changes to the pending files loaded from the snapshot. Each batch of changes ends with the position after them, so a batch which was
+     * only partially written is ignored and will be delivered again by the notifier.
+     *
+     * @return the position after the last complete batch
+     */
+    private long replayJournal(long position) throws IOException {
+        if (!journalFile.exists()) {
+            return position;
+        }
+        List<String> batch = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith(POSITION)) {
+                    batch.add(line);
+                    continue;
+                }
+                for (String entry : batch) {
+                    if (entry.startsWith(ADDED)) {
+                        FileStatus status = parse(entry.substring(ADDED.length()));
+                        pending.put(getPathString(status.getPath()), status);
+                    } else if (entry.startsWith(REMOVED)) {
+                        removePending(entry.substring(REMOVED.length()));
+                    } else {
+                        throw new IOException("Invalid journal entry: " + entry);
+                    }
+                }
+                journalEntries += batch.size() + 1;
+                batch.clear();
+                position = Long.parseLong(line.substring(POSITION.length()));
+            }
+        }
+        if (!batch.isEmpty()) {
+            // do not append after the partial batch
+            log.warn("Ignoring " + batch.size() + " entries at the end of " + journalFile + " which were not completely written");
+            compact = true;
+        }
+        return position;
+    }
+    
+    /**
+     * Append the changes since the cursor was last persisted to the journal, followed by the position after them
+     */
+    private void appendJournal() throws IOException {
+        long position = notifier.getPosition();
+        try (BufferedWriter writer = Files.newBufferedWriter(journalFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND)) {
+            for (String change : changes) {
+                writer.write(change);
+                writer.newLine();
+            }
+            writer.write(POSITION + position);
+            writer.newLine();
+        }
+        journalEntries += changes.size() + 1;
+        changes.clear();
+        cursorPosition = position;
+    }
+    
+    /**
+     * Write a new snapshot of the pending files and remove the journal. The snapshot is written to a temporary file first so that a failure can not leave a
+     * partial cursor behind. The journal is removed before the snapshot is moved into place, so a failure in between leaves the previous snapshot and position
+     * for the notifier to resume from.
+     */
+    private void writeCursor() throws IOException {
+        long position = notifier.getPosition();
+        File tmpFile = new File(cursorFile.getPath() + ".tmp");
+        if (cursorFile.getParentFile() != null) {
+            Files.createDirectories(cursorFile.getParentFile().toPath());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(position + "," + lastFullListing);
+            writer.newLine();
+            for (FileStatus status : pending.values()) {
+                writer.write(format(status));
+                writer.newLine();
+            }
+        }
+        Files.deleteIfExists(journalFile.toPath());
+        Files.move(tmpFile.toPath(), cursorFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        cursorPosition = position;
+        changes.clear();
+        compact = false;
+        journalEntries = 0;
+    }
+    
+    private static String format(FileStatus status) {
+        // the path goes last as it may contain commas
+        return status.getLen() + "," + status.getBlockSize() + "," + status.getModificationTime() + "," + status.getPath();
+    }
+    
+    private static FileStatus parse(String line) {
+        String[] fields = line.split(",", 4);
+        Path path = new Path(fields[3]);
+        return new FileStatus(Long.parseLong(fields[0]), false, 0, Long.parseLong(fields[1]), Long.parseLong(fields[2]), path);
+    }
+}
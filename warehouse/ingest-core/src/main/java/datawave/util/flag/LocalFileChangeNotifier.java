@@ -0,0 +1,113 @@
+package datawave.util.flag;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import datawave.util.flag.FileChangeNotifier.FileChange.Type;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+/**
+ * A {@link FileChangeNotifier} for folders on the local file system using a {@link WatchService}. Every directory below the folders is registered with the
+ * watch service as it is found. The watch service does not survive a restart, so this notifier never resumes from a position.
+ */
+public class LocalFileChangeNotifier implements FileChangeNotifier {
+    
+    private static final Logger log = Logger.getLogger(LocalFileChangeNotifier.class);
+    
+    private WatchService watcher;
+    private final Map<WatchKey,java.nio.file.Path> keys = new HashMap<>();
+    
+    @Override
+    public boolean start(Collection<Path> folders, long position) throws IOException {
+        watcher = FileSystems.getDefault().newWatchService();
+        for (Path folder : folders) {
+            java.nio.file.Path dir = Paths.get(folder.toUri().getPath());
+            if (Files.isDirectory(dir)) {
+                register(dir);
+            } else {
+                log.warn("Input folder " + dir + " does not exist, it will only be found by the periodic full listing");
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Register a directory and all of its subdirectories
+     */
+    private void register(java.nio.file.Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<java.nio.file.Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(java.nio.file.Path subdir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = subdir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                                StandardWatchEventKinds.ENTRY_DELETE);
+                keys.put(key, subdir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+    
+    @Override
+    public List<FileChange> poll() throws IOException {
+        List<FileChange> changes = new ArrayList<>();
+        boolean overflow = false;
+        WatchKey key;
+        while ((key = watcher.poll()) != null) {
+            java.nio.file.Path dir = keys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                    overflow = true;
+                    continue;
+                }
+                java.nio.file.Path child = dir.resolve((java.nio.file.Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    changes.add(new FileChange(Type.REMOVED, new Path(child.toUri())));
+                } else {
+                    // register new directories before reporting them so that nothing created within them afterwards is missed
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        try {
+                            register(child);
+                        } catch (IOException e) {
+                            log.warn("Unable to watch directory " + child, e);
+                            overflow = true;
+                        }
+                    }
+                    changes.add(new FileChange(Type.UPDATED, new Path(child.toUri())));
+                }
+            }
+            if (!key.reset()) {
+                keys.remove(key);
+            }
+        }
+        return overflow ? null : changes;
+    }
+    
+    @Override
+    public long getPosition() {
+        return -1;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+        keys.clear();
+    }
+}
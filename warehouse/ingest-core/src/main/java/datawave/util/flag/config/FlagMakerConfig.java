@@ -56,6 +56,12 @@ public class FlagMakerConfig {
     protected int directoryCacheSize = 2000;
     // directory cache timeout. Default is 2 Hours
     protected long directoryCacheTimeout = (2 * 60 * 60 * 1000);
+    // discover new files from change notifications rather than listing the input folders on every cycle
+    private boolean incrementalDiscovery = false;
+    // where incremental discovery persists the pending files. Default is flagmaker.cursor in the flagFileDirectory
+    private String discoveryCursorFile;
+    // how often incremental discovery lists the input folders to reconcile missed notifications. Default is 1 hour
+    private long fullListingIntervalMilliSecs = (60 * 60 * 1000L);
     
     public FlagDataTypeConfig getDefaultCfg() {
         return defaultCfg;
@@ -161,6 +167,30 @@ public class FlagMakerConfig {
         this.directoryCacheTimeout = directoryCacheTimeout;
     }
     
+    public boolean isIncrementalDiscovery() {
+        return incrementalDiscovery;
+    }
+    
+    public void setIncrementalDiscovery(boolean incrementalDiscovery) {
+        this.incrementalDiscovery = incrementalDiscovery;
+    }
+    
+    public String getDiscoveryCursorFile() {
+        return discoveryCursorFile;
+    }
+    
+    public void setDiscoveryCursorFile(String discoveryCursorFile) {
+        this.discoveryCursorFile = discoveryCursorFile;
+    }
+    
+    public long getFullListingIntervalMilliSecs() {
+        return fullListingIntervalMilliSecs;
+    }
+    
+    public void setFullListingIntervalMilliSecs(long fullListingIntervalMilliSecs) {
+        this.fullListingIntervalMilliSecs = fullListingIntervalMilliSecs;
+    }
+    
     public int getMaxFileLength() {
         return maxFileLength;
     }
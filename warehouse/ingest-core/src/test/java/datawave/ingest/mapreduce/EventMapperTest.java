@@ -8,11 +8,14 @@ import datawave.ingest.data.TypeRegistry;
 import datawave.ingest.data.config.BaseNormalizedContent;
 import datawave.ingest.data.config.NormalizedContentInterface;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.mapreduce.job.ConstraintChecker;
 import datawave.ingest.mapreduce.job.metrics.*;
 import datawave.ingest.mapreduce.job.writer.ContextWriter;
+import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.StatusReporter;
 import org.apache.hadoop.mrunit.mapreduce.MapDriver;
 import org.junit.Before;
 import org.junit.Test;
@@ -20,6 +23,9 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 public class EventMapperTest {
@@ -119,6 +125,87 @@ public class EventMapperTest {
         assertEquals(4, written.size());
     }
     
+    @Test
+    public void shouldWriteSameOutputWithWorkerThreads() throws IOException {
+        List<Key> expected = runWithThreads(1);
+        List<Key> written = runWithThreads(4);
+        
+        // two fields mutations + ORIG_FILE + RAW_FILE for each event, written in the order the events were read
+        assertEquals(40, expected.size());
+        assertEquals(expected, written);
+        assertEquals(Arrays.asList("/some/filename0", "/some/filename1", "/some/filename2", "/some/filename3", "/some/filename4", "/some/filename5",
+                        "/some/filename6", "/some/filename7", "/some/filename8", "/some/filename9"), getRawFileNames(written));
+    }
+    
+    @Test
+    public void shouldNotWriteEventsAfterAWorkerThreadFails() throws IOException {
+        Type type = new Type("file", null, null, new String[] {FailingDataTypeHandler.class.getName()}, 10, null);
+        TypeRegistry.getInstance(conf).put(type.typeName(), type);
+        
+        try {
+            runWithThreads(4);
+            fail("The failure on the worker thread was not rethrown");
+        } catch (ConstraintChecker.ConstraintViolationException e) {
+            // expected
+        }
+        
+        // the events before the failed one are written in order, and nothing after it
+        List<Key> written = getCommittedKeys();
+        assertEquals(Arrays.asList("/some/filename0", "/some/filename1", "/some/filename2", "/some/filename3", "/some/filename4"), getRawFileNames(written));
+    }
+    
+    /**
+     * Fails the job for the event from /some/filename5
+     */
+    public static class FailingDataTypeHandler<IK> extends SimpleDataTypeHandler<IK> {
+        @Override
+        public Multimap<BulkIngestKey,Value> processBulk(IK key, RawRecordContainer event, Multimap<String,NormalizedContentInterface> fields,
+                        StatusReporter reporter) {
+            if (event.getRawFileName().equals("/some/filename5")) {
+                throw new ConstraintChecker.ConstraintViolationException(TABLE, null);
+            }
+            return super.processBulk(key, event, fields, reporter);
+        }
+    }
+    
+    /**
+     * Run ten events through a new mapper and return the keys written in order, less the LOAD_DATE which changes between runs
+     */
+    private List<Key> runWithThreads(int threads) throws IOException {
+        MapDriver<LongWritable,RawRecordContainer,BulkIngestKey,Value> threadedDriver = new MapDriver<>(
+                        new EventMapper<LongWritable,RawRecordContainer,BulkIngestKey,Value>());
+        threadedDriver.getConfiguration().setClass(EventMapper.CONTEXT_WRITER_CLASS, TestContextWriter.class, ContextWriter.class);
+        threadedDriver.getConfiguration().setInt(EventMapper.THREADS, threads);
+        threadedDriver.getConfiguration().setInt(EventMapper.THREADS_QUEUE_SIZE, 2);
+        for (int i = 0; i < 10; i++) {
+            SimpleRawRecord event = (SimpleRawRecord) record.copy();
+            event.setRawFileName("/some/filename" + i);
+            threadedDriver.addInput(new LongWritable(i), event);
+        }
+        threadedDriver.run();
+        return getCommittedKeys();
+    }
+    
+    private List<Key> getCommittedKeys() {
+        List<Key> keys = new ArrayList<>();
+        for (BulkIngestKey key : TestContextWriter.getCommitted()) {
+            if (!EventMapper.LOAD_DATE_FIELDNAME.equals(key.getKey().getColumnFamily().toString())) {
+                keys.add(key.getKey());
+            }
+        }
+        return keys;
+    }
+    
+    private List<String> getRawFileNames(List<Key> keys) {
+        List<String> names = new ArrayList<>();
+        for (Key key : keys) {
+            if (EventMapper.RAW_FILE_FIELDNAME.equals(key.getColumnFamily().toString())) {
+                names.add(key.getColumnQualifier().toString());
+            }
+        }
+        return names;
+    }
+    
     private Map.Entry<BulkIngestKey,Value> getMetric(Multimap<BulkIngestKey,Value> written) {
         return getFieldEntry(written, Metric.EVENT_COUNT.toString());
     }
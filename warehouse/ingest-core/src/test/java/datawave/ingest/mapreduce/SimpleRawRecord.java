@@ -201,7 +201,20 @@ public class SimpleRawRecord implements RawRecordContainer, Writable {
     
     @Override
     public RawRecordContainer copy() {
-        throw new UnsupportedOperationException("Copy not yet implemented on " + this.getClass());
+        SimpleRawRecord copy = new SimpleRawRecord();
+        copy.securityMarkings = new TreeMap<>(securityMarkings);
+        copy.id = id;
+        copy.dataType = dataType;
+        copy.date = date;
+        copy.errors = new ArrayList<>(errors);
+        copy.altIds = new ArrayList<>(altIds);
+        copy.rawFileName = rawFileName;
+        copy.rawRecordNumber = rawRecordNumber;
+        copy.rawRecordTimestamp = rawRecordTimestamp;
+        copy.rawData = rawData;
+        copy.auxData = auxData;
+        copy.visibility = visibility;
+        return copy;
     }
     
     @Override
@@ -9,6 +9,9 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * A {@link ContextWriter} implementation for testing. Saves data into a static memory buffer and allows unit tests to fetch the written results.
@@ -18,10 +21,14 @@ import java.io.IOException;
 public class TestContextWriter<OK,OV> implements ContextWriter<OK,OV> {
     
     private static final Multimap<BulkIngestKey,Value> written = HashMultimap.create();
+    private static final List<BulkIngestKey> committed = new ArrayList<>();
+    
+    private final List<BulkIngestKey> uncommitted = new ArrayList<>();
     
     public TestContextWriter() {
         synchronized (written) {
             written.clear();
+            committed.clear();
         }
     }
     
@@ -32,6 +39,7 @@ public class TestContextWriter<OK,OV> implements ContextWriter<OK,OV> {
     public void write(BulkIngestKey key, Value value, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
         synchronized (written) {
             written.put(key, value);
+            uncommitted.add(key);
         }
     }
     
@@ -39,14 +47,26 @@ public class TestContextWriter<OK,OV> implements ContextWriter<OK,OV> {
     public void write(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
         synchronized (written) {
             written.putAll(entries);
+            uncommitted.addAll(entries.keys());
         }
     }
     
     @Override
-    public void commit(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {}
+    public void commit(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        synchronized (written) {
+            // the order of the writes within a commit depends on the handlers, so only the order of the commits is kept
+            Collections.sort(uncommitted);
+            committed.addAll(uncommitted);
+            uncommitted.clear();
+        }
+    }
     
     @Override
-    public void rollback() throws IOException, InterruptedException {}
+    public void rollback() throws IOException, InterruptedException {
+        synchronized (written) {
+            uncommitted.clear();
+        }
+    }
     
     @Override
     public void cleanup(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {}
@@ -57,4 +77,11 @@ public class TestContextWriter<OK,OV> implements ContextWriter<OK,OV> {
     public static Multimap<BulkIngestKey,Value> getWritten() {
         return written;
     }
+    
+    /**
+     * @return The keys of all entries committed to this context, in the order they were committed. The keys within each commit are sorted.
+     */
+    public static List<BulkIngestKey> getCommitted() {
+        return committed;
+    }
 }
@@ -0,0 +1,71 @@
+package datawave.ingest.mapreduce.handler.shard.content;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.hash.HashCode;
+
+public class TokenizationCacheTest {
+    
+    private static TokenizationCache.Tokens tokens(int count) {
+        List<TokenizationCache.Token> tokens = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            tokens.add(new TokenizationCache.Token("term-" + i, "<ALPHANUM>", 1, false));
+        }
+        return new TokenizationCache.Tokens(tokens, 10);
+    }
+    
+    @Test
+    public void testHash() {
+        Assert.assertEquals(TokenizationCache.hash("BODY", "some content"), TokenizationCache.hash("BODY", "some content"));
+        Assert.assertNotEquals(TokenizationCache.hash("BODY", "some content"), TokenizationCache.hash("BODY", "other content"));
+        Assert.assertNotEquals(TokenizationCache.hash("BODY", "some content"), TokenizationCache.hash("SUBJECT", "some content"));
+        Assert.assertNotEquals(TokenizationCache.hash("BODY", "some content"), TokenizationCache.hash("BODYs", "ome content"));
+    }
+    
+    @Test
+    public void testGetAndPut() {
+        TokenizationCache uut = new TokenizationCache(20);
+        HashCode key = TokenizationCache.hash("BODY", "some content");
+        Assert.assertNull(uut.get(key));
+        
+        TokenizationCache.Tokens tokens = tokens(5);
+        uut.put(key, tokens);
+        Assert.assertSame(tokens, uut.get(key));
+        Assert.assertEquals(5, uut.size());
+        
+        // replacing an entry does not count its tokens twice
+        uut.put(key, tokens(3));
+        Assert.assertEquals(3, uut.size());
+    }
+    
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        TokenizationCache uut = new TokenizationCache(20);
+        HashCode first = TokenizationCache.hash("BODY", "first");
+        HashCode second = TokenizationCache.hash("BODY", "second");
+        HashCode third = TokenizationCache.hash("BODY", "third");
+        
+        uut.put(first, tokens(8));
+        uut.put(second, tokens(8));
+        Assert.assertNotNull(uut.get(first));
+        uut.put(third, tokens(8));
+        
+        Assert.assertNotNull(uut.get(first));
+        Assert.assertNull(uut.get(second));
+        Assert.assertNotNull(uut.get(third));
+        Assert.assertEquals(16, uut.size());
+    }
+    
+    @Test
+    public void testTooManyTokens() {
+        TokenizationCache uut = new TokenizationCache(20);
+        HashCode key = TokenizationCache.hash("BODY", "some content");
+        uut.put(key, tokens(21));
+        Assert.assertNull(uut.get(key));
+        Assert.assertEquals(0, uut.size());
+    }
+}
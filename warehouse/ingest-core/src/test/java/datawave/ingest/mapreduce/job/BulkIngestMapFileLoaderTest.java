@@ -7,6 +7,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -14,6 +17,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import datawave.common.test.integration.IntegrationTest;
 import datawave.common.test.logging.CommonTestAppender;
@@ -23,7 +31,9 @@ import datawave.ingest.data.config.NormalizedContentInterface;
 import datawave.ingest.data.config.ingest.BaseIngestHelper;
 import datawave.ingest.input.reader.EventRecordReader;
 import datawave.ingest.input.reader.LongLineEventRecordReader;
+import datawave.ingest.mapreduce.StandaloneStatusReporter;
 
+import org.apache.accumulo.core.client.admin.TableOperations;
 import org.apache.accumulo.core.client.security.tokens.PasswordToken;
 import org.apache.accumulo.core.client.impl.Credentials;
 import org.apache.hadoop.conf.Configuration;
@@ -43,8 +53,10 @@ import org.apache.log4j.Logger;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 import org.powermock.api.easymock.PowerMock;
 import org.powermock.reflect.Whitebox;
 
@@ -61,6 +73,10 @@ public class BulkIngestMapFileLoaderTest {
     protected CommonTestAppender uutAppender;
     
     private List<String> systemProperties;
+    private Map<String,Object> loaderOptions = new HashMap<>();
+    
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
     
     public static class WrappedPositionedReadable extends InputStream implements PositionedReadable, Seekable {
         
@@ -366,6 +382,89 @@ public class BulkIngestMapFileLoaderTest {
         return uutAppender.retrieveLogsEntries();
     }
     
+    /**
+     * Sets one of the static loader options normally set by the command line, restoring the original value after the test.
+     */
+    protected void setLoaderOption(String name, int value) {
+        if (!loaderOptions.containsKey(name)) {
+            loaderOptions.put(name, Whitebox.getInternalState(BulkIngestMapFileLoader.class, name));
+        }
+        Whitebox.setInternalState(BulkIngestMapFileLoader.class, name, value);
+    }
+    
+    protected List<File> createJobDirectories(int count) throws IOException {
+        List<File> jobDirectories = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            File jobDirectory = workDir.newFolder("job" + i);
+            Assert.assertTrue(new File(jobDirectory, BulkIngestMapFileLoader.COMPLETE_FILE_MARKER).createNewFile());
+            jobDirectories.add(jobDirectory);
+        }
+        return jobDirectories;
+    }
+    
+    protected Path createTableDirectory(Path mapFilesDir, String tableName, int numFiles) throws IOException {
+        File tableDir = new File(mapFilesDir.toUri().getPath(), tableName);
+        Assert.assertTrue(tableDir.mkdirs());
+        for (int i = 0; i < numFiles; i++) {
+            Assert.assertTrue(new File(tableDir, "I00000" + i + ".rf").createNewFile());
+        }
+        return new Path(tableDir.getAbsolutePath());
+    }
+    
+    protected static void updateMax(AtomicInteger max, int value) {
+        int current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+    
+    /**
+     * A loader that reports fixed major compaction counts instead of asking the master, and that records how many job directories it loads at once instead of
+     * importing them.
+     */
+    public static class PipelineTestLoader extends BulkIngestMapFileLoader {
+        
+        protected volatile int[] majorCompactionCounts = new int[] {0, 0};
+        protected AtomicInteger loading = new AtomicInteger();
+        protected AtomicInteger maxLoading = new AtomicInteger();
+        protected AtomicInteger loaded = new AtomicInteger();
+        protected CountDownLatch overlap;
+        
+        public PipelineTestLoader(String workDir, int overlap) {
+            super(workDir, "job*", "localhost", "localhost", new Credentials("user", new PasswordToken("pass")), FILE_SYSTEM_URI, FILE_SYSTEM_URI,
+                            FILE_SYSTEM_URI, null, new HashMap<String,Integer>(), new Configuration(), 0, 1);
+            this.overlap = new CountDownLatch(overlap);
+        }
+        
+        @Override
+        protected int[] getMajorCompactionCounts(Level level) {
+            return majorCompactionCounts;
+        }
+        
+        @Override
+        protected boolean loadJobDirectory(Path srcJobDirectory) {
+            updateMax(maxLoading, loading.incrementAndGet());
+            try {
+                // hold the first job directories until enough of them are loading at once
+                overlap.countDown();
+                overlap.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                loading.decrementAndGet();
+                loaded.incrementAndGet();
+            }
+            return true;
+        }
+        
+        public void waitForLoads(int count) throws InterruptedException {
+            long end = System.currentTimeMillis() + 30000;
+            while (loaded.get() < count && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+        }
+    }
+    
     @Before
     public void setup() throws Exception {
         systemProperties = new ArrayList<String>();
@@ -389,6 +488,10 @@ public class BulkIngestMapFileLoaderTest {
         Logger.getLogger(BulkIngestMapFileLoader.class).removeAppender(uutAppender);
         BulkIngestMapFileLoaderTest.logger.setLevel(testDriverLevel);
         
+        for (Map.Entry<String,Object> option : loaderOptions.entrySet()) {
+            Whitebox.setInternalState(BulkIngestMapFileLoader.class, option.getKey(), option.getValue());
+        }
+        
     }
     
     @Test
@@ -1094,6 +1197,196 @@ public class BulkIngestMapFileLoaderTest {
         }
     }
     
+    @Test
+    public void testMainWithBadPipelineOptions() throws IOException, InterruptedException {
+        
+        BulkIngestMapFileLoaderTest.logger.info("testMainWithBadPipelineOptions called...");
+        
+        String numJobThreads = "-numJobThreads must be followed by the number of job directories to load concurrently";
+        String maxImportsPerTable = "-maxImportsPerTable must be followed by the maximum number of concurrent bulk imports into any one table";
+        String majcThresholdPerServer = "-majcThresholdPerServer must be followed by the maximum number of major compactions allowed on a tablet server";
+        
+        // each option is given either a bad value or no value at all
+        String[][] cases = new String[][] {{"-numJobThreads", "hello, world", numJobThreads}, {"-numJobThreads", null, numJobThreads},
+                {"-maxImportsPerTable", "hello, world", maxImportsPerTable}, {"-maxImportsPerTable", null, maxImportsPerTable},
+                {"-majcThresholdPerServer", "hello, world", majcThresholdPerServer}, {"-majcThresholdPerServer", null, majcThresholdPerServer}};
+        
+        try {
+            
+            for (String[] testCase : cases) {
+                
+                List<String> cmdList = ProcessUtils.buildApplicationCommandLine(BulkIngestMapFileLoader.class.getName(), systemProperties, false);
+                
+                for (int counter = 0; counter < 6; counter++) {
+                    
+                    cmdList.add(String.format("%d", counter));
+                }
+                
+                cmdList.add(testCase[0]);
+                if (testCase[1] != null) {
+                    cmdList.add(testCase[1]);
+                }
+                
+                String[] cmdArray = ProcessUtils.convertCommandLine(cmdList);
+                
+                Map<String,String> newEnvironment = new HashMap<>();
+                List<String> dropFromEnvironment = new ArrayList<>();
+                File workingDirectory = new File(System.getProperty("user.dir"));
+                
+                Process proc = ProcessUtils.runInstance(cmdArray, newEnvironment, dropFromEnvironment, workingDirectory);
+                
+                int procResults = proc.waitFor();
+                
+                Assert.assertEquals("BulkIngestMapLoader#main failed to return the expected value for " + testCase[0] + " " + testCase[1],
+                                ProcessUtils.SYSTEM_EXIT_MINUS_TWO, procResults);
+                
+                List<String> stdOut = ProcessUtils.getStandardOutDumps(proc);
+                
+                Assert.assertTrue("BulkIngestMapLoader#main failed to generate the expected error message for " + testCase[0] + " " + testCase[1],
+                                processOutputContains(stdOut, testCase[2]));
+            }
+            
+        } finally {
+            
+            BulkIngestMapFileLoaderTest.logger.info("testMainWithBadPipelineOptions completed.");
+            
+        }
+    }
+    
+    @Test
+    public void testRunPipelinedLoadsJobDirectoriesConcurrently() throws Exception {
+        
+        setLoaderOption("NUM_JOB_THREADS", 3);
+        setLoaderOption("SLEEP_TIME", 10);
+        setLoaderOption("MAX_DIRECTORIES", 10);
+        setLoaderOption("MAJC_CHECK_INTERVAL", 10);
+        
+        List<File> jobDirectories = createJobDirectories(6);
+        
+        // the first three job directories are held until they are all loading at once
+        PipelineTestLoader uut = new PipelineTestLoader(workDir.getRoot().getAbsolutePath(), 3);
+        Thread thread = new Thread(uut, "map-file-watcher");
+        thread.start();
+        try {
+            uut.waitForLoads(6);
+        } finally {
+            uut.shutdown();
+            thread.join(30000);
+        }
+        
+        Assert.assertFalse("The loader failed to shut down", thread.isAlive());
+        Assert.assertEquals("The loader did not load every job directory", 6, uut.loaded.get());
+        Assert.assertEquals("The loader did not load numJobThreads job directories concurrently", 3, uut.maxLoading.get());
+        for (File jobDirectory : jobDirectories) {
+            Assert.assertFalse(new File(jobDirectory, BulkIngestMapFileLoader.COMPLETE_FILE_MARKER).exists());
+            Assert.assertTrue(new File(jobDirectory, BulkIngestMapFileLoader.LOADING_FILE_MARKER).exists());
+        }
+    }
+    
+    @Test
+    public void testRunPipelinedWaitsForServerCompactions() throws Exception {
+        
+        setLoaderOption("NUM_JOB_THREADS", 2);
+        setLoaderOption("SLEEP_TIME", 10);
+        setLoaderOption("MAX_DIRECTORIES", 10);
+        setLoaderOption("MAJC_CHECK_INTERVAL", 10);
+        setLoaderOption("MAJC_THRESHOLD_PER_SERVER", 5);
+        
+        List<File> jobDirectories = createJobDirectories(2);
+        
+        // the total is well under the overall threshold, but the busiest tablet server is at its limit
+        PipelineTestLoader uut = new PipelineTestLoader(workDir.getRoot().getAbsolutePath(), 1);
+        uut.majorCompactionCounts = new int[] {5, 5};
+        Assert.assertFalse(uut.canBringMapFilesOnline(0, false));
+        
+        Thread thread = new Thread(uut, "map-file-watcher");
+        thread.start();
+        try {
+            Thread.sleep(500);
+            Assert.assertEquals("The loader did not wait for the tablet server compactions", 0, uut.loaded.get());
+            for (File jobDirectory : jobDirectories) {
+                Assert.assertTrue(new File(jobDirectory, BulkIngestMapFileLoader.COMPLETE_FILE_MARKER).exists());
+            }
+            
+            uut.majorCompactionCounts = new int[] {5, 4};
+            uut.waitForLoads(2);
+        } finally {
+            uut.shutdown();
+            thread.join(30000);
+        }
+        
+        Assert.assertEquals("The loader did not resume once the tablet server compactions dropped", 2, uut.loaded.get());
+        
+        // the per server limit is disabled by default
+        setLoaderOption("MAJC_THRESHOLD_PER_SERVER", 0);
+        uut.majorCompactionCounts = new int[] {5, 5};
+        Assert.assertTrue(uut.canBringMapFilesOnline(0, false));
+    }
+    
+    @Test
+    public void testImportsLimitedPerTable() throws Exception {
+        
+        setLoaderOption("MAX_IMPORTS_PER_TABLE", 2);
+        
+        final ConcurrentMap<String,AtomicInteger> importing = new ConcurrentHashMap<>();
+        final ConcurrentMap<String,AtomicInteger> maxImporting = new ConcurrentHashMap<>();
+        final ConcurrentMap<String,CountDownLatch> overlap = new ConcurrentHashMap<>();
+        for (String tableName : new String[] {"table1", "table2"}) {
+            importing.put(tableName, new AtomicInteger());
+            maxImporting.put(tableName, new AtomicInteger());
+            overlap.put(tableName, new CountDownLatch(2));
+        }
+        
+        // records the concurrent imports into each table, holding the first two imports into a table until both are running
+        TableOperations tops = (TableOperations) Proxy.newProxyInstance(TableOperations.class.getClassLoader(), new Class<?>[] {TableOperations.class},
+                        new InvocationHandler() {
+                            @Override
+                            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                                if (!method.getName().equals("importDirectory")) {
+                                    throw new UnsupportedOperationException(method.getName());
+                                }
+                                String tableName = (String) args[0];
+                                int current = importing.get(tableName).incrementAndGet();
+                                updateMax(maxImporting.get(tableName), current);
+                                try {
+                                    overlap.get(tableName).countDown();
+                                    overlap.get(tableName).await(30, TimeUnit.SECONDS);
+                                    for (File file : new File(new Path((String) args[1]).toUri().getPath()).listFiles()) {
+                                        Assert.assertTrue(file.delete());
+                                    }
+                                } finally {
+                                    importing.get(tableName).decrementAndGet();
+                                }
+                                return null;
+                            }
+                        });
+        
+        PipelineTestLoader uut = new PipelineTestLoader(workDir.getRoot().getAbsolutePath(), 1);
+        List<BulkIngestMapFileLoader.ImportRunnable> imports = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Path mapFilesDir = new Path(workDir.newFolder("job" + i, "mapFiles").getAbsolutePath());
+            imports.add(uut.startImport(mapFilesDir, "table1", createTableDirectory(mapFilesDir, "table1", 2), tops));
+            if (i < 3) {
+                imports.add(uut.startImport(mapFilesDir, "table2", createTableDirectory(mapFilesDir, "table2", 1), tops));
+            }
+        }
+        for (BulkIngestMapFileLoader.ImportRunnable importTask : imports) {
+            importTask.waitForCompletion();
+            Assert.assertNull(importTask.getException());
+        }
+        
+        Assert.assertEquals("The imports into table1 were not limited to maxImportsPerTable", 2, maxImporting.get("table1").get());
+        Assert.assertEquals("The imports into table2 were not limited to maxImportsPerTable", 2, maxImporting.get("table2").get());
+        
+        StandaloneStatusReporter reporter = Whitebox.getInternalState(uut, "reporter");
+        Assert.assertEquals(6, reporter.getCounter("MapFileLoader.Imports", "table1").getValue());
+        Assert.assertEquals(12, reporter.getCounter("MapFileLoader.FilesLoaded", "table1").getValue());
+        Assert.assertEquals(3, reporter.getCounter("MapFileLoader.Imports", "table2").getValue());
+        Assert.assertEquals(3, reporter.getCounter("MapFileLoader.FilesLoaded", "table2").getValue());
+        Assert.assertTrue(reporter.getCounters().getGroup("MapFileLoader.ImportWaitTimes").findCounter("table1", false) != null);
+        Assert.assertTrue(reporter.getCounters().getGroup("MapFileLoader.ImportTimes").findCounter("table2", false) != null);
+    }
+    
     @Test
     public void testMainWithBadSeqFileHdfs() throws IOException, InterruptedException {
         
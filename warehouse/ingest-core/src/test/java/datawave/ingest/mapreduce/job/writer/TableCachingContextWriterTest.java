@@ -0,0 +1,191 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import java.io.IOException;
+
+import datawave.ingest.data.TypeRegistry;
+import datawave.ingest.mapreduce.TestContextWriter;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.mapreduce.job.reduce.BulkIngestKeyDedupeCombiner;
+import datawave.util.KeyValueSizeEstimator;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hadoop.mapreduce.task.TaskInputOutputContextImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableCachingContextWriterTest {
+    
+    private static final Text CACHED = new Text("cachedTable");
+    private static final Text OTHER = new Text("otherTable");
+    private static final Text SMALL = new Text("smallTable");
+    
+    private Configuration conf;
+    private Counters counters;
+    private TaskInputOutputContext<?,?,BulkIngestKey,Value> context;
+    
+    @Before
+    public void setup() {
+        TypeRegistry.reset();
+        conf = new Configuration();
+        conf.setBoolean(BulkIngestKeyDedupeCombiner.USING_COMBINER, true);
+        conf.setClass(TableCachingContextWriter.CONTEXT_WRITER_CLASS, TestContextWriter.class, ContextWriter.class);
+        conf.setInt(CACHED + TableCachingContextWriter.TABLES_TO_CACHE_SUFFIX, 100);
+        conf.setInt(OTHER + TableCachingContextWriter.TABLES_TO_CACHE_SUFFIX, 100);
+        conf.setInt(SMALL + TableCachingContextWriter.TABLES_TO_CACHE_SUFFIX, 2);
+        
+        counters = new Counters();
+        context = createContext(conf, counters);
+    }
+    
+    private static TaskInputOutputContext<?,?,BulkIngestKey,Value> createContext(Configuration conf, final Counters counters) {
+        StatusReporter reporter = new StatusReporter() {
+            @Override
+            public Counter getCounter(Enum<?> name) {
+                return counters.findCounter(name);
+            }
+            
+            @Override
+            public Counter getCounter(String group, String name) {
+                return counters.findCounter(group, name);
+            }
+            
+            @Override
+            public void progress() {}
+            
+            @Override
+            public float getProgress() {
+                return 0;
+            }
+            
+            @Override
+            public void setStatus(String status) {}
+        };
+        return new TaskInputOutputContextImpl<Object,Object,BulkIngestKey,Value>(conf, new TaskAttemptID(), null, null, reporter) {
+            @Override
+            public boolean nextKeyValue() throws IOException, InterruptedException {
+                throw new UnsupportedOperationException();
+            }
+            
+            @Override
+            public Object getCurrentKey() throws IOException, InterruptedException {
+                throw new UnsupportedOperationException();
+            }
+            
+            @Override
+            public Object getCurrentValue() throws IOException, InterruptedException {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    private TableCachingContextWriter createWriter() throws Exception {
+        TableCachingContextWriter writer = new TableCachingContextWriter();
+        writer.setup(conf, false);
+        return writer;
+    }
+    
+    private void write(TableCachingContextWriter writer, BulkIngestKey key, Value value) throws Exception {
+        writer.write(key, value, context);
+        writer.commit(context);
+    }
+    
+    private static BulkIngestKey key(Text table, String row) {
+        return new BulkIngestKey(table, new Key(row, "cf", "cq"));
+    }
+    
+    private static Value value(int size) {
+        return new Value(new byte[size]);
+    }
+    
+    private static long sizeOf(BulkIngestKey key, Value value) {
+        return KeyValueSizeEstimator.sizeOf(key.getKey(), value);
+    }
+    
+    private long counter(String group, Text table) {
+        return counters.findCounter(group, table.toString()).getValue();
+    }
+    
+    @Test
+    public void testMergedEntriesAreCountedOnce() throws Exception {
+        TableCachingContextWriter writer = createWriter();
+        BulkIngestKey key = key(CACHED, "row1");
+        BulkIngestKey other = key(OTHER, "row1");
+        
+        write(writer, key, value(100));
+        Assert.assertEquals(sizeOf(key, value(100)), writer.getCacheBytes(CACHED));
+        
+        // the cached value is removed and merged with the new one, leaving only the value kept by the combiner
+        write(writer, key, value(10));
+        Assert.assertEquals(sizeOf(key, value(10)), writer.getCacheBytes(CACHED));
+        Assert.assertEquals(writer.getCacheBytes(CACHED), writer.getTotalCacheBytes());
+        
+        write(writer, other, value(50));
+        Assert.assertEquals(sizeOf(key, value(10)), writer.getCacheBytes(CACHED));
+        Assert.assertEquals(sizeOf(other, value(50)), writer.getCacheBytes(OTHER));
+        Assert.assertEquals(sizeOf(key, value(10)) + sizeOf(other, value(50)), writer.getTotalCacheBytes());
+        Assert.assertTrue(TestContextWriter.getWritten().isEmpty());
+        
+        writer.cleanup(context);
+        Assert.assertEquals(2, TestContextWriter.getWritten().size());
+        Assert.assertEquals(1, TestContextWriter.getWritten().get(key).size());
+        Assert.assertEquals(0, writer.getCacheBytes(CACHED));
+        Assert.assertEquals(0, writer.getTotalCacheBytes());
+        Assert.assertEquals(0, counter(TableCachingContextWriter.SPILLED_BUFFER_COUNTER, CACHED));
+    }
+    
+    @Test
+    public void testSpillsLargestTable() throws Exception {
+        BulkIngestKey cached1 = key(CACHED, "row1");
+        BulkIngestKey cached2 = key(CACHED, "row2");
+        BulkIngestKey other1 = key(OTHER, "row1");
+        BulkIngestKey other2 = key(OTHER, "row2");
+        conf.setLong(TableCachingContextWriter.MAX_CACHE_BYTES, sizeOf(cached1, value(300)) + sizeOf(cached2, value(300)) + sizeOf(other1, value(10)));
+        TableCachingContextWriter writer = createWriter();
+        
+        write(writer, cached1, value(300));
+        write(writer, cached2, value(300));
+        write(writer, other1, value(10));
+        Assert.assertTrue(TestContextWriter.getWritten().isEmpty());
+        
+        // exceeding the budget flushes the table using the most memory
+        write(writer, other2, value(10));
+        Assert.assertEquals(1, counter(TableCachingContextWriter.SPILLED_BUFFER_COUNTER, CACHED));
+        Assert.assertEquals(0, counter(TableCachingContextWriter.SPILLED_BUFFER_COUNTER, OTHER));
+        Assert.assertEquals(1, counter(TableCachingContextWriter.FLUSHED_BUFFER_COUNTER, CACHED));
+        Assert.assertEquals(2, TestContextWriter.getWritten().size());
+        Assert.assertTrue(TestContextWriter.getWritten().containsKey(cached1));
+        Assert.assertTrue(TestContextWriter.getWritten().containsKey(cached2));
+        
+        Assert.assertEquals(0, writer.getCacheBytes(CACHED));
+        Assert.assertEquals(sizeOf(other1, value(10)) + sizeOf(other2, value(10)), writer.getCacheBytes(OTHER));
+        Assert.assertEquals(writer.getCacheBytes(OTHER), writer.getTotalCacheBytes());
+    }
+    
+    @Test
+    public void testFlushesWhenTableIsFull() throws Exception {
+        TableCachingContextWriter writer = createWriter();
+        BulkIngestKey key1 = key(SMALL, "row1");
+        BulkIngestKey key2 = key(SMALL, "row2");
+        
+        write(writer, key1, value(10));
+        Assert.assertTrue(TestContextWriter.getWritten().isEmpty());
+        
+        // the table is flushed once it holds as many entries as configured, regardless of the bytes used
+        write(writer, key2, value(10));
+        Assert.assertEquals(2, TestContextWriter.getWritten().size());
+        Assert.assertEquals(1, counter(TableCachingContextWriter.FLUSHED_BUFFER_COUNTER, SMALL));
+        Assert.assertEquals(2, counter(TableCachingContextWriter.FLUSHED_BUFFER_TOTAL, SMALL));
+        Assert.assertEquals(0, counter(TableCachingContextWriter.SPILLED_BUFFER_COUNTER, SMALL));
+        Assert.assertEquals(0, writer.getCacheBytes(SMALL));
+        Assert.assertEquals(0, writer.getTotalCacheBytes());
+    }
+}
@@ -0,0 +1,122 @@
+package datawave.ingest.table.aggregator;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import datawave.ingest.protobuf.Uid;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * Replays index values through the {@link GlobalIndexUidAggregator} and reports the throughput. This is not run as part of the build; run the main method with
+ * the test classpath.
+ *
+ * The values are read from the file given as the first argument, which has one line per index key holding the base64 encoded values of that key separated by
+ * whitespace. When no file is given, values are generated with a mix of low cardinality keys, keys over the uid limit and keys with removals.
+ */
+public class GlobalIndexUidAggregatorBenchmark {
+    
+    private static final int WARMUP_PASSES = 5;
+    private static final int PASSES = 20;
+    
+    private static Value value(long count, boolean ignore, List<String> uids, List<String> removed) {
+        Uid.List.Builder builder = Uid.List.newBuilder().setCOUNT(count).setIGNORE(ignore);
+        builder.addAllUID(uids);
+        builder.addAllREMOVEDUID(removed);
+        return new Value(builder.build().toByteArray());
+    }
+    
+    private static List<List<Value>> read(String file) throws IOException {
+        List<List<Value>> keys = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                List<Value> values = new ArrayList<>();
+                for (String encoded : line.split("\\s+")) {
+                    values.add(new Value(Base64.getDecoder().decode(encoded)));
+                }
+                keys.add(values);
+            }
+        }
+        return keys;
+    }
+    
+    private static List<List<Value>> generate(int numKeys) {
+        Random random = new Random(42);
+        List<List<Value>> keys = new ArrayList<>();
+        for (int i = 0; i < numKeys; i++) {
+            List<Value> values = new ArrayList<>();
+            int numValues = 1 + random.nextInt(random.nextInt(10) == 0 ? 50 : 8);
+            List<String> seen = new ArrayList<>();
+            for (int j = 0; j < numValues; j++) {
+                if (!seen.isEmpty() && random.nextInt(10) == 0) {
+                    // remove a uid that was added
+                    List<String> removed = new ArrayList<>();
+                    removed.add(seen.get(random.nextInt(seen.size())));
+                    values.add(value(-1, false, new ArrayList<String>(), removed));
+                } else if (random.nextInt(20) == 0) {
+                    // an already aggregated value over the uid limit
+                    values.add(value(GlobalIndexUidAggregator.MAX + random.nextInt(1000), true, new ArrayList<String>(), new ArrayList<String>()));
+                } else {
+                    List<String> uids = new ArrayList<>();
+                    int numUids = 1 + random.nextInt(5);
+                    for (int k = 0; k < numUids; k++) {
+                        String uid = UUID.randomUUID().toString();
+                        uids.add(uid);
+                        seen.add(uid);
+                    }
+                    values.add(value(numUids, false, uids, new ArrayList<String>()));
+                }
+            }
+            keys.add(values);
+        }
+        return keys;
+    }
+    
+    private static long pass(GlobalIndexUidAggregator aggregator, Key key, List<List<Value>> keys) {
+        long bytes = 0;
+        for (List<Value> values : keys) {
+            aggregator.reset();
+            aggregator.setPropogate(true);
+            bytes += aggregator.reduce(key, values.iterator()).getSize();
+            aggregator.propogateKey();
+        }
+        return bytes;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        List<List<Value>> keys = args.length > 0 ? read(args[0]) : generate(100000);
+        long numValues = 0;
+        for (List<Value> values : keys) {
+            numValues += values.size();
+        }
+        System.out.println("Replaying " + numValues + " values for " + keys.size() + " keys");
+        
+        GlobalIndexUidAggregator aggregator = new GlobalIndexUidAggregator();
+        Key key = new Key("term", "FIELD", "20180101_0\u0000datatype");
+        long bytes = 0;
+        for (int i = 0; i < WARMUP_PASSES; i++) {
+            bytes += pass(aggregator, key, keys);
+        }
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < PASSES; i++) {
+            bytes += pass(aggregator, key, keys);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%.0f keys/s, %.0f values/s (%d)", keys.size() * PASSES / seconds, numValues * PASSES / seconds, bytes));
+    }
+}
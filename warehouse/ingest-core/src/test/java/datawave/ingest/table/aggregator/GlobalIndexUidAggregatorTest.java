@@ -6,6 +6,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
@@ -229,4 +230,68 @@ public class GlobalIndexUidAggregatorTest {
         assertTrue(resultList.getUIDCount() == 1);
         
     }
+    
+    @Test
+    public void testRemovalsPropogated() throws Exception {
+        agg.reset();
+        agg.setPropogate(true);
+        Collection<Value> values = Lists.newArrayList();
+        Builder b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(2);
+        b.addUID("uid1");
+        b.addUID("uid2");
+        values.add(new Value(b.build().toByteArray()));
+        b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(-1);
+        b.addREMOVEDUID("uid1");
+        b.addQUARANTINEUID("uid3");
+        values.add(new Value(b.build().toByteArray()));
+        
+        Value result = agg.reduce(new Key("key"), values.iterator());
+        Uid.List resultList = Uid.List.parseFrom(result.get());
+        assertEquals(1, resultList.getCOUNT());
+        assertEquals(Lists.newArrayList("uid2"), resultList.getUIDList());
+        assertEquals(Lists.newArrayList("uid1"), resultList.getREMOVEDUIDList());
+        assertEquals(Lists.newArrayList("uid3"), resultList.getQUARANTINEUIDList());
+        assertTrue(agg.propogateKey());
+        
+        // the aggregate is serialized as the equivalent Uid.List would be
+        assertTrue(result.compareTo(resultList.toByteArray()) == 0);
+    }
+    
+    @Test
+    public void testUnknownFieldsSkipped() throws Exception {
+        agg.reset();
+        Builder b = createNewUidList();
+        b.setCOUNT(1);
+        b.setIGNORE(false);
+        b.addUID("uid1");
+        byte[] known = b.build().toByteArray();
+        // append field 6 as a varint
+        byte[] bytes = Arrays.copyOf(known, known.length + 2);
+        bytes[known.length] = (6 << 3);
+        bytes[known.length + 1] = 1;
+        
+        Value result = agg.reduce(new Key("key"), Iterators.singletonIterator(new Value(bytes)));
+        Uid.List resultList = Uid.List.parseFrom(result.get());
+        assertEquals(1, resultList.getCOUNT());
+        assertEquals(Lists.newArrayList("uid1"), resultList.getUIDList());
+    }
+    
+    @Test
+    public void testMissingRequiredField() throws Exception {
+        Logger log = Logger.getLogger(GlobalIndexUidAggregator.class);
+        Level origLevel = log.getLevel();
+        log.setLevel(Level.FATAL);
+        agg.reset();
+        // a value with a uid but neither the count nor the ignore flag is not a Uid.List
+        byte[] bytes = new byte[] {(3 << 3) | 2, 1, 'a'};
+        Value result = agg.reduce(new Key("key"), Iterators.singletonIterator(new Value(bytes)));
+        Uid.List resultList = Uid.List.parseFrom(result.get());
+        assertEquals(0, resultList.getCOUNT());
+        assertEquals(0, resultList.getUIDCount());
+        log.setLevel(origLevel);
+    }
 }
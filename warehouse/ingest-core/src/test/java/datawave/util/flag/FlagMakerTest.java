@@ -382,6 +382,38 @@ public class FlagMakerTest {
         
     }
     
+    /**
+     * Test of processFlags method using incremental discovery, which should only list the folders once and then find new files via the local watch service
+     */
+    @Test
+    public void testIncrementalDiscovery() throws Exception {
+        File f = setUpFlagDir();
+        File cursor = new File("target/test/flagmaker.cursor");
+        cursor.delete();
+        fmc.setIncrementalDiscovery(true);
+        fmc.setDiscoveryCursorFile(cursor.getPath());
+        // two days, 5 files each day, two folders in fmc = 20 flags
+        createTestFiles(2, 5);
+        FlagMaker instance = new TestWrappedFlagMaker(fmc);
+        instance.processFlags();
+        assertEquals("Incorrect files.  Expected 2 but got " + f.listFiles().length + ": " + Arrays.toString(f.listFiles()), 2, f.listFiles().length);
+        assertTrue(cursor.exists());
+        
+        // three days including a new day folder, 5 files each day, two folders in fmc = 30 flags
+        createTestFiles(3, 5);
+        // the notifications are delivered asynchronously
+        for (int i = 0; i < 100 && f.listFiles().length < 5; i++) {
+            Thread.sleep(100);
+            instance.processFlags();
+        }
+        assertEquals("Incorrect files.  Expected 5 but got " + f.listFiles().length + ": " + Arrays.toString(f.listFiles()), 5, f.listFiles().length);
+        assertEquals(1, instance.getDiscovery().getFullListings());
+        for (String folder : fmc.getFlagConfigs().get(0).getFolder()) {
+            assertEquals(0, instance.getDiscovery().getFiles(folder).length);
+        }
+        instance.getDiscovery().close();
+    }
+    
     private static final String data = "data";
     
     private LongRange createTestFiles(int days, int filesPerDay) throws Exception {
@@ -0,0 +1,164 @@
+package datawave.util.flag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import datawave.util.flag.FileChangeNotifier.FileChange;
+import datawave.util.flag.config.FlagDataTypeConfig;
+import datawave.util.flag.config.FlagMakerConfig;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IncrementalFileDiscoveryTest {
+    
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    
+    private FileSystem fs;
+    private FlagMakerConfig fmc;
+    private File folder;
+    private File cursor;
+    private File journal;
+    
+    /**
+     * A notifier which resumes from any position and delivers the changes added by the test, advancing the position by one for each change
+     */
+    private static class TestNotifier implements FileChangeNotifier {
+        
+        private final List<FileChange> changes = new ArrayList<>();
+        private long startPosition = -2;
+        private long position = 0;
+        
+        @Override
+        public boolean start(Collection<Path> folders, long position) {
+            this.startPosition = position;
+            if (position >= 0) {
+                this.position = position;
+                return true;
+            }
+            return false;
+        }
+        
+        @Override
+        public List<FileChange> poll() {
+            List<FileChange> polled = new ArrayList<>(changes);
+            position += changes.size();
+            changes.clear();
+            return polled;
+        }
+        
+        @Override
+        public long getPosition() {
+            return position;
+        }
+        
+        @Override
+        public void close() {}
+    }
+    
+    @Before
+    public void setUp() throws Exception {
+        fs = FileSystem.getLocal(new Configuration());
+        folder = temp.newFolder("input");
+        cursor = new File(temp.getRoot(), "flagmaker.cursor");
+        journal = new File(cursor.getPath() + ".journal");
+        fmc = new FlagMakerConfig();
+        fmc.setFilePattern("*");
+        fmc.setDiscoveryCursorFile(cursor.getPath());
+        fmc.getFlagConfigs().add(new FlagDataTypeConfig("foo", Collections.singletonList(folder.getAbsolutePath()), 1, ""));
+    }
+    
+    private FileChange create(String name) throws IOException {
+        assertTrue(new File(folder, name).createNewFile());
+        return new FileChange(FileChange.Type.UPDATED, new Path(new File(folder, name).getAbsolutePath()));
+    }
+    
+    private FileChange delete(String name) {
+        assertTrue(new File(folder, name).delete());
+        return new FileChange(FileChange.Type.REMOVED, new Path(new File(folder, name).getAbsolutePath()));
+    }
+    
+    private Set<String> getFiles(IncrementalFileDiscovery discovery) {
+        Set<String> names = new TreeSet<>();
+        for (FileStatus status : discovery.getFiles(folder.getAbsolutePath())) {
+            names.add(status.getPath().getName());
+        }
+        return names;
+    }
+    
+    private static Set<String> names(String... names) {
+        return new TreeSet<>(Arrays.asList(names));
+    }
+    
+    @Test
+    public void testRestartFromCursor() throws Exception {
+        create("a");
+        create("b");
+        
+        // nothing to resume from, so the folder is listed and a snapshot written
+        TestNotifier notifier = new TestNotifier();
+        IncrementalFileDiscovery discovery = new IncrementalFileDiscovery(fmc, notifier);
+        discovery.refresh(fs);
+        assertEquals(-1, notifier.startPosition);
+        assertEquals(1, discovery.getFullListings());
+        assertEquals(names("a", "b"), getFiles(discovery));
+        assertTrue(cursor.exists());
+        assertFalse(journal.exists());
+        
+        // changes are appended to the journal rather than rewriting the snapshot
+        notifier.changes.add(create("c"));
+        notifier.changes.add(delete("a"));
+        discovery.refresh(fs);
+        discovery.removeFiles(Collections.singletonList(new Path(new File(folder, "b").getAbsolutePath())));
+        discovery.refresh(fs);
+        assertEquals(names("c"), getFiles(discovery));
+        assertEquals(3, Files.readAllLines(cursor.toPath(), StandardCharsets.UTF_8).size());
+        assertEquals(5, Files.readAllLines(journal.toPath(), StandardCharsets.UTF_8).size());
+        long position = notifier.getPosition();
+        discovery.close();
+        
+        // a restart resumes from the snapshot plus the journal without listing
+        notifier = new TestNotifier();
+        discovery = new IncrementalFileDiscovery(fmc, notifier);
+        discovery.refresh(fs);
+        assertEquals(position, notifier.startPosition);
+        assertEquals(0, discovery.getFullListings());
+        assertEquals(names("c"), getFiles(discovery));
+        discovery.close();
+        
+        // a batch which was not completely written is ignored, and the next refresh compacts the journal into a new snapshot
+        create("d");
+        Files.write(journal.toPath(), Collections.singletonList("+,0,0,0," + new Path(new File(folder, "d").getAbsolutePath())), StandardCharsets.UTF_8,
+                        StandardOpenOption.APPEND);
+        notifier = new TestNotifier();
+        discovery = new IncrementalFileDiscovery(fmc, notifier);
+        discovery.refresh(fs);
+        assertEquals(position, notifier.startPosition);
+        assertEquals(0, discovery.getFullListings());
+        assertEquals(names("c"), getFiles(discovery));
+        assertFalse(journal.exists());
+        assertEquals(2, Files.readAllLines(cursor.toPath(), StandardCharsets.UTF_8).size());
+        discovery.close();
+    }
+}
@@ -3,9 +3,14 @@ package datawave.ingest.csv.mr.input;
 import java.io.IOException;
 
 import datawave.ingest.data.RawRecordContainer;
+import datawave.ingest.data.config.CSVHelper;
+import datawave.ingest.data.config.DataTypeHelper;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
@@ -13,13 +18,28 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 
 /**
- * Specialization of SequenceFileInputFormat that expects an {@link RawRecordContainer} object as the value.
+ * Specialization of SequenceFileInputFormat that expects an {@link RawRecordContainer} object as the value. Uncompressed files are split, and each split is
+ * read from the first record which starts within it. Files with {@link CSVHelper#MULTI_LINE_RECORDS} are not split unless a header is configured and extra
+ * fields are not processed, as the start of a record can not be found otherwise.
  */
 public class CSVFileInputFormat extends SequenceFileInputFormat<LongWritable,RawRecordContainer> {
     
     @Override
     protected boolean isSplitable(JobContext context, Path filename) {
-        return false;
+        // a split of multi-line records can only resync to a record boundary when the header determines the number of fields
+        Configuration conf = context.getConfiguration();
+        String type = conf.get(DataTypeHelper.Properties.DATA_NAME_OVERRIDE, conf.get(DataTypeHelper.Properties.DATA_NAME));
+        if (type == null) {
+            return false;
+        }
+        if (conf.getBoolean(type + CSVHelper.MULTI_LINE_RECORDS, false)) {
+            String[] header = conf.getBoolean(type + CSVHelper.DATA_HEADER_ENABLED, true) ? conf.getStrings(type + CSVHelper.DATA_HEADER) : null;
+            if (header == null || header.length == 0 || conf.getBoolean(type + CSVHelper.PROCESS_EXTRA_FIELDS, false)) {
+                return false;
+            }
+        }
+        CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(filename);
+        return codec == null;
     }
     
     @Override
@@ -12,6 +12,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.text.StrTokenizer;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
@@ -19,9 +20,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * RecordReader that reads events from "Comma"-Separated-Value formats. Here the "Comma" can be any separator.
+ * <p>
+ * Each line is a record, unless {@link CSVHelper#MULTI_LINE_RECORDS} is enabled, in which case a record continues onto the following lines until its quoted
+ * fields are closed. Only a quote at the start of a field opens a quoted field. If a quoted field is not closed within {@value #MAX_RECORD_LINES} lines or
+ * {@value #MAX_RECORD_BYTES} bytes, or by the end of the file, the quote is taken to be a stray and the first line is read as a record by itself.
+ * <p>
+ * A split owns the records which start within it. When a split starts part way through a file with multi-line records, the reader resyncs to the first line
+ * that starts a record with the expected number of fields, so newlines embedded in quoted fields are only told apart from record boundaries when the header
+ * is configured and extra fields are not processed.
  */
 public class CSVReaderBase extends LongLineEventRecordReader implements EventRecordReader {
     /** Logging mechanism for CSVReader. */
@@ -45,6 +57,25 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     /** Splits raw input records Strings according to the configured separator. */
     private StrTokenizer _tokenizer;
     
+    /** The maximum number of lines in a multi-line record. */
+    private static final int MAX_RECORD_LINES = 10000;
+    
+    /** The maximum number of bytes in a multi-line record, beyond which no more lines are added. */
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    
+    /** The offset of the split in the file. */
+    private long splitStart = 0;
+    
+    /** Whether records may span multiple lines. */
+    private boolean multiLineRecords = false;
+    
+    /** The separator of fields within a record, as matched by the tokenizer. */
+    private String separator;
+    
+    /** Lines read ahead while resyncing, which are returned before reading any further. */
+    private final List<Text> pendingLines = new ArrayList<>();
+    private final List<Integer> pendingLineSizes = new ArrayList<>();
+    
     /** Default Constructor. */
     public CSVReaderBase() {}
     
@@ -58,11 +89,192 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     /** Points the RecordReader to the next record. */
     @Override
     public boolean nextKeyValue() throws IOException {
-        if (counter == 0 && csvHelper.skipHeaderRow())
-            super.nextKeyValue();
+        // only the first split has a header row
+        if (counter == 0 && csvHelper.skipHeaderRow() && splitStart == 0)
+            nextRecord();
         counter++;
         
-        return super.nextKeyValue();
+        return nextRecord();
+    }
+    
+    /**
+     * Read the next record, which starts within the split but may end beyond it.
+     *
+     * @return true if a record was read
+     * @throws IOException
+     */
+    protected boolean nextRecord() throws IOException {
+        if (!multiLineRecords) {
+            return super.nextKeyValue();
+        }
+        
+        if (key == null) {
+            key = new LongWritable();
+        }
+        key.set(pos);
+        if (value == null) {
+            value = new Text();
+        }
+        if (pos >= end || readLine(value) == 0) {
+            key = null;
+            value = null;
+            return false;
+        }
+        if (isQuoteBalanced(value)) {
+            return true;
+        }
+        
+        // keep the continuation lines so that they can be read again if the quoted field is never closed
+        int firstLength = value.getLength();
+        List<Text> lines = new ArrayList<>();
+        List<Integer> lineSizes = new ArrayList<>();
+        while (lines.size() + 1 < MAX_RECORD_LINES && value.getLength() < MAX_RECORD_BYTES) {
+            Text next = new Text();
+            int size = readLine(next);
+            if (size == 0) {
+                break;
+            }
+            appendLine(value, next);
+            lines.add(next);
+            lineSizes.add(size);
+            if (isQuoteBalanced(value)) {
+                return true;
+            }
+        }
+        
+        if (!lines.isEmpty()) {
+            log.warn("The quoted field in the record at offset {} was not closed within {} lines, reading its first line as a record", key.get(),
+                            lines.size() + 1);
+            value.set(Arrays.copyOf(value.getBytes(), firstLength));
+            pendingLines.addAll(0, lines);
+            pendingLineSizes.addAll(0, lineSizes);
+            for (int size : lineSizes) {
+                pos -= size;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Read a line, taking any lines read ahead first
+     *
+     * @return the number of bytes consumed, or 0 at the end of the file
+     */
+    private int readLine(Text text) throws IOException {
+        if (!pendingLines.isEmpty()) {
+            text.set(pendingLines.remove(0));
+            int size = pendingLineSizes.remove(0);
+            pos += size;
+            return size;
+        }
+        int size = in.readLine(text, maxLineLength, Integer.MAX_VALUE);
+        pos += size;
+        return size;
+    }
+    
+    private void appendLine(Text record, Text next) {
+        if (!isNewLineIncluded()) {
+            record.append(new byte[] {'\n'}, 0, 1);
+        }
+        record.append(next.getBytes(), 0, next.getLength());
+    }
+    
+    /**
+     * @return true if the text does not end within a quoted field
+     */
+    private boolean isQuoteBalanced(Text text) {
+        return countFields(text) >= 0;
+    }
+    
+    /**
+     * Count the fields in a record. A quote only opens a quoted field at the start of a field, ignoring leading whitespace, and elsewhere is part of the value.
+     * Within a quoted field an escaped quote is doubled. Multi-line records are only read with a single character separator.
+     *
+     * @return the number of fields, or -1 if the text ends within a quoted field
+     */
+    private int countFields(Text text) {
+        byte[] bytes = text.getBytes();
+        byte separatorByte = (byte) separator.charAt(0);
+        int fields = 1;
+        boolean fieldStart = true;
+        boolean quoted = false;
+        for (int i = 0; i < text.getLength(); i++) {
+            byte b = bytes[i];
+            if (quoted) {
+                if (b == '"') {
+                    if (i + 1 < text.getLength() && bytes[i + 1] == '"') {
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                }
+            } else if (b == separatorByte) {
+                fields++;
+                fieldStart = true;
+                continue;
+            } else if (fieldStart && (b == ' ' || b == '\t')) {
+                continue;
+            } else if (fieldStart && b == '"') {
+                quoted = true;
+            }
+            fieldStart = false;
+        }
+        return quoted ? -1 : fields;
+    }
+    
+    /**
+     * Skip to the first line within the split which starts a well formed record. The lines of that record are kept to be read by {@link #nextRecord()}.
+     */
+    protected void resync() throws IOException {
+        long skipped = pos;
+        while (pos < end) {
+            // read ahead the lines of the record which would start with the first pending line
+            Text record = new Text();
+            int lines = 0;
+            boolean complete = false;
+            while (!complete && lines < MAX_RECORD_LINES && record.getLength() < MAX_RECORD_BYTES) {
+                if (lines == pendingLines.size()) {
+                    Text next = new Text();
+                    int size = in.readLine(next, maxLineLength, Integer.MAX_VALUE);
+                    if (size == 0) {
+                        break;
+                    }
+                    pendingLines.add(next);
+                    pendingLineSizes.add(size);
+                }
+                if (lines == 0) {
+                    record.set(pendingLines.get(0));
+                } else {
+                    appendLine(record, pendingLines.get(lines));
+                }
+                lines++;
+                complete = isQuoteBalanced(record);
+            }
+            
+            if (pendingLines.isEmpty()) {
+                break;
+            } else if (complete && isRecordStart(record)) {
+                break;
+            }
+            
+            // this line is within a quoted field of a record which started in an earlier split
+            pendingLines.remove(0);
+            pos += pendingLineSizes.remove(0);
+        }
+        if (pos > skipped && log.isDebugEnabled()) {
+            log.debug("Skipped {} bytes to resync to the start of a record", pos - skipped);
+        }
+    }
+    
+    /**
+     * @return true if the record has the number of fields in the header, or if the header does not determine the number of fields
+     */
+    private boolean isRecordStart(Text record) {
+        String[] header = csvHelper.getHeader();
+        if (header == null || header.length == 0 || csvHelper.processExtraFields()) {
+            return true;
+        }
+        return countFields(record) == header.length;
     }
     
     @Override
@@ -76,6 +288,13 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         setInputDate(System.currentTimeMillis());
         initializeRawFileName(genericSplit);
         initializeTotalSize(genericSplit);
+        
+        if (genericSplit instanceof FileSplit) {
+            splitStart = ((FileSplit) genericSplit).getStart();
+        }
+        if (multiLineRecords && splitStart != 0) {
+            resync();
+        }
     }
     
     public void initializeRawFileName(final InputSplit genericSplit) {
@@ -103,6 +322,14 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     
     public void initializeTokenizer() {
         _tokenizer = createTokenizer();
+        
+        // only the csv and tsv tokenizers handle quoted fields
+        separator = csvHelper.getSeparator().equals("\\t") ? "\t" : csvHelper.getSeparator();
+        multiLineRecords = csvHelper.multiLineRecords();
+        if (multiLineRecords && !separator.equals(",") && !separator.equals("\t")) {
+            log.warn("Multi-line records are not supported with the separator {}, reading one record per line", csvHelper.getSeparator());
+            multiLineRecords = false;
+        }
     }
     
     /** Creates a CVSHelper for the RecordReader. */
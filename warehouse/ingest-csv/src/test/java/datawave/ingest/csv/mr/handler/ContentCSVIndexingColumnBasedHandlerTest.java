@@ -6,6 +6,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 import datawave.ingest.csv.mr.handler.ContentCSVColumnBasedHandler;
@@ -14,9 +17,12 @@ import datawave.ingest.csv.config.helper.ExtendedCSVHelper;
 import datawave.ingest.csv.config.helper.ExtendedCSVIngestHelper;
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.TypeRegistry;
+import datawave.ingest.data.config.NormalizedContentInterface;
 import datawave.ingest.data.config.ingest.ContentBaseIngestHelper;
 import datawave.ingest.mapreduce.handler.edge.ProtobufEdgeDataTypeHandler;
 import datawave.ingest.mapreduce.handler.shard.ShardedDataTypeHandler;
+import datawave.ingest.mapreduce.handler.shard.content.BoundedOffsetQueue.OffsetList;
+import datawave.ingest.mapreduce.handler.shard.content.TokenizationCache;
 import datawave.ingest.mapreduce.handler.tokenize.ContentIndexingColumnBasedHandler;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
 
@@ -24,6 +30,7 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.StatusReporter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
@@ -38,6 +45,11 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.hash.HashCode;
+import com.google.common.primitives.Ints;
+
 public class ContentCSVIndexingColumnBasedHandlerTest {
     
     private Configuration conf;
@@ -158,4 +170,103 @@ public class ContentCSVIndexingColumnBasedHandlerTest {
         
         reader.close();
     }
+    
+    @Test
+    public void testTokenizationCache() throws Exception {
+        conf.addResource(ClassLoader.getSystemResource("config/ingest/all-config.xml"));
+        conf.addResource(ClassLoader.getSystemResource("config/ingest/csv-ingest-config.xml"));
+        conf.addResource(ClassLoader.getSystemResource("config/ingest/edge-ingest-config.xml"));
+        conf.addResource(ClassLoader.getSystemResource("config/ingest/metadata-config.xml"));
+        TypeRegistry.getInstance(conf);
+        
+        TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+        RecordingHandler csvHandler = new RecordingHandler();
+        csvHandler.setup(context);
+        
+        CSVRecordReader reader = getCSVRecordReader("/input/my.csv");
+        Assert.assertTrue("First Record did not read properly?", reader.nextKeyValue());
+        RawRecordContainer event = reader.getEvent();
+        reader.close();
+        Multimap<String,NormalizedContentInterface> eventFields = csvHandler.getHelper(event.getDataType()).getEventFields(event);
+        
+        // tokenize without the cache for reference
+        csvHandler.setTokenizationCache(null);
+        Multimap<BulkIngestKey,Value> expected = csvHandler.processBulk(new Text(), event, eventFields, new MockStatusReporter());
+        Multimap<String,NormalizedContentInterface> expectedIndex = csvHandler.recordedIndex;
+        Multimap<String,NormalizedContentInterface> expectedReverse = csvHandler.recordedReverse;
+        Map<String,List<Integer>> expectedOffsets = csvHandler.recordedOffsets;
+        Assert.assertFalse(expectedIndex.isEmpty());
+        Assert.assertFalse(expectedReverse.isEmpty());
+        Assert.assertFalse(expectedOffsets.isEmpty());
+        
+        CountingTokenizationCache cache = new CountingTokenizationCache();
+        csvHandler.setTokenizationCache(cache);
+        
+        // the first pass misses and populates the cache
+        Multimap<BulkIngestKey,Value> missed = csvHandler.processBulk(new Text(), event, eventFields, new MockStatusReporter());
+        Assert.assertTrue(cache.misses > 0);
+        Assert.assertEquals(expectedIndex, csvHandler.recordedIndex);
+        Assert.assertEquals(expectedReverse, csvHandler.recordedReverse);
+        Assert.assertEquals(expectedOffsets, csvHandler.recordedOffsets);
+        Assert.assertEquals(expected, missed);
+        
+        // the second pass replays every field from the cache, so each lookup of the first pass is now a hit
+        int hits = cache.hits;
+        int misses = cache.misses;
+        Multimap<BulkIngestKey,Value> hit = csvHandler.processBulk(new Text(), event, eventFields, new MockStatusReporter());
+        Assert.assertEquals(hits + (hits + misses), cache.hits);
+        Assert.assertEquals(misses, cache.misses);
+        Assert.assertEquals(expectedIndex, csvHandler.recordedIndex);
+        Assert.assertEquals(expectedReverse, csvHandler.recordedReverse);
+        Assert.assertEquals(expectedOffsets, csvHandler.recordedOffsets);
+        Assert.assertEquals(expected, hit);
+    }
+    
+    /**
+     * Records the index and reverse index fields and the token offsets of the last event processed, before the offsets are flushed
+     */
+    private static class RecordingHandler extends ContentCSVColumnBasedHandler<Text> {
+        private Multimap<String,NormalizedContentInterface> recordedIndex;
+        private Multimap<String,NormalizedContentInterface> recordedReverse;
+        private Map<String,List<Integer>> recordedOffsets;
+        
+        private void setTokenizationCache(TokenizationCache cache) {
+            this.tokenizationCache = cache;
+        }
+        
+        @Override
+        protected Multimap<String,NormalizedContentInterface> getShardNamesAndValues(RawRecordContainer event,
+                        Multimap<String,NormalizedContentInterface> eventFields, boolean createGlobalIndexTerms, boolean createGlobalReverseIndexTerms,
+                        StatusReporter reporter) {
+            Multimap<String,NormalizedContentInterface> fields = super.getShardNamesAndValues(event, eventFields, createGlobalIndexTerms,
+                            createGlobalReverseIndexTerms, reporter);
+            recordedIndex = HashMultimap.create(index);
+            recordedReverse = HashMultimap.create(reverse);
+            recordedOffsets = new HashMap<>();
+            for (OffsetList list : tokenOffsetCache.offsets()) {
+                recordedOffsets.put(list.termAndZone.getToken(), Ints.asList(list.offsets.clone()));
+            }
+            return fields;
+        }
+    }
+    
+    private static class CountingTokenizationCache extends TokenizationCache {
+        private int hits = 0;
+        private int misses = 0;
+        
+        private CountingTokenizationCache() {
+            super(100000);
+        }
+        
+        @Override
+        public Tokens get(HashCode key) {
+            Tokens tokens = super.get(key);
+            if (tokens == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return tokens;
+        }
+    }
 }
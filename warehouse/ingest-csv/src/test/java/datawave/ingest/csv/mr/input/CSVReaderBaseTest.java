@@ -0,0 +1,180 @@
+package datawave.ingest.csv.mr.input;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import datawave.ingest.data.TypeRegistry;
+import datawave.ingest.data.config.DataTypeHelper;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CSVReaderBaseTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private static final String HEADER = "A,B,C,D";
+    
+    private static final List<String> RECORDS = Arrays.asList("1,one,two,three", "2,\"a quoted, field\",x,y", "3,\"an embedded\nnewline\",x,y",
+                    "4,\"several\nembedded\nnewlines\",\"and another\nfield\",z", "5,\"\"\"quoted\"\" quotes\nover lines\",x,y", "6,,,",
+                    "7,\"a line\nwhich looks like, a record, with fields\",x,y", "8,last,record,here");
+    
+    private Configuration conf;
+    
+    @Before
+    public void setup() {
+        TypeRegistry.reset();
+        conf = new Configuration();
+        conf.addResource(ClassLoader.getSystemResource("config/ingest/all-config.xml"));
+        conf.addResource(ClassLoader.getSystemResource("config/ingest/csv-ingest-config.xml"));
+        conf.set("mycsv.data.header", HEADER);
+        conf.setBoolean("mycsv.data.process.extra.fields", false);
+        conf.setBoolean("mycsv.skip.csv.header.row", true);
+        TypeRegistry.getInstance(conf);
+    }
+    
+    private File writeFile(List<String> records) throws Exception {
+        StringBuilder builder = new StringBuilder(HEADER).append('\n');
+        for (String record : records) {
+            builder.append(record).append('\n');
+        }
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+    
+    private List<String> read(File file, long start, long length) throws Exception {
+        TaskAttemptContext ctx = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+        CSVReaderBase reader = new CSVReaderBase();
+        reader.initialize(new FileSplit(new Path(file.toURI().toString()), start, length, null), ctx);
+        List<String> records = new ArrayList<>();
+        while (reader.nextKeyValue()) {
+            records.add(reader.getCurrentValue().toString());
+        }
+        reader.close();
+        return records;
+    }
+    
+    /**
+     * Split the file at every offset and check that the two splits together read the same records as the whole file
+     */
+    private void assertSplitsMatch(File file, List<String> expected) throws Exception {
+        Assert.assertEquals(expected, read(file, 0, file.length()));
+        for (long offset = 1; offset < file.length(); offset++) {
+            List<String> records = read(file, 0, offset);
+            records.addAll(read(file, offset, file.length() - offset));
+            Assert.assertEquals("split at " + offset, expected, records);
+        }
+    }
+    
+    @Test
+    public void testSingleLineRecordSplits() throws Exception {
+        List<String> records = Arrays.asList("1,one,two,three", "2,\"a quoted, field\",x,y", "3,,,", "4,last,record,here");
+        assertSplitsMatch(writeFile(records), records);
+    }
+    
+    @Test
+    public void testMultiLineRecords() throws Exception {
+        conf.setBoolean("mycsv.data.multiline.records", true);
+        File file = writeFile(RECORDS);
+        Assert.assertEquals(RECORDS, read(file, 0, file.length()));
+    }
+    
+    @Test
+    public void testMultiLineRecordSplits() throws Exception {
+        conf.setBoolean("mycsv.data.multiline.records", true);
+        assertSplitsMatch(writeFile(RECORDS), RECORDS);
+    }
+    
+    @Test
+    public void testMultiLineRecordsDisabled() throws Exception {
+        File file = writeFile(RECORDS);
+        List<String> records = read(file, 0, file.length());
+        Assert.assertEquals("3,\"an embedded", records.get(2));
+        Assert.assertEquals("newline\",x,y", records.get(3));
+    }
+    
+    @Test
+    public void testMultiLineRecordsAreOnlySplitWithAHeader() {
+        CSVFileInputFormat format = new CSVFileInputFormat();
+        Path path = new Path("/data/mycsv.csv");
+        conf.set(DataTypeHelper.Properties.DATA_NAME, "mycsv");
+        Assert.assertTrue(format.isSplitable(new JobContextImpl(conf, new JobID()), path));
+        Assert.assertFalse(format.isSplitable(new JobContextImpl(conf, new JobID()), new Path("/data/mycsv.csv.gz")));
+        
+        conf.setBoolean("mycsv.data.multiline.records", true);
+        Assert.assertTrue(format.isSplitable(new JobContextImpl(conf, new JobID()), path));
+        
+        // the start of a record can not be found without the number of fields
+        conf.setBoolean("mycsv.data.process.extra.fields", true);
+        Assert.assertFalse(format.isSplitable(new JobContextImpl(conf, new JobID()), path));
+        conf.setBoolean("mycsv.data.header.enabled", false);
+        Assert.assertFalse(format.isSplitable(new JobContextImpl(conf, new JobID()), path));
+        
+        conf.setBoolean("mycsv.data.multiline.records", false);
+        Assert.assertTrue(format.isSplitable(new JobContextImpl(conf, new JobID()), path));
+    }
+    
+    @Test
+    public void testIsSplitableWithDataNameOverride() {
+        CSVFileInputFormat format = new CSVFileInputFormat();
+        Path path = new Path("/data/mycsv.csv");
+        // multi-line records without a header could not be split, but the override determines the type
+        conf.set(DataTypeHelper.Properties.DATA_NAME, "othercsv");
+        conf.setBoolean("othercsv.data.multiline.records", true);
+        conf.set(DataTypeHelper.Properties.DATA_NAME_OVERRIDE, "mycsv");
+        Assert.assertTrue(format.isSplitable(new JobContextImpl(conf, new JobID()), path));
+        
+        conf.setBoolean("mycsv.data.multiline.records", true);
+        conf.setBoolean("mycsv.data.process.extra.fields", true);
+        Assert.assertFalse(format.isSplitable(new JobContextImpl(conf, new JobID()), path));
+    }
+    
+    @Test
+    public void testStrayQuotes() throws Exception {
+        conf.setBoolean("mycsv.data.multiline.records", true);
+        // a quote within a field does not open a quoted field
+        List<String> records = Arrays.asList("1,one,two,three", "2,5\" pipe,x,y", "3,\"an embedded\nnewline\",x,y", "4,12\" and 6\" pipes,x,y",
+                        "5, \"a quoted field after a space\nover lines\",x,y", "6,last,record,here");
+        assertSplitsMatch(writeFile(records), records);
+    }
+    
+    @Test
+    public void testUnclosedQuote() throws Exception {
+        conf.setBoolean("mycsv.data.multiline.records", true);
+        // the quoted field is not closed by the end of the file, so each line is read as a record
+        List<String> records = Arrays.asList("1,one,two,three", "2,\"never closed,x,y", "3,next,record,here", "4,last,record,here");
+        File file = writeFile(records);
+        Assert.assertEquals(records, read(file, 0, file.length()));
+    }
+    
+    @Test
+    public void testUnclosedQuoteLineLimit() throws Exception {
+        conf.setBoolean("mycsv.data.multiline.records", true);
+        // the quoted field is not closed within the maximum number of lines in a record, so its first line is read as a record
+        List<String> records = new ArrayList<>();
+        records.add("1,\"never closed,x,y");
+        for (int i = 2; i < 10010; i++) {
+            records.add(i + ",a,b,c");
+        }
+        records.add("10010,\"an embedded\nnewline\",x,y");
+        File file = writeFile(records);
+        Assert.assertEquals(records, read(file, 0, file.length()));
+    }
+}
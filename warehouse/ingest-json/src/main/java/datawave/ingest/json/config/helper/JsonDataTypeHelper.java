@@ -21,12 +21,14 @@ public class JsonDataTypeHelper extends CSVHelper {
         
         String COLUMN_VISIBILITY_FIELD = ".data.category.marking.visibility.field";
         String FLATTENER_MODE = ".data.json.flattener.mode";
+        String LINE_DELIMITED = ".data.json.line.delimited";
         
     }
     
     protected String columnVisibilityField = null;
     protected boolean processExtraFields = false;
     protected FlattenMode jsonObjectFlattenMode = FlattenMode.NORMAL;
+    protected boolean lineDelimited = false;
     
     @Override
     public void setup(Configuration config) throws IllegalArgumentException {
@@ -34,6 +36,7 @@ public class JsonDataTypeHelper extends CSVHelper {
         setProcessExtraFields(super.processExtraFields());
         this.setJsonObjectFlattenModeByName(config.get(this.getType().typeName() + Properties.FLATTENER_MODE, FlattenMode.NORMAL.name()));
         this.setColumnVisibilityField(config.get(this.getType().typeName() + Properties.COLUMN_VISIBILITY_FIELD));
+        this.setLineDelimited(config.getBoolean(this.getType().typeName() + Properties.LINE_DELIMITED, false));
     }
     
     public String getColumnVisibilityField() {
@@ -65,6 +68,17 @@ public class JsonDataTypeHelper extends CSVHelper {
         this.jsonObjectFlattenMode = mode;
     }
     
+    /**
+     * @return true if the input contains one json object per line, in which case it can be split
+     */
+    public boolean isLineDelimited() {
+        return lineDelimited;
+    }
+    
+    public void setLineDelimited(boolean lineDelimited) {
+        this.lineDelimited = lineDelimited;
+    }
+    
     public JsonObjectFlattener newFlattener() {
         
         // Set flattener's whitelist and blacklist according to current state of the helper
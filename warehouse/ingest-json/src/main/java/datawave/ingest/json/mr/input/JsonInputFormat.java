@@ -3,8 +3,12 @@ package datawave.ingest.json.mr.input;
 import java.io.IOException;
 
 import datawave.ingest.data.RawRecordContainer;
+import datawave.ingest.data.config.DataTypeHelper;
+import datawave.ingest.json.config.helper.JsonDataTypeHelper;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
@@ -16,7 +20,13 @@ public class JsonInputFormat extends SequenceFileInputFormat<LongWritable,RawRec
     
     @Override
     protected boolean isSplitable(JobContext context, Path filename) {
-        return false;
+        // only uncompressed files with one object per line can be split
+        Configuration conf = context.getConfiguration();
+        String type = conf.get(DataTypeHelper.Properties.DATA_NAME_OVERRIDE, conf.get(DataTypeHelper.Properties.DATA_NAME));
+        if (type == null || !conf.getBoolean(type + JsonDataTypeHelper.Properties.LINE_DELIMITED, false)) {
+            return false;
+        }
+        return new CompressionCodecFactory(conf).getCodec(filename) == null;
     }
     
     @Override
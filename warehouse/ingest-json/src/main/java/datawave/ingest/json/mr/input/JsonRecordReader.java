@@ -18,19 +18,21 @@ import datawave.data.hash.UID;
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.config.DataTypeHelper;
 import datawave.ingest.input.reader.AbstractEventRecordReader;
+import datawave.ingest.input.reader.LfLineReader;
 
 import datawave.ingest.json.config.helper.JsonDataTypeHelper;
 import datawave.ingest.json.config.helper.JsonIngestFlattener;
 import datawave.ingest.json.util.JsonObjectFlattener;
 import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.commons.collections.IteratorUtils;
 import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
 
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
@@ -51,6 +53,11 @@ import org.apache.log4j.Logger;
  * </blockquote>
  *
  * <p>
+ * The input is streamed, so only the object currently being read is held in memory. It may be a single object, an array of objects, or any number of either
+ * concatenated together. If {@link JsonDataTypeHelper.Properties#LINE_DELIMITED} is enabled for the data type, the input is instead expected to contain one
+ * object per line, and the {@link JsonInputFormat} will split the file so that each split is read by a separate mapper.
+ *
+ * <p>
  * For custom parsing requirements, extend this class and override the 'parseCurrentValue' method to suit your needs.
  */
 public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
@@ -70,8 +77,12 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
     // Json parser-related stuff
     
     protected Multimap currentValue = HashMultimap.create();
-    protected Iterator<JsonElement> jsonIterator;
+    protected final JsonParser parser = new JsonParser();
     protected JsonReader reader;
+    // true while the reader is positioned within a top-level array of objects
+    protected boolean inArray = false;
+    protected LfLineReader lineReader;
+    protected final Text line = new Text();
     protected JsonElement currentJsonObj;
     protected boolean parseHeaderOnly = true;
     protected JsonDataTypeHelper jsonHelper = null;
@@ -79,8 +90,15 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
     
     @Override
     public void close() throws IOException {
-        reader.close();
-        countingInputStream.close();
+        if (reader != null) {
+            reader.close();
+        }
+        if (countingInputStream != null) {
+            countingInputStream.close();
+        }
+        if (lineReader != null) {
+            lineReader.close();
+        }
     }
     
     @Override
@@ -125,24 +143,31 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         rawFileName = file.getName();
         fileURI = file.toUri();
         FileSystem fs = file.getFileSystem(context.getConfiguration());
-        InputStream is = fs.open(file);
+        FSDataInputStream is = fs.open(file);
         start = fsplit.getStart();
         end = start + fsplit.getLength();
         pos = start;
         
         String normURI = fileURI.getScheme() + "://" + fileURI.getPath();
         
-        setupReader(is);
-        
-        if (logger.isInfoEnabled()) {
-            logger.info("Reading Json records from " + normURI + " via " + is.getClass().getName());
-        }
-        
         jsonHelper = (JsonDataTypeHelper) createHelper(context.getConfiguration());
         jsonHelper.setProcessExtraFields(!isParseHeaderOnly());
         jsonFlattener = jsonHelper.newFlattener();
         
+        if (jsonHelper.isLineDelimited()) {
+            setupLineReader(is, context.getConfiguration());
+        } else if (start != 0) {
+            // the stream can only be read from the beginning, so the split at the start of the file reads all of it
+            logger.warn("Ignoring split of " + normURI + " starting at " + start + " as the Json records are not line-delimited");
+            is.close();
+            pos = end;
+        } else {
+            setupReader(is);
+        }
+        
         if (logger.isInfoEnabled()) {
+            logger.info("Reading " + (jsonHelper.isLineDelimited() ? "line-delimited " : "") + "Json records from " + normURI + " via "
+                            + is.getClass().getName());
             logger.info("Json flattener mode: " + jsonFlattener.getFlattenMode().name());
         }
     }
@@ -151,19 +176,77 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         countingInputStream = new CountingInputStream(is);
         reader = new JsonReader(new InputStreamReader(countingInputStream));
         reader.setLenient(true);
-        setupIterator(reader);
     }
     
-    protected void setupIterator(JsonReader reader) {
-        JsonParser parser = new JsonParser();
-        JsonElement root = parser.parse(reader);
+    /**
+     * Position a line reader at the first line beginning within the split. A line which straddles the start of the split belongs to the previous split.
+     */
+    protected void setupLineReader(FSDataInputStream is, Configuration conf) throws IOException {
+        boolean skipFirstLine = false;
+        if (start != 0) {
+            skipFirstLine = true;
+            --start;
+            is.seek(start);
+        }
+        lineReader = new LfLineReader(is, conf);
+        if (skipFirstLine) {
+            start += lineReader.readLine(new Text(), 0, (int) Math.min(Integer.MAX_VALUE, end - start));
+        }
+        pos = start;
+    }
+    
+    /**
+     * Read the next top-level object from the input without reading any further
+     *
+     * @return the next object, or null if there are no more in this split
+     * @throws IOException
+     */
+    protected JsonElement nextJsonElement() throws IOException {
+        if (lineReader != null) {
+            while (pos < end) {
+                // the last line may run past the end of the split, and is read in full
+                int size = lineReader.readLine(line);
+                if (size == 0) {
+                    return null;
+                }
+                pos += size;
+                String json = line.toString().trim();
+                if (!json.isEmpty()) {
+                    return parser.parse(json);
+                }
+            }
+            return null;
+        }
         
-        if (root.isJsonArray()) {
-            // Currently positioned to read a set of objects
-            jsonIterator = root.getAsJsonArray().iterator();
-        } else {
-            // Currently positioned to read a single object
-            jsonIterator = IteratorUtils.singletonIterator(root);
+        /*
+         * Note that for streaming purposes we support files containing multiple distinct json objects concatenated together, where each object will represent
+         * a distinct event/document in our shard table. For example, the file might look like the following...
+         * 
+         * { "doc1": ... }{ "doc2": ... }...{ "docN": ... }
+         * 
+         * As a whole, this would represent an invalid json document, but it is useful for streaming large numbers of objects in batch. Therefore, we simply
+         * check here to see if the reader has more objects to read, and if so we keep going. Arrays of objects are stepped into rather than parsed as a whole.
+         */
+        if (reader == null) {
+            return null;
+        }
+        while (true) {
+            if (inArray) {
+                if (reader.hasNext()) {
+                    return parser.parse(reader);
+                }
+                reader.endArray();
+                inArray = false;
+            }
+            JsonToken token = reader.peek();
+            if (token == JsonToken.END_DOCUMENT) {
+                return null;
+            } else if (token == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                inArray = true;
+            } else {
+                return parser.parse(reader);
+            }
         }
     }
     
@@ -179,34 +262,20 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         currentValue.clear();
         counter++;
         
-        if (!jsonIterator.hasNext()) {
-            /*
-             * Note that for streaming purposes we support files containing multiple distinct json objects concatenated together, where each object will
-             * represent a distinct event/document in our shard table. For example, the file might look like the following...
-             * 
-             * { "doc1": ... }{ "doc2": ... }...{ "docN": ... }
-             * 
-             * As a whole, this would represent an invalid json document, but it is useful for streaming large numbers of objects in batch. Therefore, we simply
-             * check here to see if the reader has more objects to read, and if so we keep going
-             */
-            if (reader.peek() == JsonToken.END_DOCUMENT) {
-                return false;
-            }
-            setupIterator(reader);
+        JsonElement jsonElement = nextJsonElement();
+        if (jsonElement == null) {
+            currentJsonObj = null;
+            return false;
         }
         
-        if (jsonIterator.hasNext()) {
-            JsonElement jsonElement = jsonIterator.next();
-            
-            parseCurrentValue(jsonElement.getAsJsonObject());
+        parseCurrentValue(jsonElement.getAsJsonObject());
+        if (lineReader == null) {
             pos = countingInputStream.getCount();
-            
-            // Save ref to the current json element, to be used when writing the raw data to the record in getEvent
-            currentJsonObj = jsonElement;
-            return true;
         }
         
-        return false;
+        // Save ref to the current json element, to be used when writing the raw data to the record in getEvent
+        currentJsonObj = jsonElement;
+        return true;
     }
     
     @Override
@@ -2,47 +2,65 @@ package datawave.ingest.json.mr.input;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.TypeRegistry;
+import datawave.ingest.data.config.DataTypeHelper;
 
+import datawave.ingest.json.config.helper.JsonDataTypeHelper;
 import datawave.ingest.json.util.JsonObjectFlattener.FlattenMode;
+import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobID;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
 import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class JsonRecordReaderTest {
     
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
     protected JsonRecordReader init(boolean parseHeaderOnly, FlattenMode mode) throws Exception {
+        URL data = JsonRecordReaderTest.class.getResource("/input/my.json");
+        Assert.assertNotNull(data);
+        File dataFile = new File(data.toURI());
+        return init(parseHeaderOnly, mode, dataFile, false, 0, dataFile.length());
+    }
+    
+    protected JsonRecordReader init(boolean parseHeaderOnly, FlattenMode mode, File dataFile, boolean lineDelimited, long start, long length)
+                    throws Exception {
         
         Configuration conf = null;
         TaskAttemptContext ctx = null;
         InputSplit split = null;
-        File dataFile = null;
         
         conf = new Configuration();
         conf.addResource(ClassLoader.getSystemResource("config/ingest/all-config.xml"));
         conf.addResource(ClassLoader.getSystemResource("config/ingest/json-ingest-config.xml"));
         
         conf.set("myjson.data.json.flattener.mode", mode.name());
-        
-        URL data = JsonRecordReaderTest.class.getResource("/input/my.json");
-        Assert.assertNotNull(data);
+        conf.setBoolean("myjson.data.json.line.delimited", lineDelimited);
         
         TypeRegistry.reset();
         TypeRegistry.getInstance(conf);
         
-        dataFile = new File(data.toURI());
         Path p = new Path(dataFile.toURI().toString());
-        split = new FileSplit(p, 0, dataFile.length(), null);
+        split = new FileSplit(p, start, length, null);
         ctx = new TaskAttemptContextImpl(conf, new TaskAttemptID());
         
         JsonRecordReader reader = new JsonRecordReader();
@@ -51,6 +69,23 @@ public class JsonRecordReaderTest {
         return reader;
     }
     
+    protected File getLineDelimitedFile() throws Exception {
+        URL data = JsonRecordReaderTest.class.getResource("/input/my-lines.json");
+        Assert.assertNotNull(data);
+        return new File(data.toURI());
+    }
+    
+    protected List<String> readAll(JsonRecordReader reader) throws Exception {
+        reader.setInputDate(System.currentTimeMillis());
+        List<String> records = new ArrayList<>();
+        while (reader.nextKeyValue()) {
+            Assert.assertNotNull(reader.getEvent());
+            records.add(new String(reader.getCurrentValue().copyBytes(), StandardCharsets.UTF_8));
+        }
+        reader.close();
+        return records;
+    }
+    
     @Test
     public void testInitialize() throws Exception {
         JsonRecordReader reader = init(true, FlattenMode.NORMAL);
@@ -230,4 +265,65 @@ public class JsonRecordReaderTest {
         
         reader.close();
     }
+    
+    @Test
+    public void testLineDelimited() throws Exception {
+        File dataFile = getLineDelimitedFile();
+        List<String> expected = readAll(init(false, FlattenMode.NORMAL));
+        Assert.assertEquals(5, expected.size());
+        Assert.assertEquals(expected, readAll(init(false, FlattenMode.NORMAL, dataFile, true, 0, dataFile.length())));
+    }
+    
+    @Test
+    public void testLineDelimitedSplits() throws Exception {
+        File dataFile = getLineDelimitedFile();
+        List<String> expected = readAll(init(false, FlattenMode.NORMAL, dataFile, true, 0, dataFile.length()));
+        
+        // wherever the file is split, each record must be read by exactly one of the splits
+        for (long splitPoint = 0; splitPoint <= dataFile.length(); splitPoint += 7) {
+            List<String> records = readAll(init(false, FlattenMode.NORMAL, dataFile, true, 0, splitPoint));
+            records.addAll(readAll(init(false, FlattenMode.NORMAL, dataFile, true, splitPoint, dataFile.length() - splitPoint)));
+            Assert.assertEquals("split at " + splitPoint, expected, records);
+        }
+    }
+    
+    @Test
+    public void testArrayOfObjects() throws Exception {
+        List<String> lines = Files.readAllLines(getLineDelimitedFile().toPath(), StandardCharsets.UTF_8);
+        File dataFile = temporaryFolder.newFile("array.json");
+        // two arrays of objects followed by a single object
+        String json = "[" + StringUtils.join(lines.subList(0, 2), ",") + "]\n[" + StringUtils.join(lines.subList(2, 4), ",") + "]" + lines.get(4);
+        Files.write(dataFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        
+        List<String> expected = readAll(init(false, FlattenMode.NORMAL));
+        Assert.assertEquals(expected, readAll(init(false, FlattenMode.NORMAL, dataFile, false, 0, dataFile.length())));
+    }
+    
+    @Test
+    public void testStreamingSplitNotAtStart() throws Exception {
+        URL data = JsonRecordReaderTest.class.getResource("/input/my.json");
+        File dataFile = new File(data.toURI());
+        long splitPoint = dataFile.length() / 2;
+        
+        // only the split at the start of the file reads the stream, and it reads all of it
+        Assert.assertEquals(5, readAll(init(false, FlattenMode.NORMAL, dataFile, false, 0, splitPoint)).size());
+        Assert.assertTrue(readAll(init(false, FlattenMode.NORMAL, dataFile, false, splitPoint, dataFile.length() - splitPoint)).isEmpty());
+    }
+    
+    @Test
+    public void testIsSplitableWithDataNameOverride() throws Exception {
+        Configuration conf = new Configuration();
+        conf.set(DataTypeHelper.Properties.DATA_NAME, "otherjson");
+        conf.set(DataTypeHelper.Properties.DATA_NAME_OVERRIDE, "myjson");
+        conf.setBoolean("myjson" + JsonDataTypeHelper.Properties.LINE_DELIMITED, true);
+        JsonInputFormat format = new JsonInputFormat();
+        
+        // the override determines the type, not the data name
+        Assert.assertTrue(format.isSplitable(new JobContextImpl(conf, new JobID()), new Path("file:///input/my-lines.json")));
+        Assert.assertFalse(format.isSplitable(new JobContextImpl(conf, new JobID()), new Path("file:///input/my-lines.json.gz")));
+        
+        conf.setBoolean("myjson" + JsonDataTypeHelper.Properties.LINE_DELIMITED, false);
+        conf.setBoolean("otherjson" + JsonDataTypeHelper.Properties.LINE_DELIMITED, true);
+        Assert.assertFalse(format.isSplitable(new JobContextImpl(conf, new JobID()), new Path("file:///input/my-lines.json")));
+    }
 }
@@ -2,6 +2,7 @@ package datawave.core.iterators;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
@@ -22,8 +23,14 @@ import datawave.query.iterator.profile.QuerySpan;
 import datawave.query.iterator.profile.QuerySpanCollector;
 import datawave.query.iterator.profile.SourceTrackingIterator;
 import datawave.query.predicate.TimeFilter;
+import datawave.query.util.sortedset.FileSortedSet.JavaSerializationSerializer;
+import datawave.query.util.sortedset.FileSortedSet.SortedSetSerializer;
 import datawave.query.util.sortedset.HdfsBackedSortedSet;
+import datawave.query.util.sortedset.KeyValueBinarySerializer;
+import datawave.query.util.sortedset.KeyValueOffHeapCodec;
 import datawave.query.util.sortedset.KeyValueSerializable;
+import datawave.query.util.sortedset.LocalCacheBudget;
+import datawave.query.util.sortedset.OffHeapArena;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
@@ -36,6 +43,7 @@ import org.apache.accumulo.core.iterators.WrappingIterator;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
@@ -58,6 +66,29 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     public static final String NULL_BYTE = Constants.NULL_BYTE_STRING;
     public static final String ONE_BYTE = "\u0001";
     public static final PartialKey DEFAULT_RETURN_KEY_TYPE = PartialKey.ROW_COLFAM;
+    
+    /**
+     * The formats in which the hdfs cache files can be persisted
+     */
+    public enum CacheFormat {
+        // java serialization
+        JAVA,
+        // prefix compressed binary keys and values
+        BINARY,
+        // prefix compressed binary keys and values in deflated blocks
+        COMPRESSED_BINARY;
+        
+        public SortedSetSerializer<KeyValueSerializable> newSerializer() {
+            switch (this) {
+                case BINARY:
+                    return new KeyValueBinarySerializer(false);
+                case COMPRESSED_BINARY:
+                    return new KeyValueBinarySerializer(true);
+                default:
+                    return new JavaSerializationSerializer<>();
+            }
+        }
+    }
     // This iterator should have no seek column families. This is because all filtering is done by the bounding FI ranges,
     // the timefilter, and the datatype filters.
     // We do not want the underlying iterators to filter keys so that we can check the bounds in this iterator as quickly
@@ -106,6 +137,17 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     private final int hdfsBackedSetBufferSize;
     // the max number of files to open simultaneously during a merge source
     private final int maxOpenFiles;
+    // the format of the files persisted to the hdfs cache
+    private CacheFormat cacheFormat = CacheFormat.JAVA;
+    // the local directory used to cache files before falling back to hdfs (null if not using a local cache)
+    private File localCacheDir = null;
+    // the budget of the local directory shared across this query's ivarators
+    private LocalCacheBudget localCacheBudget = null;
+    // keep the set buffer off heap within the tserver wide arena
+    private boolean offHeapBuffer = false;
+    // the query id and priority used to fairly schedule the fill tasks across queries
+    private String queryId = null;
+    private int queryPriority = FairTaskQueue.DEFAULT_PRIORITY;
     
     // the current top key
     private Key topKey = null;
@@ -249,6 +291,12 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.scanTimeout = other.scanTimeout;
         this.hdfsBackedSetBufferSize = other.hdfsBackedSetBufferSize;
         this.maxOpenFiles = other.maxOpenFiles;
+        this.cacheFormat = other.cacheFormat;
+        this.localCacheDir = other.localCacheDir;
+        this.localCacheBudget = other.localCacheBudget;
+        this.offHeapBuffer = other.offHeapBuffer;
+        this.queryId = other.queryId;
+        this.queryPriority = other.queryPriority;
         
         this.set = other.set;
         this.keyValues = other.keyValues;
@@ -457,6 +505,48 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         return maxRangeSplit;
     }
     
+    public CacheFormat getCacheFormat() {
+        return cacheFormat;
+    }
+    
+    public void setCacheFormat(CacheFormat cacheFormat) {
+        this.cacheFormat = cacheFormat;
+    }
+    
+    /**
+     * Use a local directory to persist the cache files until the local cache budget is exhausted, after which the hdfs directory is used.
+     * 
+     * @param localCacheDir
+     * @param localCacheBudget
+     */
+    public void setLocalCache(File localCacheDir, LocalCacheBudget localCacheBudget) {
+        this.localCacheDir = localCacheDir;
+        this.localCacheBudget = localCacheBudget;
+    }
+    
+    public File getLocalCacheDir() {
+        return localCacheDir;
+    }
+    
+    public boolean isOffHeapBuffer() {
+        return offHeapBuffer;
+    }
+    
+    public void setOffHeapBuffer(boolean offHeapBuffer) {
+        this.offHeapBuffer = offHeapBuffer;
+    }
+    
+    /**
+     * Tag the fill tasks submitted to the ivarator thread pool with the query they are run for.
+     * 
+     * @param queryId
+     * @param queryPriority
+     */
+    public void setSchedulingTag(String queryId, int queryPriority) {
+        this.queryId = queryId;
+        this.queryPriority = queryPriority;
+    }
+    
     /**
      * From a field index key, this builds row=shardId, cf=datatype\0UID, cq=fieldname\0fieldvalue Note: in the non-sorted case we need to include the COLQUAL
      * to maintain the position in the FI for reseeking purposes
@@ -835,7 +925,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             }
         };
         
-        return IteratorThreadPoolManager.executeIvarator(runnable, DatawaveFieldIndexCachingIteratorJexl.this.toString() + " in " + boundingFiRange.toString());
+        return IteratorThreadPoolManager.executeIvarator(runnable, DatawaveFieldIndexCachingIteratorJexl.this.toString() + " in " + boundingFiRange.toString(),
+                        queryId, queryPriority);
         
     }
     
@@ -859,12 +950,30 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         return new Path(this.uniqueDir, row);
     }
     
+    /**
+     * Get the local directory for a specific row
+     * 
+     * @param row
+     * @return the local row dir, or null if not using a local cache
+     */
+    protected File getLocalRowDir(String row) {
+        return (this.localCacheDir == null ? null : new File(this.localCacheDir, row));
+    }
+    
     /**
      * Clear out the current row based hdfs backed set
      * 
      * @throws IOException
      */
     protected void clearRowBasedHdfsBackedSet() throws IOException {
+        // files in the local tier are never marked complete and hence cannot be reused, so remove them if we own them
+        if (this.set != null && this.currentRow != null && this.set.hasLocalData() && this.setControl.hasOwnership(this.currentRow, this)) {
+            this.set.clear();
+        }
+        // release the local cache directory held by the set
+        if (this.set != null) {
+            this.set.close();
+        }
         this.keyValues = null;
         this.currentRow = null;
         this.set = null;
@@ -899,7 +1008,20 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                 this.createdRowDir = false;
             }
             
-            this.set = new HdfsBackedSortedSet<KeyValueSerializable>(null, hdfsBackedSetBufferSize, fs, rowDir, maxOpenFiles);
+            // get the local row specific dir if we are using a local cache
+            File localRowDir = getLocalRowDir(row);
+            if (localRowDir != null && !allowDirReuse && localRowDir.exists()) {
+                FileUtil.fullyDelete(localRowDir);
+            }
+            
+            if (this.set != null) {
+                this.set.close();
+            }
+            this.set = new HdfsBackedSortedSet<KeyValueSerializable>(null, cacheFormat.newSerializer(), hdfsBackedSetBufferSize, fs, rowDir, localRowDir,
+                            localCacheBudget, maxOpenFiles);
+            if (offHeapBuffer) {
+                this.set.setOffHeapBuffer(OffHeapArena.getInstance(), new KeyValueOffHeapCodec());
+            }
             this.threadSafeSet = Collections.synchronizedSortedSet(this.set);
             this.currentRow = row;
             this.setControl.takeOwnership(row, this);
@@ -1033,8 +1155,10 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     protected void forcePersistence() throws IOException {
         if (this.set != null && !this.set.isPersisted()) {
             this.set.persist();
-            // declare the persisted set complete
-            this.setControl.setCompleteAndPersisted(this.currentRow);
+            // declare the persisted set complete, but only if completely in hdfs as local files are not available to other tservers
+            if (!this.set.hasLocalData()) {
+                this.setControl.setCompleteAndPersisted(this.currentRow);
+            }
         }
     }
     
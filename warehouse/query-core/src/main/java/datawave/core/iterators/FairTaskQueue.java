@@ -0,0 +1,385 @@
+package datawave.core.iterators;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A work queue for a thread pool that dispatches tasks using start-time fair queuing across queries. Each task is tagged with a query id and priority (see
+ * {@link Task}). A query's tasks are given virtual start times spaced 1/priority apart, and the task with the earliest virtual start time is dispatched next.
+ * The result is that a query with many queued tasks cannot delay the tasks of other queries, and that queries with a higher priority get a proportionally
+ * larger share of the threads. Tasks from the same query are dispatched in FIFO order. Untagged runnables are treated as one query with the default priority.
+ *
+ * The number of queued and running tasks per query is tracked, see {@link #getTaskCounts()}.
+ */
+public class FairTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+    
+    public static final int MIN_PRIORITY = 1;
+    public static final int MAX_PRIORITY = 10;
+    public static final int DEFAULT_PRIORITY = 5;
+    
+    private static final String UNTAGGED = "";
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final Map<String,QueryState> queries = new HashMap<>();
+    private double virtualTime = 0.0d;
+    private long sequence = 0;
+    
+    /**
+     * A future task tagged with the query it is running for. Tasks update the running counts of this queue when they execute.
+     */
+    public static class Task extends FutureTask<Object> {
+        private final FairTaskQueue owner;
+        private final String queryId;
+        private final int priority;
+        
+        public Task(FairTaskQueue owner, Runnable runnable, String queryId, int priority) {
+            super(runnable, null);
+            this.owner = owner;
+            this.queryId = (queryId == null ? UNTAGGED : queryId);
+            this.priority = Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priority));
+        }
+        
+        public String getQueryId() {
+            return queryId;
+        }
+        
+        public int getPriority() {
+            return priority;
+        }
+        
+        @Override
+        public void run() {
+            owner.started(this);
+            try {
+                super.run();
+            } finally {
+                owner.finished(this);
+            }
+        }
+    }
+    
+    /**
+     * The queued and running task counts for a query
+     */
+    public static class TaskCounts {
+        private final int priority;
+        private final int queued;
+        private final int running;
+        
+        public TaskCounts(int priority, int queued, int running) {
+            this.priority = priority;
+            this.queued = queued;
+            this.running = running;
+        }
+        
+        public int getPriority() {
+            return priority;
+        }
+        
+        public int getQueued() {
+            return queued;
+        }
+        
+        public int getRunning() {
+            return running;
+        }
+        
+        @Override
+        public String toString() {
+            return "priority=" + priority + ", queued=" + queued + ", running=" + running;
+        }
+    }
+    
+    private static class QueryState {
+        private int priority = DEFAULT_PRIORITY;
+        private double lastFinish = 0.0d;
+        private int queued = 0;
+        private int running = 0;
+    }
+    
+    private static class Entry implements Comparable<Entry> {
+        private final Runnable task;
+        private final QueryState state;
+        private final double start;
+        private final long sequence;
+        
+        private Entry(Runnable task, QueryState state, double start, long sequence) {
+            this.task = task;
+            this.state = state;
+            this.start = start;
+            this.sequence = sequence;
+        }
+        
+        @Override
+        public int compareTo(Entry o) {
+            int comparison = Double.compare(start, o.start);
+            if (comparison == 0) {
+                comparison = Long.compare(sequence, o.sequence);
+            }
+            return comparison;
+        }
+    }
+    
+    private QueryState getState(String queryId, int priority) {
+        QueryState state = queries.get(queryId);
+        if (state == null) {
+            state = new QueryState();
+            queries.put(queryId, state);
+        }
+        state.priority = priority;
+        return state;
+    }
+    
+    private void removeIfIdle(String queryId, QueryState state) {
+        if (state.queued == 0 && state.running == 0 && queries.get(queryId) == state) {
+            queries.remove(queryId);
+        }
+    }
+    
+    private static String getQueryId(Runnable runnable) {
+        return (runnable instanceof Task ? ((Task) runnable).getQueryId() : UNTAGGED);
+    }
+    
+    private static int getPriority(Runnable runnable) {
+        return (runnable instanceof Task ? ((Task) runnable).getPriority() : DEFAULT_PRIORITY);
+    }
+    
+    private void started(Task task) {
+        lock.lock();
+        try {
+            getState(task.getQueryId(), task.getPriority()).running++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void finished(Task task) {
+        lock.lock();
+        try {
+            QueryState state = queries.get(task.getQueryId());
+            if (state != null) {
+                state.running--;
+                removeIfIdle(task.getQueryId(), state);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private Entry dequeue() {
+        Entry entry = queue.poll();
+        virtualTime = entry.start;
+        entry.state.queued--;
+        removeIfIdle(getQueryId(entry.task), entry.state);
+        return entry;
+    }
+    
+    @Override
+    public boolean offer(Runnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+        lock.lock();
+        try {
+            QueryState state = getState(getQueryId(runnable), getPriority(runnable));
+            double start = Math.max(virtualTime, state.lastFinish);
+            state.lastFinish = start + 1.0d / state.priority;
+            state.queued++;
+            queue.add(new Entry(runnable, state, start, sequence++));
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void put(Runnable runnable) {
+        offer(runnable);
+    }
+    
+    @Override
+    public boolean offer(Runnable runnable, long timeout, TimeUnit unit) {
+        return offer(runnable);
+    }
+    
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return (queue.isEmpty() ? null : dequeue().task);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+            return dequeue().task;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue().task;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            return (queue.isEmpty() ? null : queue.peek().task);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+    
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            Iterator<Entry> it = queue.iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.task.equals(o)) {
+                    it.remove();
+                    entry.state.queued--;
+                    removeIfIdle(getQueryId(entry.task), entry.state);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        lock.lock();
+        try {
+            int count = 0;
+            while (count < maxElements && !queue.isEmpty()) {
+                c.add(dequeue().task);
+                count++;
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns an iterator over a snapshot of the queued tasks in no particular order. Removing through this iterator removes the task from the queue.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final List<Runnable> snapshot = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Entry entry : queue) {
+                snapshot.add(entry.task);
+            }
+        } finally {
+            lock.unlock();
+        }
+        final Iterator<Runnable> delegate = snapshot.iterator();
+        return new Iterator<Runnable>() {
+            private Runnable last = null;
+            
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+            
+            @Override
+            public Runnable next() {
+                last = delegate.next();
+                return last;
+            }
+            
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                FairTaskQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+    
+    /**
+     * Get the queued and running task counts for every query that currently has tasks in this queue or running in the pool. Untagged tasks are reported under
+     * the empty query id.
+     *
+     * @return a snapshot of the counts by query id
+     */
+    public Map<String,TaskCounts> getTaskCounts() {
+        Map<String,TaskCounts> counts = new TreeMap<>();
+        lock.lock();
+        try {
+            for (Map.Entry<String,QueryState> entry : queries.entrySet()) {
+                QueryState state = entry.getValue();
+                counts.put(entry.getKey(), new TaskCounts(state.priority, state.queued, state.running));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+}
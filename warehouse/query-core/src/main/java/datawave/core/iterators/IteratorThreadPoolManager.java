@@ -4,7 +4,6 @@ import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -18,7 +17,8 @@ import org.apache.accumulo.server.util.time.SimpleTimer;
 import org.apache.log4j.Logger;
 
 /**
- * 
+ * Manages the ivarator and evaluation thread pools shared by all queries in a tablet server. Tasks are tagged with the query id and priority of the query they
+ * are run for, and each pool dispatches its queued tasks fairly across queries using a {@link FairTaskQueue}.
  */
 public class IteratorThreadPoolManager {
     private static final Logger log = Logger.getLogger(IteratorThreadPoolManager.class);
@@ -31,6 +31,7 @@ public class IteratorThreadPoolManager {
     private static final int DEFAULT_THREAD_POOL_SIZE = 100;
     
     private Map<String,ExecutorService> threadPools = new TreeMap<String,ExecutorService>();
+    private Map<String,FairTaskQueue> taskQueues = new TreeMap<String,FairTaskQueue>();
     
     private ServerConfigurationFactory confFactory;
     
@@ -50,8 +51,10 @@ public class IteratorThreadPoolManager {
     }
     
     private ThreadPoolExecutor createExecutorService(final String prop, final String name) {
-        final ThreadPoolExecutor service = createExecutorService(getMaxThreads(prop), name + " (" + instanceId + ')');
+        final FairTaskQueue taskQueue = new FairTaskQueue();
+        final ThreadPoolExecutor service = createExecutorService(getMaxThreads(prop), name + " (" + instanceId + ')', taskQueue);
         threadPools.put(name, service);
+        taskQueues.put(name, taskQueue);
         SimpleTimer.getInstance(AccumuloConfiguration.getDefaultConfiguration()).schedule(new Runnable() {
             @Override
             public void run() {
@@ -63,6 +66,12 @@ public class IteratorThreadPoolManager {
                         service.setCorePoolSize(max);
                         service.setMaximumPoolSize(max);
                     }
+                    if (log.isDebugEnabled()) {
+                        Map<String,FairTaskQueue.TaskCounts> counts = taskQueue.getTaskCounts();
+                        if (!counts.isEmpty()) {
+                            log.debug(name + " tasks by query: " + counts);
+                        }
+                    }
                 } catch (Throwable t) {
                     log.error(t, t);
                 }
@@ -72,9 +81,8 @@ public class IteratorThreadPoolManager {
         return service;
     }
     
-    private ThreadPoolExecutor createExecutorService(int maxThreads, String name) {
-        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 5 * 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
-                        new NamingThreadFactory(name));
+    private ThreadPoolExecutor createExecutorService(int maxThreads, String name, FairTaskQueue taskQueue) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 5 * 60, TimeUnit.SECONDS, taskQueue, new NamingThreadFactory(name));
         pool.allowCoreThreadTimeOut(true);
         return pool;
     }
@@ -102,8 +110,8 @@ public class IteratorThreadPoolManager {
         return instance;
     }
     
-    private Future<?> execute(String name, final Runnable task, final String taskName) {
-        return threadPools.get(name).submit(new Runnable() {
+    private Future<?> execute(String name, final Runnable task, final String taskName, String queryId, int priority) {
+        FairTaskQueue.Task future = new FairTaskQueue.Task(taskQueues.get(name), new Runnable() {
             @Override
             public void run() {
                 String oldName = Thread.currentThread().getName();
@@ -114,15 +122,76 @@ public class IteratorThreadPoolManager {
                     Thread.currentThread().setName(oldName);
                 }
             }
-        });
+        }, queryId, priority);
+        threadPools.get(name).execute(future);
+        return future;
     }
     
     public static Future<?> executeIvarator(Runnable task, String taskName) {
-        return instance().execute(IVARATOR_THREAD_NAME, task, taskName);
+        return executeIvarator(task, taskName, null, FairTaskQueue.DEFAULT_PRIORITY);
+    }
+    
+    /**
+     * Execute an ivarator task on behalf of a query
+     * 
+     * @param task
+     * @param taskName
+     * @param queryId
+     *            the query id used to fairly schedule tasks across queries
+     * @param priority
+     *            the query priority, from {@link FairTaskQueue#MIN_PRIORITY} to {@link FairTaskQueue#MAX_PRIORITY}
+     * @return the future
+     */
+    public static Future<?> executeIvarator(Runnable task, String taskName, String queryId, int priority) {
+        return instance().execute(IVARATOR_THREAD_NAME, task, taskName, queryId, priority);
     }
     
     public static Future<?> executeEvaluation(Runnable task, String taskName) {
-        return instance().execute(EVALUATOR_THREAD_NAME, task, taskName);
+        return executeEvaluation(task, taskName, null, FairTaskQueue.DEFAULT_PRIORITY);
+    }
+    
+    /**
+     * Execute an evaluation task on behalf of a query
+     * 
+     * @param task
+     * @param taskName
+     * @param queryId
+     *            the query id used to fairly schedule tasks across queries
+     * @param priority
+     *            the query priority, from {@link FairTaskQueue#MIN_PRIORITY} to {@link FairTaskQueue#MAX_PRIORITY}
+     * @return the future
+     */
+    public static Future<?> executeEvaluation(Runnable task, String taskName, String queryId, int priority) {
+        return instance().execute(EVALUATOR_THREAD_NAME, task, taskName, queryId, priority);
+    }
+    
+    /**
+     * @return the queued and running ivarator task counts by query id
+     */
+    public static Map<String,FairTaskQueue.TaskCounts> getIvaratorTaskCounts() {
+        return instance().taskQueues.get(IVARATOR_THREAD_NAME).getTaskCounts();
+    }
+    
+    /**
+     * @return the queued and running evaluation task counts by query id
+     */
+    public static Map<String,FairTaskQueue.TaskCounts> getEvaluationTaskCounts() {
+        return instance().taskQueues.get(EVALUATOR_THREAD_NAME).getTaskCounts();
+    }
+    
+    private double getSaturation(String name) {
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) threadPools.get(name);
+        return (double) (pool.getActiveCount() + pool.getQueue().size()) / pool.getMaximumPoolSize();
+    }
+    
+    /**
+     * Get the saturation of the evaluation thread pool. This is the number of active plus queued tasks over the number of threads, so a value of 1 means every
+     * thread is busy and anything above 1 means tasks are waiting for a thread.
+     * 
+     * @return the evaluation pool saturation
+     */
+    public static double getEvaluationSaturation() {
+        return instance().getSaturation(EVALUATOR_THREAD_NAME);
     }
     
 }
@@ -15,6 +15,7 @@ import datawave.query.function.serializer.KryoDocumentSerializer;
 import datawave.query.exceptions.InvalidDocumentHeader;
 import datawave.query.exceptions.NoSuchDeserializerException;
 import datawave.query.function.deserializer.KryoDocumentDeserializer;
+import datawave.query.function.deserializer.LazyKryoDocumentDeserializer;
 import datawave.query.function.deserializer.WritableDocumentDeserializer;
 import datawave.query.function.serializer.DocumentSerializer;
 import datawave.query.function.serializer.WritableDocumentSerializer;
@@ -31,7 +32,7 @@ import datawave.webservice.query.exception.QueryException;
 public class DocumentSerialization {
     
     public enum ReturnType {
-        writable, kryo, tostring, noop
+        writable, kryo, tostring, noop, lazykryo
     }
     
     public static final ReturnType DEFAULT_RETURN_TYPE = ReturnType.kryo;
@@ -43,6 +44,8 @@ public class DocumentSerialization {
     
     public static final int ZLIB_NUMBER = 2;
     
+    public static final int HEADER_LENGTH = 3;
+    
     /**
      * If a user-supplied ReturnType is specified, use it; otherwise, use the default ReturnType of {@link #DEFAULT_RETURN_TYPE}
      *
@@ -65,6 +68,8 @@ public class DocumentSerialization {
     public static DocumentDeserializer getDocumentDeserializer(ReturnType rt) throws NoSuchDeserializerException {
         if (ReturnType.kryo.equals(rt)) {
             return new KryoDocumentDeserializer();
+        } else if (ReturnType.lazykryo.equals(rt)) {
+            return new LazyKryoDocumentDeserializer();
         } else if (ReturnType.writable.equals(rt)) {
             return new WritableDocumentDeserializer();
         } else {
@@ -80,6 +85,8 @@ public class DocumentSerialization {
     public static DocumentSerializer getDocumentSerializer(ReturnType rt) throws NoSuchDeserializerException {
         if (ReturnType.kryo.equals(rt)) {
             return new KryoDocumentSerializer();
+        } else if (ReturnType.lazykryo.equals(rt)) {
+            return new KryoDocumentSerializer(false, false, true);
         } else if (ReturnType.writable.equals(rt)) {
             return new WritableDocumentSerializer(false);
         } else {
@@ -121,8 +128,15 @@ public class DocumentSerialization {
         }
     }
     
-    public static InputStream consumeHeader(byte[] data) throws InvalidDocumentHeader {
-        if (null == data || 3 > data.length) {
+    /**
+     * Validate the header of a serialized document and return the compression scheme of the body, which starts at {@link #HEADER_LENGTH}
+     *
+     * @param data
+     * @return the compression scheme
+     * @throws InvalidDocumentHeader
+     */
+    public static int readHeader(byte[] data) throws InvalidDocumentHeader {
+        if (null == data || HEADER_LENGTH > data.length) {
             QueryException qe = new QueryException(DatawaveErrorCode.DATA_INVALID_ERROR, MessageFormat.format("Length: {0}",
                             (null != data ? data.length : null)));
             throw new InvalidDocumentHeader(qe);
@@ -136,12 +150,16 @@ public class DocumentSerialization {
             throw new InvalidDocumentHeader(qe);
         }
         
-        int compression = readUByte(bais);
+        return readUByte(bais);
+    }
+    
+    public static InputStream consumeHeader(byte[] data) throws InvalidDocumentHeader {
+        int compression = readHeader(data);
         
         if (NONE == compression) {
-            return new ByteArrayInputStream(data, 3, data.length - 3);
+            return new ByteArrayInputStream(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
         } else if (GZIP == compression) {
-            ByteArrayInputStream bytes = new ByteArrayInputStream(data, 3, data.length - 3);
+            ByteArrayInputStream bytes = new ByteArrayInputStream(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
             return new InflaterInputStream(bytes, new Inflater(), 1024);
         } else {
             BadRequestQueryException qe = new BadRequestQueryException(DatawaveErrorCode.UNKNOWN_COMPRESSION_SCHEME, MessageFormat.format("{0}", compression));
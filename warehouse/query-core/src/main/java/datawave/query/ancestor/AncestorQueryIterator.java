@@ -122,7 +122,7 @@ public class AncestorQueryIterator extends QueryIterator {
     
     @Override
     protected JexlEvaluation getJexlEvaluation(NestedQueryIterator<Key> documentSource) {
-        return new JexlEvaluation(query, getArithmetic()) {
+        return new JexlEvaluation(query, getArithmetic(), isCompiledEvaluation()) {
             private Key currentKey = null;
             
             private boolean isCurrentDoc(Key key) {
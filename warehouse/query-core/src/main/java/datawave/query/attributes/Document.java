@@ -3,11 +3,16 @@ package datawave.query.attributes;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -47,7 +52,16 @@ public class Document extends AttributeBag<Document> implements Serializable {
     
     private int _count = 0;
     long _bytes = 0;
-    TreeMap<String,Attribute<? extends Comparable<?>>> dict;
+    Map<String,Attribute<? extends Comparable<?>>> dict;
+    
+    // when compact, the dictionary is a SortedArrayMap and equal attribute metadata is shared
+    private boolean compact = false;
+    private transient List<Key> sharedMetadata = null;
+    private static final int MAX_SHARED_METADATA = 16;
+    
+    // the java serialized form remains that of the TreeMap backed document (see writeObject)
+    private static final ObjectStreamField[] serialPersistentFields = {new ObjectStreamField("_count", int.class), new ObjectStreamField("_bytes", long.class),
+            new ObjectStreamField("dict", TreeMap.class)};
     
     private static final long ONE_DAY_MS = 1000l * 60 * 60 * 24;
     
@@ -68,8 +82,21 @@ public class Document extends AttributeBag<Document> implements Serializable {
     }
     
     public Document(Key key, boolean toKeep) {
+        this(key, toKeep, false);
+    }
+    
+    /**
+     * Create a document, optionally using the compact representation. A compact document stores its attributes in sorted arrays rather than a TreeMap, interns
+     * the field names, and shares equal metadata keys (visibility and timestamp) across its attributes. The behavior and serialized form are the same.
+     *
+     * @param key
+     * @param toKeep
+     * @param compact
+     */
+    public Document(Key key, boolean toKeep, boolean compact) {
         super(key, toKeep);
-        dict = new TreeMap<>();
+        this.compact = compact;
+        dict = newDictionary();
     }
     
     public Document(Key key, Set<Key> docKeys, Iterator<Entry<Key,Value>> iter, TypeMetadata typeMetadata, CompositeMetadata compositeMetadata,
@@ -79,10 +106,60 @@ public class Document extends AttributeBag<Document> implements Serializable {
     
     public Document(Key key, Set<Key> docKeys, Iterator<Entry<Key,Value>> iter, TypeMetadata typeMetadata, CompositeMetadata compositeMetadata,
                     boolean includeGroupingContext, boolean keepRecordId, EventDataQueryFilter attrFilter, boolean toKeep) {
-        this(key, toKeep);
+        this(key, docKeys, iter, typeMetadata, compositeMetadata, includeGroupingContext, keepRecordId, attrFilter, toKeep, false);
+    }
+    
+    public Document(Key key, Set<Key> docKeys, Iterator<Entry<Key,Value>> iter, TypeMetadata typeMetadata, CompositeMetadata compositeMetadata,
+                    boolean includeGroupingContext, boolean keepRecordId, EventDataQueryFilter attrFilter, boolean toKeep, boolean compact) {
+        this(key, toKeep, compact);
         this.consumeRawData(key, docKeys, iter, typeMetadata, compositeMetadata, includeGroupingContext, keepRecordId, attrFilter);
     }
     
+    private Map<String,Attribute<? extends Comparable<?>>> newDictionary() {
+        if (compact) {
+            return new SortedArrayMap<>();
+        } else {
+            return new TreeMap<>();
+        }
+    }
+    
+    public boolean isCompact() {
+        return compact;
+    }
+    
+    /**
+     * Replace the metadata of the attribute (and any attributes it contains) with an equal metadata key already used in this document. Attributes created for
+     * the same event generally have the same row, column family, visibility and timestamp, so a document ends up with a handful of distinct keys.
+     *
+     * @param attr
+     */
+    private void shareMetadata(Attribute<?> attr) {
+        if (attr instanceof Document) {
+            return;
+        }
+        if (attr instanceof Attributes) {
+            for (Attribute<?> child : ((Attributes) attr).getAttributes()) {
+                shareMetadata(child);
+            }
+        }
+        if (attr.metadata != null) {
+            if (sharedMetadata == null) {
+                sharedMetadata = new ArrayList<>(4);
+            }
+            for (Key shared : sharedMetadata) {
+                if (shared == attr.metadata) {
+                    return;
+                } else if (shared.equals(attr.metadata)) {
+                    attr.metadata = shared;
+                    return;
+                }
+            }
+            if (sharedMetadata.size() < MAX_SHARED_METADATA) {
+                sharedMetadata.add(attr.metadata);
+            }
+        }
+    }
+    
     @Override
     public Collection<Attribute<? extends Comparable<?>>> getAttributes() {
         return Collections.unmodifiableCollection(this.dict.values());
@@ -92,7 +169,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
         return Collections.unmodifiableMap(this.dict);
     }
     
-    private TreeMap<String,Attribute<? extends Comparable<?>>> _getDictionary() {
+    Map<String,Attribute<? extends Comparable<?>>> _getDictionary() {
         return dict;
     }
     
@@ -145,6 +222,10 @@ public class Document extends AttributeBag<Document> implements Serializable {
             this.put(DOCKEY_FIELD_NAME, docKeyAttributes);
         }
         
+        if (compact) {
+            ((SortedArrayMap<?>) dict).trimToSize();
+        }
+        
         // a little debugging here to track large documents
         debugDocumentSize(docKey);
         
@@ -221,6 +302,9 @@ public class Document extends AttributeBag<Document> implements Serializable {
      * @param value
      */
     public void replace(String key, Attribute<?> value, Boolean includeGroupingContext, boolean reducedResponse) {
+        if (compact) {
+            shareMetadata(value);
+        }
         dict.put(key, value);
     }
     
@@ -248,6 +332,10 @@ public class Document extends AttributeBag<Document> implements Serializable {
             log.trace("Loading: " + key + "=" + value);
         }
         
+        if (compact) {
+            shareMetadata(value);
+        }
+        
         Attribute<?> existingAttr = dict.get(key);
         if (existingAttr == null) {
             dict.put(key, value);
@@ -427,6 +515,12 @@ public class Document extends AttributeBag<Document> implements Serializable {
     
     @Override
     public long sizeInBytes() {
+        if (compact) {
+            return super.sizeInBytes(48) + _bytes + (this.dict.size() * 8) + 40;
+            // 8 for the key and value array references
+            // 40 for the SortedArrayMap members, overhead and array headers
+            // note that _bytes does not account for shared metadata
+        }
         return super.sizeInBytes(40) + _bytes + (this.dict.size() * 24) + 40;
         // 32 for local members
         // 24 for TreeMap.Entry overhead, and members
@@ -501,7 +595,8 @@ public class Document extends AttributeBag<Document> implements Serializable {
         
         int numAttrs = WritableUtils.readVInt(in);
         
-        this.dict = new TreeMap<>();
+        this.dict = newDictionary();
+        this.sharedMetadata = null;
         
         for (int i = 0; i < numAttrs; i++) {
             // Get the fieldName
@@ -532,9 +627,15 @@ public class Document extends AttributeBag<Document> implements Serializable {
             }
             
             // Reload the attribute
+            if (compact && attr instanceof Document) {
+                ((Document) attr).compact = true;
+            }
             attr.readFields(in);
             
             // Add the attribute back to the Map
+            if (compact) {
+                shareMetadata(attr);
+            }
             this.dict.put(fieldName, attr);
         }
         
@@ -551,8 +652,8 @@ public class Document extends AttributeBag<Document> implements Serializable {
         } else if (size() > o.size()) {
             return 1;
         } else {
-            TreeMap<String,Attribute<? extends Comparable<?>>> map1 = _getDictionary();
-            TreeMap<String,Attribute<? extends Comparable<?>>> map2 = o._getDictionary();
+            Map<String,Attribute<? extends Comparable<?>>> map1 = _getDictionary();
+            Map<String,Attribute<? extends Comparable<?>>> map2 = o._getDictionary();
             Iterator<Entry<String,Attribute<? extends Comparable<?>>>> iter1 = map1.entrySet().iterator();
             Iterator<Entry<String,Attribute<? extends Comparable<?>>>> iter2 = map2.entrySet().iterator();
             
@@ -698,6 +799,36 @@ public class Document extends AttributeBag<Document> implements Serializable {
         return children;
     }
     
+    /**
+     * Write the same java serialized form as a TreeMap backed document, so that compact documents remain compatible with previously serialized documents.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("_count", _count);
+        fields.put("_bytes", _bytes);
+        fields.put("dict", (dict instanceof TreeMap ? dict : new TreeMap<>(dict)));
+        out.writeFields();
+    }
+    
+    /**
+     * Read the java serialized form written by writeObject. The document read is never compact.
+     * 
+     * @param in
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        _count = fields.get("_count", 0);
+        _bytes = fields.get("_bytes", 0L);
+        dict = (Map<String,Attribute<? extends Comparable<?>>>) fields.get("dict", null);
+        compact = false;
+    }
+    
     @Override
     public void write(Kryo kryo, Output output) {
         write(kryo, output, false);
@@ -731,7 +862,8 @@ public class Document extends AttributeBag<Document> implements Serializable {
         
         int numAttrs = input.readInt(true);
         
-        this.dict = new TreeMap<>();
+        this.dict = newDictionary();
+        this.sharedMetadata = null;
         
         for (int i = 0; i < numAttrs; i++) {
             // Get the fieldName
@@ -761,9 +893,15 @@ public class Document extends AttributeBag<Document> implements Serializable {
                 throw new ClassCastException("Found class that was not an instance of Attribute");
             }
             // Reload the attribute
+            if (compact && attr instanceof Document) {
+                ((Document) attr).compact = true;
+            }
             attr.read(kryo, input);
             
             // Add the attribute back to the Map
+            if (compact) {
+                shareMetadata(attr);
+            }
             this.dict.put(fieldName, attr);
         }
         
@@ -772,9 +910,87 @@ public class Document extends AttributeBag<Document> implements Serializable {
         this.invalidateMetadata();
     }
     
+    /**
+     * Write the document in the indexed Kryo format. This differs from {@link #write(Kryo, Output, Boolean)} in that the visibility and timestamp of the
+     * document are written first and each attribute is prefixed with its length, which allows a reader to index the attributes without decoding them (see
+     * {@link #readIndexed(Kryo, Input)}). The lengths are filled in after each attribute is written, so the output must be backed by a buffer and not a stream.
+     *
+     * @param kryo
+     * @param output
+     * @param reducedResponse
+     */
+    public void writeIndexed(Kryo kryo, Output output, Boolean reducedResponse) {
+        if (null != output.getOutputStream()) {
+            throw new IllegalArgumentException("The indexed document format cannot be written to a stream");
+        }
+        writeMetadata(kryo, output, reducedResponse);
+        
+        output.writeInt(this._count, true);
+        output.writeLong(this._bytes, true);
+        
+        output.writeInt(this.dict.size(), true);
+        
+        for (Entry<String,Attribute<? extends Comparable<?>>> entry : this.dict.entrySet()) {
+            output.writeString(entry.getKey());
+            
+            Attribute<?> attribute = entry.getValue();
+            output.writeString(attribute.getClass().getName());
+            
+            // reserve the length, write the attribute, and then go back and fill in the length
+            int lengthPosition = output.position();
+            output.writeInt(0);
+            attribute.write(kryo, output, reducedResponse);
+            int end = output.position();
+            output.setPosition(lengthPosition);
+            output.writeInt(end - lengthPosition - 4);
+            output.setPosition(end);
+        }
+        
+        output.writeLong(this.shardTimestamp);
+    }
+    
+    /**
+     * Read a document written with {@link #writeIndexed(Kryo, Output, Boolean)}. The attributes are not decoded here, instead their offsets into the input
+     * buffer are recorded and each attribute is decoded the first time it is accessed. The count, size, visibility and timestamp of the document are available
+     * without decoding any attributes. The input must be backed by a byte array and not a stream, and the array must not be modified while the document is in
+     * use. As with the rest of this class, the document is not thread-safe.
+     *
+     * @param kryo
+     * @param input
+     */
+    public void readIndexed(Kryo kryo, Input input) {
+        if (null != input.getInputStream()) {
+            throw new IllegalArgumentException("The indexed document format cannot be read from a stream");
+        }
+        readMetadata(kryo, input);
+        
+        this._count = input.readInt(true);
+        this._bytes = input.readLong(true);
+        
+        int numAttrs = input.readInt(true);
+        
+        LazyAttributeMap attributes = new LazyAttributeMap(kryo, input.getBuffer());
+        for (int i = 0; i < numAttrs; i++) {
+            String fieldName = input.readString();
+            String attrClassName = input.readString();
+            int length = input.readInt();
+            attributes.putEncoded(fieldName, attrClassName, input.position(), length);
+            input.skip(length);
+        }
+        
+        this.dict = attributes;
+        this.compact = false;
+        this.sharedMetadata = null;
+        
+        this.shardTimestamp = input.readLong();
+        
+        // the visibility and timestamp were computed before the document was written
+        this.validMetadata = isMetadataSet();
+    }
+    
     @Override
     public Document copy() {
-        Document d = new Document(this.getMetadata(), this.isToKeep());
+        Document d = new Document(this.getMetadata(), this.isToKeep(), this.compact);
         
         // _count will be set via put operations
         Set<Entry<String,Attribute<? extends Comparable<?>>>> entries = this._getDictionary().entrySet();
@@ -0,0 +1,229 @@
+package datawave.query.attributes;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.google.common.base.Objects;
+
+/**
+ * The dictionary of a document read with {@link Document#readIndexed(Kryo, Input)}. Each attribute is held as an offset and length into the serialized
+ * document until it is first accessed, at which point it is decoded and replaces the encoded form. Documents that are only partially examined therefore only
+ * pay for decoding the attributes that are used.
+ */
+class LazyAttributeMap extends AbstractMap<String,Attribute<? extends Comparable<?>>> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private final transient Kryo kryo;
+    private final transient byte[] buffer;
+    
+    // values are either a decoded Attribute or an EncodedAttribute
+    private final SortedArrayMap<Object> attributes = new SortedArrayMap<>();
+    
+    private static class EncodedAttribute {
+        private final String className;
+        private final int offset;
+        private final int length;
+        
+        private EncodedAttribute(String className, int offset, int length) {
+            this.className = className;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+    
+    LazyAttributeMap(Kryo kryo, byte[] buffer) {
+        this.kryo = kryo;
+        this.buffer = buffer;
+    }
+    
+    void putEncoded(String fieldName, String className, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new KryoException("Attribute " + fieldName + " extends past the end of the buffer");
+        }
+        attributes.put(fieldName, new EncodedAttribute(className, offset, length));
+    }
+    
+    /**
+     * @param fieldName
+     * @return true if the attribute for the field has been decoded
+     */
+    boolean isDecoded(String fieldName) {
+        Object value = attributes.get(fieldName);
+        return (value != null && !(value instanceof EncodedAttribute));
+    }
+    
+    static Attribute<? extends Comparable<?>> newAttribute(String attrClassName) {
+        Class<?> clz;
+        try {
+            clz = Class.forName(attrClassName);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        if (!Attribute.class.isAssignableFrom(clz)) {
+            throw new ClassCastException("Found class that was not an instance of Attribute");
+        }
+        try {
+            return (Attribute<?>) clz.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    private Attribute<? extends Comparable<?>> decode(String fieldName, EncodedAttribute encoded) {
+        Attribute<? extends Comparable<?>> attr = newAttribute(encoded.className);
+        
+        // the input is limited to the end of the attribute so that a corrupt attribute cannot read into the next one
+        int end = encoded.offset + encoded.length;
+        Input input = new Input(buffer, 0, end);
+        input.skip(encoded.offset);
+        attr.read(kryo, input);
+        if (input.position() != end) {
+            throw new KryoException("Attribute " + fieldName + " was not fully decoded");
+        }
+        return attr;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Attribute<? extends Comparable<?>> decoded(Map.Entry<String,Object> entry) {
+        Object value = entry.getValue();
+        if (value instanceof EncodedAttribute) {
+            Attribute<? extends Comparable<?>> attr = decode(entry.getKey(), (EncodedAttribute) value);
+            entry.setValue(attr);
+            return attr;
+        }
+        return (Attribute<? extends Comparable<?>>) value;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public Attribute<? extends Comparable<?>> get(Object key) {
+        Object value = attributes.get(key);
+        if (value instanceof EncodedAttribute) {
+            String fieldName = (String) key;
+            Attribute<? extends Comparable<?>> attr = decode(fieldName, (EncodedAttribute) value);
+            attributes.put(fieldName, attr);
+            return attr;
+        }
+        return (Attribute<? extends Comparable<?>>) value;
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return attributes.containsKey(key);
+    }
+    
+    @Override
+    public Attribute<? extends Comparable<?>> put(String key, Attribute<? extends Comparable<?>> value) {
+        Attribute<? extends Comparable<?>> previous = get(key);
+        attributes.put(key, value);
+        return previous;
+    }
+    
+    @Override
+    public Attribute<? extends Comparable<?>> remove(Object key) {
+        Attribute<? extends Comparable<?>> previous = get(key);
+        attributes.remove(key);
+        return previous;
+    }
+    
+    @Override
+    public int size() {
+        return attributes.size();
+    }
+    
+    @Override
+    public void clear() {
+        attributes.clear();
+    }
+    
+    @Override
+    public Set<Entry<String,Attribute<? extends Comparable<?>>>> entrySet() {
+        return new AbstractSet<Entry<String,Attribute<? extends Comparable<?>>>>() {
+            @Override
+            public Iterator<Entry<String,Attribute<? extends Comparable<?>>>> iterator() {
+                final Iterator<Entry<String,Object>> it = attributes.entrySet().iterator();
+                return new Iterator<Entry<String,Attribute<? extends Comparable<?>>>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+                    
+                    @Override
+                    public Entry<String,Attribute<? extends Comparable<?>>> next() {
+                        return new LazyEntry(it.next());
+                    }
+                    
+                    @Override
+                    public void remove() {
+                        it.remove();
+                    }
+                };
+            }
+            
+            @Override
+            public int size() {
+                return attributes.size();
+            }
+        };
+    }
+    
+    private class LazyEntry implements Map.Entry<String,Attribute<? extends Comparable<?>>> {
+        private final Map.Entry<String,Object> entry;
+        
+        private LazyEntry(Map.Entry<String,Object> entry) {
+            this.entry = entry;
+        }
+        
+        @Override
+        public String getKey() {
+            return entry.getKey();
+        }
+        
+        @Override
+        public Attribute<? extends Comparable<?>> getValue() {
+            return decoded(entry);
+        }
+        
+        @Override
+        public Attribute<? extends Comparable<?>> setValue(Attribute<? extends Comparable<?>> value) {
+            Attribute<? extends Comparable<?>> previous = decoded(entry);
+            entry.setValue(value);
+            return previous;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?,?> other = (Map.Entry<?,?>) o;
+            return Objects.equal(getKey(), other.getKey()) && Objects.equal(getValue(), other.getValue());
+        }
+        
+        @Override
+        public int hashCode() {
+            Attribute<?> value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+        
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+    
+    /**
+     * The buffer is not serialized, so the attributes are decoded into a regular map when the document is java serialized
+     */
+    private Object writeReplace() {
+        return new TreeMap<>(this);
+    }
+}
@@ -0,0 +1,254 @@
+package datawave.query.attributes;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * A map of field names to values stored as a pair of sorted arrays. Iteration is in natural key order, the same as a TreeMap, but without an entry object per
+ * mapping. Lookups are a binary search and inserts shift the arrays, which is cheap for the number of fields found in a document. Field names are interned so
+ * that documents share a single instance of each field name.
+ *
+ * @param <V>
+ *            the value type
+ */
+public class SortedArrayMap<V> extends AbstractMap<String,V> {
+    
+    private static final Interner<String> fieldNames = Interners.newWeakInterner();
+    private static final String[] EMPTY_KEYS = new String[0];
+    private static final Object[] EMPTY_VALUES = new Object[0];
+    private static final int INITIAL_CAPACITY = 8;
+    
+    private String[] keys = EMPTY_KEYS;
+    private Object[] values = EMPTY_VALUES;
+    private int size = 0;
+    private int modCount = 0;
+    
+    /**
+     * Get the shared instance of a field name
+     *
+     * @param fieldName
+     * @return the interned field name
+     */
+    public static String intern(String fieldName) {
+        return fieldNames.intern(fieldName);
+    }
+    
+    private int indexOf(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        String k = (String) key;
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            String midKey = keys[mid];
+            int comparison = (midKey == k ? 0 : midKey.compareTo(k));
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        int index = indexOf(key);
+        return (index >= 0 ? (V) values[index] : null);
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public V put(String key, V value) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        index = -(index + 1);
+        if (size == keys.length) {
+            int capacity = (size == 0 ? INITIAL_CAPACITY : size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        keys[index] = intern(key);
+        values[index] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+    
+    @Override
+    public V remove(Object key) {
+        int index = indexOf(key);
+        return (index >= 0 ? removeAt(index) : null);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private V removeAt(int index) {
+        V previous = (V) values[index];
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        modCount++;
+        return previous;
+    }
+    
+    @Override
+    public void clear() {
+        keys = EMPTY_KEYS;
+        values = EMPTY_VALUES;
+        size = 0;
+        modCount++;
+    }
+    
+    /**
+     * Release the unused capacity of the arrays
+     */
+    public void trimToSize() {
+        if (size < keys.length) {
+            keys = (size == 0 ? EMPTY_KEYS : Arrays.copyOf(keys, size));
+            values = (size == 0 ? EMPTY_VALUES : Arrays.copyOf(values, size));
+        }
+    }
+    
+    @Override
+    public Set<Entry<String,V>> entrySet() {
+        return new AbstractSet<Entry<String,V>>() {
+            @Override
+            public Iterator<Entry<String,V>> iterator() {
+                return new EntryIterator();
+            }
+            
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+    
+    private class ArrayEntry implements Map.Entry<String,V> {
+        private final int index;
+        private final int expectedModCount;
+        
+        private ArrayEntry(int index) {
+            this.index = index;
+            this.expectedModCount = modCount;
+        }
+        
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+        
+        @Override
+        public String getKey() {
+            checkForComodification();
+            return keys[index];
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public V getValue() {
+            checkForComodification();
+            return (V) values[index];
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public V setValue(V value) {
+            checkForComodification();
+            V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?,?> other = (Map.Entry<?,?>) o;
+            return Objects.equal(getKey(), other.getKey()) && Objects.equal(getValue(), other.getValue());
+        }
+        
+        @Override
+        public int hashCode() {
+            V value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+        
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+    
+    private class EntryIterator implements Iterator<Entry<String,V>> {
+        private int next = 0;
+        private int last = -1;
+        private int expectedModCount = modCount;
+        
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+        
+        @Override
+        public Entry<String,V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new ArrayEntry(last);
+        }
+        
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import datawave.core.iterators.FairTaskQueue;
 import datawave.data.type.NoOpType;
 import datawave.data.type.Type;
 import datawave.query.Constants;
@@ -20,6 +21,7 @@ import datawave.query.model.QueryModel;
 import datawave.query.tld.TLDQueryIterator;
 import datawave.query.util.CompositeNameAndIndex;
 import datawave.query.util.QueryStopwatch;
+import datawave.query.util.sortedset.LocalCacheBudget;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.QueryImpl;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
@@ -160,6 +162,10 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
     
     // Used to choose how "selective" a term is (indexStats)
     private double minSelectivity = -1.0;
+    // Used to order the terms of intersections by their estimated cardinality
+    private boolean useCardinalityCostModel = false;
+    // Used to delay terms which are this many times less selective than the most selective term of an intersection (0 disables)
+    private double maxIndexCardinalityRatio = 0.0;
     // Used to add the event datatype to the event as an event field.
     private boolean includeDataTypeAsField = false;
     
@@ -191,6 +197,8 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
     
     private boolean disableEvaluation = false;
     
+    private boolean compiledEvaluation = false;
+    
     protected boolean disableIndexOnlyDocuments = false;
     
     private boolean containsIndexOnlyTerms = false;
@@ -221,6 +229,8 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
     
     private long yieldThresholdMs = Long.MAX_VALUE;
     
+    private long maxResultBufferBytes = 0;
+    
     private String hdfsSiteConfigURLs = null;
     private String hdfsFileCompressionCodec = null;
     
@@ -229,6 +239,10 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
     private List<String> ivaratorCacheBaseURIs = null;
     private String ivaratorFstHdfsBaseURIs = null;
     private int ivaratorCacheBufferSize = 10000;
+    private boolean ivaratorOffHeapBuffer = false;
+    private String ivaratorLocalCacheDir = null;
+    private long ivaratorLocalCacheMaxSize = LocalCacheBudget.DEFAULT_MAX_BYTES;
+    private String ivaratorCacheFormat = null;
     private long ivaratorCacheScanPersistThreshold = 100000L;
     private long ivaratorCacheScanTimeout = 1000L * 60 * 60;
     
@@ -237,6 +251,9 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
     private int maxIvaratorSources = 33;
     private int maxEvaluationPipelines = 25;
     private int maxPipelineCachedResults = 25;
+    private boolean adaptiveEvaluationPipelines = false;
+    private int queryPriority = FairTaskQueue.DEFAULT_PRIORITY;
+    private boolean compactDocuments = false;
     
     private boolean expandAllTerms = false;
     
@@ -269,6 +286,9 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
      */
     protected int maxIndexBatchSize = 200;
     
+    private long indexLookupCacheTtlMs = 300000;
+    private long indexLookupCacheMaxBytes = 0;
+    
     protected boolean allTermsIndexOnly;
     
     protected String password;
@@ -891,6 +911,62 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.ivaratorCacheBufferSize = ivaratorCacheBufferSize;
     }
     
+    public String getIvaratorCacheFormat() {
+        return ivaratorCacheFormat;
+    }
+    
+    public void setIvaratorCacheFormat(String ivaratorCacheFormat) {
+        this.ivaratorCacheFormat = ivaratorCacheFormat;
+    }
+    
+    public long getIvaratorLocalCacheMaxSize() {
+        return ivaratorLocalCacheMaxSize;
+    }
+    
+    public void setIvaratorLocalCacheMaxSize(long ivaratorLocalCacheMaxSize) {
+        this.ivaratorLocalCacheMaxSize = ivaratorLocalCacheMaxSize;
+    }
+    
+    public String getIvaratorLocalCacheDir() {
+        return ivaratorLocalCacheDir;
+    }
+    
+    public void setIvaratorLocalCacheDir(String ivaratorLocalCacheDir) {
+        this.ivaratorLocalCacheDir = ivaratorLocalCacheDir;
+    }
+    
+    public boolean isIvaratorOffHeapBuffer() {
+        return ivaratorOffHeapBuffer;
+    }
+    
+    public void setIvaratorOffHeapBuffer(boolean ivaratorOffHeapBuffer) {
+        this.ivaratorOffHeapBuffer = ivaratorOffHeapBuffer;
+    }
+    
+    public long getMaxResultBufferBytes() {
+        return maxResultBufferBytes;
+    }
+    
+    public void setMaxResultBufferBytes(long maxResultBufferBytes) {
+        this.maxResultBufferBytes = maxResultBufferBytes;
+    }
+    
+    public long getIndexLookupCacheMaxBytes() {
+        return indexLookupCacheMaxBytes;
+    }
+    
+    public void setIndexLookupCacheMaxBytes(long indexLookupCacheMaxBytes) {
+        this.indexLookupCacheMaxBytes = indexLookupCacheMaxBytes;
+    }
+    
+    public long getIndexLookupCacheTtlMs() {
+        return indexLookupCacheTtlMs;
+    }
+    
+    public void setIndexLookupCacheTtlMs(long indexLookupCacheTtlMs) {
+        this.indexLookupCacheTtlMs = indexLookupCacheTtlMs;
+    }
+    
     public long getIvaratorCacheScanPersistThreshold() {
         return ivaratorCacheScanPersistThreshold;
     }
@@ -947,6 +1023,30 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.maxPipelineCachedResults = maxCachedResults;
     }
     
+    public boolean isAdaptiveEvaluationPipelines() {
+        return adaptiveEvaluationPipelines;
+    }
+    
+    public void setAdaptiveEvaluationPipelines(boolean adaptiveEvaluationPipelines) {
+        this.adaptiveEvaluationPipelines = adaptiveEvaluationPipelines;
+    }
+    
+    public int getQueryPriority() {
+        return queryPriority;
+    }
+    
+    public void setQueryPriority(int queryPriority) {
+        this.queryPriority = queryPriority;
+    }
+    
+    public boolean isCompactDocuments() {
+        return compactDocuments;
+    }
+    
+    public void setCompactDocuments(boolean compactDocuments) {
+        this.compactDocuments = compactDocuments;
+    }
+    
     public boolean isExpandAllTerms() {
         return expandAllTerms;
     }
@@ -1158,6 +1258,22 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.minSelectivity = minSelectivity;
     }
     
+    public boolean getUseCardinalityCostModel() {
+        return useCardinalityCostModel;
+    }
+    
+    public void setUseCardinalityCostModel(boolean useCardinalityCostModel) {
+        this.useCardinalityCostModel = useCardinalityCostModel;
+    }
+    
+    public double getMaxIndexCardinalityRatio() {
+        return maxIndexCardinalityRatio;
+    }
+    
+    public void setMaxIndexCardinalityRatio(double maxIndexCardinalityRatio) {
+        this.maxIndexCardinalityRatio = maxIndexCardinalityRatio;
+    }
+    
     /**
      * Checks for non-null, sane values for the configured values
      *
@@ -1257,6 +1373,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.disableEvaluation = disableEvaluation;
     }
     
+    public boolean isCompiledEvaluation() {
+        return compiledEvaluation;
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        this.compiledEvaluation = compiledEvaluation;
+    }
+    
     public boolean disableIndexOnlyDocuments() {
         return disableIndexOnlyDocuments;
     }
@@ -1514,6 +1638,8 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.setNonEventKeyPrefixes(null == copy.getNonEventKeyPrefixes() ? null : Sets.newHashSet(copy.getNonEventKeyPrefixes()));
         this.setUnevaluatedFields(null == copy.getUnevaluatedFields() ? null : Sets.newHashSet(copy.getUnevaluatedFields()));
         this.setMinSelectivity(copy.getMinSelectivity());
+        this.setUseCardinalityCostModel(copy.getUseCardinalityCostModel());
+        this.setMaxIndexCardinalityRatio(copy.getMaxIndexCardinalityRatio());
         
         this.setFilterMaskedValues(copy.getFilterMaskedValues());
         
@@ -1545,6 +1671,13 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.setIvaratorCacheBaseURIs(copy.getIvaratorCacheBaseURIs());
         this.setIvaratorFstHdfsBaseURIs(copy.getIvaratorFstHdfsBaseURIs());
         this.setIvaratorCacheBufferSize(copy.getIvaratorCacheBufferSize());
+        this.setIndexLookupCacheTtlMs(copy.getIndexLookupCacheTtlMs());
+        this.setIndexLookupCacheMaxBytes(copy.getIndexLookupCacheMaxBytes());
+        this.setMaxResultBufferBytes(copy.getMaxResultBufferBytes());
+        this.setIvaratorOffHeapBuffer(copy.isIvaratorOffHeapBuffer());
+        this.setIvaratorLocalCacheDir(copy.getIvaratorLocalCacheDir());
+        this.setIvaratorLocalCacheMaxSize(copy.getIvaratorLocalCacheMaxSize());
+        this.setIvaratorCacheFormat(copy.getIvaratorCacheFormat());
         this.setIvaratorCacheScanPersistThreshold(copy.getIvaratorCacheScanPersistThreshold());
         this.setIvaratorCacheScanTimeout(copy.getIvaratorCacheScanTimeout());
         
@@ -1553,11 +1686,15 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.setMaxIvaratorSources(copy.getMaxIvaratorSources());
         this.setMaxEvaluationPipelines(copy.getMaxEvaluationPipelines());
         this.setMaxPipelineCachedResults(copy.getMaxPipelineCachedResults());
+        this.setAdaptiveEvaluationPipelines(copy.isAdaptiveEvaluationPipelines());
+        this.setQueryPriority(copy.getQueryPriority());
+        this.setCompactDocuments(copy.isCompactDocuments());
         
         this.setYieldThresholdMs(copy.getYieldThresholdMs());
         
         this.setReducedResponse(copy.isReducedResponse());
         this.setDisableEvaluation(copy.isDisableEvaluation());
+        this.setCompiledEvaluation(copy.isCompiledEvaluation());
         this.setDisableIndexOnlyDocuments(copy.disableIndexOnlyDocuments());
         this.setHitList(copy.isHitList());
         this.setTypeMetadataInHdfs(copy.isTypeMetadataInHdfs());
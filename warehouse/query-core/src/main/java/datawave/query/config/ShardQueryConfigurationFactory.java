@@ -74,6 +74,8 @@ public class ShardQueryConfigurationFactory {
         config.setNonEventKeyPrefixes(Arrays.asList(datawave.util.StringUtils.split(configuredLogic.getNonEventKeyColFams(), Constants.PARAM_VALUE_SEP)));
         config.setUnevaluatedFields(configuredLogic.getUnevaluatedFields());
         config.setMinSelectivity(configuredLogic.getMinimumSelectivity());
+        config.setUseCardinalityCostModel(configuredLogic.getUseCardinalityCostModel());
+        config.setMaxIndexCardinalityRatio(configuredLogic.getMaxIndexCardinalityRatio());
         
         config.setFilterMaskedValues(configuredLogic.getFilterMaskedValues());
         
@@ -109,6 +111,13 @@ public class ShardQueryConfigurationFactory {
         config.setIvaratorCacheBaseURIs(configuredLogic.getIvaratorCacheBaseURIs());
         config.setIvaratorFstHdfsBaseURIs(configuredLogic.getIvaratorFstHdfsBaseURIs());
         config.setIvaratorCacheBufferSize(configuredLogic.getIvaratorCacheBufferSize());
+        config.setIndexLookupCacheTtlMs(configuredLogic.getIndexLookupCacheTtlMs());
+        config.setIndexLookupCacheMaxBytes(configuredLogic.getIndexLookupCacheMaxBytes());
+        config.setMaxResultBufferBytes(configuredLogic.getMaxResultBufferBytes());
+        config.setIvaratorOffHeapBuffer(configuredLogic.isIvaratorOffHeapBuffer());
+        config.setIvaratorLocalCacheDir(configuredLogic.getIvaratorLocalCacheDir());
+        config.setIvaratorLocalCacheMaxSize(configuredLogic.getIvaratorLocalCacheMaxSize());
+        config.setIvaratorCacheFormat(configuredLogic.getIvaratorCacheFormat());
         config.setIvaratorCacheScanPersistThreshold(configuredLogic.getIvaratorCacheScanPersistThreshold());
         config.setIvaratorCacheScanTimeout(configuredLogic.getIvaratorCacheScanTimeout());
         
@@ -117,9 +126,13 @@ public class ShardQueryConfigurationFactory {
         config.setMaxIvaratorSources(configuredLogic.getMaxIvaratorSources());
         config.setMaxEvaluationPipelines(configuredLogic.getMaxEvaluationPipelines());
         config.setMaxPipelineCachedResults(configuredLogic.getMaxPipelineCachedResults());
+        config.setAdaptiveEvaluationPipelines(configuredLogic.isAdaptiveEvaluationPipelines());
+        config.setQueryPriority(configuredLogic.getQueryPriority());
+        config.setCompactDocuments(configuredLogic.isCompactDocuments());
         
         config.setReducedResponse(configuredLogic.isReducedResponse());
         config.setDisableEvaluation(configuredLogic.isDisableEvaluation());
+        config.setCompiledEvaluation(configuredLogic.isCompiledEvaluation());
         config.setDisableIndexOnlyDocuments(configuredLogic.disableIndexOnlyDocuments());
         config.setHitList(configuredLogic.isHitList());
         config.setTypeMetadataInHdfs(configuredLogic.isTypeMetadataInHdfs());
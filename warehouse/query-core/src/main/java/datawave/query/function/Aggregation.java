@@ -30,6 +30,8 @@ public class Aggregation implements Function<Entry<DocumentData,Document>,Entry<
     
     protected boolean disableIndexOnlyDocuments = false;
     
+    protected boolean compactDocuments = false;
+    
     // Need to provide the mapping
     @SuppressWarnings("unused")
     private Aggregation() {}
@@ -58,7 +60,8 @@ public class Aggregation implements Function<Entry<DocumentData,Document>,Entry<
         
         // Only load attributes for this document that fall within the expected date range
         Document d = new Document(docData.getKey(), docData.getDocKeys(), Iterators.filter(docData.getData().iterator(), timeFilter.getKeyValueTimeFilter()),
-                        this.typeMetadata, this.compositeMetadata, this.includeGroupingContext, this.includeRecordId, this.attrFilter);
+                        this.typeMetadata, this.compositeMetadata, this.includeGroupingContext, this.includeRecordId, this.attrFilter, true,
+                        this.compactDocuments);
         
         if (log.isTraceEnabled()) {
             log.trace("disable index only docs? " + disableIndexOnlyDocuments + " , size is " + d.size());
@@ -77,4 +80,17 @@ public class Aggregation implements Function<Entry<DocumentData,Document>,Entry<
         return Maps.immutableEntry(origKey, d);
     }
     
+    public boolean isCompactDocuments() {
+        return compactDocuments;
+    }
+    
+    /**
+     * Build documents using the compact representation
+     * 
+     * @param compactDocuments
+     */
+    public void setCompactDocuments(boolean compactDocuments) {
+        this.compactDocuments = compactDocuments;
+    }
+    
 }
@@ -2,6 +2,7 @@ package datawave.query.function;
 
 import datawave.query.attributes.Attributes;
 import datawave.query.jexl.ArithmeticJexlEngines;
+import datawave.query.jexl.CompiledJexlScript;
 import datawave.query.jexl.DefaultArithmetic;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.security.ColumnVisibility;
@@ -31,11 +32,26 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
      */
     protected Script script;
     
+    /**
+     * The compiled form of the script, if using compiled evaluation
+     */
+    protected CompiledJexlScript compiledScript = null;
+    
     public JexlEvaluation(String query) {
         this(query, new DefaultArithmetic());
     }
     
     public JexlEvaluation(String query, JexlArithmetic arithmetic) {
+        this(query, arithmetic, false);
+    }
+    
+    /**
+     * @param query
+     * @param arithmetic
+     * @param compiled
+     *            if true, then the query is compiled once into a tree of evaluation nodes instead of interpreting the script for each document
+     */
+    public JexlEvaluation(String query, JexlArithmetic arithmetic, boolean compiled) {
         this.query = query;
         this.arithmetic = arithmetic;
         
@@ -44,6 +60,18 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         
         // Evaluate the JexlContext against the Script
         this.script = this.engine.createScript(query);
+        
+        if (compiled) {
+            this.compiledScript = this.engine.createCompiledScript(query);
+            if (log.isDebugEnabled()) {
+                log.debug("Compiled " + query + " with " + compiledScript.getCompiledNodes() + " compiled and " + compiledScript.getInterpretedNodes()
+                                + " interpreted nodes");
+            }
+        }
+    }
+    
+    public boolean isCompiled() {
+        return compiledScript != null;
     }
     
     public JexlArithmetic getArithmetic() {
@@ -65,7 +93,7 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
     @Override
     public boolean apply(Tuple3<Key,Document,DatawaveJexlContext> input) {
         
-        Object o = script.execute(input.third());
+        Object o = (compiledScript != null ? compiledScript.execute(input.third()) : script.execute(input.third()));
         
         if (log.isTraceEnabled()) {
             log.trace("Evaluation of " + query + " against " + input.third() + " returned " + o);
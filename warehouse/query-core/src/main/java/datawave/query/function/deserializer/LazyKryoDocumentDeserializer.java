@@ -0,0 +1,77 @@
+package datawave.query.function.deserializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Map.Entry;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.Attribute;
+import datawave.query.attributes.Document;
+import datawave.query.function.KryoCVAwareSerializableSerializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Transform Kryo-serialized bytes written in the indexed format back into a Document without decoding the attributes. The attributes are decoded from the
+ * serialized bytes the first time they are accessed, see {@link Document#readIndexed(Kryo, Input)}. Uncompressed values are read in place, compressed values
+ * are inflated into a buffer first.
+ *
+ */
+public class LazyKryoDocumentDeserializer extends DocumentDeserializer implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    final transient Kryo kryo = new Kryo();
+    
+    public LazyKryoDocumentDeserializer() {
+        kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(true));
+    }
+    
+    @Override
+    public Entry<Key,Document> apply(Entry<Key,Value> from) {
+        byte[] data = from.getValue().get();
+        
+        Document document;
+        if (DocumentSerialization.NONE == DocumentSerialization.readHeader(data)) {
+            document = deserialize(data, DocumentSerialization.HEADER_LENGTH);
+        } else {
+            document = deserialize(DocumentSerialization.consumeHeader(data));
+        }
+        
+        return Maps.immutableEntry(from.getKey(), document);
+    }
+    
+    @Override
+    public Document deserialize(InputStream data) {
+        try {
+            return deserialize(ByteStreams.toByteArray(data), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read serialized Document", e);
+        }
+    }
+    
+    /**
+     * Deserialize a document from a buffer. The buffer is referenced by the document until all of its attributes have been decoded, so it must not be reused.
+     *
+     * @param data
+     * @param offset
+     *            the offset of the serialized document
+     * @return the document
+     */
+    public Document deserialize(byte[] data, int offset) {
+        Input input = new Input(data);
+        input.skip(offset);
+        
+        Document document = new Document();
+        document.readIndexed(kryo, input);
+        
+        return document;
+    }
+    
+}
@@ -48,11 +48,7 @@ public abstract class DocumentSerializer implements Function<Entry<Key,Document>
             s = Trace.start("Document Serialization");
             s.data("Serialization type", this.concreteName);
             
-            byte[] bytes = serialize(from.getValue());
-            
-            s.data("Raw size", Integer.toString(bytes.length));
-            
-            Value v = getValue(bytes, s);
+            Value v = serializeValue(from.getValue(), s);
             
             return Maps.immutableEntry(from.getKey(), v);
         } finally {
@@ -64,6 +60,22 @@ public abstract class DocumentSerializer implements Function<Entry<Key,Document>
     
     public abstract byte[] serialize(Document d);
     
+    /**
+     * Serialize the document into a value including the header. Serializers that can write the header and the document into a single buffer may override this
+     * to avoid copying the serialized document.
+     *
+     * @param document
+     * @param span
+     * @return the value
+     */
+    protected Value serializeValue(Document document, Span span) {
+        byte[] bytes = serialize(document);
+        
+        span.data("Raw size", Integer.toString(bytes.length));
+        
+        return getValue(bytes, span);
+    }
+    
     protected Value getValue(byte[] document, Span span) {
         byte[] header;
         byte[] dataToWrite;
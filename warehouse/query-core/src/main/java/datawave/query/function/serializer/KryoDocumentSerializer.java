@@ -1,11 +1,14 @@
 package datawave.query.function.serializer;
 
-import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 
+import datawave.query.DocumentSerialization;
 import datawave.query.attributes.Attribute;
 import datawave.query.attributes.Document;
 import datawave.query.function.KryoCVAwareSerializableSerializer;
 
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.trace.instrument.Span;
 import org.apache.log4j.Logger;
 
 import com.esotericsoftware.kryo.Kryo;
@@ -14,13 +17,22 @@ import com.esotericsoftware.kryo.io.Output;
 /**
  * Transform the Document into a Kryo-serialized version. Ordering of Attributes is <b>not</b> guaranteed across serialization.
  *
- * 
+ * The document is written directly into an output buffer that is reused across documents. When the document does not need to be compressed the header is
+ * written into the same buffer so that the value is created with a single copy. When indexed, the document is written with
+ * {@link Document#writeIndexed(Kryo, Output, Boolean)} so that it can be decoded lazily by the
+ * {@link datawave.query.function.deserializer.LazyKryoDocumentDeserializer}.
  *
  */
 public class KryoDocumentSerializer extends DocumentSerializer {
     private static final Logger log = Logger.getLogger(KryoDocumentSerializer.class);
+    
+    public static final int INITIAL_BUFFER_SIZE = 4096;
+    // a buffer that has grown beyond this size is released after the document is serialized
+    public static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024 * 4;
+    
     final Kryo kryo = new Kryo();
-    final ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+    final boolean indexed;
+    Output output = newOutput();
     
     public KryoDocumentSerializer() {
         this(false, false);
@@ -31,21 +43,71 @@ public class KryoDocumentSerializer extends DocumentSerializer {
     }
     
     public KryoDocumentSerializer(boolean reducedResponse, boolean compress) {
+        this(reducedResponse, compress, false);
+    }
+    
+    public KryoDocumentSerializer(boolean reducedResponse, boolean compress, boolean indexed) {
         super(reducedResponse, compress);
+        this.indexed = indexed;
         kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(reducedResponse));
     }
     
+    private static Output newOutput() {
+        return new Output(INITIAL_BUFFER_SIZE, -1);
+    }
+    
+    public boolean isIndexed() {
+        return indexed;
+    }
+    
+    private void write(Document doc) {
+        if (indexed) {
+            doc.writeIndexed(kryo, output, reducedResponse);
+        } else {
+            kryo.writeObject(output, doc);
+        }
+    }
+    
+    private void releaseOutput() {
+        if (output.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+            if (log.isDebugEnabled()) {
+                log.debug("Releasing serialization buffer of " + output.getBuffer().length + " bytes");
+            }
+            output = newOutput();
+        }
+    }
+    
     @Override
     public byte[] serialize(Document doc) {
-        baos.reset();
-        
-        Output output = new Output(baos);
-        
-        kryo.writeObject(output, doc);
-        
-        output.close();
-        
-        return baos.toByteArray();
+        output.clear();
+        try {
+            write(doc);
+            return output.toBytes();
+        } finally {
+            releaseOutput();
+        }
+    }
+    
+    @Override
+    protected Value serializeValue(Document doc, Span span) {
+        byte[] header = DocumentSerialization.getHeader();
+        output.clear();
+        try {
+            output.writeBytes(header);
+            write(doc);
+            
+            int size = output.position() - header.length;
+            span.data("Raw size", Integer.toString(size));
+            
+            if (DocumentSerialization.NONE != this.compression && size > minCompressionSize) {
+                return getValue(Arrays.copyOfRange(output.getBuffer(), header.length, output.position()), span);
+            }
+            
+            // the header is already in place, so the buffer can be used as is
+            return new Value(output.toBytes(), false);
+        } finally {
+            releaseOutput();
+        }
     }
     
 }
@@ -0,0 +1,279 @@
+package datawave.query.index.lookup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import datawave.util.KeyValueSizeEstimator;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+/**
+ * A cache of global index lookups that is shared by the queries running in this JVM. A lookup is identified by the index table, the authorizations of the user,
+ * the range scanned (which includes the term, field and date range), the iterators applied to the scan (which include the datatype filter and uid options), and
+ * the kind of scanner used along with the shards per day threshold it collapses days with. The cached value is the list of entries returned by the scan, so a
+ * hit replays the entries through a new {@link EntryParser} without scanning the index. Only exact matches of the authorizations are shared.
+ *
+ * The cache is bounded by the estimated size of the cached entries and entries expire a fixed time after they are written, which bounds how stale a lookup
+ * can be with respect to newly ingested data. A single lookup larger than a sixteenth of the cache is not cached. The limits of the shared cache follow the
+ * settings of the query most recently configured with different ones, in which case the cached lookups are dropped.
+ */
+public class GlobalIndexLookupCache {
+    
+    private static final Logger log = Logger.getLogger(GlobalIndexLookupCache.class);
+    
+    // the cache shared by the queries in this JVM
+    private static GlobalIndexLookupCache instance = null;
+    
+    private volatile long maxBytes;
+    private volatile long maxLookupBytes;
+    private volatile long ttlMillis;
+    private volatile Cache<LookupKey,List<Entry<Key,Value>>> cache;
+    // the stats of the caches replaced when the limits were changed
+    private CacheStats previousStats = new CacheStats(0, 0, 0, 0, 0, 0);
+    private final AtomicLong uncacheable = new AtomicLong(0);
+    
+    /**
+     * The kind of scanner used for a lookup. The range stream scanners collapse the days of their output according to the shards per day threshold, while the
+     * batch scanner returns the entries as they are.
+     */
+    public enum ScannerType {
+        RANGE_STREAM, CONDENSED_RANGE_STREAM, BATCH
+    }
+    
+    /**
+     * Identifies a global index lookup
+     */
+    public static class LookupKey {
+        private final String table;
+        private final Set<String> auths;
+        private final Range range;
+        private final List<String> iterators;
+        private final ScannerType scannerType;
+        private final int shardsPerDayThreshold;
+        private final int hashCode;
+        
+        /**
+         * @param table
+         * @param auths
+         * @param range
+         * @param iterators
+         * @param scannerType
+         * @param shardsPerDayThreshold
+         *            the threshold used by the range stream scanners, which is ignored for the batch scanner
+         */
+        public LookupKey(String table, Collection<Authorizations> auths, Range range, Collection<IteratorSetting> iterators, ScannerType scannerType,
+                        int shardsPerDayThreshold) {
+            this.table = table;
+            this.auths = new TreeSet<>();
+            for (Authorizations authorizations : auths) {
+                this.auths.add(authorizations.toString());
+            }
+            this.range = range;
+            this.iterators = new ArrayList<>(iterators.size());
+            for (IteratorSetting setting : iterators) {
+                this.iterators.add(setting.getPriority() + ":" + setting.getIteratorClass() + ":" + new TreeMap<>(setting.getOptions()));
+            }
+            this.scannerType = scannerType;
+            this.shardsPerDayThreshold = (scannerType == ScannerType.BATCH ? 0 : shardsPerDayThreshold);
+            this.hashCode = Objects.hashCode(table, this.auths, range, this.iterators, scannerType, this.shardsPerDayThreshold);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LookupKey)) {
+                return false;
+            }
+            LookupKey other = (LookupKey) o;
+            return hashCode == other.hashCode && table.equals(other.table) && range.equals(other.range) && auths.equals(other.auths)
+                            && iterators.equals(other.iterators) && scannerType == other.scannerType && shardsPerDayThreshold == other.shardsPerDayThreshold;
+        }
+        
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+        
+        @Override
+        public String toString() {
+            return table + " " + range + " " + iterators + " " + scannerType + " " + shardsPerDayThreshold;
+        }
+    }
+    
+    /**
+     * Get the shared cache, creating it on first use. If the size or expiration differ from those of the shared cache, then its limits are changed.
+     *
+     * @param maxBytes
+     *            the maximum estimated size of the cached lookups
+     * @param ttlMillis
+     *            the time after which a cached lookup expires
+     * @return the shared cache
+     */
+    public static synchronized GlobalIndexLookupCache getInstance(long maxBytes, long ttlMillis) {
+        if (null == instance) {
+            instance = new GlobalIndexLookupCache(maxBytes, ttlMillis);
+        } else if (instance.getMaxBytes() != maxBytes || instance.getTtlMillis() != ttlMillis) {
+            log.warn("Changing the global index lookup cache from " + instance.getMaxBytes() + ":" + instance.getTtlMillis() + " to " + maxBytes + ":"
+                            + ttlMillis + ", query logics should be configured with the same settings");
+            instance.setLimits(maxBytes, ttlMillis);
+        }
+        return instance;
+    }
+    
+    public GlobalIndexLookupCache(long maxBytes, long ttlMillis) {
+        setLimits(maxBytes, ttlMillis);
+    }
+    
+    /**
+     * Change the size and expiration of this cache. The cached lookups are dropped as their expiration cannot be carried over.
+     *
+     * @param maxBytes
+     * @param ttlMillis
+     */
+    public synchronized void setLimits(long maxBytes, long ttlMillis) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The cache size must be positive: " + maxBytes);
+        }
+        CacheBuilder<Object,Object> builder = CacheBuilder.newBuilder().maximumWeight(maxBytes).recordStats();
+        if (ttlMillis > 0) {
+            builder.expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS);
+        }
+        Cache<LookupKey,List<Entry<Key,Value>>> previous = this.cache;
+        this.cache = builder.weigher(new Weigher<LookupKey,List<Entry<Key,Value>>>() {
+            @Override
+            public int weigh(LookupKey key, List<Entry<Key,Value>> entries) {
+                return (int) Math.min(sizeOf(entries), Integer.MAX_VALUE);
+            }
+        }).build();
+        this.maxBytes = maxBytes;
+        this.maxLookupBytes = Math.min(maxBytes / 16, Integer.MAX_VALUE);
+        this.ttlMillis = ttlMillis;
+        if (null != previous) {
+            previousStats = previousStats.plus(previous.stats());
+            previous.invalidateAll();
+        }
+    }
+    
+    public static long sizeOf(Entry<Key,Value> entry) {
+        return KeyValueSizeEstimator.sizeOf(entry.getKey(), entry.getValue());
+    }
+    
+    public static long sizeOf(List<Entry<Key,Value>> entries) {
+        long size = 0;
+        for (Entry<Key,Value> entry : entries) {
+            size += sizeOf(entry);
+        }
+        return size;
+    }
+    
+    /**
+     * Get the entries of a cached lookup
+     *
+     * @param key
+     * @return the entries, or null if the lookup is not cached
+     */
+    public List<Entry<Key,Value>> get(LookupKey key) {
+        return cache.getIfPresent(key);
+    }
+    
+    /**
+     * Wrap the entries returned by an index scan so that the lookup is cached once the entries have been fully consumed. Lookups that are abandoned before the
+     * end, or that are too large, are not cached.
+     *
+     * @param key
+     * @param entries
+     * @return an iterator over the same entries
+     */
+    public Iterator<Entry<Key,Value>> caching(final LookupKey key, final Iterator<Entry<Key,Value>> entries) {
+        return new Iterator<Entry<Key,Value>>() {
+            private List<Entry<Key,Value>> buffer = new ArrayList<>();
+            private long size = 0;
+            
+            @Override
+            public boolean hasNext() {
+                boolean hasNext = entries.hasNext();
+                if (!hasNext && null != buffer) {
+                    cache.put(key, Collections.unmodifiableList(buffer));
+                    buffer = null;
+                }
+                return hasNext;
+            }
+            
+            @Override
+            public Entry<Key,Value> next() {
+                Entry<Key,Value> entry = entries.next();
+                if (null != buffer) {
+                    size += sizeOf(entry);
+                    if (size > maxLookupBytes) {
+                        uncacheable.incrementAndGet();
+                        buffer = null;
+                    } else {
+                        buffer.add(entry);
+                    }
+                }
+                return entry;
+            }
+            
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    /**
+     * @return the stats of this cache, including those from before its limits were last changed
+     */
+    public synchronized CacheStats getStats() {
+        return previousStats.plus(cache.stats());
+    }
+    
+    /**
+     * @return the number of lookups that were too large to be cached
+     */
+    public long getUncacheableCount() {
+        return uncacheable.get();
+    }
+    
+    public long size() {
+        return cache.size();
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+    
+    @Override
+    public String toString() {
+        CacheStats stats = getStats();
+        return "lookups=" + cache.size() + ", hits=" + stats.hitCount() + ", misses=" + stats.missCount() + ", hitRate="
+                        + String.format("%.3f", stats.hitRate()) + ", evictions=" + stats.evictionCount() + ", uncacheable=" + uncacheable.get();
+    }
+}
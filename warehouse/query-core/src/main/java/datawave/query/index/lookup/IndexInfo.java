@@ -22,7 +22,6 @@ import com.google.common.base.Objects;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSortedSet;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
@@ -55,7 +54,7 @@ public class IndexInfo implements Writable, UidIntersector {
     }
     
     public IndexInfo(Iterable<?> ids) {
-        Set<IndexMatch> matches = Sets.newTreeSet();
+        List<IndexMatch> matches = Lists.newArrayList();
         for (Object id : ids) {
             if (id instanceof IndexMatch) {
                 matches.add((IndexMatch) id);
@@ -339,34 +338,10 @@ public class IndexInfo implements Writable, UidIntersector {
             merged.count = count + o.count;
             merged.uids = ImmutableSortedSet.of();
         } else {
-            HashMultimap<String,JexlNode> ids = HashMultimap.create();
-            
             /**
-             * Concatenate all UIDs, and merge the individual nodes
+             * Merge all UIDs, and merge the individual nodes
              */
-            for (IndexMatch match : Iterables.concat(uids, o.uids)) {
-                
-                JexlNode newNode = match.getNode();
-                if (null != newNode)
-                    ids.put(match.uid, newNode);
-            }
-            
-            Set<IndexMatch> matches = Sets.newHashSet();
-            
-            for (String uid : ids.keySet()) {
-                
-                Set<JexlNode> nodes = Sets.newHashSet(ids.get(uid));
-                if (nodes.size() > 0) {
-                    nodes.addAll(delayedNodes);
-                    
-                    IndexMatch currentMatch = new IndexMatch(nodes, uid, IndexMatchType.OR);
-                    
-                    matches.add(currentMatch);
-                }
-                
-            }
-            
-            merged.uids = ImmutableSortedSet.copyOf(matches);
+            merged.uids = SortedUidSets.union(uids, o.uids, delayedNodes);
             merged.count = merged.uids.size();
             
         }
@@ -580,34 +555,18 @@ public class IndexInfo implements Writable, UidIntersector {
                      */
                     merged.count = count;
                     
-                    HashMultimap<String,JexlNode> ids = HashMultimap.create();
-                    for (IndexMatch match : uids) {
-                        JexlNode newNode = match.getNode();
-                        if (null != newNode)
-                            ids.put(match.uid, newNode);
-                    }
-                    
                     List<JexlNode> ourDelayedNodes = Lists.newArrayList();
                     ourDelayedNodes.addAll(delayedNodes);
                     // we may actually have no node on o
                     if (null != o.getNode())
                         ourDelayedNodes.add(o.getNode());
                     
-                    Set<IndexMatch> matches = buildNodeList(ids, IndexMatchType.AND, true, ourDelayedNodes);
-                    
-                    merged.uids = ImmutableSortedSet.copyOf(matches);
+                    merged.uids = SortedUidSets.and(uids, ourDelayedNodes);
                     merged.count = merged.uids.size();
                 } else if (o.onlyEvents()) {
                     /**
                      * E) We have LARGE AND SMALL
                      */
-                    HashMultimap<String,JexlNode> ids = HashMultimap.create();
-                    for (IndexMatch match : o.uids) {
-                        JexlNode newNode = match.getNode();
-                        if (null != newNode)
-                            ids.put(match.uid, newNode);
-                    }
-                    
                     List<JexlNode> ourDelayedNodes = Lists.newArrayList();
                     ourDelayedNodes.addAll(delayedNodes);
                     // possible, depending on how query is processed
@@ -615,9 +574,7 @@ public class IndexInfo implements Writable, UidIntersector {
                     if (null != getNode())
                         ourDelayedNodes.add(getNode());
                     
-                    Set<IndexMatch> matches = buildNodeList(ids, IndexMatchType.AND, true, ourDelayedNodes);
-                    
-                    merged.uids = ImmutableSortedSet.copyOf(matches);
+                    merged.uids = SortedUidSets.and(o.uids, ourDelayedNodes);
                     merged.count = merged.uids.size();
                 } else {
                     
@@ -639,16 +596,8 @@ public class IndexInfo implements Writable, UidIntersector {
     
     @Override
     public Set<IndexMatch> intersect(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
-        HashMultimap<String,JexlNode> ids = HashMultimap.create();
-        for (IndexMatch match : Iterables.concat(uids1, uids2)) {
-            JexlNode newNode = match.getNode();
-            if (null != newNode)
-                ids.put(match.uid, newNode);
-        }
-        
-        // here is where we actually do the merge of the ids: only those ids with more than one JexlNode will
-        // make it through the buildNodeList method.
-        return buildNodeList(ids, IndexMatchType.AND, false, delayedNodes);
+        // only those ids with a distinct JexlNode in both sets make it through the merge
+        return SortedUidSets.intersect(uids1, uids2, delayedNodes);
     }
     
     protected Set<IndexMatch> buildNodeList(HashMultimap<String,JexlNode> ids, IndexMatchType type, boolean allowsDelayed, List<JexlNode> delayedNodes) {
@@ -16,6 +16,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
@@ -23,6 +24,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.IteratorSetting;
@@ -145,6 +147,12 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
     
     protected Set<String> indexOnlyFields = Sets.newHashSet();
     
+    protected GlobalIndexLookupCache lookupCache = null;
+    
+    // the index lookups of this query which were and were not found in the lookup cache
+    protected final AtomicLong lookupCacheHits = new AtomicLong(0);
+    protected final AtomicLong lookupCacheMisses = new AtomicLong(0);
+    
     public RangeStream(ShardQueryConfiguration config, ScannerFactory scanners, MetadataHelper metadataHelper) {
         this.config = config;
         this.scanners = scanners;
@@ -156,6 +164,9 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
         streamExecutor = new ThreadPoolExecutor(executeLookupMin, maxLookup, 100, TimeUnit.MILLISECONDS, runnables);
         fieldDataTypes = config.getQueryFieldsDatatypes();
         collapseUids = config.getCollapseUids();
+        if (config.getIndexLookupCacheMaxBytes() > 0) {
+            lookupCache = GlobalIndexLookupCache.getInstance(config.getIndexLookupCacheMaxBytes(), config.getIndexLookupCacheTtlMs());
+        }
         try {
             Set<String> ioFields = metadataHelper.getIndexOnlyFields(null);
             if (null != ioFields) {
@@ -202,6 +213,12 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
         
         ranges = (IndexStream) node.jjtAccept(this, null);
         
+        if (null != lookupCache) {
+            // the lookups are done while visiting, so the counts are complete here and are reported with the plan estimates in the query metrics
+            config.getPlanEstimates().put("indexLookupCacheHits", lookupCacheHits.get());
+            config.getPlanEstimates().put("indexLookupCacheMisses", lookupCacheMisses.get());
+        }
+        
         // Guards against the case of a very oddly formed JEXL query, e.g.
         // ("foo")
         if (null == ranges) {
@@ -230,6 +247,30 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
         return this;
     }
     
+    /**
+     * Get a lookup from the lookup cache, counting the hits and misses of this query
+     *
+     * @param lookupKey
+     * @return the cached entries, or null if not cached
+     */
+    protected List<Entry<Key,Value>> getCachedLookup(GlobalIndexLookupCache.LookupKey lookupKey) {
+        List<Entry<Key,Value>> cached = lookupCache.get(lookupKey);
+        if (null == cached) {
+            lookupCacheMisses.incrementAndGet();
+        } else {
+            lookupCacheHits.incrementAndGet();
+        }
+        return cached;
+    }
+    
+    public long getLookupCacheHits() {
+        return lookupCacheHits.get();
+    }
+    
+    public long getLookupCacheMisses() {
+        return lookupCacheMisses.get();
+    }
+    
     /**
      * 
      */
@@ -461,8 +502,11 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
                 Iterator<Tuple2<String,IndexInfo>> itr = null;
                 int stackStart = config.getBaseIteratorPriority();
                 
+                final Range range = rangeForTerm(literal, fieldName, config);
+                final EntryParser parser = new EntryParser(node, fieldName, literal, indexOnlyFields);
+                final IteratorSetting dataTypeFilter = makeDataTypeFilter(config, stackStart++);
+                
                 if (limitScanners) {
-                    RangeStreamScanner scanSession = null;
                     
                     // configuration class
                     Class<? extends SortedKeyValueIterator<Key,Value>> iterClazz = createUidsIteratorClass;
@@ -473,25 +517,8 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
                         if (createUidsIteratorClass == CreateTLDUidsIterator.class) {
                             condensedTld = true;
                         }
-                        scanSession = scanners.newCondensedRangeScanner(config.getIndexTableName(), config.getAuthorizations(), config.getQuery(),
-                                        config.getShardsPerDayThreshold());
-                        
-                    } else {
-                        scanSession = scanners.newRangeScanner(config.getIndexTableName(), config.getAuthorizations(), config.getQuery(),
-                                        config.getShardsPerDayThreshold());
                     }
                     
-                    scanSession.setMaxResults(config.getMaxIndexBatchSize());
-                    
-                    scanSession.setExecutor(streamExecutor);
-                    
-                    if (log.isTraceEnabled()) {
-                        log.trace("Provided new object " + scanSession.hashCode());
-                    }
-                    SessionOptions options = new SessionOptions();
-                    options.fetchColumnFamily(new Text(fieldName));
-                    options.addScanIterator(makeDataTypeFilter(config, stackStart++));
-                    
                     final IteratorSetting uidSetting = new IteratorSetting(stackStart++, iterClazz);
                     
                     if (setCondenseUids) {
@@ -505,28 +532,83 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
                     }
                     uidSetting.addOption(CreateUidsIterator.COLLAPSE_UIDS, Boolean.valueOf(config.getCollapseUids()).toString());
                     
-                    options.addScanIterator(uidSetting);
-                    StringBuilder queryString = new StringBuilder(fieldName);
-                    queryString.append("=='").append(literal).append("'");
-                    options.addScanIterator(QueryScannerHelper.getQueryInfoIterator(config.getQuery(), false, queryString.toString()));
-                    
-                    scanSession.setRanges(Collections.singleton(rangeForTerm(literal, fieldName, config))).setOptions(options);
+                    GlobalIndexLookupCache.LookupKey lookupKey = null;
+                    List<Entry<Key,Value>> cached = null;
+                    if (null != lookupCache) {
+                        lookupKey = new GlobalIndexLookupCache.LookupKey(config.getIndexTableName(), config.getAuthorizations(), range, Arrays.asList(
+                                        dataTypeFilter, uidSetting), (setCondenseUids ? GlobalIndexLookupCache.ScannerType.CONDENSED_RANGE_STREAM
+                                        : GlobalIndexLookupCache.ScannerType.RANGE_STREAM), config.getShardsPerDayThreshold());
+                        cached = getCachedLookup(lookupKey);
+                    }
                     
-                    itr = Iterators.transform(scanSession, new EntryParser(node, fieldName, literal, indexOnlyFields));
+                    if (null != cached) {
+                        if (log.isTraceEnabled()) {
+                            log.trace("Using cached index lookup for " + fieldName + ", literal= " + literal);
+                        }
+                        itr = Iterators.transform(cached.iterator(), parser);
+                    } else {
+                        RangeStreamScanner scanSession = null;
+                        if (setCondenseUids) {
+                            scanSession = scanners.newCondensedRangeScanner(config.getIndexTableName(), config.getAuthorizations(), config.getQuery(),
+                                            config.getShardsPerDayThreshold());
+                        } else {
+                            scanSession = scanners.newRangeScanner(config.getIndexTableName(), config.getAuthorizations(), config.getQuery(),
+                                            config.getShardsPerDayThreshold());
+                        }
+                        
+                        scanSession.setMaxResults(config.getMaxIndexBatchSize());
+                        
+                        scanSession.setExecutor(streamExecutor);
+                        
+                        if (log.isTraceEnabled()) {
+                            log.trace("Provided new object " + scanSession.hashCode());
+                        }
+                        SessionOptions options = new SessionOptions();
+                        options.fetchColumnFamily(new Text(fieldName));
+                        options.addScanIterator(dataTypeFilter);
+                        options.addScanIterator(uidSetting);
+                        StringBuilder queryString = new StringBuilder(fieldName);
+                        queryString.append("=='").append(literal).append("'");
+                        options.addScanIterator(QueryScannerHelper.getQueryInfoIterator(config.getQuery(), false, queryString.toString()));
+                        
+                        scanSession.setRanges(Collections.singleton(range)).setOptions(options);
+                        
+                        Iterator<Entry<Key,Value>> entries = scanSession;
+                        if (null != lookupCache) {
+                            entries = lookupCache.caching(lookupKey, entries);
+                        }
+                        itr = Iterators.transform(entries, parser);
+                    }
                     
                 } else {
                     
-                    BatchScanner scanner = scanners.newScanner(config.getIndexTableName(), config.getAuthorizations(), 1, config.getQuery());
-                    
-                    scanner.setRanges(Collections.singleton(rangeForTerm(literal, fieldName, config)));
-                    scanner.fetchColumnFamily(new Text(fieldName));
-                    scanner.addScanIterator(makeDataTypeFilter(config, stackStart++));
-                    
                     final IteratorSetting uidSetting = new IteratorSetting(stackStart++, createUidsIteratorClass);
                     uidSetting.addOption(CreateUidsIterator.COLLAPSE_UIDS, Boolean.valueOf(config.getCollapseUids()).toString());
-                    scanner.addScanIterator(uidSetting);
                     
-                    itr = Iterators.transform(scanner.iterator(), new EntryParser(node, fieldName, literal, indexOnlyFields));
+                    GlobalIndexLookupCache.LookupKey lookupKey = null;
+                    List<Entry<Key,Value>> cached = null;
+                    if (null != lookupCache) {
+                        lookupKey = new GlobalIndexLookupCache.LookupKey(config.getIndexTableName(), config.getAuthorizations(), range, Arrays.asList(
+                                        dataTypeFilter, uidSetting), GlobalIndexLookupCache.ScannerType.BATCH, config.getShardsPerDayThreshold());
+                        cached = getCachedLookup(lookupKey);
+                    }
+                    
+                    if (null != cached) {
+                        itr = Iterators.transform(cached.iterator(), parser);
+                    } else {
+                        BatchScanner scanner = scanners.newScanner(config.getIndexTableName(), config.getAuthorizations(), 1, config.getQuery());
+                        
+                        scanner.setRanges(Collections.singleton(range));
+                        scanner.fetchColumnFamily(new Text(fieldName));
+                        scanner.addScanIterator(dataTypeFilter);
+                        scanner.addScanIterator(uidSetting);
+                        
+                        Iterator<Entry<Key,Value>> entries = scanner.iterator();
+                        if (null != lookupCache) {
+                            entries = lookupCache.caching(lookupKey, entries);
+                        }
+                        itr = Iterators.transform(entries, parser);
+                    }
                 }
                 
                 /**
@@ -1000,6 +1082,9 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
     
     @Override
     public void close() throws IOException {
+        if (null != lookupCache && log.isDebugEnabled()) {
+            log.debug("Global index lookup cache: " + lookupCache + ", this query: hits=" + lookupCacheHits.get() + ", misses=" + lookupCacheMisses.get());
+        }
         streamExecutor.shutdownNow();
         executor.shutdownNow();
     }
@@ -1008,6 +1093,11 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
         this.setCondenseUids = setCondenseUids;
     }
     
+    public RangeStream setLookupCache(GlobalIndexLookupCache lookupCache) {
+        this.lookupCache = lookupCache;
+        return this;
+    }
+    
     public void setCompressUids(boolean compressUidsInRangeStream) {
         this.compressUidsInRangeStream = compressUidsInRangeStream;
     }
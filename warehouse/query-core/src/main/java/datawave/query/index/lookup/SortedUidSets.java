@@ -0,0 +1,154 @@
+package datawave.query.index.lookup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+
+import org.apache.commons.jexl2.parser.JexlNode;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+
+/**
+ * Merge kernels for the uid sets held by {@link IndexInfo}. The uid sets are kept as {@link ImmutableSortedSet}s, which are backed by a sorted array, so two
+ * sets can be intersected or unioned with a single merge pass over both arrays. This avoids building the intermediate uid to node multimaps and hash sets,
+ * and the merged matches are produced in sorted order so that the result does not need to be sorted again.
+ *
+ * The matches produced are the same as those produced by hashing the uids: a uid in an intersection is kept when both sides have a distinct node for it, and
+ * a uid in a union is kept when either side has a node for it.
+ */
+public final class SortedUidSets {
+    
+    private SortedUidSets() {}
+    
+    /**
+     * Get the matches in uid order, without copying when the set is already sorted by uid
+     *
+     * @param uids
+     * @return the sorted matches
+     */
+    static List<IndexMatch> sorted(Set<IndexMatch> uids) {
+        if (uids instanceof ImmutableSortedSet && Ordering.natural().equals(((ImmutableSortedSet<IndexMatch>) uids).comparator())) {
+            return ((ImmutableSortedSet<IndexMatch>) uids).asList();
+        }
+        List<IndexMatch> sorted = new ArrayList<>(uids);
+        if (!(uids instanceof SortedSet) || null != ((SortedSet<IndexMatch>) uids).comparator()) {
+            Collections.sort(sorted);
+        }
+        return sorted;
+    }
+    
+    /**
+     * Intersect two uid sets. A uid is kept when both sets contain it with distinct nodes, and the kept match is the conjunction of those nodes and the delayed
+     * nodes.
+     *
+     * @param uids1
+     * @param uids2
+     * @param delayedNodes
+     * @return the intersected matches
+     */
+    public static ImmutableSortedSet<IndexMatch> intersect(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+        if (uids1.isEmpty() || uids2.isEmpty()) {
+            return ImmutableSortedSet.of();
+        }
+        List<IndexMatch> left = sorted(uids1);
+        List<IndexMatch> right = sorted(uids2);
+        List<IndexMatch> matches = new ArrayList<>(Math.min(left.size(), right.size()));
+        
+        int i = 0, j = 0;
+        while (i < left.size() && j < right.size()) {
+            IndexMatch match1 = left.get(i);
+            IndexMatch match2 = right.get(j);
+            int cmp = match1.uid.compareTo(match2.uid);
+            if (cmp < 0) {
+                i++;
+            } else if (cmp > 0) {
+                j++;
+            } else {
+                JexlNode node1 = match1.getNode();
+                JexlNode node2 = match2.getNode();
+                if (null != node1 && null != node2 && node1 != node2) {
+                    Set<JexlNode> nodes = Sets.newHashSetWithExpectedSize(2 + delayedNodes.size());
+                    nodes.add(node1);
+                    nodes.add(node2);
+                    nodes.addAll(delayedNodes);
+                    matches.add(new IndexMatch(nodes, match1.uid, IndexMatchType.AND));
+                }
+                i++;
+                j++;
+            }
+        }
+        return ImmutableSortedSet.copyOf(matches);
+    }
+    
+    /**
+     * Union two uid sets. A uid is kept when either set contains it with a node, and the kept match is the disjunction of those nodes and the delayed nodes.
+     *
+     * @param uids1
+     * @param uids2
+     * @param delayedNodes
+     * @return the unioned matches
+     */
+    public static ImmutableSortedSet<IndexMatch> union(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+        List<IndexMatch> left = sorted(uids1);
+        List<IndexMatch> right = sorted(uids2);
+        List<IndexMatch> matches = new ArrayList<>(left.size() + right.size());
+        
+        int i = 0, j = 0;
+        while (i < left.size() || j < right.size()) {
+            JexlNode node1 = null;
+            JexlNode node2 = null;
+            String uid;
+            if (j == right.size() || (i < left.size() && left.get(i).uid.compareTo(right.get(j).uid) < 0)) {
+                uid = left.get(i).uid;
+                node1 = left.get(i++).getNode();
+            } else if (i == left.size() || left.get(i).uid.compareTo(right.get(j).uid) > 0) {
+                uid = right.get(j).uid;
+                node2 = right.get(j++).getNode();
+            } else {
+                uid = left.get(i).uid;
+                node1 = left.get(i++).getNode();
+                node2 = right.get(j++).getNode();
+            }
+            if (null != node1 || null != node2) {
+                Set<JexlNode> nodes = Sets.newHashSetWithExpectedSize(2 + delayedNodes.size());
+                if (null != node1) {
+                    nodes.add(node1);
+                }
+                if (null != node2) {
+                    nodes.add(node2);
+                }
+                nodes.addAll(delayedNodes);
+                matches.add(new IndexMatch(nodes, uid, IndexMatchType.OR));
+            }
+        }
+        return ImmutableSortedSet.copyOf(matches);
+    }
+    
+    /**
+     * Conjoin each match in a uid set with the delayed nodes. Matches without a node are dropped, and nothing is kept when there are no delayed nodes.
+     *
+     * @param uids
+     * @param delayedNodes
+     * @return the conjoined matches
+     */
+    public static ImmutableSortedSet<IndexMatch> and(Set<IndexMatch> uids, List<JexlNode> delayedNodes) {
+        if (delayedNodes.isEmpty()) {
+            return ImmutableSortedSet.of();
+        }
+        List<IndexMatch> matches = new ArrayList<>(uids.size());
+        for (IndexMatch match : sorted(uids)) {
+            JexlNode node = match.getNode();
+            if (null != node) {
+                Set<JexlNode> nodes = Sets.newHashSetWithExpectedSize(1 + delayedNodes.size());
+                nodes.add(node);
+                nodes.addAll(delayedNodes);
+                matches.add(new IndexMatch(nodes, match.uid, IndexMatchType.AND));
+            }
+        }
+        return ImmutableSortedSet.copyOf(matches);
+    }
+}
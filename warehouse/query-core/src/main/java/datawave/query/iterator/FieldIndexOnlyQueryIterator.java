@@ -347,6 +347,9 @@ public class FieldIndexOnlyQueryIterator extends QueryIterator {
         if (this.getReturnType() == ReturnType.kryo) {
             // Serialize the Document using Kryo
             this.serializedDocuments = Iterators.transform(fieldIndexDocuments, new KryoDocumentSerializer(isReducedResponse(), isCompressResults()));
+        } else if (this.getReturnType() == ReturnType.lazykryo) {
+            // Serialize the Document using Kryo with length prefixed attributes so that it can be decoded lazily
+            this.serializedDocuments = Iterators.transform(fieldIndexDocuments, new KryoDocumentSerializer(isReducedResponse(), isCompressResults(), true));
         } else if (this.getReturnType() == ReturnType.writable) {
             // Use the Writable interface to serialize the Document
             this.serializedDocuments = Iterators.transform(fieldIndexDocuments, new WritableDocumentSerializer(isReducedResponse()));
@@ -18,6 +18,7 @@ import datawave.query.function.serializer.KryoDocumentSerializer;
 import datawave.query.function.serializer.ToStringDocumentSerializer;
 import datawave.query.function.serializer.WritableDocumentSerializer;
 import datawave.query.iterator.aggregation.DocumentData;
+import datawave.query.iterator.pipeline.AdaptivePipelineController;
 import datawave.query.iterator.pipeline.PipelineFactory;
 import datawave.query.iterator.pipeline.PipelineIterator;
 import datawave.query.iterator.profile.*;
@@ -318,6 +319,10 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
                             yield, yieldThresholdMs);
             
             pipelineIter.setCollectTimingDetails(collectTimingDetails);
+            pipelineIter.setSchedulingTag(getQueryId(), getQueryPriority());
+            if (isAdaptiveEvaluationPipelines()) {
+                pipelineIter.setPipelineController(new AdaptivePipelineController(getMaxEvaluationPipelines()));
+            }
             // TODO pipelineIter.setStatsdHostAndPort(statsdHostAndPort);
             
             pipelineIter.startPipeline();
@@ -624,6 +629,7 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
         CompositeMetadata compositeMetadata = new CompositeMetadata(this.getCompositeMetadata());
         Aggregation a = new Aggregation(this.getTimeFilter(), this.typeMetadataWithNonIndexed, compositeMetadata, this.isIncludeGroupingContext(),
                         this.includeRecordId, this.disableIndexOnlyDocuments(), this.getEvaluationFilter());
+        a.setCompactDocuments(this.isCompactDocuments());
         if (gatherTimingDetails()) {
             documents = Iterators.transform(sourceIterator, new EvaluationTrackingFunction<>(QuerySpan.Stage.Aggregation, trackingSpan, a));
         } else {
@@ -741,6 +747,9 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
         if (this.getReturnType() == ReturnType.kryo) {
             // Serialize the Document using Kryo
             return Iterators.transform(documents, new KryoDocumentSerializer(isReducedResponse(), isCompressResults()));
+        } else if (this.getReturnType() == ReturnType.lazykryo) {
+            // Serialize the Document using Kryo with length prefixed attributes so that it can be decoded lazily
+            return Iterators.transform(documents, new KryoDocumentSerializer(isReducedResponse(), isCompressResults(), true));
         } else if (this.getReturnType() == ReturnType.writable) {
             // Use the Writable interface to serialize the Document
             return Iterators.transform(documents, new WritableDocumentSerializer(isReducedResponse()));
@@ -816,16 +825,16 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
     protected JexlEvaluation getJexlEvaluation(NestedQueryIterator<Key> documentSource) {
         
         if (null == documentSource) {
-            return new JexlEvaluation(query, getArithmetic());
+            return new JexlEvaluation(query, getArithmetic(), isCompiledEvaluation());
         }
         JexlEvaluation jexlEvaluationFunction = null;
         NestedQuery<Key> nestedQuery = documentSource.getNestedQuery();
         if (null == nestedQuery) {
-            jexlEvaluationFunction = new JexlEvaluation(query, getArithmetic());
+            jexlEvaluationFunction = new JexlEvaluation(query, getArithmetic(), isCompiledEvaluation());
         } else {
             jexlEvaluationFunction = nestedQuery.getEvaluation();
             if (null == jexlEvaluationFunction) {
-                return new JexlEvaluation(query, getArithmetic());
+                return new JexlEvaluation(query, getArithmetic(), isCompiledEvaluation());
             }
         }
         return jexlEvaluationFunction;
@@ -866,10 +875,10 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
         if (fieldIndexSatisfiesQuery) {
             final KeyToDocumentData docMapper = new KeyToDocumentData(deepSourceCopy, this.myEnvironment, this.documentOptions, super.equality,
                             getEvaluationFilter(), this.includeHierarchyFields, this.includeHierarchyFields);
-            Iterator<Tuple2<Key,Document>> mappedDocuments = Iterators.transform(
-                            documents,
-                            new GetDocument(docMapper, new Aggregation(this.getTimeFilter(), typeMetadataWithNonIndexed, compositeMetadata, this
-                                            .isIncludeGroupingContext(), this.includeRecordId, this.disableIndexOnlyDocuments(), this.getEvaluationFilter())));
+            Aggregation aggregation = new Aggregation(this.getTimeFilter(), typeMetadataWithNonIndexed, compositeMetadata, this.isIncludeGroupingContext(),
+                            this.includeRecordId, this.disableIndexOnlyDocuments(), this.getEvaluationFilter());
+            aggregation.setCompactDocuments(this.isCompactDocuments());
+            Iterator<Tuple2<Key,Document>> mappedDocuments = Iterators.transform(documents, new GetDocument(docMapper, aggregation));
             
             Iterator<Entry<Key,Document>> retDocuments = Iterators.transform(mappedDocuments, new TupleToEntry<Key,Document>());
             
@@ -1156,7 +1165,9 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
                         .setHdfsFileSystem(this.getFileSystemCache()).setQueryLock(this.getQueryLock())
                         .setIvaratorCacheDirURIAlternatives(this.getIvaratorCacheBaseURIsAsList()).setQueryId(this.getQueryId()).setScanId(this.getScanId())
                         .setIvaratorCacheSubDirPrefix(this.getHdfsCacheSubDirPrefix()).setHdfsFileCompressionCodec(this.getHdfsFileCompressionCodec())
-                        .setIvaratorCacheBufferSize(this.getIvaratorCacheBufferSize())
+                        .setIvaratorCacheBufferSize(this.getIvaratorCacheBufferSize()).setIvaratorCacheFormat(this.getIvaratorCacheFormat())
+                        .setIvaratorLocalCacheDir(this.getIvaratorLocalCacheDir()).setIvaratorLocalCacheMaxSize(this.getIvaratorLocalCacheMaxSize())
+                        .setIvaratorOffHeapBuffer(this.isIvaratorOffHeapBuffer()).setQueryPriority(this.getQueryPriority())
                         .setIvaratorCacheScanPersistThreshold(this.getIvaratorCacheScanPersistThreshold())
                         .setIvaratorCacheScanTimeout(this.getIvaratorCacheScanTimeout()).setMaxRangeSplit(this.getMaxIndexRangeSplit())
                         .setIvaratorMaxOpenFiles(this.getIvaratorMaxOpenFiles()).setIvaratorSources(this, this.getMaxIvaratorSources())
@@ -15,6 +15,7 @@ import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 import datawave.core.iterators.ColumnRangeIterator;
 import datawave.core.iterators.DatawaveFieldIndexCachingIteratorJexl.HdfsBackedControl;
+import datawave.core.iterators.FairTaskQueue;
 import datawave.core.iterators.filesystem.FileSystemCache;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.data.type.Type;
@@ -44,6 +45,7 @@ import datawave.query.tables.async.Scan;
 import datawave.query.util.CompositeMetadata;
 import datawave.query.util.TypeMetadata;
 import datawave.query.util.TypeMetadataProvider;
+import datawave.query.util.sortedset.LocalCacheBudget;
 import datawave.util.StringUtils;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
@@ -91,6 +93,7 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String SCAN_ID = Scan.SCAN_ID;
     public static final String DISABLE_EVALUATION = "disable.evaluation";
+    public static final String COMPILED_EVALUATION = "compiled.evaluation";
     public static final String DISABLE_FIELD_INDEX_EVAL = "disable.fi";
     public static final String LIMIT_OVERRIDE = "disable.fi.override";
     public static final String LIMIT_SOURCES = "sources.limit.count";
@@ -181,6 +184,14 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String IVARATOR_CACHE_BUFFER_SIZE = "ivarator.cache.buffer.size";
     
+    public static final String IVARATOR_OFF_HEAP_BUFFER = "ivarator.off.heap.buffer";
+    
+    public static final String IVARATOR_LOCAL_CACHE_DIR = "ivarator.local.cache.dir";
+    
+    public static final String IVARATOR_LOCAL_CACHE_MAX_SIZE = "ivarator.local.cache.max.size";
+    
+    public static final String IVARATOR_CACHE_FORMAT = "ivarator.cache.format";
+    
     public static final String IVARATOR_SCAN_PERSIST_THRESHOLD = "ivarator.scan.persist.threshold";
     
     public static final String IVARATOR_SCAN_TIMEOUT = "ivarator.scan.timeout";
@@ -201,6 +212,12 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String MAX_PIPELINE_CACHED_RESULTS = "max.pipeline.cached.results";
     
+    public static final String ADAPTIVE_EVALUATION_PIPELINES = "adaptive.evaluation.pipelines";
+    
+    public static final String QUERY_PRIORITY = "query.priority";
+    
+    public static final String COMPACT_DOCUMENTS = "compact.documents";
+    
     public static final String BATCHED_QUERY = "query.iterator.batch";
     
     public static final String BATCHED_QUERY_RANGE_PREFIX = "query.iterator.batch.range.";
@@ -219,6 +236,7 @@ public class QueryOptions implements OptionDescriber {
     protected String query;
     protected String queryId;
     protected boolean disableEvaluation = false;
+    protected boolean compiledEvaluation = false;
     protected boolean disableFiEval = false;
     protected long sourceLimit = -1;
     protected boolean disableIndexOnlyDocuments = false;
@@ -250,6 +268,9 @@ public class QueryOptions implements OptionDescriber {
     
     protected int maxEvaluationPipelines = 25;
     protected int maxPipelineCachedResults = 25;
+    protected boolean adaptiveEvaluationPipelines = false;
+    protected int queryPriority = FairTaskQueue.DEFAULT_PRIORITY;
+    protected boolean compactDocuments = false;
     
     protected Set<String> indexOnlyFields = Sets.newHashSet();
     protected Set<String> ignoreColumnFamilies = Sets.newHashSet();
@@ -289,6 +310,10 @@ public class QueryOptions implements OptionDescriber {
     protected long ivaratorCacheScanPersistThreshold = 100000L;
     protected long ivaratorCacheScanTimeout = 1000L * 60 * 60;
     protected int ivaratorCacheBufferSize = 10000;
+    protected boolean ivaratorOffHeapBuffer = false;
+    protected String ivaratorLocalCacheDir = null;
+    protected long ivaratorLocalCacheMaxSize = LocalCacheBudget.DEFAULT_MAX_BYTES;
+    protected String ivaratorCacheFormat = null;
     
     protected int maxIndexRangeSplit = 11;
     protected int ivaratorMaxOpenFiles = 100;
@@ -347,6 +372,7 @@ public class QueryOptions implements OptionDescriber {
         this.queryId = other.queryId;
         this.scanId = other.scanId;
         this.disableEvaluation = other.disableEvaluation;
+        this.compiledEvaluation = other.compiledEvaluation;
         this.disableIndexOnlyDocuments = other.disableIndexOnlyDocuments;
         this.typeMetadata = other.typeMetadata;
         this.typeMetadataProvider = other.typeMetadataProvider;
@@ -401,6 +427,10 @@ public class QueryOptions implements OptionDescriber {
         this.ivaratorCacheBaseURIAlternatives = other.ivaratorCacheBaseURIAlternatives;
         this.hdfsSiteConfigURLs = other.hdfsSiteConfigURLs;
         this.ivaratorCacheBufferSize = other.ivaratorCacheBufferSize;
+        this.ivaratorOffHeapBuffer = other.ivaratorOffHeapBuffer;
+        this.ivaratorLocalCacheDir = other.ivaratorLocalCacheDir;
+        this.ivaratorLocalCacheMaxSize = other.ivaratorLocalCacheMaxSize;
+        this.ivaratorCacheFormat = other.ivaratorCacheFormat;
         this.ivaratorCacheScanPersistThreshold = other.ivaratorCacheScanPersistThreshold;
         this.ivaratorCacheScanTimeout = other.ivaratorCacheScanTimeout;
         this.hdfsFileCompressionCodec = other.hdfsFileCompressionCodec;
@@ -442,6 +472,9 @@ public class QueryOptions implements OptionDescriber {
         this.batchedQueries = other.batchedQueries;
         this.batchStack = other.batchStack;
         this.maxEvaluationPipelines = other.maxEvaluationPipelines;
+        this.adaptiveEvaluationPipelines = other.adaptiveEvaluationPipelines;
+        this.queryPriority = other.queryPriority;
+        this.compactDocuments = other.compactDocuments;
         
         this.dateIndexTimeTravel = other.dateIndexTimeTravel;
         
@@ -482,6 +515,14 @@ public class QueryOptions implements OptionDescriber {
         this.disableEvaluation = disableEvaluation;
     }
     
+    public boolean isCompiledEvaluation() {
+        return compiledEvaluation;
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        this.compiledEvaluation = compiledEvaluation;
+    }
+    
     public boolean disableIndexOnlyDocuments() {
         return disableIndexOnlyDocuments;
     }
@@ -794,6 +835,38 @@ public class QueryOptions implements OptionDescriber {
         this.ivaratorCacheBufferSize = ivaratorCacheBufferSize;
     }
     
+    public String getIvaratorCacheFormat() {
+        return ivaratorCacheFormat;
+    }
+    
+    public void setIvaratorCacheFormat(String ivaratorCacheFormat) {
+        this.ivaratorCacheFormat = ivaratorCacheFormat;
+    }
+    
+    public long getIvaratorLocalCacheMaxSize() {
+        return ivaratorLocalCacheMaxSize;
+    }
+    
+    public void setIvaratorLocalCacheMaxSize(long ivaratorLocalCacheMaxSize) {
+        this.ivaratorLocalCacheMaxSize = ivaratorLocalCacheMaxSize;
+    }
+    
+    public String getIvaratorLocalCacheDir() {
+        return ivaratorLocalCacheDir;
+    }
+    
+    public void setIvaratorLocalCacheDir(String ivaratorLocalCacheDir) {
+        this.ivaratorLocalCacheDir = ivaratorLocalCacheDir;
+    }
+    
+    public boolean isIvaratorOffHeapBuffer() {
+        return ivaratorOffHeapBuffer;
+    }
+    
+    public void setIvaratorOffHeapBuffer(boolean ivaratorOffHeapBuffer) {
+        this.ivaratorOffHeapBuffer = ivaratorOffHeapBuffer;
+    }
+    
     public long getIvaratorCacheScanPersistThreshold() {
         return ivaratorCacheScanPersistThreshold;
     }
@@ -903,6 +976,7 @@ public class QueryOptions implements OptionDescriber {
         Map<String,String> options = new HashMap<>();
         
         options.put(DISABLE_EVALUATION, "If provided, JEXL evaluation is not performed against any document.");
+        options.put(COMPILED_EVALUATION, "If true, the JEXL query is compiled once into a tree of evaluation nodes instead of being interpreted per document.");
         options.put(DISABLE_FIELD_INDEX_EVAL,
                         "If provided, a query tree is not evaluated against the field index. Only used in the case of doc specific ranges");
         options.put(LIMIT_OVERRIDE, "If provided, we will not assume the FI ranges can be constructed from the query");
@@ -953,6 +1027,13 @@ public class QueryOptions implements OptionDescriber {
         options.put(IVARATOR_CACHE_BASE_URI_ALTERNATIVES,
                         "A list of URIs of where all query's caches are to be located for ivarators (caching field index iterators)");
         options.put(IVARATOR_CACHE_BUFFER_SIZE, "The size of the hdfs cache buffer size (items held in memory before dumping to hdfs).  Default is 10000.");
+        options.put(IVARATOR_CACHE_FORMAT, "The format used to persist the ivarator cache files (JAVA, BINARY, or COMPRESSED_BINARY).  Default is JAVA.");
+        options.put(IVARATOR_LOCAL_CACHE_MAX_SIZE,
+                        "The number of bytes per query that ivarators may persist to the local cache dir before persisting to hdfs.  Default is 256MB.");
+        options.put(IVARATOR_LOCAL_CACHE_DIR,
+                        "A local directory in which ivarators persist their caches (up to the local cache max size) before falling back to hdfs");
+        options.put(IVARATOR_OFF_HEAP_BUFFER,
+                        "If true, the ivarator set buffers are kept off heap within the per tserver arena (see tserver.datawave.ivarator.offheap.max.bytes)");
         options.put(IVARATOR_SCAN_PERSIST_THRESHOLD,
                         "The number of underlying field index keys scanned before the hdfs cache buffer is forced to persist).  Default is 100000.");
         options.put(IVARATOR_SCAN_TIMEOUT, "The time after which the hdfs cache buffer is forced to persist.  Default is 60 minutes.");
@@ -968,6 +1049,12 @@ public class QueryOptions implements OptionDescriber {
         options.put(MAX_EVALUATION_PIPELINES, "The max number of evaluation pipelines");
         options.put(SERIAL_EVALUATION_PIPELINE, "Forces us to use the serial pipeline. Allows us to still have a single thread for evaluation");
         options.put(MAX_PIPELINE_CACHED_RESULTS, "The max number of non-null evaluated results to cache beyond the evaluation pipelines in queue");
+        options.put(ADAPTIVE_EVALUATION_PIPELINES,
+                        "Adapt the number of evaluation pipelines in flight (up to the max) to the evaluation time and the evaluation pool saturation");
+        options.put(COMPACT_DOCUMENTS,
+                        "Build documents using sorted arrays, interned field names and shared attribute metadata to reduce their heap footprint");
+        options.put(QUERY_PRIORITY,
+                        "The priority (1-10) used to fairly share the ivarator and evaluation thread pools with other queries. Higher gets more threads");
         options.put(DATE_INDEX_TIME_TRAVEL, "Whether the shards from before the event should be gathered from the dateIndex");
         
         options.put(SORTED_UIDS,
@@ -995,6 +1082,10 @@ public class QueryOptions implements OptionDescriber {
             this.disableEvaluation = Boolean.parseBoolean(options.get(DISABLE_EVALUATION));
         }
         
+        if (options.containsKey(COMPILED_EVALUATION)) {
+            this.compiledEvaluation = Boolean.parseBoolean(options.get(COMPILED_EVALUATION));
+        }
+        
         if (options.containsKey(DISABLE_FIELD_INDEX_EVAL)) {
             this.disableFiEval = Boolean.parseBoolean(options.get(DISABLE_FIELD_INDEX_EVAL));
         }
@@ -1292,6 +1383,22 @@ public class QueryOptions implements OptionDescriber {
             this.setIvaratorCacheBufferSize(Integer.parseInt(options.get(IVARATOR_CACHE_BUFFER_SIZE)));
         }
         
+        if (options.containsKey(IVARATOR_CACHE_FORMAT)) {
+            this.setIvaratorCacheFormat(options.get(IVARATOR_CACHE_FORMAT));
+        }
+        
+        if (options.containsKey(IVARATOR_LOCAL_CACHE_MAX_SIZE)) {
+            this.setIvaratorLocalCacheMaxSize(Long.parseLong(options.get(IVARATOR_LOCAL_CACHE_MAX_SIZE)));
+        }
+        
+        if (options.containsKey(IVARATOR_LOCAL_CACHE_DIR)) {
+            this.setIvaratorLocalCacheDir(options.get(IVARATOR_LOCAL_CACHE_DIR));
+        }
+        
+        if (options.containsKey(IVARATOR_OFF_HEAP_BUFFER)) {
+            this.setIvaratorOffHeapBuffer(Boolean.parseBoolean(options.get(IVARATOR_OFF_HEAP_BUFFER)));
+        }
+        
         if (options.containsKey(IVARATOR_SCAN_PERSIST_THRESHOLD)) {
             this.setIvaratorCacheScanPersistThreshold(Long.parseLong(options.get(IVARATOR_SCAN_PERSIST_THRESHOLD)));
         }
@@ -1332,6 +1439,18 @@ public class QueryOptions implements OptionDescriber {
             this.setMaxPipelineCachedResults(Integer.parseInt(options.get(MAX_PIPELINE_CACHED_RESULTS)));
         }
         
+        if (options.containsKey(ADAPTIVE_EVALUATION_PIPELINES)) {
+            this.setAdaptiveEvaluationPipelines(Boolean.parseBoolean(options.get(ADAPTIVE_EVALUATION_PIPELINES)));
+        }
+        
+        if (options.containsKey(QUERY_PRIORITY)) {
+            this.setQueryPriority(Integer.parseInt(options.get(QUERY_PRIORITY)));
+        }
+        
+        if (options.containsKey(COMPACT_DOCUMENTS)) {
+            this.setCompactDocuments(Boolean.parseBoolean(options.get(COMPACT_DOCUMENTS)));
+        }
+        
         if (options.containsKey(TERM_FREQUENCIES_REQUIRED)) {
             this.setTermFrequenciesRequired(Boolean.parseBoolean(options.get(TERM_FREQUENCIES_REQUIRED)));
         }
@@ -1729,6 +1848,30 @@ public class QueryOptions implements OptionDescriber {
         this.maxPipelineCachedResults = maxCachedResults;
     }
     
+    public boolean isAdaptiveEvaluationPipelines() {
+        return adaptiveEvaluationPipelines;
+    }
+    
+    public void setAdaptiveEvaluationPipelines(boolean adaptiveEvaluationPipelines) {
+        this.adaptiveEvaluationPipelines = adaptiveEvaluationPipelines;
+    }
+    
+    public int getQueryPriority() {
+        return queryPriority;
+    }
+    
+    public void setQueryPriority(int queryPriority) {
+        this.queryPriority = queryPriority;
+    }
+    
+    public boolean isCompactDocuments() {
+        return compactDocuments;
+    }
+    
+    public void setCompactDocuments(boolean compactDocuments) {
+        this.compactDocuments = compactDocuments;
+    }
+    
     public String getStatsdHostAndPort() {
         return statsdHostAndPort;
     }
@@ -79,6 +79,7 @@ public class IndexFilterIteratorBuilder extends IvaratorBuilder implements Itera
                     rangeIterator.setCollectTimingDetails(true);
                     rangeIterator.setQuerySpanCollector(this.querySpanCollector);
                 }
+                configureIvarator(rangeIterator);
                 rangeIterator.init(source, null, null);
                 log.debug("Created a DatawaveFieldIndexFilterIteratorJexl: " + rangeIterator);
                 
@@ -110,6 +110,7 @@ public class IndexListIteratorBuilder extends IvaratorBuilder implements Iterato
                     listIterator.setCollectTimingDetails(true);
                     listIterator.setQuerySpanCollector(this.querySpanCollector);
                 }
+                configureIvarator(listIterator);
                 listIterator.init(source, null, null);
                 log.debug("Created a DatawaveFieldIndexListIteratorJexl: " + listIterator);
                 
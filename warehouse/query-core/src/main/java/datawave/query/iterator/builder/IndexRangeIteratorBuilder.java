@@ -72,6 +72,7 @@ public class IndexRangeIteratorBuilder extends IvaratorBuilder implements Iterat
                     rangeIterator.setCollectTimingDetails(true);
                     rangeIterator.setQuerySpanCollector(this.querySpanCollector);
                 }
+                configureIvarator(rangeIterator);
                 rangeIterator.init(source, null, null);
                 log.debug("Created a DatawaveFieldIndexRangeIteratorJexl: " + rangeIterator);
                 
@@ -67,6 +67,7 @@ public class IndexRegexIteratorBuilder extends IvaratorBuilder implements Iterat
                     regexIterator.setCollectTimingDetails(true);
                     regexIterator.setQuerySpanCollector(this.querySpanCollector);
                 }
+                configureIvarator(regexIterator);
                 regexIterator.init(source, null, null);
                 log.debug("Created a DatawaveFieldIndexRegexIteratorJexl: " + regexIterator);
                 
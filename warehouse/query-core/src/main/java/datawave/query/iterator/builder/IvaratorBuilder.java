@@ -1,7 +1,13 @@
 package datawave.query.iterator.builder;
 
+import java.io.File;
+
+import datawave.core.iterators.DatawaveFieldIndexCachingIteratorJexl;
+import datawave.core.iterators.DatawaveFieldIndexCachingIteratorJexl.CacheFormat;
+import datawave.core.iterators.FairTaskQueue;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.query.iterator.profile.QuerySpanCollector;
+import datawave.query.util.sortedset.LocalCacheBudget;
 import org.apache.hadoop.fs.FileSystem;
 
 /**
@@ -16,6 +22,12 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
     protected long ivaratorCacheScanPersistThreshold = 100000L;
     protected long ivaratorCacheScanTimeout = 1000L * 60 * 60;
     protected int ivaratorCacheBufferSize = 10000;
+    protected String queryId = null;
+    protected int queryPriority = FairTaskQueue.DEFAULT_PRIORITY;
+    protected boolean ivaratorOffHeapBuffer = false;
+    protected String ivaratorLocalCacheDir = null;
+    protected LocalCacheBudget ivaratorLocalCacheBudget = null;
+    protected String ivaratorCacheFormat = null;
     protected int maxRangeSplit = 11;
     protected int ivaratorMaxOpenFiles = 100;
     protected boolean collectTimingDetails = false;
@@ -61,6 +73,54 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
         this.ivaratorCacheBufferSize = ivaratorCacheBufferSize;
     }
     
+    public String getIvaratorCacheFormat() {
+        return ivaratorCacheFormat;
+    }
+    
+    public void setIvaratorCacheFormat(String ivaratorCacheFormat) {
+        this.ivaratorCacheFormat = ivaratorCacheFormat;
+    }
+    
+    public LocalCacheBudget getIvaratorLocalCacheBudget() {
+        return ivaratorLocalCacheBudget;
+    }
+    
+    public void setIvaratorLocalCacheBudget(LocalCacheBudget ivaratorLocalCacheBudget) {
+        this.ivaratorLocalCacheBudget = ivaratorLocalCacheBudget;
+    }
+    
+    public String getIvaratorLocalCacheDir() {
+        return ivaratorLocalCacheDir;
+    }
+    
+    public void setIvaratorLocalCacheDir(String ivaratorLocalCacheDir) {
+        this.ivaratorLocalCacheDir = ivaratorLocalCacheDir;
+    }
+    
+    public boolean isIvaratorOffHeapBuffer() {
+        return ivaratorOffHeapBuffer;
+    }
+    
+    public void setIvaratorOffHeapBuffer(boolean ivaratorOffHeapBuffer) {
+        this.ivaratorOffHeapBuffer = ivaratorOffHeapBuffer;
+    }
+    
+    public String getQueryId() {
+        return queryId;
+    }
+    
+    public void setQueryId(String queryId) {
+        this.queryId = queryId;
+    }
+    
+    public int getQueryPriority() {
+        return queryPriority;
+    }
+    
+    public void setQueryPriority(int queryPriority) {
+        this.queryPriority = queryPriority;
+    }
+    
     public long getIvaratorCacheScanPersistThreshold() {
         return ivaratorCacheScanPersistThreshold;
     }
@@ -101,4 +161,24 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
         this.querySpanCollector = querySpanCollector;
     }
     
+    /**
+     * Apply the settings common to all ivarators that are not part of the ivarator constructors
+     * 
+     * @param ivarator
+     */
+    protected void configureIvarator(DatawaveFieldIndexCachingIteratorJexl ivarator) {
+        if (ivaratorCacheFormat != null) {
+            try {
+                ivarator.setCacheFormat(CacheFormat.valueOf(ivaratorCacheFormat.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid ivarator cache format: " + ivaratorCacheFormat, e);
+            }
+        }
+        if (ivaratorLocalCacheDir != null && ivaratorLocalCacheBudget != null) {
+            ivarator.setLocalCache(new File(ivaratorLocalCacheDir), ivaratorLocalCacheBudget);
+        }
+        ivarator.setOffHeapBuffer(ivaratorOffHeapBuffer);
+        ivarator.setSchedulingTag(queryId, queryPriority);
+    }
+    
 }
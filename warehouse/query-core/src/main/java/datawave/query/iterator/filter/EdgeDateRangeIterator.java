@@ -0,0 +1,143 @@
+package datawave.query.iterator.filter;
+
+import java.io.IOException;
+import java.util.Map;
+
+import datawave.core.iterators.ColumnRangeIterator;
+import datawave.edge.util.EdgeKey;
+import datawave.edge.util.EdgeKeyView;
+import datawave.query.config.EdgeQueryConfiguration;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Filters edges on the date range and date type. In every {@link EdgeKey.EDGE_VERSION} the date is the first part of the column qualifier, so the column
+ * qualifiers of a row and column family are sorted by date. When the date of the top key is before the range, the next possible match is the start of the
+ * range in the same column family, and when it is after the range, the next possible match is the start of the range in the following column family. After
+ * skipping the configured number of keys the source is reseeked directly to that key, so that wide edge rows spanning many dates are not scanned and
+ * discarded key by key.
+ *
+ * The date type is the last part of the column qualifier and cannot be used to seek, so edges of the wrong date type are skipped here rather than by a
+ * separate {@link DateTypeFilter}.
+ */
+public class EdgeDateRangeIterator extends ColumnRangeIterator {
+    
+    private ByteSequence startDate;
+    private ByteSequence endDate;
+    // the comparison offsets for exclusive bounds
+    private int startExclusive;
+    private int endExclusive;
+    private Text startColumnQualifier;
+    protected boolean[] acceptedDateTypes = null;
+    private final EdgeKeyView edgeKeyView = new EdgeKeyView();
+    
+    public EdgeDateRangeIterator() {
+        super();
+    }
+    
+    public EdgeDateRangeIterator(SortedKeyValueIterator<Key,Value> source, Range columnRange, int skipLimit, boolean[] acceptedDateTypes) {
+        super(source, columnRange);
+        setSkipLimit(skipLimit);
+        this.acceptedDateTypes = acceptedDateTypes;
+        initBounds();
+    }
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+        super.init(source, options, env);
+        acceptedDateTypes = getAcceptedDateTypes(options.get(EdgeQueryConfiguration.DATE_RANGE_TYPE));
+        initBounds();
+    }
+    
+    private void initBounds() {
+        startColumnQualifier = getColumnStart();
+        startDate = new ArrayByteSequence(startColumnQualifier.getBytes(), 0, startColumnQualifier.getLength());
+        startExclusive = getColumnRange().isStartKeyInclusive() ? 0 : 1;
+        Key endKey = getColumnRange().getEndKey();
+        endDate = (endKey == null ? null : endKey.getRowData());
+        endExclusive = getColumnRange().isEndKeyInclusive() ? 0 : -1;
+    }
+    
+    /**
+     * Get the date types accepted for a date range type, using the same rules as the {@link DateTypeFilter}
+     *
+     * @param dateRangeType
+     *            the name of the {@link EdgeQueryConfiguration.dateType}, or null to accept all date types
+     * @return the accepted date types indexed by ordinal, or null if all are accepted
+     */
+    public static boolean[] getAcceptedDateTypes(String dateRangeType) {
+        if (null == dateRangeType || EdgeQueryConfiguration.dateType.ANY.name().equals(dateRangeType)
+                        || EdgeQueryConfiguration.dateType.ANY_LOAD.name().equals(dateRangeType)) {
+            return null;
+        }
+        boolean[] accepted = new boolean[EdgeKey.DATE_TYPE.values().length];
+        for (int i = 0; i < accepted.length; i++) {
+            accepted[i] = true;
+        }
+        if (EdgeQueryConfiguration.dateType.ACTIVITY.name().equals(dateRangeType)
+                        || EdgeQueryConfiguration.dateType.ACTIVITY_LOAD.name().equals(dateRangeType)) {
+            accepted[EdgeKey.DATE_TYPE.EVENT_ONLY.ordinal()] = false;
+            accepted[EdgeKey.DATE_TYPE.OLD_EVENT.ordinal()] = false;
+        } else {
+            accepted[EdgeKey.DATE_TYPE.ACTIVITY_ONLY.ordinal()] = false;
+        }
+        return accepted;
+    }
+    
+    private boolean acceptDateType(Key key) {
+        if (null == acceptedDateTypes) {
+            return true;
+        }
+        EdgeKey.DATE_TYPE dateType = edgeKeyView.set(key).getDateType();
+        return null != dateType && acceptedDateTypes[dateType.ordinal()];
+    }
+    
+    @Override
+    protected void consume() throws IOException {
+        int count = 0;
+        int limit = getSkipLimit();
+        
+        while (getSource().hasTop()) {
+            Key top = getSource().getTopKey();
+            ByteSequence columnQualifier = top.getColumnQualifierData();
+            
+            if (columnQualifier.compareTo(startDate) < startExclusive) {
+                // before the range, the next possible match is the start of the range in this column family
+                if (count < limit) {
+                    getSource().next();
+                    ++count;
+                } else {
+                    reseek(new Key(top.getRow(), top.getColumnFamily(), startColumnQualifier));
+                    count = 0;
+                }
+            } else if (null != endDate && columnQualifier.compareTo(endDate) > endExclusive) {
+                // after the range, the next possible match is the start of the range in the following column family
+                if (count < limit) {
+                    getSource().next();
+                    ++count;
+                } else {
+                    Text nextColumnFamily = new Text(followingArray(top.getColumnFamily().getBytes()));
+                    reseek(new Key(top.getRow(), nextColumnFamily, startColumnQualifier));
+                    count = 0;
+                }
+            } else if (!acceptDateType(top)) {
+                // the date type is at the end of the column qualifier, so the next key may match
+                getSource().next();
+            } else {
+                break;
+            }
+        }
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+        return new EdgeDateRangeIterator(getSource().deepCopy(env), getColumnRange(), getSkipLimit(), acceptedDateTypes);
+    }
+}
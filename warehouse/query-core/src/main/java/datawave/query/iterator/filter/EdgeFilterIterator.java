@@ -3,14 +3,20 @@ package datawave.query.iterator.filter;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.Set;
 
 import datawave.edge.model.EdgeModelAware;
 import datawave.edge.model.EdgeModelAware.Fields;
 import datawave.edge.model.EdgeModelAware.Fields.FieldKey;
+import datawave.edge.util.EdgeKey;
 import datawave.edge.util.EdgeKeyUtil;
+import datawave.edge.util.EdgeKeyView;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.Filter;
@@ -45,6 +51,10 @@ public class EdgeFilterIterator extends Filter {
     
     private static final JexlEngine jexlEngine = new JexlEngine();
     
+    // the versions read through the edge key view, other keys are disassembled as strings
+    private static final Set<EdgeKey.EDGE_VERSION> PROTOBUF_VERSIONS = EnumSet.of(EdgeKey.EDGE_VERSION.PROTOBUF, EdgeKey.EDGE_VERSION.DATE_PROTOBUF,
+                    EdgeKey.EDGE_VERSION.STATS_PROTOBUF, EdgeKey.EDGE_VERSION.DATE_STATS_PROTOBUF);
+    
     private boolean protobuffFormat;
     private boolean includeStatsEdges;
     private Expression expression = null;
@@ -53,6 +63,9 @@ public class EdgeFilterIterator extends Filter {
     
     private HashMultimap<String,String> preFilterValues;
     
+    private final EdgeKeyView edgeKeyView = new EdgeKeyView();
+    private final Map<FieldKey,String> viewComponents = new EnumMap<>(FieldKey.class);
+    
     @Override
     public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
         EdgeFilterIterator result = (EdgeFilterIterator) super.deepCopy(env);
@@ -184,6 +197,51 @@ public class EdgeFilterIterator extends Filter {
         }
     }
     
+    /**
+     * Get the parts of an edge key. Protocol buffer formatted keys are read through an {@link EdgeKeyView}, which avoids converting the whole key to strings
+     * and splitting them, and give the same components as {@link EdgeKeyUtil#dissasembleKey(Key, boolean)} for well formed keys. The returned map is reused
+     * for the next key.
+     *
+     * @param k
+     * @return the components of the key
+     */
+    protected Map<FieldKey,String> getKeyComponents(Key k) {
+        if (!protobuffFormat || !PROTOBUF_VERSIONS.contains(edgeKeyView.set(k).getVersion())) {
+            return EdgeKeyUtil.dissasembleKey(k, protobuffFormat);
+        }
+        
+        viewComponents.clear();
+        put(FieldKey.EDGE_SOURCE, edgeKeyView.getSourceData());
+        ByteSequence sink = edgeKeyView.getSinkData();
+        if (null != sink && sink.length() > 0) {
+            put(FieldKey.EDGE_SINK, sink);
+        }
+        if (edgeKeyView.getFormat() == EdgeKey.EDGE_FORMAT.STATS) {
+            viewComponents.put(FieldKey.STATS_EDGE, "true");
+        }
+        put(FieldKey.EDGE_TYPE, edgeKeyView.getType());
+        put(FieldKey.EDGE_RELATIONSHIP, edgeKeyView.getRelationship());
+        put(FieldKey.DATE, edgeKeyView.getYyyymmdd());
+        put(FieldKey.EDGE_ATTRIBUTE1, edgeKeyView.getAttribute1());
+        put(FieldKey.EDGE_ATTRIBUTE2, edgeKeyView.getAttribute2());
+        put(FieldKey.EDGE_ATTRIBUTE3, edgeKeyView.getAttribute3());
+        
+        // without a trailing date type, splitting the qualifier drops its trailing empty parts
+        if (edgeKeyView.getDateType() == EdgeKey.DATE_TYPE.OLD_EVENT) {
+            for (FieldKey field : new FieldKey[] {FieldKey.EDGE_ATTRIBUTE3, FieldKey.EDGE_ATTRIBUTE2, FieldKey.EDGE_ATTRIBUTE1, FieldKey.DATE}) {
+                if (!viewComponents.get(field).isEmpty()) {
+                    break;
+                }
+                viewComponents.remove(field);
+            }
+        }
+        return viewComponents;
+    }
+    
+    private void put(FieldKey field, ByteSequence bytes) {
+        viewComponents.put(field, new String(bytes.getBackingArray(), bytes.offset(), bytes.length(), StandardCharsets.UTF_8));
+    }
+    
     /**
      * Method to perform prefilter against a whitelist to see if we can quickly ignore the key
      *
@@ -242,7 +300,7 @@ public class EdgeFilterIterator extends Filter {
     public boolean accept(Key k, Value V) {
         boolean value = false;
         
-        Map<FieldKey,String> keyComponents = EdgeKeyUtil.dissasembleKey(k, protobuffFormat);
+        Map<FieldKey,String> keyComponents = getKeyComponents(k);
         
         if (!prefilter(keyComponents)) {
             value = false;
@@ -0,0 +1,164 @@
+package datawave.query.iterator.pipeline;
+
+import org.apache.log4j.Logger;
+
+import datawave.core.iterators.IteratorThreadPoolManager;
+
+/**
+ * Determines how many evaluation pipelines a {@link PipelineIterator} should keep in flight. Rather than always queueing the configured maximum, the target
+ * depth is adjusted after each window of completed evaluations:
+ * <ul>
+ * <li>If the shared evaluation pool is saturated (tasks are waiting for a thread) then the target is halved so that other queries can get evaluation threads.
+ * </li>
+ * <li>Otherwise the target moves toward the number of concurrent evaluations needed to keep up with the consumer, which is the document evaluation time over
+ * the time the consumer spends between results. Growth at most doubles the target per window, shrinking is done one pipeline at a time.</li>
+ * </ul>
+ * The target always stays between 1 and the configured maximum number of pipelines.
+ */
+public class AdaptivePipelineController {
+    private static final Logger log = Logger.getLogger(AdaptivePipelineController.class);
+    
+    public static final int MIN_PIPELINES = 1;
+    public static final int INITIAL_PIPELINES = 2;
+    public static final int MIN_WINDOW = 4;
+    
+    final protected int maxPipelines;
+    protected int targetPipelines;
+    
+    // the current window
+    protected int windowEvaluations = 0;
+    protected long windowEvaluationNanos = 0;
+    protected long windowWaitNanos = 0;
+    protected long windowStartNanos;
+    
+    // counters
+    protected long evaluations = 0;
+    protected long evaluationNanos = 0;
+    protected long waitNanos = 0;
+    protected int peakPipelines;
+    protected int grows = 0;
+    protected int shrinks = 0;
+    protected int saturatedWindows = 0;
+    
+    public AdaptivePipelineController(int maxPipelines) {
+        this.maxPipelines = Math.max(MIN_PIPELINES, maxPipelines);
+        this.targetPipelines = Math.min(INITIAL_PIPELINES, this.maxPipelines);
+        this.peakPipelines = this.targetPipelines;
+        this.windowStartNanos = System.nanoTime();
+    }
+    
+    /**
+     * Record a completed evaluation.
+     *
+     * @param evaluationNanos
+     *            the time the pipeline spent evaluating the document
+     * @param waitNanos
+     *            the time the consumer spent blocked waiting for the evaluation to complete
+     */
+    public void evaluated(long evaluationNanos, long waitNanos) {
+        this.evaluations++;
+        this.evaluationNanos += evaluationNanos;
+        this.waitNanos += waitNanos;
+        this.windowEvaluations++;
+        this.windowEvaluationNanos += evaluationNanos;
+        this.windowWaitNanos += waitNanos;
+        if (windowEvaluations >= Math.max(MIN_WINDOW, targetPipelines)) {
+            long now = System.nanoTime();
+            adjust(now - windowStartNanos, getPoolSaturation());
+            windowStartNanos = now;
+            windowEvaluations = 0;
+            windowEvaluationNanos = 0;
+            windowWaitNanos = 0;
+        }
+    }
+    
+    /**
+     * Adjust the target number of pipelines using the current window
+     *
+     * @param elapsedNanos
+     *            the wall clock time of the window
+     * @param saturation
+     *            the evaluation pool saturation
+     */
+    protected void adjust(long elapsedNanos, double saturation) {
+        int target = targetPipelines;
+        if (saturation > 1.0d) {
+            saturatedWindows++;
+            target = Math.max(MIN_PIPELINES, target / 2);
+        } else if (windowEvaluations > 0) {
+            // the time the consumer spends on each result outside of waiting on evaluations
+            long consumerNanos = Math.max(1, (elapsedNanos - windowWaitNanos) / windowEvaluations);
+            long averageEvaluationNanos = windowEvaluationNanos / windowEvaluations;
+            long desired = Math.min(maxPipelines, 1 + averageEvaluationNanos / consumerNanos);
+            if (desired > target && windowWaitNanos > 0) {
+                target = (int) Math.min(desired, 2L * target);
+            } else if (desired < target) {
+                target--;
+            }
+        }
+        target = Math.max(MIN_PIPELINES, Math.min(maxPipelines, target));
+        if (target > targetPipelines) {
+            grows++;
+        } else if (target < targetPipelines) {
+            shrinks++;
+        }
+        if (log.isTraceEnabled() && target != targetPipelines) {
+            log.trace("Changing target pipelines from " + targetPipelines + " to " + target + " with a pool saturation of " + saturation);
+        }
+        targetPipelines = target;
+        peakPipelines = Math.max(peakPipelines, target);
+    }
+    
+    protected double getPoolSaturation() {
+        return IteratorThreadPoolManager.getEvaluationSaturation();
+    }
+    
+    /**
+     * @return the number of pipelines that should currently be in flight
+     */
+    public int getTargetPipelines() {
+        return targetPipelines;
+    }
+    
+    public int getMaxPipelines() {
+        return maxPipelines;
+    }
+    
+    public int getPeakPipelines() {
+        return peakPipelines;
+    }
+    
+    public long getEvaluations() {
+        return evaluations;
+    }
+    
+    public long getEvaluationNanos() {
+        return evaluationNanos;
+    }
+    
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+    
+    public int getGrows() {
+        return grows;
+    }
+    
+    public int getShrinks() {
+        return shrinks;
+    }
+    
+    /**
+     * @return the number of windows where the evaluation pool had tasks waiting for a thread
+     */
+    public int getSaturatedWindows() {
+        return saturatedWindows;
+    }
+    
+    @Override
+    public String toString() {
+        return "target=" + targetPipelines + ", max=" + maxPipelines + ", peak=" + peakPipelines + ", evaluations=" + evaluations + ", evaluationMs="
+                        + (evaluationNanos / 1000000) + ", waitMs=" + (waitNanos / 1000000) + ", grows=" + grows + ", shrinks=" + shrinks + ", saturated="
+                        + saturatedWindows;
+    }
+}
@@ -32,6 +32,9 @@ public class Pipeline implements Runnable {
     
     private QuerySpanCollector querySpanCollector = null;
     
+    // the time spent in the last run
+    private long evaluationNanos = 0;
+    
     public Pipeline(QuerySpanCollector querySpanCollector, SortedKeyValueIterator<Key,Value> sourceForDeepCopy) {
         this.querySpanCollector = querySpanCollector;
         this.iterator = null;
@@ -55,6 +58,7 @@ public class Pipeline implements Runnable {
     
     public void clear() {
         this.result = null;
+        this.evaluationNanos = 0;
         this.documentSpecificSource.setDocumentKey(null);
     }
     
@@ -62,13 +66,22 @@ public class Pipeline implements Runnable {
         return result;
     }
     
+    /**
+     * @return the time in nanoseconds spent evaluating the current document
+     */
+    public long getEvaluationNanos() {
+        return evaluationNanos;
+    }
+    
     @Override
     public void run() {
+        long start = System.nanoTime();
         if (iterator.hasNext()) {
             result = iterator.next();
         } else {
             result = null;
         }
+        evaluationNanos = System.nanoTime() - start;
         
         if (log.isTraceEnabled()) {
             log.trace("next() returned " + result);
@@ -17,6 +17,7 @@ import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.log4j.Logger;
 
+import datawave.core.iterators.FairTaskQueue;
 import datawave.core.iterators.IteratorThreadPoolManager;
 import datawave.query.attributes.Document;
 import datawave.query.iterator.NestedIterator;
@@ -46,6 +47,9 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
     final protected QuerySpan querySpan;
     protected boolean collectTimingDetails = false;
     protected IteratorEnvironment env;
+    protected AdaptivePipelineController pipelineController = null;
+    protected String queryId = null;
+    protected int queryPriority = FairTaskQueue.DEFAULT_PRIORITY;
     
     public PipelineIterator(NestedIterator<Key> documents, int maxPipelines, int maxCachedResults, QuerySpanCollector querySpanCollector, QuerySpan querySpan,
                     QueryIterator sourceIterator, SortedKeyValueIterator<Key,Value> sourceForDeepCopy, IteratorEnvironment env,
@@ -66,6 +70,31 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
         this.collectTimingDetails = collectTimingDetails;
     }
     
+    /**
+     * Set a controller that adapts the number of pipelines in flight instead of always keeping the max number of pipelines queued. This must be set before the
+     * pipeline is started.
+     * 
+     * @param pipelineController
+     */
+    public void setPipelineController(AdaptivePipelineController pipelineController) {
+        this.pipelineController = pipelineController;
+    }
+    
+    public AdaptivePipelineController getPipelineController() {
+        return pipelineController;
+    }
+    
+    /**
+     * Tag the evaluations submitted to the evaluation thread pool with the query they are run for.
+     * 
+     * @param queryId
+     * @param queryPriority
+     */
+    public void setSchedulingTag(String queryId, int queryPriority) {
+        this.queryId = queryId;
+        this.queryPriority = queryPriority;
+    }
+    
     /*
      * (non-Javadoc)
      * 
@@ -130,6 +159,8 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
                 } else {
                     next = results.peek();
                 }
+            } else if (pipelineController != null && log.isDebugEnabled()) {
+                log.debug("Adaptive pipelines: " + pipelineController);
             }
             return next;
         } catch (InterruptedException | IterationInterruptedException e) {
@@ -214,14 +245,15 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
         Tuple2<Future<?>,Pipeline> nextFuture = evaluationQueue.poll();
         
         // wait for it to complete if not already done
+        long waitNanos = 0;
         if (!nextFuture.first().isDone()) {
-            long start = System.currentTimeMillis();
+            long start = System.nanoTime();
             
             nextFuture.first().get(waitMs, TimeUnit.MILLISECONDS);
             
+            waitNanos = System.nanoTime() - start;
             if (log.isDebugEnabled()) {
-                long wait = System.currentTimeMillis() - start;
-                log.debug("Waited " + wait + "ms for the top evaluation in a queue of " + evaluationQueue.size() + " pipelines");
+                log.debug("Waited " + (waitNanos / 1000000) + "ms for the top evaluation in a queue of " + evaluationQueue.size() + " pipelines");
             }
         }
         
@@ -231,20 +263,23 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
         // record the last evaluated key
         lastKeyEvaluated = nextFuture.second().getSource().getKey();
         
+        // let the controller adjust the number of pipelines in flight
+        if (pipelineController != null) {
+            pipelineController.evaluated(nextFuture.second().getEvaluationNanos(), waitNanos);
+        }
+        
         // return the pipeline for reuse
         pipelines.checkIn(nextFuture.second());
         
         // start a new evaluation if we can
-        if (docSource.hasNext()) {
-            Key keySource = docSource.next();
-            NestedQuery<Key> nestedQuery = null;
-            if (docSource instanceof NestedQueryIterator) {
-                nestedQuery = ((NestedQueryIterator) this.docSource).getNestedQuery();
+        if (pipelineController == null) {
+            if (docSource.hasNext()) {
+                evaluateNext();
             }
-            
-            evaluate(keySource, docSource.document(), nestedQuery);
-            if (collectTimingDetails) {
-                querySpanCollector.addQuerySpan(querySpan);
+        } else {
+            // replace this evaluation, adding or dropping pipelines to meet the current target
+            while (evaluationQueue.size() < pipelineController.getTargetPipelines() && docSource.hasNext()) {
+                evaluateNext();
             }
         }
         
@@ -256,6 +291,22 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
         return result;
     }
     
+    /**
+     * Start the evaluation of the next document from the document source. This assumes the document source has a next document.
+     */
+    private void evaluateNext() {
+        Key keySource = docSource.next();
+        NestedQuery<Key> nestedQuery = null;
+        if (docSource instanceof NestedQueryIterator) {
+            nestedQuery = ((NestedQueryIterator) this.docSource).getNestedQuery();
+        }
+        
+        evaluate(keySource, docSource.document(), nestedQuery);
+        if (collectTimingDetails) {
+            querySpanCollector.addQuerySpan(querySpan);
+        }
+    }
+    
     /**
      * Cancel all of the queued evaluations
      */
@@ -268,8 +319,8 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
     }
     
     public void startPipeline() {
-        // start up to maxPipeline pipelines
-        int maxPipelines = pipelines.maxPipelines;
+        // start up to maxPipeline pipelines, or the initial target when adapting
+        int maxPipelines = (pipelineController == null ? pipelines.maxPipelines : pipelineController.getTargetPipelines());
         boolean isNested = false;
         NestedQuery<Key> nestedQuery = null;
         if (docSource instanceof NestedQueryIterator) {
@@ -295,7 +346,8 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
     private void evaluate(Key key, Document document, NestedQuery<Key> nestedQuery) {
         Pipeline pipeline = pipelines.checkOut(key, document, nestedQuery);
         
-        evaluationQueue.add(new Tuple2<Future<?>,Pipeline>(IteratorThreadPoolManager.executeEvaluation(pipeline, pipeline.toString()), pipeline));
+        evaluationQueue.add(new Tuple2<Future<?>,Pipeline>(IteratorThreadPoolManager.executeEvaluation(pipeline, pipeline.toString(), queryId, queryPriority),
+                        pipeline));
     }
     
     /*
@@ -95,6 +95,9 @@ public class FinalDocumentTrackingIterator implements Iterator<Map.Entry<Key,Val
         if (returnType == DocumentSerialization.ReturnType.kryo) {
             // Serialize the Document using Kryo
             serializedDocuments = Iterators.transform(emptyDocumentIterator, new KryoDocumentSerializer(isReducedResponse, isCompressResults));
+        } else if (returnType == DocumentSerialization.ReturnType.lazykryo) {
+            // Serialize the Document using Kryo with length prefixed attributes so that it can be decoded lazily
+            serializedDocuments = Iterators.transform(emptyDocumentIterator, new KryoDocumentSerializer(isReducedResponse, isCompressResults, true));
         } else if (returnType == DocumentSerialization.ReturnType.writable) {
             // Use the Writable interface to serialize the Document
             serializedDocuments = Iterators.transform(emptyDocumentIterator, new WritableDocumentSerializer(isReducedResponse));
@@ -0,0 +1,489 @@
+package datawave.query.jexl;
+
+import java.util.Collection;
+
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.JexlContext;
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTFalseNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTIdentifier;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTNRNode;
+import org.apache.commons.jexl2.parser.ASTNotNode;
+import org.apache.commons.jexl2.parser.ASTNullLiteral;
+import org.apache.commons.jexl2.parser.ASTNumberLiteral;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.ASTTrueNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.log4j.Logger;
+
+import datawave.query.collections.FunctionalSet;
+
+/**
+ * A JEXL script which has been compiled into a tree of evaluation nodes once, instead of walking the syntax tree with an interpreter for every document. The
+ * boolean structure (and, or, not), the comparison nodes, field references and literals are compiled. Any other node (functions, methods, assignments, ranges,
+ * etc) is delegated to a {@link DatawaveInterpreter} which is created lazily for each evaluation, so that the results are identical to executing the script.
+ * The compiled nodes replicate the semantics of the DatawaveInterpreter (including the handling of functional sets and the hit list arithmetic) without the
+ * per node visitor dispatch and tree hashing.
+ */
+public class CompiledJexlScript {
+    private static final Logger log = Logger.getLogger(CompiledJexlScript.class);
+    
+    private final DatawaveJexlEngine engine;
+    private final String text;
+    private final Node root;
+    private int compiledNodes = 0;
+    private int interpretedNodes = 0;
+    
+    public CompiledJexlScript(DatawaveJexlEngine engine, String text, ASTJexlScript script) {
+        this.engine = engine;
+        this.text = text;
+        this.root = compileScript(script);
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    /**
+     * @return the number of syntax tree nodes that were compiled
+     */
+    public int getCompiledNodes() {
+        return compiledNodes;
+    }
+    
+    /**
+     * @return the number of syntax tree nodes that are delegated to the interpreter
+     */
+    public int getInterpretedNodes() {
+        return interpretedNodes;
+    }
+    
+    /**
+     * Evaluate this script against a context. This has the same semantics as Script.execute(context).
+     *
+     * @param context
+     * @return the result
+     */
+    public Object execute(JexlContext context) {
+        Evaluation evaluation = new Evaluation(engine, context);
+        try {
+            return root.evaluate(evaluation);
+        } catch (JexlException xjexl) {
+            if (engine.isSilent()) {
+                log.warn(xjexl.getMessage(), xjexl.getCause());
+                return null;
+            }
+            throw xjexl;
+        }
+    }
+    
+    /******************************* Compilation ***************************/
+    
+    private Node compileScript(ASTJexlScript script) {
+        Node[] children = new Node[script.jjtGetNumChildren()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = compile(script.jjtGetChild(i));
+        }
+        compiledNodes++;
+        return new SequenceNode(children);
+    }
+    
+    private Node compile(JexlNode node) {
+        Node compiled = null;
+        if (node instanceof ASTAndNode) {
+            if (node.jjtGetNumChildren() >= 2 && !isRange(node)) {
+                compiled = new AndNode(node, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)));
+            }
+        } else if (node instanceof ASTOrNode) {
+            if (node.jjtGetNumChildren() >= 2) {
+                compiled = new OrNode(node, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)));
+            }
+        } else if (node instanceof ASTNotNode) {
+            compiled = new NotNode(compile(node.jjtGetChild(0)));
+        } else if (node instanceof ASTEQNode || node instanceof ASTNENode || node instanceof ASTLTNode || node instanceof ASTLENode
+                        || node instanceof ASTGTNode || node instanceof ASTGENode) {
+            compiled = new ComparisonNode(node, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)));
+        } else if (node instanceof ASTERNode || node instanceof ASTNRNode) {
+            // only the regex match against a string is compiled, the other forms are containment checks
+            if (node.jjtGetChild(1) instanceof ASTStringLiteral) {
+                compiled = new ComparisonNode(node, compile(node.jjtGetChild(0)), compile(node.jjtGetChild(1)));
+            }
+        } else if (node instanceof ASTReference) {
+            // a lone identifier within a reference is a simple variable lookup, note that an unknown variable only results in an exception if strict
+            if (node.jjtGetNumChildren() == 1 && node.jjtGetChild(0) instanceof ASTIdentifier && !engine.isStrict()) {
+                ASTIdentifier identifier = (ASTIdentifier) node.jjtGetChild(0);
+                if (identifier.getRegister() < 0) {
+                    compiled = new VariableNode(identifier.image);
+                }
+            } else if (node.jjtGetNumChildren() == 1 && !(node.jjtGetChild(0) instanceof ASTIdentifier)
+                            && !(node.jjtGetChild(0) instanceof ASTNumberLiteral)) {
+                // note that an integer literal within a reference is treated as part of a variable name, so those are interpreted
+                compiled = compile(node.jjtGetChild(0));
+            }
+        } else if (node instanceof ASTReferenceExpression) {
+            if (node.jjtGetNumChildren() == 1) {
+                compiled = compile(node.jjtGetChild(0));
+            }
+        } else if (node instanceof ASTStringLiteral) {
+            compiled = new LiteralNode(node.image);
+        } else if (node instanceof ASTNumberLiteral) {
+            compiled = new LiteralNode(((ASTNumberLiteral) node).getLiteral());
+        } else if (node instanceof ASTTrueNode) {
+            compiled = new LiteralNode(Boolean.TRUE);
+        } else if (node instanceof ASTFalseNode) {
+            compiled = new LiteralNode(Boolean.FALSE);
+        } else if (node instanceof ASTNullLiteral) {
+            compiled = new LiteralNode(null);
+        }
+        
+        if (compiled == null) {
+            interpretedNodes++;
+            return new InterpretedNode(node);
+        }
+        compiledNodes++;
+        return compiled;
+    }
+    
+    /**
+     * Determine whether this and node is a bounded range which the DatawaveInterpreter evaluates as a whole (see DatawaveInterpreter.evaluateRange)
+     */
+    private static boolean isRange(JexlNode node) {
+        JexlNode left = node.jjtGetChild(0);
+        JexlNode right = node.jjtGetChild(1);
+        if (left instanceof ASTLENode || left instanceof ASTLTNode) {
+            JexlNode temp = left;
+            left = right;
+            right = temp;
+        }
+        if ((left instanceof ASTGENode || left instanceof ASTGTNode) && (right instanceof ASTLENode || right instanceof ASTLTNode)) {
+            JexlNode leftIdentifier = dereference(left.jjtGetChild(0));
+            JexlNode rightIdentifier = dereference(right.jjtGetChild(0));
+            return leftIdentifier instanceof ASTIdentifier && rightIdentifier instanceof ASTIdentifier && leftIdentifier.image.equals(rightIdentifier.image);
+        }
+        return false;
+    }
+    
+    private static JexlNode dereference(JexlNode node) {
+        while (node.jjtGetNumChildren() == 1 && (node instanceof ASTReferenceExpression || node instanceof ASTReference)) {
+            node = node.jjtGetChild(0);
+        }
+        return node;
+    }
+    
+    /******************************* Evaluation ***************************/
+    
+    /**
+     * The state of a single evaluation
+     */
+    protected static class Evaluation {
+        private final DatawaveJexlEngine engine;
+        private final JexlContext context;
+        private final JexlArithmetic arithmetic;
+        private DatawaveInterpreter interpreter = null;
+        
+        public Evaluation(DatawaveJexlEngine engine, JexlContext context) {
+            this.engine = engine;
+            this.context = context;
+            this.arithmetic = engine.getJexlArithmetic();
+        }
+        
+        public DatawaveInterpreter getInterpreter() {
+            if (interpreter == null) {
+                interpreter = engine.createDatawaveInterpreter(context);
+            }
+            return interpreter;
+        }
+    }
+    
+    /**
+     * A compiled node
+     */
+    protected abstract static class Node {
+        public abstract Object evaluate(Evaluation evaluation);
+    }
+    
+    protected static class SequenceNode extends Node {
+        private final Node[] children;
+        
+        public SequenceNode(Node[] children) {
+            this.children = children;
+        }
+        
+        @Override
+        public Object evaluate(Evaluation evaluation) {
+            Object result = null;
+            for (Node child : children) {
+                result = child.evaluate(evaluation);
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * A node that is evaluated by the interpreter
+     */
+    protected static class InterpretedNode extends Node {
+        private final JexlNode node;
+        
+        public InterpretedNode(JexlNode node) {
+            this.node = node;
+        }
+        
+        @Override
+        public Object evaluate(Evaluation evaluation) {
+            return node.jjtAccept(evaluation.getInterpreter(), null);
+        }
+    }
+    
+    protected static class LiteralNode extends Node {
+        private final Object value;
+        
+        public LiteralNode(Object value) {
+            this.value = value;
+        }
+        
+        @Override
+        public Object evaluate(Evaluation evaluation) {
+            return value;
+        }
+    }
+    
+    protected static class VariableNode extends Node {
+        private final String name;
+        
+        public VariableNode(String name) {
+            this.name = name;
+        }
+        
+        @Override
+        public Object evaluate(Evaluation evaluation) {
+            return evaluation.context.get(name);
+        }
+    }
+    
+    protected static class NotNode extends Node {
+        private final Node child;
+        
+        public NotNode(Node child) {
+            this.child = child;
+        }
+        
+        @Override
+        public Object evaluate(Evaluation evaluation) {
+            return evaluation.arithmetic.toBoolean(child.evaluate(evaluation)) ? Boolean.FALSE : Boolean.TRUE;
+        }
+    }
+    
+    protected static class ComparisonNode extends Node {
+        private enum Operator {
+            EQ, NE, LT, LE, GT, GE, ER, NR
+        }
+        
+        private final JexlNode node;
+        private final Operator operator;
+        private final Node left;
+        private final Node right;
+        
+        public ComparisonNode(JexlNode node, Node left, Node right) {
+            this.node = node;
+            this.left = left;
+            this.right = right;
+            if (node instanceof ASTEQNode) {
+                operator = Operator.EQ;
+            } else if (node instanceof ASTNENode) {
+                operator = Operator.NE;
+            } else if (node instanceof ASTLTNode) {
+                operator = Operator.LT;
+            } else if (node instanceof ASTLENode) {
+                operator = Operator.LE;
+            } else if (node instanceof ASTGTNode) {
+                operator = Operator.GT;
+            } else if (node instanceof ASTGENode) {
+                operator = Operator.GE;
+            } else if (node instanceof ASTERNode) {
+                operator = Operator.ER;
+            } else if (node instanceof ASTNRNode) {
+                operator = Operator.NR;
+            } else {
+                throw new IllegalArgumentException("Not a comparison node: " + node);
+            }
+        }
+        
+        @Override
+        public Object evaluate(Evaluation evaluation) {
+            Object leftValue = left.evaluate(evaluation);
+            Object rightValue = right.evaluate(evaluation);
+            JexlArithmetic arithmetic = evaluation.arithmetic;
+            try {
+                switch (operator) {
+                    case EQ:
+                        return arithmetic.equals(leftValue, rightValue) ? Boolean.TRUE : Boolean.FALSE;
+                    case NE:
+                        return arithmetic.equals(leftValue, rightValue) ? Boolean.FALSE : Boolean.TRUE;
+                    case LT:
+                        return arithmetic.lessThan(leftValue, rightValue) ? Boolean.TRUE : Boolean.FALSE;
+                    case LE:
+                        return arithmetic.lessThanOrEqual(leftValue, rightValue) ? Boolean.TRUE : Boolean.FALSE;
+                    case GT:
+                        return arithmetic.greaterThan(leftValue, rightValue) ? Boolean.TRUE : Boolean.FALSE;
+                    case GE:
+                        return arithmetic.greaterThanOrEqual(leftValue, rightValue) ? Boolean.TRUE : Boolean.FALSE;
+                    case ER:
+                        return arithmetic.matches(leftValue, rightValue) ? Boolean.TRUE : Boolean.FALSE;
+                    default:
+                        return arithmetic.matches(leftValue, rightValue) ? Boolean.FALSE : Boolean.TRUE;
+                }
+            } catch (ArithmeticException xrt) {
+                throw new JexlException(node, operator + " error", xrt);
+            }
+        }
+    }
+    
+    /**
+     * Replicates DatawaveInterpreter.visit(ASTAndNode) for a non-range and node
+     */
+    protected static class AndNode extends Node {
+        private final JexlNode node;
+        private final Node left;
+        private final Node right;
+        
+        public AndNode(JexlNode node, Node left, Node right) {
+            this.node = node;
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public Object evaluate(Evaluation evaluation) {
+            JexlArithmetic arithmetic = evaluation.arithmetic;
+            FunctionalSet leftFunctionalSet = null;
+            FunctionalSet rightFunctionalSet = null;
+            Object leftValue = left.evaluate(evaluation);
+            if (leftValue == null)
+                leftValue = FunctionalSet.empty();
+            if (!(leftValue instanceof Collection)) {
+                try {
+                    if (!arithmetic.toBoolean(leftValue)) {
+                        return Boolean.FALSE;
+                    }
+                } catch (RuntimeException xrt) {
+                    throw new JexlException(node.jjtGetChild(0), "boolean coercion error", xrt);
+                }
+            } else {
+                leftFunctionalSet = new FunctionalSet();
+                leftFunctionalSet.addAll((Collection) leftValue);
+            }
+            Object rightValue = right.evaluate(evaluation);
+            if (rightValue == null)
+                rightValue = FunctionalSet.empty();
+            if (!(rightValue instanceof Collection)) {
+                try {
+                    if (!arithmetic.toBoolean(rightValue)) {
+                        return Boolean.FALSE;
+                    }
+                } catch (ArithmeticException xrt) {
+                    throw new JexlException(node.jjtGetChild(1), "boolean coercion error", xrt);
+                }
+            } else {
+                rightFunctionalSet = new FunctionalSet();
+                rightFunctionalSet.addAll((Collection) rightValue);
+            }
+            // return union of left and right iff they are both non-null & non-empty
+            if (leftFunctionalSet != null && rightFunctionalSet != null) {
+                if (!leftFunctionalSet.isEmpty() && !rightFunctionalSet.isEmpty()) {
+                    FunctionalSet functionalSet = new FunctionalSet(leftFunctionalSet);
+                    functionalSet.addAll(rightFunctionalSet);
+                    return functionalSet;
+                } else {
+                    return Boolean.FALSE;
+                }
+            } else {
+                return toBoolean(arithmetic, leftValue) && toBoolean(arithmetic, rightValue);
+            }
+        }
+    }
+    
+    /**
+     * Replicates DatawaveInterpreter.visit(ASTOrNode)
+     */
+    protected static class OrNode extends Node {
+        private final JexlNode node;
+        private final Node left;
+        private final Node right;
+        
+        public OrNode(JexlNode node, Node left, Node right) {
+            this.node = node;
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public Object evaluate(Evaluation evaluation) {
+            JexlArithmetic arithmetic = evaluation.arithmetic;
+            FunctionalSet leftFunctionalSet = null;
+            FunctionalSet rightFunctionalSet = null;
+            Object leftValue = left.evaluate(evaluation);
+            if (leftValue == null)
+                leftValue = FunctionalSet.empty();
+            if (!(leftValue instanceof Collection)) {
+                try {
+                    if (arithmetic.toBoolean(leftValue)) {
+                        return Boolean.TRUE;
+                    }
+                } catch (ArithmeticException xrt) {
+                    throw new JexlException(node.jjtGetChild(0), "boolean coercion error", xrt);
+                }
+            } else {
+                leftFunctionalSet = new FunctionalSet();
+                leftFunctionalSet.addAll((Collection) leftValue);
+            }
+            Object rightValue = right.evaluate(evaluation);
+            if (rightValue == null)
+                rightValue = FunctionalSet.empty();
+            if (!(rightValue instanceof Collection)) {
+                try {
+                    if (arithmetic.toBoolean(rightValue)) {
+                        return Boolean.TRUE;
+                    }
+                } catch (ArithmeticException xrt) {
+                    throw new JexlException(node.jjtGetChild(1), "boolean coercion error", xrt);
+                }
+            } else {
+                rightFunctionalSet = new FunctionalSet();
+                rightFunctionalSet.addAll((Collection) rightValue);
+            }
+            // when an identifier is expanded by the data model within a Function node, the results of the matches
+            // for both (all?) fields must be gathered into a single collection to be returned.
+            if (leftFunctionalSet != null && rightFunctionalSet != null) {
+                FunctionalSet functionalSet = new FunctionalSet(leftFunctionalSet);
+                functionalSet.addAll(rightFunctionalSet);
+                return functionalSet;
+            } else if (leftFunctionalSet != null) {
+                return leftFunctionalSet;
+            } else if (rightFunctionalSet != null) {
+                return rightFunctionalSet;
+            } else {
+                return toBoolean(arithmetic, leftValue) || toBoolean(arithmetic, rightValue);
+            }
+        }
+    }
+    
+    private static boolean toBoolean(JexlArithmetic arithmetic, Object value) {
+        if (value instanceof Collection) {
+            return !((Collection) value).isEmpty();
+        }
+        return arithmetic.toBoolean(value);
+    }
+}
@@ -37,4 +37,28 @@ public class DatawaveJexlEngine extends JexlEngine {
     public ASTJexlScript parse(CharSequence expression) {
         return super.parse(expression, null, null);
     }
+    
+    /**
+     * Compile an expression into a tree of evaluation nodes. See {@link CompiledJexlScript}.
+     * 
+     * @param expression
+     * @return the compiled script
+     */
+    public CompiledJexlScript createCompiledScript(String expression) {
+        return new CompiledJexlScript(this, expression, parse(expression));
+    }
+    
+    /**
+     * Create an interpreter configured as would be done when executing a script
+     * 
+     * @param context
+     * @return the interpreter
+     */
+    public DatawaveInterpreter createDatawaveInterpreter(JexlContext context) {
+        return (DatawaveInterpreter) createInterpreter(context, isStrict(), isSilent());
+    }
+    
+    public JexlArithmetic getJexlArithmetic() {
+        return arithmetic;
+    }
 }
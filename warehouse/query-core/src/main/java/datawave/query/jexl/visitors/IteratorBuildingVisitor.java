@@ -5,6 +5,7 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -17,6 +18,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import datawave.core.iterators.FairTaskQueue;
 import datawave.core.iterators.SourcePool;
 import datawave.core.iterators.ThreadLocalPooledSource;
 import datawave.core.iterators.filesystem.FileSystemCache;
@@ -66,6 +68,7 @@ import datawave.query.iterator.SourceManager;
 import datawave.query.jexl.JexlASTHelper.IdentifierOpLiteral;
 import datawave.query.util.IteratorToSortedKeyValueIterator;
 import datawave.query.util.TypeMetadata;
+import datawave.query.util.sortedset.LocalCacheBudget;
 import datawave.webservice.query.exception.DatawaveErrorCode;
 import datawave.webservice.query.exception.QueryException;
 import org.apache.accumulo.core.data.ByteSequence;
@@ -134,6 +137,11 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     protected long ivaratorCacheScanPersistThreshold = 100000L;
     protected long ivaratorCacheScanTimeout = 1000L * 60 * 60;
     protected int ivaratorCacheBufferSize = 10000;
+    protected int queryPriority = FairTaskQueue.DEFAULT_PRIORITY;
+    protected boolean ivaratorOffHeapBuffer = false;
+    protected String ivaratorLocalCacheDir = null;
+    protected long ivaratorLocalCacheMaxSize = LocalCacheBudget.DEFAULT_MAX_BYTES;
+    protected String ivaratorCacheFormat = null;
     protected int maxRangeSplit = 11;
     protected int ivaratorMaxOpenFiles = 100;
     protected SourcePool ivaratorSources = null;
@@ -1004,6 +1012,19 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         throw new IOException("Unable to find a usable hdfs cache dir out of " + ivaratorCacheDirURIs);
     }
     
+    /**
+     * Get the local directory for this query's ivarator caches. All ivarators for this query within this JVM share the local cache budget for this directory.
+     * 
+     * @return the local query dir
+     */
+    private File getLocalCacheQueryDir() {
+        File dir = new File(ivaratorLocalCacheDir, queryId);
+        if (scanId != null) {
+            dir = new File(dir, scanId);
+        }
+        return dir;
+    }
+    
     /**
      * Build the iterator stack using the regex ivarator (field index caching regex iterator)
      * 
@@ -1225,6 +1246,15 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         builder.setQueryLock(queryLock);
         builder.setIvaratorCacheDirURI(path.toString());
         builder.setIvaratorCacheBufferSize(ivaratorCacheBufferSize);
+        builder.setQueryId(queryId);
+        builder.setQueryPriority(queryPriority);
+        builder.setIvaratorOffHeapBuffer(ivaratorOffHeapBuffer);
+        if (ivaratorLocalCacheDir != null) {
+            File localQueryDir = getLocalCacheQueryDir();
+            builder.setIvaratorLocalCacheDir(new File(localQueryDir, new Path(path).getName()).getPath());
+            builder.setIvaratorLocalCacheBudget(LocalCacheBudget.getBudget(localQueryDir, ivaratorLocalCacheMaxSize));
+        }
+        builder.setIvaratorCacheFormat(ivaratorCacheFormat);
         builder.setIvaratorCacheScanPersistThreshold(ivaratorCacheScanPersistThreshold);
         builder.setIvaratorCacheScanTimeout(ivaratorCacheScanTimeout);
         builder.setMaxRangeSplit(maxRangeSplit);
@@ -1421,6 +1451,31 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return this;
     }
     
+    public IteratorBuildingVisitor setIvaratorCacheFormat(String ivaratorCacheFormat) {
+        this.ivaratorCacheFormat = ivaratorCacheFormat;
+        return this;
+    }
+    
+    public IteratorBuildingVisitor setIvaratorLocalCacheMaxSize(long ivaratorLocalCacheMaxSize) {
+        this.ivaratorLocalCacheMaxSize = ivaratorLocalCacheMaxSize;
+        return this;
+    }
+    
+    public IteratorBuildingVisitor setIvaratorLocalCacheDir(String ivaratorLocalCacheDir) {
+        this.ivaratorLocalCacheDir = ivaratorLocalCacheDir;
+        return this;
+    }
+    
+    public IteratorBuildingVisitor setIvaratorOffHeapBuffer(boolean ivaratorOffHeapBuffer) {
+        this.ivaratorOffHeapBuffer = ivaratorOffHeapBuffer;
+        return this;
+    }
+    
+    public IteratorBuildingVisitor setQueryPriority(int queryPriority) {
+        this.queryPriority = queryPriority;
+        return this;
+    }
+    
     public IteratorBuildingVisitor setIvaratorCacheScanPersistThreshold(long ivaratorCacheScanPersistThreshold) {
         this.ivaratorCacheScanPersistThreshold = ivaratorCacheScanPersistThreshold;
         return this;
@@ -0,0 +1,157 @@
+package datawave.query.jexl.visitors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.nodes.QueryPropertyMarker;
+import datawave.query.planner.pushdown.CostEstimator;
+
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.JexlNodes;
+import org.apache.log4j.Logger;
+
+/**
+ * Visitor meant to order the children of each intersection by their estimated cardinality, so that the most selective terms are looked up and evaluated
+ * first. If a maximum index cardinality ratio is configured, equality terms whose estimated cardinality exceeds that ratio times the cardinality of the most
+ * selective sibling are delayed, as scanning their index entries can not narrow the intersection much further.
+ */
+public class OrderByCostVisitor extends BaseVisitor {
+    
+    private static final Logger log = Logger.getLogger(OrderByCostVisitor.class);
+    
+    protected CostEstimator estimator;
+    protected double maxCardinalityRatio;
+    protected Set<String> nonEventFields;
+    protected int delayedTerms = 0;
+    
+    public OrderByCostVisitor(ShardQueryConfiguration config, CostEstimator estimator, Set<String> nonEventFields) {
+        this.estimator = estimator;
+        this.maxCardinalityRatio = config.getMaxIndexCardinalityRatio();
+        this.nonEventFields = nonEventFields;
+    }
+    
+    /**
+     * Order the intersections in the query tree, and record the estimated cardinality of the query and the number of delayed terms in the configuration
+     *
+     * @param queryTree
+     * @param config
+     * @param estimator
+     * @param nonEventFields
+     *            fields which can not be delayed as they can only be found in the index
+     * @return the query tree
+     */
+    public static <T extends JexlNode> T order(T queryTree, ShardQueryConfiguration config, CostEstimator estimator, Set<String> nonEventFields) {
+        OrderByCostVisitor visitor = new OrderByCostVisitor(config, estimator, nonEventFields);
+        queryTree.jjtAccept(visitor, null);
+        
+        long cardinality = estimator.estimateCardinality(queryTree);
+        config.getPlanEstimates().put("estimatedIndexCardinality", cardinality == CostEstimator.UNKNOWN_CARDINALITY ? -1l : cardinality);
+        config.getPlanEstimates().put("delayedTerms", (long) visitor.delayedTerms);
+        return queryTree;
+    }
+    
+    @Override
+    public Object visit(ASTReferenceExpression node, Object data) {
+        // leave marked subtrees alone
+        if (!QueryPropertyMarker.instanceOf(node, null)) {
+            return super.visit(node, data);
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTReference node, Object data) {
+        // leave marked subtrees alone
+        if (!QueryPropertyMarker.instanceOf(node, null)) {
+            return super.visit(node, data);
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTAndNode node, Object data) {
+        // the order of a marker is significant
+        if (QueryPropertyMarker.instanceOf(node, null)) {
+            return data;
+        }
+        
+        node.childrenAccept(this, data);
+        
+        List<Estimate> estimates = new ArrayList<>(node.jjtGetNumChildren());
+        for (JexlNode child : JexlNodes.children(node)) {
+            estimates.add(new Estimate(child, estimator.estimateCardinality(child)));
+        }
+        
+        // a stable sort, so terms without an estimate keep their relative order at the end
+        Collections.sort(estimates, new Comparator<Estimate>() {
+            @Override
+            public int compare(Estimate o1, Estimate o2) {
+                return Long.compare(o1.cardinality, o2.cardinality);
+            }
+        });
+        
+        JexlNode[] children = new JexlNode[estimates.size()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = estimates.get(i).node;
+        }
+        JexlNodes.children(node, children);
+        
+        // only a term against an indexed field has a known cardinality, so the index can always be used to anchor the intersection
+        if (maxCardinalityRatio > 0 && !estimates.isEmpty() && estimates.get(0).cardinality != CostEstimator.UNKNOWN_CARDINALITY) {
+            double threshold = maxCardinalityRatio * Math.max(1l, estimates.get(0).cardinality);
+            for (int i = 1; i < estimates.size(); i++) {
+                Estimate estimate = estimates.get(i);
+                if (estimate.cardinality == CostEstimator.UNKNOWN_CARDINALITY || estimate.cardinality <= threshold || !isDelayable(estimate.node)) {
+                    continue;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Delaying " + JexlStringBuildingVisitor.buildQuery(estimate.node) + " with an estimated cardinality of " + estimate.cardinality
+                                    + ", the most selective term has " + estimates.get(0).cardinality);
+                }
+                ASTDelayedPredicate.create(estimate.node);
+                delayedTerms++;
+            }
+        }
+        
+        return data;
+    }
+    
+    /**
+     * Only equality terms against fields in the event are delayed, anything else may be required to run the query against the index.
+     */
+    protected boolean isDelayable(JexlNode node) {
+        while (node.jjtGetNumChildren() == 1 && (node instanceof ASTReference || node instanceof ASTReferenceExpression)) {
+            node = node.jjtGetChild(0);
+        }
+        if (!(node instanceof ASTEQNode)) {
+            return false;
+        }
+        try {
+            String fieldName = JexlASTHelper.getIdentifier(node);
+            return null == nonEventFields || !nonEventFields.contains(fieldName);
+        } catch (NoSuchElementException e) {
+            return false;
+        }
+    }
+    
+    private static class Estimate {
+        private final JexlNode node;
+        private final long cardinality;
+        
+        private Estimate(JexlNode node, long cardinality) {
+            this.node = node;
+            this.cardinality = cardinality;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package datawave.query.metrics;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -78,62 +79,42 @@ public abstract class BaseQueryMetricHandler<T extends BaseQueryMetric> implemen
     
     public void binSummary(T metric, QueryMetricsSummaryResponse summary, Date hour1, Date hour6, Date hour12, Date day1, Date day7, Date day30, Date day60,
                     Date day90) {
-        Date d = metric.getCreateDate();
-        // Find out which bucket this query belongs to
+        for (QueryMetricSummary bucket : getSummaryBuckets(metric.getCreateDate(), summary, hour1, hour6, hour12, day1, day7, day30, day60, day90)) {
+            populateSummary(metric, bucket);
+        }
+    }
+    
+    /**
+     * Find out which buckets of the summary a query created at the specified date belongs to
+     */
+    public List<QueryMetricSummary> getSummaryBuckets(Date d, QueryMetricsSummaryResponse summary, Date hour1, Date hour6, Date hour12, Date day1, Date day7,
+                    Date day30, Date day60, Date day90) {
+        List<QueryMetricSummary> buckets = new ArrayList<>();
         if (d.after(hour1)) {
-            populateSummary(metric, summary.getHour1());
-            populateSummary(metric, summary.getHour6());
-            populateSummary(metric, summary.getHour12());
-            populateSummary(metric, summary.getDay1());
-            populateSummary(metric, summary.getDay7());
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(hour6)) {
-            populateSummary(metric, summary.getHour6());
-            populateSummary(metric, summary.getHour12());
-            populateSummary(metric, summary.getDay1());
-            populateSummary(metric, summary.getDay7());
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(hour12)) {
-            populateSummary(metric, summary.getHour12());
-            populateSummary(metric, summary.getDay1());
-            populateSummary(metric, summary.getDay7());
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(day1)) {
-            populateSummary(metric, summary.getDay1());
-            populateSummary(metric, summary.getDay7());
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(day7)) {
-            populateSummary(metric, summary.getDay7());
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(day30)) {
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(day60)) {
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(day90)) {
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else {
-            populateSummary(metric, summary.getAll());
+            buckets.add(summary.getHour1());
+        }
+        if (d.after(hour6)) {
+            buckets.add(summary.getHour6());
+        }
+        if (d.after(hour12)) {
+            buckets.add(summary.getHour12());
+        }
+        if (d.after(day1)) {
+            buckets.add(summary.getDay1());
+        }
+        if (d.after(day7)) {
+            buckets.add(summary.getDay7());
+        }
+        if (d.after(day30)) {
+            buckets.add(summary.getDay30());
+        }
+        if (d.after(day60)) {
+            buckets.add(summary.getDay60());
+        }
+        if (d.after(day90)) {
+            buckets.add(summary.getDay90());
         }
+        buckets.add(summary.getAll());
+        return buckets;
     }
 }
@@ -0,0 +1,228 @@
+package datawave.query.metrics;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TimeZone;
+
+import datawave.webservice.query.metric.BaseQueryMetric;
+import datawave.webservice.query.metric.BaseQueryMetric.PageMetric;
+import datawave.webservice.query.metric.QueryMetricSummary;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.time.DateUtils;
+
+/**
+ * The query and page counters of the query metrics created within one hour, which are maintained incrementally by the {@link QueryMetricsRollupCombiner} as
+ * metrics are written so that the summaries can be computed from a handful of entries rather than from every query metric in the date range.
+ *
+ * The rollup table has one row per hour bucket (yyyyMMddHH in GMT). The {@link #ALL_COLF} column holds the counters across all users, and the
+ * {@link #USER_COLF} columns hold the counters of each user, with the user as the column qualifier. The value is the comma separated list of counters.
+ */
+public class QueryMetricsRollup {
+    
+    public static final String ALL_COLF = "all";
+    public static final String USER_COLF = "user";
+    
+    private static final String BUCKET_FORMAT = "yyyyMMddHH";
+    private static final int NUM_COUNTERS = 8;
+    
+    private long queryCount = 0L;
+    private long totalPages = 0L;
+    private long totalPageResultSize = 0L;
+    private long minPageResultSize = Long.MAX_VALUE;
+    private long maxPageResultSize = 0L;
+    private long totalPageResponseTime = 0L;
+    private long minPageResponseTime = Long.MAX_VALUE;
+    private long maxPageResponseTime = 0L;
+    
+    /**
+     * Compute the counters that an update adds to the rollups: the query itself when it has not been stored before, and any pages which have not been stored
+     * before.
+     *
+     * @param updatedQueryMetric
+     *            the metric being written
+     * @param storedQueryMetrics
+     *            the previously stored versions of the metric
+     * @return the counters to add, or null if the update adds nothing
+     */
+    public static QueryMetricsRollup getDelta(BaseQueryMetric updatedQueryMetric, Collection<? extends BaseQueryMetric> storedQueryMetrics) {
+        boolean stored = false;
+        Set<Long> storedPages = new HashSet<>();
+        for (BaseQueryMetric storedQueryMetric : storedQueryMetrics) {
+            if (updatedQueryMetric.getQueryId() != null && updatedQueryMetric.getQueryId().equals(storedQueryMetric.getQueryId())) {
+                stored = true;
+                if (storedQueryMetric.getPageTimes() != null) {
+                    for (PageMetric page : storedQueryMetric.getPageTimes()) {
+                        storedPages.add(page.getPageNumber());
+                    }
+                }
+            }
+        }
+        
+        QueryMetricsRollup delta = new QueryMetricsRollup();
+        if (!stored) {
+            delta.addQuery();
+        }
+        if (updatedQueryMetric.getPageTimes() != null) {
+            for (PageMetric page : updatedQueryMetric.getPageTimes()) {
+                if (storedPages.add(page.getPageNumber())) {
+                    delta.addPage(page.getPagesize(), page.getReturnTime());
+                }
+            }
+        }
+        return delta.isEmpty() ? null : delta;
+    }
+    
+    public void addQuery() {
+        queryCount++;
+    }
+    
+    public void addPage(long pagesize, long responseTime) {
+        totalPages++;
+        totalPageResultSize += pagesize;
+        minPageResultSize = Math.min(minPageResultSize, pagesize);
+        maxPageResultSize = Math.max(maxPageResultSize, pagesize);
+        totalPageResponseTime += responseTime;
+        minPageResponseTime = Math.min(minPageResponseTime, responseTime);
+        maxPageResponseTime = Math.max(maxPageResponseTime, responseTime);
+    }
+    
+    public void merge(QueryMetricsRollup other) {
+        queryCount += other.queryCount;
+        totalPages += other.totalPages;
+        totalPageResultSize += other.totalPageResultSize;
+        minPageResultSize = Math.min(minPageResultSize, other.minPageResultSize);
+        maxPageResultSize = Math.max(maxPageResultSize, other.maxPageResultSize);
+        totalPageResponseTime += other.totalPageResponseTime;
+        minPageResponseTime = Math.min(minPageResponseTime, other.minPageResponseTime);
+        maxPageResponseTime = Math.max(maxPageResponseTime, other.maxPageResponseTime);
+    }
+    
+    public boolean isEmpty() {
+        return queryCount == 0 && totalPages == 0;
+    }
+    
+    /**
+     * Add these counters to a summary bucket, with the same semantics as {@link QueryMetricSummary#addQuery()} and
+     * {@link QueryMetricSummary#addPage(long, long)}.
+     */
+    public void addTo(QueryMetricSummary summary) {
+        summary.setQueryCount(summary.getQueryCount() + queryCount);
+        if (totalPages > 0) {
+            summary.setTotalPages(summary.getTotalPages() + totalPages);
+            summary.setTotalPageResultSize(summary.getTotalPageResultSize() + totalPageResultSize);
+            summary.setMinPageResultSize(Math.min(summary.getMinPageResultSize(), minPageResultSize));
+            summary.setMaxPageResultSize(Math.max(summary.getMaxPageResultSize(), maxPageResultSize));
+            summary.setTotalPageResponseTime(summary.getTotalPageResponseTime() + totalPageResponseTime);
+            summary.setMinPageResponseTime(Math.min(summary.getMinPageResponseTime(), minPageResponseTime));
+            summary.setMaxPageResponseTime(Math.max(summary.getMaxPageResponseTime(), maxPageResponseTime));
+        }
+    }
+    
+    /**
+     * Create the mutation which adds these counters to the all users and the user rollups of the hour in which the query was created.
+     */
+    public Mutation toMutation(Date createDate, String user, ColumnVisibility visibility, long timestamp) {
+        Mutation m = new Mutation(getBucket(createDate));
+        Value value = toValue();
+        m.put(ALL_COLF, "", visibility, timestamp, value);
+        if (user != null) {
+            m.put(USER_COLF, user, visibility, timestamp, value);
+        }
+        return m;
+    }
+    
+    public Value toValue() {
+        long[] counters = new long[] {queryCount, totalPages, totalPageResultSize, minPageResultSize, maxPageResultSize, totalPageResponseTime,
+                minPageResponseTime, maxPageResponseTime};
+        StringBuilder builder = new StringBuilder();
+        for (long counter : counters) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(counter);
+        }
+        return new Value(builder.toString().getBytes());
+    }
+    
+    public static QueryMetricsRollup fromValue(Value value) {
+        String[] counters = StringUtils.split(value.toString(), ',');
+        if (counters.length != NUM_COUNTERS) {
+            throw new IllegalArgumentException("Expected " + NUM_COUNTERS + " counters but found " + counters.length + ": " + value);
+        }
+        QueryMetricsRollup rollup = new QueryMetricsRollup();
+        rollup.queryCount = Long.parseLong(counters[0]);
+        rollup.totalPages = Long.parseLong(counters[1]);
+        rollup.totalPageResultSize = Long.parseLong(counters[2]);
+        rollup.minPageResultSize = Long.parseLong(counters[3]);
+        rollup.maxPageResultSize = Long.parseLong(counters[4]);
+        rollup.totalPageResponseTime = Long.parseLong(counters[5]);
+        rollup.minPageResponseTime = Long.parseLong(counters[6]);
+        rollup.maxPageResponseTime = Long.parseLong(counters[7]);
+        return rollup;
+    }
+    
+    private static SimpleDateFormat getBucketFormat() {
+        SimpleDateFormat format = new SimpleDateFormat(BUCKET_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    }
+    
+    /**
+     * @return the row of the hour bucket containing the specified date
+     */
+    public static String getBucket(Date date) {
+        return getBucketFormat().format(date);
+    }
+    
+    /**
+     * @return the last millisecond of the hour bucket in the specified row
+     */
+    public static Date getBucketEnd(String bucket) throws ParseException {
+        return new Date(getBucketFormat().parse(bucket).getTime() + DateUtils.MILLIS_PER_HOUR - 1);
+    }
+    
+    public long getQueryCount() {
+        return queryCount;
+    }
+    
+    public long getTotalPages() {
+        return totalPages;
+    }
+    
+    public long getTotalPageResultSize() {
+        return totalPageResultSize;
+    }
+    
+    public long getMinPageResultSize() {
+        return minPageResultSize;
+    }
+    
+    public long getMaxPageResultSize() {
+        return maxPageResultSize;
+    }
+    
+    public long getTotalPageResponseTime() {
+        return totalPageResponseTime;
+    }
+    
+    public long getMinPageResponseTime() {
+        return minPageResponseTime;
+    }
+    
+    public long getMaxPageResponseTime() {
+        return maxPageResponseTime;
+    }
+    
+    @Override
+    public String toString() {
+        return toValue().toString();
+    }
+}
@@ -0,0 +1,30 @@
+package datawave.query.metrics;
+
+import java.util.Iterator;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Combiner;
+import org.apache.log4j.Logger;
+
+/**
+ * Combines the {@link QueryMetricsRollup} counters written for the same hour and user into a single entry.
+ */
+public class QueryMetricsRollupCombiner extends Combiner {
+    
+    private static final Logger log = Logger.getLogger(QueryMetricsRollupCombiner.class);
+    
+    @Override
+    public Value reduce(Key key, Iterator<Value> iter) {
+        QueryMetricsRollup rollup = new QueryMetricsRollup();
+        while (iter.hasNext()) {
+            Value value = iter.next();
+            try {
+                rollup.merge(QueryMetricsRollup.fromValue(value));
+            } catch (Exception e) {
+                log.error("Unable to decode query metrics rollup from " + key + " / " + value, e);
+            }
+        }
+        return rollup.toValue();
+    }
+}
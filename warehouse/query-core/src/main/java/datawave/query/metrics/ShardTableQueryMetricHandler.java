@@ -9,6 +9,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -63,6 +64,7 @@ import datawave.webservice.query.metric.BaseQueryMetric.Lifecycle;
 import datawave.webservice.query.metric.BaseQueryMetricListResponse;
 import datawave.webservice.query.metric.QueryMetric;
 import datawave.webservice.query.metric.QueryMetricListResponse;
+import datawave.webservice.query.metric.QueryMetricSummary;
 import datawave.webservice.query.metric.QueryMetricsDetailListResponse;
 import datawave.webservice.query.metric.QueryMetricsSummaryHtmlResponse;
 import datawave.webservice.query.metric.QueryMetricsSummaryResponse;
@@ -77,12 +79,17 @@ import datawave.webservice.result.EventQueryResponseBase;
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableExistsException;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.client.admin.TableOperations;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Combiner;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.collections.map.LRUMap;
@@ -132,6 +139,15 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
     @Inject
     private QueryMetricFactory metricFactory;
     
+    /**
+     * Whether the summaries are read from the rollup table rather than aggregated from every query metric in the date range. The rollups are written
+     * regardless, but only cover the metrics written since they were introduced and are not backfilled. Summaries of a range beginning before the rollups were
+     * deployed would undercount, so this should only be enabled once the rollups cover the ranges being summarized.
+     */
+    @Inject
+    @ConfigProperty(name = "dw.query.metrics.rollups.enabled", defaultValue = "false")
+    private boolean rollupsEnabled;
+    
     private Collection<String> connectorAuthorizationCollection = null;
     private String connectorAuthorizations = null;
     
@@ -140,6 +156,9 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
     @SuppressWarnings("FieldCanBeLocal")
     private static final String NULL_BYTE = "\0";
     public static final String CONTEXT_WRITER_MAX_CACHE_SIZE = "context.writer.max.cache.size";
+    public static final String ROLLUP_TABLE_NAME = "querymetrics.rollup.table.name";
+    public static final String DEFAULT_ROLLUP_TABLE_NAME = "QueryMetrics_s";
+    private static final int ROLLUP_COMBINER_PRIORITY = 10;
     
     // static to share the cache across instances of this class held by QueryExecutorBean, CachedResultsBean, QueryMetricsEnrichmentInterceptor, etc
     @SuppressWarnings("unchecked")
@@ -206,6 +225,7 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             connector = this.connectionFactory.getConnection(Priority.ADMIN, new HashMap<String,String>());
             AbstractColumnBasedHandler<Key> handler = new ContentQueryMetricsHandler<>();
             createAndConfigureTablesIfNecessary(handler.getTableNames(conf), connector.tableOperations(), conf);
+            createRollupTableIfNecessary(connector.tableOperations());
         } catch (Exception e) {
             log.error("Error verifying table configuration", e);
         } finally {
@@ -279,12 +299,7 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         event.setConf(this.conf);
         event.setDataType(type);
         event.setDate(storedQueryMetric.getCreateDate().getTime());
-        // get security marking set in the config, otherwise default to PUBLIC
-        if (visibilityString != null) {
-            event.setVisibility(new ColumnVisibility(visibilityString));
-        } else {
-            event.setVisibility(new ColumnVisibility(DEFAULT_SECURITY_MARKING));
-        }
+        event.setVisibility(getColumnVisibility());
         event.setAuxData(storedQueryMetric);
         event.setRawRecordNumber(1000L);
         
@@ -441,6 +456,9 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             
             // write new entry
             writeMetrics(updatedQueryMetric, Collections.singletonList(updatedQueryMetric), lastUpdated, false);
+            
+            // add anything new to the rollups
+            writeRollup(updatedQueryMetric, sid, queryMetrics);
         } finally {
             enableLogs(true);
         }
@@ -568,6 +586,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             // this method is open to any user
             datawavePrincipal = callerPrincipal;
             
+            if (rollupsEnabled && readRollups(response, begin, end, null, datawavePrincipal)) {
+                return response;
+            }
+            
             Collection<? extends Collection<String>> authorizations = datawavePrincipal.getAuthorizations();
             QueryImpl query = new QueryImpl();
             query.setBeginDate(begin);
@@ -604,6 +626,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             // this method is open to any user
             datawavePrincipal = callerPrincipal;
             
+            if (rollupsEnabled && readRollups(response, begin, end, user, datawavePrincipal)) {
+                return response;
+            }
+            
             Collection<? extends Collection<String>> authorizations = datawavePrincipal.getAuthorizations();
             QueryImpl query = new QueryImpl();
             query.setBeginDate(begin);
@@ -630,6 +656,103 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         return response;
     }
     
+    private ColumnVisibility getColumnVisibility() {
+        // get security marking set in the config, otherwise default to PUBLIC
+        return new ColumnVisibility(visibilityString != null ? visibilityString : DEFAULT_SECURITY_MARKING);
+    }
+    
+    private Text getRollupTableName() {
+        return new Text(conf.get(ROLLUP_TABLE_NAME, DEFAULT_ROLLUP_TABLE_NAME));
+    }
+    
+    /**
+     * Add the query and the pages that have not been stored before to the rollups of the hour in which the query was created
+     */
+    private void writeRollup(QueryMetric updatedQueryMetric, String user, List<QueryMetric> storedQueryMetrics) throws IOException {
+        QueryMetricsRollup delta = QueryMetricsRollup.getDelta(updatedQueryMetric, storedQueryMetrics);
+        if (delta != null && updatedQueryMetric.getCreateDate() != null) {
+            recordWriter.write(getRollupTableName(),
+                            delta.toMutation(updatedQueryMetric.getCreateDate(), user, getColumnVisibility(), System.currentTimeMillis()));
+        }
+    }
+    
+    /**
+     * Populate a summary from the hourly rollups between the begin and end dates. A rollup is counted in each of the summary periods that its hour overlaps.
+     *
+     * @param summary
+     *            the summary to populate
+     * @param begin
+     *            the begin date
+     * @param end
+     *            the end date
+     * @param user
+     *            the user to summarize, or null for all users
+     * @param datawavePrincipal
+     *            the principal whose authorizations are used to read the rollups
+     * @return true if the summary was populated, false if the rollups could not be read
+     */
+    private boolean readRollups(QueryMetricsSummaryResponse summary, Date begin, Date end, String user, DatawavePrincipal datawavePrincipal) {
+        Date now = new Date();
+        Date hour1 = DateUtils.addHours(now, -1);
+        Date hour6 = DateUtils.addHours(now, -6);
+        Date hour12 = DateUtils.addHours(now, -12);
+        Date day1 = DateUtils.addDays(now, -1);
+        Date day7 = DateUtils.addDays(now, -7);
+        Date day30 = DateUtils.addDays(now, -30);
+        Date day60 = DateUtils.addDays(now, -60);
+        Date day90 = DateUtils.addDays(now, -90);
+        
+        Connector connector = null;
+        try {
+            Map<String,String> trackingMap = this.connectionFactory.getTrackingMap(Thread.currentThread().getStackTrace());
+            connector = this.connectionFactory.getConnection(Priority.ADMIN, trackingMap);
+            
+            // only use the caller's authorizations that the connector also has
+            Set<String> auths = new HashSet<>();
+            for (Collection<String> userAuths : datawavePrincipal.getAuthorizations()) {
+                auths.addAll(userAuths);
+            }
+            auths.retainAll(connectorAuthorizationCollection);
+            
+            Scanner scanner = connector.createScanner(getRollupTableName().toString(), new Authorizations(auths.toArray(new String[auths.size()])));
+            scanner.setRange(new Range(QueryMetricsRollup.getBucket(begin), true, QueryMetricsRollup.getBucket(end), true));
+            if (user == null) {
+                scanner.fetchColumnFamily(new Text(QueryMetricsRollup.ALL_COLF));
+            } else {
+                scanner.fetchColumn(new Text(QueryMetricsRollup.USER_COLF), new Text(user));
+            }
+            
+            for (Entry<Key,Value> entry : scanner) {
+                QueryMetricsRollup rollup = QueryMetricsRollup.fromValue(entry.getValue());
+                Date bucketEnd = QueryMetricsRollup.getBucketEnd(entry.getKey().getRow().toString());
+                for (QueryMetricSummary bucket : getSummaryBuckets(bucketEnd, summary, hour1, hour6, hour12, day1, day7, day30, day60, day90)) {
+                    rollup.addTo(bucket);
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("Unable to read the query metrics rollups, summarizing the query metrics instead", e);
+            summary.setHour1(new QueryMetricSummary());
+            summary.setHour6(new QueryMetricSummary());
+            summary.setHour12(new QueryMetricSummary());
+            summary.setDay1(new QueryMetricSummary());
+            summary.setDay7(new QueryMetricSummary());
+            summary.setDay30(new QueryMetricSummary());
+            summary.setDay60(new QueryMetricSummary());
+            summary.setDay90(new QueryMetricSummary());
+            summary.setAll(new QueryMetricSummary());
+            return false;
+        } finally {
+            if (null != connector) {
+                try {
+                    this.connectionFactory.returnConnection(connector);
+                } catch (Exception e) {
+                    log.warn("Could not return connector to factory", e);
+                }
+            }
+        }
+    }
+    
     public QueryMetric toMetric(datawave.webservice.query.result.event.EventBase event) {
         SimpleDateFormat sdf_date_time1 = new SimpleDateFormat("yyyyMMdd HHmmss");
         SimpleDateFormat sdf_date_time2 = new SimpleDateFormat("yyyyMMdd HHmmss");
@@ -813,6 +936,24 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         }
     }
     
+    /**
+     * Create the rollup table with the combiner which maintains its counters, if it does not exist
+     */
+    protected void createRollupTableIfNecessary(TableOperations tops) throws AccumuloSecurityException, AccumuloException, TableNotFoundException {
+        String table = getRollupTableName().toString();
+        try {
+            if (!tops.exists(table)) {
+                tops.create(table);
+                IteratorSetting setting = new IteratorSetting(ROLLUP_COMBINER_PRIORITY, QueryMetricsRollupCombiner.class);
+                Combiner.setCombineAllColumns(setting, true);
+                tops.attachIterator(table, setting);
+            }
+        } catch (TableExistsException te) {
+            // in this case, somebody else must have created the table after our existence check
+            log.debug("Tried to create " + table + " but somebody beat us to the punch");
+        }
+    }
+    
     @SuppressWarnings("unchecked")
     private Map<String,TableConfigHelper> getTableConfigs(Logger log, Configuration conf, String[] tableNames) {
         Map<String,TableConfigHelper> helperMap = new HashMap<>(tableNames.length);
@@ -895,6 +1036,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             // this method is open to any user
             datawavePrincipal = callerPrincipal;
             
+            if (rollupsEnabled && readRollups(response, begin, end, null, datawavePrincipal)) {
+                return response;
+            }
+            
             Collection<? extends Collection<String>> authorizations = datawavePrincipal.getAuthorizations();
             QueryImpl query = new QueryImpl();
             query.setBeginDate(begin);
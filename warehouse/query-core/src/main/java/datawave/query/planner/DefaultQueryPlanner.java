@@ -50,6 +50,7 @@ import datawave.query.jexl.visitors.FunctionIndexQueryExpansionVisitor;
 import datawave.query.jexl.visitors.IsNotNullIntentVisitor;
 import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
 import datawave.query.jexl.visitors.Negations;
+import datawave.query.jexl.visitors.OrderByCostVisitor;
 import datawave.query.jexl.visitors.ParallelIndexExpansion;
 import datawave.query.jexl.visitors.PrintingVisitor;
 import datawave.query.jexl.visitors.PullupUnexecutableNodesVisitor;
@@ -69,6 +70,7 @@ import datawave.query.jexl.visitors.ValidPatternVisitor;
 import datawave.query.model.QueryModel;
 import datawave.query.planner.comparator.DefaultQueryPlanComparator;
 import datawave.query.planner.comparator.GeoWaveQueryPlanComparator;
+import datawave.query.planner.pushdown.CostEstimator;
 import datawave.query.planner.pushdown.PushDownVisitor;
 import datawave.query.planner.pushdown.rules.PushDownRule;
 import datawave.query.postprocessing.tf.Function;
@@ -1014,7 +1016,7 @@ public class DefaultQueryPlanner extends QueryPlanner {
         // lets precomputed the indexed fields and index only fields for the specific datatype if needed below
         Set<String> indexedFields = null;
         Set<String> nonEventFields = null;
-        if (config.getMinSelectivity() > 0 || !disableBoundedLookup) {
+        if (config.getMinSelectivity() > 0 || !disableBoundedLookup || config.getUseCardinalityCostModel()) {
             try {
                 indexedFields = metadataHelper.getIndexedFields(config.getDatatypeFilter());
                 nonEventFields = metadataHelper.getNonEventFields(config.getDatatypeFilter());
@@ -1133,6 +1135,19 @@ public class DefaultQueryPlanner extends QueryPlanner {
             }
         }
         
+        // order the intersections by estimated cardinality, delaying terms which would not narrow them down
+        if (config.getUseCardinalityCostModel()) {
+            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Order terms by estimated cardinality");
+            
+            queryTree = OrderByCostVisitor.order(queryTree, config, new CostEstimator(config, scannerFactory, metadataHelper), nonEventFields);
+            if (log.isDebugEnabled()) {
+                logQuery(queryTree, "Query after ordering terms by estimated cardinality:");
+                log.debug("Plan estimates: " + config.getPlanEstimates());
+            }
+            
+            stopwatch.stop();
+        }
+        
         return queryTree;
     }
     
@@ -1505,6 +1520,14 @@ public class DefaultQueryPlanner extends QueryPlanner {
                     addOption(cfg, QueryOptions.IVARATOR_CACHE_BASE_URI_ALTERNATIVES, getIvaratorQueryCacheBaseUriAlternatives(config), false);
                 }
                 addOption(cfg, QueryOptions.IVARATOR_CACHE_BUFFER_SIZE, Integer.toString(config.getIvaratorCacheBufferSize()), false);
+                addOption(cfg, QueryOptions.IVARATOR_OFF_HEAP_BUFFER, Boolean.toString(config.isIvaratorOffHeapBuffer()), false);
+                if (config.getIvaratorLocalCacheDir() != null) {
+                    addOption(cfg, QueryOptions.IVARATOR_LOCAL_CACHE_DIR, config.getIvaratorLocalCacheDir(), false);
+                }
+                addOption(cfg, QueryOptions.IVARATOR_LOCAL_CACHE_MAX_SIZE, Long.toString(config.getIvaratorLocalCacheMaxSize()), false);
+                if (config.getIvaratorCacheFormat() != null) {
+                    addOption(cfg, QueryOptions.IVARATOR_CACHE_FORMAT, config.getIvaratorCacheFormat(), false);
+                }
                 addOption(cfg, QueryOptions.IVARATOR_SCAN_PERSIST_THRESHOLD, Long.toString(config.getIvaratorCacheScanPersistThreshold()), false);
                 addOption(cfg, QueryOptions.IVARATOR_SCAN_TIMEOUT, Long.toString(config.getIvaratorCacheScanTimeout()), false);
                 addOption(cfg, QueryOptions.COLLECT_TIMING_DETAILS, Boolean.toString(config.getCollectTimingDetails()), false);
@@ -1512,6 +1535,9 @@ public class DefaultQueryPlanner extends QueryPlanner {
                 addOption(cfg, QueryOptions.MAX_IVARATOR_OPEN_FILES, Integer.toString(config.getIvaratorMaxOpenFiles()), false);
                 addOption(cfg, QueryOptions.MAX_EVALUATION_PIPELINES, Integer.toString(config.getMaxEvaluationPipelines()), false);
                 addOption(cfg, QueryOptions.MAX_PIPELINE_CACHED_RESULTS, Integer.toString(config.getMaxPipelineCachedResults()), false);
+                addOption(cfg, QueryOptions.ADAPTIVE_EVALUATION_PIPELINES, Boolean.toString(config.isAdaptiveEvaluationPipelines()), false);
+                addOption(cfg, QueryOptions.QUERY_PRIORITY, Integer.toString(config.getQueryPriority()), false);
+                addOption(cfg, QueryOptions.COMPACT_DOCUMENTS, Boolean.toString(config.isCompactDocuments()), false);
                 addOption(cfg, QueryOptions.MAX_IVARATOR_SOURCES, Integer.toString(config.getMaxIvaratorSources()), false);
                 
                 if (config.getYieldThresholdMs() != Long.MAX_VALUE && config.getYieldThresholdMs() > 0) {
@@ -1748,6 +1774,7 @@ public class DefaultQueryPlanner extends QueryPlanner {
         
         addOption(cfg, QueryOptions.REDUCED_RESPONSE, Boolean.toString(config.isReducedResponse()), false);
         addOption(cfg, QueryOptions.DISABLE_EVALUATION, Boolean.toString(config.isDisableEvaluation()), false);
+        addOption(cfg, QueryOptions.COMPILED_EVALUATION, Boolean.toString(config.isCompiledEvaluation()), false);
         addOption(cfg, QueryOptions.DISABLE_DOCUMENTS_WITHOUT_EVENTS, Boolean.toString(config.disableIndexOnlyDocuments()), false);
         addOption(cfg, QueryOptions.INCLUDE_GROUPING_CONTEXT, Boolean.toString(config.getIncludeGroupingContext()), false);
         addOption(cfg, QueryOptions.CONTAINS_INDEX_ONLY_TERMS, Boolean.toString(config.isContainsIndexOnlyTerms()), false);
@@ -3,11 +3,15 @@ package datawave.query.planner.pushdown;
 import static org.apache.commons.jexl2.parser.JexlNodes.children;
 import static org.apache.commons.jexl2.parser.JexlNodes.id;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
+import datawave.data.MetadataCardinalityCounts;
 import datawave.query.config.ShardQueryConfiguration;
 import datawave.query.jexl.JexlASTHelper;
 import datawave.query.jexl.lookups.RegexIndexLookup;
+import datawave.query.jexl.nodes.QueryPropertyMarker;
 import datawave.query.parser.JavaRegexAnalyzer;
 import datawave.query.parser.JavaRegexAnalyzer.JavaRegexParseException;
 import datawave.query.Constants;
@@ -29,6 +33,15 @@ public class CostEstimator {
     protected MetadataHelper helper;
     protected ScannerFactory scannerFactory;
     
+    /**
+     * The cardinality returned when there are no statistics for a subtree, or when it can not be looked up in the index
+     */
+    public static final long UNKNOWN_CARDINALITY = Long.MAX_VALUE;
+    
+    protected Map<String,Map<String,MetadataCardinalityCounts>> termCounts = null;
+    protected final Map<String,Long> fieldCardinalities = new HashMap<>();
+    protected final Map<String,Boolean> indexedFields = new HashMap<>();
+    
     public CostEstimator(PushDownVisitor visitor) {
         this.config = visitor.getConfiguration();
         this.helper = visitor.getHelper();
@@ -145,4 +158,132 @@ public class CostEstimator {
         }
     }
     
+    /**
+     * Estimate the number of index entries that a subtree would match using the term counts in the metadata table, falling back to the field counts for the
+     * date range of the query. Only equality terms against indexed fields are estimated, anything else is {@link #UNKNOWN_CARDINALITY}.
+     *
+     * @param node
+     * @return the estimated cardinality
+     */
+    public long estimateCardinality(JexlNode node) {
+        switch (id(node)) {
+            case ParserTreeConstants.JJTEQNODE:
+                return estimateTermCardinality(node);
+            case ParserTreeConstants.JJTANDNODE: {
+                if (QueryPropertyMarker.instanceOf(node, null)) {
+                    return UNKNOWN_CARDINALITY;
+                }
+                // an intersection can match no more than its most selective child
+                long cardinality = UNKNOWN_CARDINALITY;
+                for (JexlNode child : children(node)) {
+                    cardinality = Math.min(cardinality, estimateCardinality(child));
+                }
+                return cardinality;
+            }
+            case ParserTreeConstants.JJTORNODE: {
+                // a union can match as much as all of its children
+                long cardinality = 0l;
+                for (JexlNode child : children(node)) {
+                    long childCardinality = estimateCardinality(child);
+                    if (childCardinality == UNKNOWN_CARDINALITY || cardinality > UNKNOWN_CARDINALITY - childCardinality) {
+                        return UNKNOWN_CARDINALITY;
+                    }
+                    cardinality += childCardinality;
+                }
+                return cardinality;
+            }
+            case ParserTreeConstants.JJTREFERENCE:
+            case ParserTreeConstants.JJTREFERENCEEXPRESSION:
+            case ParserTreeConstants.JJTJEXLSCRIPT: {
+                if (1 == node.jjtGetNumChildren() && !QueryPropertyMarker.instanceOf(node, null)) {
+                    return estimateCardinality(node.jjtGetChild(0));
+                }
+                return UNKNOWN_CARDINALITY;
+            }
+            default:
+                return UNKNOWN_CARDINALITY;
+        }
+    }
+    
+    protected long estimateTermCardinality(JexlNode node) {
+        String fieldName;
+        Object literal;
+        try {
+            fieldName = JexlASTHelper.getIdentifier(node);
+            literal = JexlASTHelper.getLiteralValue(node);
+        } catch (NoSuchElementException e) {
+            log.trace("Could not find field name or literal for EQ node, ignoring for cardinality");
+            return UNKNOWN_CARDINALITY;
+        }
+        
+        // _ANYFIELD_ terms (could not expand) and null literals can not be looked up in the index
+        if (fieldName.equals(Constants.ANY_FIELD) || null == literal) {
+            return UNKNOWN_CARDINALITY;
+        }
+        
+        // term counts may remain in the metadata table for fields which are no longer indexed
+        if (!isIndexed(fieldName)) {
+            return UNKNOWN_CARDINALITY;
+        }
+        
+        Map<String,MetadataCardinalityCounts> valueCounts = getTermCounts().get(fieldName);
+        if (null != valueCounts) {
+            MetadataCardinalityCounts counts = valueCounts.get(String.valueOf(literal));
+            if (null != counts) {
+                return counts.getFieldValueCount();
+            }
+        }
+        
+        Long cardinality = fieldCardinalities.get(fieldName);
+        if (null == cardinality) {
+            cardinality = estimateFieldCardinality(fieldName, valueCounts);
+            fieldCardinalities.put(fieldName, cardinality);
+        }
+        return cardinality;
+    }
+    
+    /**
+     * Estimate the cardinality of an arbitrary value of a field: the average count per value if we have term counts for the field, otherwise the count of the
+     * field over the date range of the query. The field is expected to be indexed.
+     */
+    protected long estimateFieldCardinality(String fieldName, Map<String,MetadataCardinalityCounts> valueCounts) {
+        if (null != valueCounts && !valueCounts.isEmpty()) {
+            MetadataCardinalityCounts counts = valueCounts.values().iterator().next();
+            return counts.getFieldAllValueCount() / Math.max(1l, counts.getUniqueFieldAllValueCount());
+        }
+        
+        Long count = helper.getCountsByFieldForDays(fieldName, config.getBeginDate(), config.getEndDate(), config.getDatatypeFilter());
+        return null == count ? UNKNOWN_CARDINALITY : count;
+    }
+    
+    protected boolean isIndexed(String fieldName) {
+        Boolean indexed = indexedFields.get(fieldName);
+        if (null == indexed) {
+            try {
+                indexed = helper.isIndexed(fieldName, config.getDatatypeFilter());
+            } catch (TableNotFoundException e) {
+                log.error("Could not find metadata table", e);
+                indexed = false;
+            }
+            indexedFields.put(fieldName, indexed);
+        }
+        return indexed;
+    }
+    
+    protected Map<String,Map<String,MetadataCardinalityCounts>> getTermCounts() {
+        if (null == termCounts) {
+            try {
+                // We can get the term counts with root auths (ignoring user auths) because this information is not
+                // exposed to the user. It is only used to adjust the query planning.
+                termCounts = helper.getTermCountsWithRootAuths();
+            } catch (Exception e) {
+                log.error("Could not retrieve counts from metadata helper", e);
+            }
+            if (null == termCounts) {
+                termCounts = new HashMap<>();
+            }
+        }
+        return termCounts;
+    }
+    
 }
@@ -170,6 +170,10 @@ public class PushdownScheduler extends Scheduler {
         
         session.setScanLimit(config.getMaxDocScanTimeout());
         
+        if (config.getMaxResultBufferBytes() > 0) {
+            session.setMaxResultBytes(config.getMaxResultBufferBytes());
+        }
+        
         if (config.getBackoffEnabled()) {
             session.setBackoffEnabled(true);
         }
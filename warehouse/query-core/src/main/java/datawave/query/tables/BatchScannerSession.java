@@ -280,13 +280,18 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
         while (scannerBatches.hasNext())
         
         {
-            if (runnableCount.get() < (threadCount * RANGE_MULTIPLIER)) {
+            if (runnableCount.get() < (threadCount * RANGE_MULTIPLIER) && hasDemand()) {
                 if (currentBatch.isEmpty()) {
                     List<ScannerChunk> chunks = scannerBatches.next();
                     
-                    submitTasks(chunks);
+                    if (null == getByteBoundedResultQueue()) {
+                        submitTasks(chunks);
+                    } else {
+                        pushChunks(chunks);
+                        submitPendingTasks();
+                    }
                 } else {
-                    submitTasks();
+                    submitPendingTasks();
                 }
             } else if (currentBatch.size() < (threadCount * QUEUE_MULTIPLIER)) {
                 
@@ -299,7 +304,12 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
                     log.trace("Parking for 10 milliseconds until we have additional work that can be done; " + threadCount + " "
                                     + (threadCount * RANGE_MULTIPLIER) + " " + currentBatch.size() + " >= " + (threadCount * QUEUE_MULTIPLIER));
                 }
-                Thread.sleep(10);
+                if (runnableCount.get() < (threadCount * RANGE_MULTIPLIER)) {
+                    // only waiting on the consumer
+                    awaitDemand(10, TimeUnit.MILLISECONDS);
+                } else {
+                    Thread.sleep(10);
+                }
                 if (Thread.interrupted() || !isRunning()) {
                     service.shutdownNow();
                     throw new InterruptedException("Interrupted while parking");
@@ -307,6 +317,18 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
             }
             
         }
+        // when bound by bytes, the remaining chunks are dispatched one at a time as the consumer makes room for their results
+        while (null != getByteBoundedResultQueue() && !currentBatch.isEmpty()) {
+            if (runnableCount.get() >= (threadCount * RANGE_MULTIPLIER)) {
+                Thread.sleep(10);
+            } else if (awaitDemand(10, TimeUnit.MILLISECONDS)) {
+                submitPendingTasks();
+            }
+            if (Thread.interrupted() || !isRunning()) {
+                service.shutdownNow();
+                throw new InterruptedException("Interrupted while parking");
+            }
+        }
         if (log.isTraceEnabled())
             log.trace("waiting " + runnableCount.get());
         submitTasks();
@@ -336,6 +358,45 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
         return 5;
     }
     
+    /**
+     * Determines if the consumer has made room for more results. When the results are bound by bytes, new scans are only dispatched once the consumer has
+     * drained the result queue below its low water mark, so that scans are started at the rate the results are consumed.
+     * 
+     * @return true if more scans may be dispatched
+     */
+    protected boolean hasDemand() {
+        ByteBoundedResultQueue queue = getByteBoundedResultQueue();
+        return (null == queue || queue.hasDemand());
+    }
+    
+    /**
+     * Waits for the consumer to make room for more results.
+     * 
+     * @param timeout
+     * @param unit
+     * @return true if more scans may be dispatched, false if the timeout elapsed first
+     * @throws InterruptedException
+     */
+    protected boolean awaitDemand(long timeout, TimeUnit unit) throws InterruptedException {
+        ByteBoundedResultQueue queue = getByteBoundedResultQueue();
+        return (null == queue || queue.awaitDemand(timeout, unit));
+    }
+    
+    /**
+     * Submits the pending chunks. When the results are bound by bytes, only the next chunk is submitted so that demand is checked again before each scan is
+     * dispatched.
+     */
+    protected void submitPendingTasks() {
+        if (null == getByteBoundedResultQueue()) {
+            submitTasks();
+        } else {
+            ScannerChunk chunk = currentBatch.poll();
+            if (null != chunk) {
+                submitTasks(Collections.singletonList(chunk));
+            }
+        }
+    }
+    
     /**
      * @param chunks
      */
@@ -610,6 +671,9 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
              */
             if (log.isTraceEnabled())
                 log.trace("terminated from " + from);
+            if (log.isDebugEnabled() && null != getByteBoundedResultQueue()) {
+                log.debug("Result queue for " + threadId + ": " + getByteBoundedResultQueue());
+            }
             shutdownServices();
         }
         
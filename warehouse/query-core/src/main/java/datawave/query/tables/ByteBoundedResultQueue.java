@@ -0,0 +1,391 @@
+package datawave.query.tables;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import datawave.util.KeyValueSizeEstimator;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * A result queue for scanner sessions that is bounded by the estimated number of bytes held as well as the number of entries. Producers (the scans) block
+ * when either bound is reached, and the bytes are credited back as the consumer takes results off of the queue. The scanner session can use
+ * {@link #hasDemand()} to hold off on dispatching more scans until the consumer has drained the queue below the low water mark, so that scans are started at
+ * the rate that results are consumed and the memory held by a session does not depend on the size of the documents being returned.
+ *
+ * An entry larger than the byte bound is admitted once the queue is empty so that a single large result cannot stall the session.
+ */
+public class ByteBoundedResultQueue extends AbstractQueue<Entry<Key,Value>> implements BlockingQueue<Entry<Key,Value>> {
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition demand = lock.newCondition();
+    private final ArrayDeque<Entry<Key,Value>> queue = new ArrayDeque<>();
+    
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long lowWaterMark;
+    
+    private long bytes = 0;
+    private long peakBytes = 0;
+    private long blockedNanos = 0;
+    private long blockedOffers = 0;
+    
+    /**
+     * @param maxEntries
+     *            the maximum number of entries held
+     * @param maxBytes
+     *            the maximum number of bytes held, or 0 to bound by entries only
+     */
+    public ByteBoundedResultQueue(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.lowWaterMark = this.maxBytes / 2;
+    }
+    
+    /**
+     * Estimate the heap used by a result
+     *
+     * @param entry
+     * @return the estimated size in bytes
+     */
+    public static long sizeOf(Entry<Key,Value> entry) {
+        return KeyValueSizeEstimator.sizeOf(entry.getKey(), entry.getValue());
+    }
+    
+    private boolean canAdmit(long size) {
+        if (queue.size() >= maxEntries) {
+            return false;
+        }
+        return maxBytes == 0 || queue.isEmpty() || bytes + size <= maxBytes;
+    }
+    
+    private void enqueue(Entry<Key,Value> entry, long size) {
+        queue.add(entry);
+        bytes += size;
+        peakBytes = Math.max(peakBytes, bytes);
+        notEmpty.signal();
+    }
+    
+    private Entry<Key,Value> dequeue() {
+        Entry<Key,Value> entry = queue.poll();
+        bytes -= sizeOf(entry);
+        // several producers may fit in the space freed by a large entry
+        notFull.signalAll();
+        if (isDemand()) {
+            demand.signalAll();
+        }
+        return entry;
+    }
+    
+    @Override
+    public boolean offer(Entry<Key,Value> entry) {
+        if (entry == null) {
+            throw new NullPointerException();
+        }
+        long size = sizeOf(entry);
+        lock.lock();
+        try {
+            if (!canAdmit(size)) {
+                return false;
+            }
+            enqueue(entry, size);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public boolean offer(Entry<Key,Value> entry, long timeout, TimeUnit unit) throws InterruptedException {
+        if (entry == null) {
+            throw new NullPointerException();
+        }
+        long size = sizeOf(entry);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            if (!canAdmit(size)) {
+                long start = System.nanoTime();
+                blockedOffers++;
+                try {
+                    while (!canAdmit(size)) {
+                        if (nanos <= 0) {
+                            return false;
+                        }
+                        nanos = notFull.awaitNanos(nanos);
+                    }
+                } finally {
+                    blockedNanos += System.nanoTime() - start;
+                }
+            }
+            enqueue(entry, size);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void put(Entry<Key,Value> entry) throws InterruptedException {
+        while (!offer(entry, Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {}
+    }
+    
+    @Override
+    public Entry<Key,Value> poll() {
+        lock.lock();
+        try {
+            return (queue.isEmpty() ? null : dequeue());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Entry<Key,Value> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Entry<Key,Value> take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Entry<Key,Value> peek() {
+        lock.lock();
+        try {
+            return queue.peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * The number of entries that can be added before the entry bound is reached, or 0 if the byte bound has been reached
+     */
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            if (maxBytes > 0 && bytes >= maxBytes) {
+                return 0;
+            }
+            return maxEntries - queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public int drainTo(Collection<? super Entry<Key,Value>> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public int drainTo(Collection<? super Entry<Key,Value>> c, int maxElements) {
+        lock.lock();
+        try {
+            int count = 0;
+            while (count < maxElements && !queue.isEmpty()) {
+                c.add(dequeue());
+                count++;
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            queue.clear();
+            bytes = 0;
+            notFull.signalAll();
+            demand.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns an iterator over a snapshot of the queued entries. The iterator does not support removal.
+     */
+    @Override
+    public Iterator<Entry<Key,Value>> iterator() {
+        List<Entry<Key,Value>> snapshot;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(queue);
+        } finally {
+            lock.unlock();
+        }
+        final Iterator<Entry<Key,Value>> delegate = snapshot.iterator();
+        return new Iterator<Entry<Key,Value>>() {
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+            
+            @Override
+            public Entry<Key,Value> next() {
+                return delegate.next();
+            }
+            
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    /**
+     * Whether the consumer has drained the queue enough that more scans should be started. This is true when the queue is below half of the byte bound and
+     * half of the entry bound.
+     *
+     * @return true if more results are wanted
+     */
+    public boolean hasDemand() {
+        lock.lock();
+        try {
+            return isDemand();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Wait until the consumer has drained the queue enough that more scans should be started.
+     *
+     * @param timeout
+     * @param unit
+     * @return true if more results are wanted, false if the timeout elapsed first
+     * @throws InterruptedException
+     */
+    public boolean awaitDemand(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (!isDemand()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = demand.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private boolean isDemand() {
+        return (maxBytes == 0 || bytes <= lowWaterMark) && queue.size() <= maxEntries / 2;
+    }
+    
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public long getBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getPeakBytes() {
+        lock.lock();
+        try {
+            return peakBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the total time producers have spent waiting for space in the queue
+     */
+    public long getBlockedNanos() {
+        lock.lock();
+        try {
+            return blockedNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the number of offers that had to wait for space in the queue
+     */
+    public long getBlockedOffers() {
+        lock.lock();
+        try {
+            return blockedOffers;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "entries=" + queue.size() + "/" + maxEntries + ", bytes=" + bytes + "/" + maxBytes + ", peakBytes=" + peakBytes + ", blockedOffers="
+                            + blockedOffers + ", blockedMs=" + TimeUnit.NANOSECONDS.toMillis(blockedNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
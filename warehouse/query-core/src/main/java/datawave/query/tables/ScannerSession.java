@@ -6,7 +6,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -52,7 +52,7 @@ public class ScannerSession extends AbstractExecutionThreadService implements It
     /**
      * Result queue, providing us objects
      */
-    protected ArrayBlockingQueue<Entry<Key,Value>> resultQueue;
+    protected BlockingQueue<Entry<Key,Value>> resultQueue;
     
     /**
      * Current entry to return. this will be popped from the result queue.
@@ -656,4 +656,29 @@ public class ScannerSession extends AbstractExecutionThreadService implements It
         
     }
     
+    /**
+     * Bound the result queue by the estimated number of bytes it holds in addition to the number of entries. Scans block once the bound is reached and resume
+     * as the results are consumed. Must be called before the session is started.
+     * 
+     * @param maxResultBytes
+     *            the maximum number of bytes to buffer, or 0 to bound by entries only
+     * @return this session
+     */
+    public ScannerSession setMaxResultBytes(long maxResultBytes) {
+        Preconditions.checkArgument(state() == State.NEW, "The result queue cannot be changed once the session has started");
+        if (maxResultBytes > 0) {
+            resultQueue = new ByteBoundedResultQueue(maxResults, maxResultBytes);
+        } else {
+            resultQueue = Queues.newArrayBlockingQueue(maxResults);
+        }
+        return this;
+    }
+    
+    /**
+     * @return the byte bounded result queue, or null if the results are bound by entries only
+     */
+    public ByteBoundedResultQueue getByteBoundedResultQueue() {
+        return (resultQueue instanceof ByteBoundedResultQueue ? (ByteBoundedResultQueue) resultQueue : null);
+    }
+    
 }
@@ -8,6 +8,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import datawave.core.iterators.FairTaskQueue;
 import datawave.data.type.NoOpType;
 import datawave.data.type.Type;
 import datawave.marking.MarkingFunctions;
@@ -47,6 +48,7 @@ import datawave.query.util.DateIndexHelperFactory;
 import datawave.query.util.MetadataHelper;
 import datawave.query.util.MetadataHelperFactory;
 import datawave.query.util.QueryStopwatch;
+import datawave.query.util.sortedset.LocalCacheBudget;
 import datawave.util.StringUtils;
 import datawave.util.time.TraceStopwatch;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
@@ -221,6 +223,8 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     private List<String> realmSuffixExclusionPatterns = null;
     private String nonEventKeyColFams = "d" + Constants.PARAM_VALUE_SEP + "tf";
     private double minSelectivity = -1.0;
+    private boolean useCardinalityCostModel = false;
+    private double maxIndexCardinalityRatio = 0.0;
     // should we filter out masked values when the user can see the unmasked
     // value
     private boolean filterMaskedValues = true;
@@ -236,6 +240,7 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     
     private boolean reducedResponse = false;
     private boolean disableEvaluation = false;
+    private boolean compiledEvaluation = false;
     protected boolean disableIndexOnlyDocuments = false;
     private boolean hitList = false;
     private boolean typeMetadataInHdfs = false;
@@ -292,6 +297,11 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     
     protected int maxIndexBatchSize = 1000;
     
+    private long indexLookupCacheTtlMs = 300000;
+    private long indexLookupCacheMaxBytes = 0;
+    
+    private long maxResultBufferBytes = 0;
+    
     private String hdfsSiteConfigURLs = null;
     private String hdfsFileCompressionCodec = null;
     
@@ -300,6 +310,10 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     private List<String> ivaratorCacheBaseURIs = null;
     private String ivaratorFstHdfsBaseURIs = null;
     private int ivaratorCacheBufferSize = 10000;
+    private boolean ivaratorOffHeapBuffer = false;
+    private String ivaratorLocalCacheDir = null;
+    private long ivaratorLocalCacheMaxSize = LocalCacheBudget.DEFAULT_MAX_BYTES;
+    private String ivaratorCacheFormat = null;
     private long ivaratorCacheScanPersistThreshold = 100000L;
     private long ivaratorCacheScanTimeout = 1000L * 60 * 60;
     
@@ -308,6 +322,9 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     private int maxIvaratorSources = 33;
     private int maxEvaluationPipelines = 25;
     private int maxPipelineCachedResults = 25;
+    private boolean adaptiveEvaluationPipelines = false;
+    private int queryPriority = FairTaskQueue.DEFAULT_PRIORITY;
+    private boolean compactDocuments = false;
     private boolean expandAllTerms = false;
     
     private QueryParser parser = null;
@@ -435,6 +452,8 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.setRealmSuffixExclusionPatterns(other.getRealmSuffixExclusionPatterns());
         this.setNonEventKeyColFams(other.getNonEventKeyColFams());
         this.setMinimumSelectivity(other.getMinimumSelectivity());
+        this.setUseCardinalityCostModel(other.getUseCardinalityCostModel());
+        this.setMaxIndexCardinalityRatio(other.getMaxIndexCardinalityRatio());
         this.setFilterMaskedValues(other.getFilterMaskedValues());
         this.setIncludeDataTypeAsField(other.getIncludeDataTypeAsField());
         this.setIncludeRecordId(other.getIncludeRecordId());
@@ -446,6 +465,7 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.setFailOutsideValidDateRange(other.isFailOutsideValidDateRange());
         this.setLimitAnyFieldLookups(other.getLimitAnyFieldLookups());
         this.setDisableEvaluation(other.isDisableEvaluation());
+        this.setCompiledEvaluation(other.isCompiledEvaluation());
         this.setDisableIndexOnlyDocuments(other.disableIndexOnlyDocuments());
         this.setHitList(other.isHitList());
         this.setTypeMetadataInHdfs(other.isTypeMetadataInHdfs());
@@ -483,6 +503,13 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.setIvaratorCacheBaseURIs(other.getIvaratorCacheBaseURIs());
         this.setIvaratorFstHdfsBaseURIs(other.getIvaratorFstHdfsBaseURIs());
         this.setIvaratorCacheBufferSize(other.getIvaratorCacheBufferSize());
+        this.setIndexLookupCacheTtlMs(other.getIndexLookupCacheTtlMs());
+        this.setIndexLookupCacheMaxBytes(other.getIndexLookupCacheMaxBytes());
+        this.setMaxResultBufferBytes(other.getMaxResultBufferBytes());
+        this.setIvaratorOffHeapBuffer(other.isIvaratorOffHeapBuffer());
+        this.setIvaratorLocalCacheDir(other.getIvaratorLocalCacheDir());
+        this.setIvaratorLocalCacheMaxSize(other.getIvaratorLocalCacheMaxSize());
+        this.setIvaratorCacheFormat(other.getIvaratorCacheFormat());
         this.setIvaratorCacheScanPersistThreshold(other.getIvaratorCacheScanPersistThreshold());
         this.setIvaratorCacheScanTimeout(other.getIvaratorCacheScanTimeout());
         
@@ -491,6 +518,9 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.setMaxIvaratorSources(other.getMaxIvaratorSources());
         this.setMaxEvaluationPipelines(other.getMaxEvaluationPipelines());
         this.setMaxPipelineCachedResults(other.getMaxPipelineCachedResults());
+        this.setAdaptiveEvaluationPipelines(other.isAdaptiveEvaluationPipelines());
+        this.setQueryPriority(other.getQueryPriority());
+        this.setCompactDocuments(other.isCompactDocuments());
         
         this.setExpandAllTerms(other.isExpandAllTerms());
         this.setParser(other.getParser());
@@ -1511,6 +1541,14 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.disableEvaluation = disableEvaluation;
     }
     
+    public boolean isCompiledEvaluation() {
+        return compiledEvaluation;
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        this.compiledEvaluation = compiledEvaluation;
+    }
+    
     public boolean disableIndexOnlyDocuments() {
         return disableIndexOnlyDocuments;
     }
@@ -1863,6 +1901,62 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.ivaratorCacheBufferSize = ivaratorCacheBufferSize;
     }
     
+    public String getIvaratorCacheFormat() {
+        return ivaratorCacheFormat;
+    }
+    
+    public void setIvaratorCacheFormat(String ivaratorCacheFormat) {
+        this.ivaratorCacheFormat = ivaratorCacheFormat;
+    }
+    
+    public long getIvaratorLocalCacheMaxSize() {
+        return ivaratorLocalCacheMaxSize;
+    }
+    
+    public void setIvaratorLocalCacheMaxSize(long ivaratorLocalCacheMaxSize) {
+        this.ivaratorLocalCacheMaxSize = ivaratorLocalCacheMaxSize;
+    }
+    
+    public String getIvaratorLocalCacheDir() {
+        return ivaratorLocalCacheDir;
+    }
+    
+    public void setIvaratorLocalCacheDir(String ivaratorLocalCacheDir) {
+        this.ivaratorLocalCacheDir = ivaratorLocalCacheDir;
+    }
+    
+    public boolean isIvaratorOffHeapBuffer() {
+        return ivaratorOffHeapBuffer;
+    }
+    
+    public void setIvaratorOffHeapBuffer(boolean ivaratorOffHeapBuffer) {
+        this.ivaratorOffHeapBuffer = ivaratorOffHeapBuffer;
+    }
+    
+    public long getMaxResultBufferBytes() {
+        return maxResultBufferBytes;
+    }
+    
+    public void setMaxResultBufferBytes(long maxResultBufferBytes) {
+        this.maxResultBufferBytes = maxResultBufferBytes;
+    }
+    
+    public long getIndexLookupCacheMaxBytes() {
+        return indexLookupCacheMaxBytes;
+    }
+    
+    public void setIndexLookupCacheMaxBytes(long indexLookupCacheMaxBytes) {
+        this.indexLookupCacheMaxBytes = indexLookupCacheMaxBytes;
+    }
+    
+    public long getIndexLookupCacheTtlMs() {
+        return indexLookupCacheTtlMs;
+    }
+    
+    public void setIndexLookupCacheTtlMs(long indexLookupCacheTtlMs) {
+        this.indexLookupCacheTtlMs = indexLookupCacheTtlMs;
+    }
+    
     public long getIvaratorCacheScanPersistThreshold() {
         return ivaratorCacheScanPersistThreshold;
     }
@@ -1947,6 +2041,30 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.maxPipelineCachedResults = maxCachedResults;
     }
     
+    public boolean isAdaptiveEvaluationPipelines() {
+        return adaptiveEvaluationPipelines;
+    }
+    
+    public void setAdaptiveEvaluationPipelines(boolean adaptiveEvaluationPipelines) {
+        this.adaptiveEvaluationPipelines = adaptiveEvaluationPipelines;
+    }
+    
+    public int getQueryPriority() {
+        return queryPriority;
+    }
+    
+    public void setQueryPriority(int queryPriority) {
+        this.queryPriority = queryPriority;
+    }
+    
+    public boolean isCompactDocuments() {
+        return compactDocuments;
+    }
+    
+    public void setCompactDocuments(boolean compactDocuments) {
+        this.compactDocuments = compactDocuments;
+    }
+    
     public double getMinimumSelectivity() {
         return this.minSelectivity;
     }
@@ -1955,6 +2073,22 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.minSelectivity = d;
     }
     
+    public boolean getUseCardinalityCostModel() {
+        return this.useCardinalityCostModel;
+    }
+    
+    public void setUseCardinalityCostModel(boolean useCardinalityCostModel) {
+        this.useCardinalityCostModel = useCardinalityCostModel;
+    }
+    
+    public double getMaxIndexCardinalityRatio() {
+        return this.maxIndexCardinalityRatio;
+    }
+    
+    public void setMaxIndexCardinalityRatio(double maxIndexCardinalityRatio) {
+        this.maxIndexCardinalityRatio = maxIndexCardinalityRatio;
+    }
+    
     public String getIndexStatsTableName() {
         return this.indexStatsTableName;
     }
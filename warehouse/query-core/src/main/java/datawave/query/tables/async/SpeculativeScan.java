@@ -4,7 +4,7 @@ import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -83,7 +83,7 @@ public class SpeculativeScan extends Scan implements FutureCallback<Scan>, Uncau
     }
     
     public SpeculativeScan(String localTableName, Set<Authorizations> localAuths, ScannerChunk chunk, ResourceQueue delegatorReference,
-                    Class<? extends AccumuloResource> delegatedResourceInitializer, ArrayBlockingQueue<Entry<Key,Value>> results, ExecutorService callingService) {
+                    Class<? extends AccumuloResource> delegatedResourceInitializer, BlockingQueue<Entry<Key,Value>> results, ExecutorService callingService) {
         super(localTableName, localAuths, chunk, delegatorReference, delegatedResourceInitializer, results, callingService);
         scans = Lists.newArrayList();
         scanFutures = Lists.newArrayList();
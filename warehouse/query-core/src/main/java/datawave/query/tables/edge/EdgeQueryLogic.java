@@ -9,7 +9,6 @@ import java.io.StringReader;
 import java.util.*;
 import java.util.Map.Entry;
 
-import datawave.core.iterators.ColumnQualifierRangeIterator;
 import datawave.core.iterators.ColumnRangeIterator;
 import datawave.data.type.Type;
 import datawave.query.QueryParameters;
@@ -18,6 +17,7 @@ import datawave.query.model.edge.EdgeQueryModel;
 import datawave.query.Constants;
 import datawave.query.exceptions.DatawaveFatalQueryException;
 import datawave.query.iterator.filter.DateTypeFilter;
+import datawave.query.iterator.filter.EdgeDateRangeIterator;
 import datawave.query.iterator.filter.EdgeFilterIterator;
 import datawave.query.iterator.filter.LoadDateFilter;
 import datawave.query.jexl.JexlASTHelper;
@@ -406,7 +406,9 @@ public class EdgeQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
             Key endDateKey = new Key(DateHelper.format(endDate) + Constants.MAX_UNICODE_STRING);
             if ((dateFilterType == EdgeQueryConfiguration.dateType.EVENT) || (dateFilterType == EdgeQueryConfiguration.dateType.ACTIVITY)
                             || (dateFilterType == EdgeQueryConfiguration.dateType.ANY)) {
-                setting = new IteratorSetting(priority, ColumnQualifierRangeIterator.class.getName() + "." + priority, ColumnQualifierRangeIterator.class);
+                // the date range iterator seeks past dates outside of the range and also filters on the date type
+                setting = new IteratorSetting(priority, EdgeDateRangeIterator.class.getName() + "." + priority, EdgeDateRangeIterator.class);
+                setting.addOption(EdgeQueryConfiguration.DATE_RANGE_TYPE, dateFilterType.name());
             } else if ((dateFilterType == EdgeQueryConfiguration.dateType.LOAD) || (dateFilterType == EdgeQueryConfiguration.dateType.ACTIVITY_LOAD)
                             || (dateFilterType == EdgeQueryConfiguration.dateType.ANY_LOAD)) {
                 setting = new IteratorSetting(priority, LoadDateFilter.class.getName() + "." + priority, LoadDateFilter.class);
@@ -452,18 +454,17 @@ public class EdgeQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         
         // the following iterator will filter out edges outside of our date range
         // @note only returns an iterator if both beginDate and endDate are non-null
-        // @note if a load date iterator is returned then it filters both on date range and date type (whereas the date range iterator only filters on date)
+        // @note both the load date iterator and the date range iterator filter on date range and date type
         IteratorSetting iter = getDateFilter(beginDate, endDate, priority, skipLimit, dateFilterType);
         if (iter != null) {
             settings.add(iter);
             priority++;
         }
         
-        // if we have a load date iterator (from above call) then no further iterator needed as it filters out by date type and by date range
-        // but if we have no iterator or only date range iterator then we still may need a date type filter
+        // if we have a date iterator (from above call) then no further iterator needed as it filters out by date type and by date range
+        // but if we have no iterator then we still may need a date type filter
         // @note we won't get an iterator in the above call if either/both dates are null regardless of dateFilterType
-        if ((iter == null)
-                        || ((dateFilterType != EdgeQueryConfiguration.dateType.LOAD) && (dateFilterType != EdgeQueryConfiguration.dateType.ACTIVITY_LOAD) && (dateFilterType != EdgeQueryConfiguration.dateType.ANY_LOAD))) {
+        if (iter == null) {
             if ((dateFilterType != EdgeQueryConfiguration.dateType.ANY) && (dateFilterType != EdgeQueryConfiguration.dateType.ANY_LOAD)) {
                 // of the edges remaining we only want the correct type (activity date or event date)
                 iter = getDateTypeFilter(priority, dateFilterType);
@@ -497,33 +498,7 @@ public class EdgeQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
      *         perform the appropriate filtering/combining.
      */
     public static List<IteratorSetting> getDateBasedIterators(Date beginDate, Date endDate, int priority, EdgeQueryConfiguration.dateType dateFilterType) {
-        List<IteratorSetting> settings = Lists.newArrayList();
-        
-        // the following iterator will filter out edges outside of our date range
-        // @note only returns an iterator if both beginDate and endDate are non-null
-        // @note if a load date iterator is returned then it filters both on date range and date type (whereas the date range iterator only filters on date)
-        IteratorSetting iter = getDateFilter(beginDate, endDate, priority, dateFilterType);
-        if (iter != null) {
-            settings.add(iter);
-            priority++;
-        }
-        
-        // if we have a load date iterator (from above call) then no further iterator needed as it filters out by date type and by date range
-        // but if we have no iterator or only date range iterator then we still may need a date type filter
-        // @note we won't get an iterator in the above call if either/both dates are null regardless of dateFilterType
-        if ((iter == null)
-                        || ((dateFilterType != EdgeQueryConfiguration.dateType.LOAD) && (dateFilterType != EdgeQueryConfiguration.dateType.ACTIVITY_LOAD) && (dateFilterType != EdgeQueryConfiguration.dateType.ANY_LOAD))) {
-            if ((dateFilterType != EdgeQueryConfiguration.dateType.ANY) && (dateFilterType != EdgeQueryConfiguration.dateType.ANY_LOAD)) {
-                // of the edges remaining we only want the correct type (activity date or event date)
-                iter = getDateTypeFilter(priority, dateFilterType);
-                if (iter != null) {
-                    settings.add(iter);
-                    priority++;
-                }
-            }
-        }
-        
-        return settings;
+        return getDateBasedIterators(beginDate, endDate, priority, DEFAULT_SKIP_LIMIT, dateFilterType);
     }
     
     protected String serializePrefilter() {
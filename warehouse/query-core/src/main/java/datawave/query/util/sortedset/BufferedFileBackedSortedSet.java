@@ -9,7 +9,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.SortedSet;
 
+import datawave.query.util.sortedset.FileSortedSet.JavaSerializationSerializer;
 import datawave.query.util.sortedset.FileSortedSet.SortedSetFileHandler;
+import datawave.query.util.sortedset.FileSortedSet.SortedSetSerializer;
+import datawave.query.util.sortedset.OffHeapSortedSetBuffer.ElementCodec;
 import org.apache.log4j.Logger;
 
 /**
@@ -32,7 +35,11 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     protected int size = 0;
     
     protected SortedSetFileHandlerFactory handlerFactory;
+    protected SortedSetSerializer<E> serializer;
     protected int bufferPersistThreshold;
+    // if set, the buffer is kept off heap
+    protected OffHeapArena offHeapArena;
+    protected ElementCodec<E> offHeapCodec;
     
     /**
      * A factory for SortedSetFileHandlers
@@ -45,7 +52,9 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     }
     
     public BufferedFileBackedSortedSet(BufferedFileBackedSortedSet<E> other) {
-        this(other.comparator, other.bufferPersistThreshold, other.maxOpenFiles, other.handlerFactory);
+        this(other.comparator, other.serializer, other.bufferPersistThreshold, other.maxOpenFiles, other.handlerFactory);
+        this.offHeapArena = other.offHeapArena;
+        this.offHeapCodec = other.offHeapCodec;
         for (SortedSet<E> subSet : other.set.getSets()) {
             FileSortedSet<E> clone = new FileSortedSet<>((FileSortedSet<E>) subSet);
             this.set.addSet(clone);
@@ -67,12 +76,53 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     
     public BufferedFileBackedSortedSet(Comparator<? super E> comparator, int bufferPersistThreshold, int maxOpenFiles,
                     SortedSetFileHandlerFactory handlerFactory) {
+        this(comparator, new JavaSerializationSerializer<E>(), bufferPersistThreshold, maxOpenFiles, handlerFactory);
+    }
+    
+    public BufferedFileBackedSortedSet(Comparator<? super E> comparator, SortedSetSerializer<E> serializer, int bufferPersistThreshold, int maxOpenFiles,
+                    SortedSetFileHandlerFactory handlerFactory) {
         this.comparator = comparator;
+        this.serializer = serializer;
         this.handlerFactory = handlerFactory;
         this.bufferPersistThreshold = bufferPersistThreshold;
         this.maxOpenFiles = maxOpenFiles;
     }
     
+    /**
+     * Keep the buffer off heap using chunks from the supplied arena. This is only applicable when using the natural ordering of the elements.
+     * 
+     * @param arena
+     * @param codec
+     */
+    public void setOffHeapBuffer(OffHeapArena arena, ElementCodec<E> codec) {
+        if (arena != null && comparator != null) {
+            throw new IllegalArgumentException("An off heap buffer requires the natural ordering of the elements");
+        }
+        this.offHeapArena = arena;
+        this.offHeapCodec = codec;
+    }
+    
+    public boolean isOffHeapBuffer() {
+        return offHeapArena != null;
+    }
+    
+    protected FileSortedSet<E> createBuffer() throws IOException {
+        if (offHeapArena != null) {
+            return new FileSortedSet<>(serializer, handlerFactory.createHandler(), new OffHeapSortedSetBuffer<>(offHeapArena, offHeapCodec));
+        }
+        return new FileSortedSet<>(comparator, serializer, handlerFactory.createHandler(), false);
+    }
+    
+    /**
+     * Return the arena chunks held by an off heap buffer without waiting for the buffer to be garbage collected. Any entries which have not been persisted are
+     * discarded.
+     */
+    protected void releaseOffHeapBuffer() {
+        if (buffer != null && buffer.set instanceof OffHeapSortedSetBuffer) {
+            ((OffHeapSortedSetBuffer<E>) buffer.set).close();
+        }
+    }
+    
     public void persist() throws IOException {
         if (buffer != null) {
             buffer.persist();
@@ -115,6 +165,10 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
         return this.size;
     }
     
+    public SortedSetSerializer<E> getSerializer() {
+        return this.serializer;
+    }
+    
     public int getBufferPersistThreshold() {
         return this.bufferPersistThreshold;
     }
@@ -210,7 +264,7 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     }
     
     private FileSortedSet<E> compact(MultiSetBackedSortedSet<E> setToCompact) throws IOException {
-        return new FileSortedSet<>(setToCompact, handlerFactory.createHandler(), true);
+        return new FileSortedSet<>(setToCompact, serializer, handlerFactory.createHandler(), true);
     }
     
     @Override
@@ -227,7 +281,7 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     public boolean add(E e) {
         if (buffer == null) {
             try {
-                buffer = new FileSortedSet<>(comparator, handlerFactory.createHandler(), false);
+                buffer = createBuffer();
             } catch (Exception ex) {
                 throw new IllegalStateException("Unable to create an underlying FileSortedSet", ex);
             }
@@ -253,7 +307,7 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     public boolean addAll(Collection<? extends E> c) {
         if (buffer == null) {
             try {
-                buffer = new FileSortedSet<>(comparator, handlerFactory.createHandler(), false);
+                buffer = createBuffer();
             } catch (Exception ex) {
                 throw new IllegalStateException("Unable to create an underlying FileSortedSet", ex);
             }
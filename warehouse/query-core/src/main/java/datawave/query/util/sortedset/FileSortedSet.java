@@ -2,6 +2,7 @@ package datawave.query.util.sortedset;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -37,6 +38,8 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
     
     // The file handler that handles the underlying io
     public SortedSetFileHandler handler;
+    // The serializer that writes and reads the objects to/from the underlying io
+    protected SortedSetSerializer<E> serializer = new JavaSerializationSerializer<>();
     
     /**
      * A factory that will provide the input stream and output stream to the same underlying file.
@@ -54,6 +57,44 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         void deleteFile();
     }
     
+    /**
+     * A factory that will provide the object level input and output streams used to persist the set. The output must end with the number of objects written
+     * as the last 4 bytes of the file (see {@link SortedSetOutput#writeSize(int)}).
+     *
+     * @param <E>
+     */
+    public interface SortedSetSerializer<E> {
+        SortedSetInput<E> getInput(InputStream stream) throws IOException;
+        
+        SortedSetOutput<E> getOutput(OutputStream stream) throws IOException;
+    }
+    
+    /**
+     * The object output stream used to persist a set.
+     *
+     * @param <E>
+     */
+    public interface SortedSetOutput<E> extends Closeable {
+        void writeObject(E e) throws IOException;
+        
+        /**
+         * Write the number of objects written. This must be the last call before close, and must result in the size being the last 4 bytes of the file.
+         * 
+         * @param size
+         * @throws IOException
+         */
+        void writeSize(int size) throws IOException;
+    }
+    
+    /**
+     * The object input stream used to read a persisted set.
+     *
+     * @param <E>
+     */
+    public interface SortedSetInput<E> extends Closeable {
+        E readObject() throws IOException, ClassNotFoundException;
+    }
+    
     /**
      * A class that represents a null object within the set
      * 
@@ -73,6 +114,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      */
     public FileSortedSet(FileSortedSet<E> other) {
         this.handler = other.handler;
+        this.serializer = other.serializer;
         this.set = new TreeSet<>(other.set);
         this.persisted = other.persisted;
     }
@@ -102,6 +144,34 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         this.persisted = persisted;
     }
     
+    /**
+     * Create a persisted sorted set using the specified serializer
+     * 
+     * @param comparator
+     * @param serializer
+     * @param handler
+     * @param persisted
+     */
+    public FileSortedSet(Comparator<? super E> comparator, SortedSetSerializer<E> serializer, SortedSetFileHandler handler, boolean persisted) {
+        this(comparator, handler, persisted);
+        this.serializer = serializer;
+    }
+    
+    /**
+     * Create an unpersisted sorted set that uses the supplied set as its in memory buffer. The buffer is used directly (not copied), which allows an
+     * alternate in memory representation (e.g. an {@link OffHeapSortedSetBuffer}) to be used.
+     * 
+     * @param serializer
+     * @param handler
+     * @param buffer
+     */
+    public FileSortedSet(SortedSetSerializer<E> serializer, SortedSetFileHandler handler, SortedSet<E> buffer) {
+        this.handler = handler;
+        this.serializer = serializer;
+        this.set = buffer;
+        this.persisted = false;
+    }
+    
     /**
      * Create an unpersisted sorted set (still in memory)
      * 
@@ -122,7 +192,20 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      * @param handler
      */
     public FileSortedSet(SortedSet<E> set, SortedSetFileHandler handler, boolean persist) throws IOException {
+        this(set, new JavaSerializationSerializer<E>(), handler, persist);
+    }
+    
+    /**
+     * Create an sorted set out of another sorted set using the specified serializer. If persist is true, then the set will be directly persisted using the
+     * set's iterator which avoid pulling all of its entries into memory at once.
+     *
+     * @param set
+     * @param serializer
+     * @param handler
+     */
+    public FileSortedSet(SortedSet<E> set, SortedSetSerializer<E> serializer, SortedSetFileHandler handler, boolean persist) throws IOException {
         this.handler = handler;
+        this.serializer = serializer;
         if (!persist) {
             this.set = new TreeSet<>(set);
             this.persisted = false;
@@ -159,13 +242,13 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         for (int i = 0; i < 10 && !verified; i++) {
             try {
                 int actualSize = 0;
-                ObjectOutputStream stream = getOutputStream();
+                SortedSetOutput<E> stream = getOutputStream();
                 try {
                     for (E t : set) {
-                        writeObject(stream, t);
+                        stream.writeObject(t);
                         actualSize++;
                     }
-                    stream.writeInt(actualSize);
+                    stream.writeSize(actualSize);
                 } finally {
                     stream.close();
                 }
@@ -174,13 +257,13 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
                     throw new IOException("Failed to verify file existence");
                 }
                 // now verify at least the first 100 objects were written correctly
-                ObjectInputStream inStream = getInputStream();
+                SortedSetInput<E> inStream = getInputStream();
                 try {
                     int testReadSize = Math.min(actualSize, 100);
                     int count = 0;
                     for (E t : set) {
                         count++;
-                        E input = readObject(inStream);
+                        E input = inStream.readObject();
                         if (!equals(t, input)) {
                             throw new IOException("Failed to verify element " + count + " was written");
                         }
@@ -251,10 +334,10 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         if (persisted) {
             try {
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInput<E> stream = getInputStream();
                 try {
                     for (int i = 0; i < size; i++) {
-                        E obj = readObject(stream);
+                        E obj = stream.readObject();
                         set.add(obj);
                     }
                 } finally {
@@ -275,8 +358,8 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      * @throws FileNotFoundException
      * @throws IOException
      */
-    protected ObjectInputStream getInputStream() throws IOException {
-        return new ObjectInputStream(new BufferedInputStream(handler.getInputStream()));
+    protected SortedSetInput<E> getInputStream() throws IOException {
+        return serializer.getInput(new BufferedInputStream(handler.getInputStream()));
     }
     
     /**
@@ -285,41 +368,17 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      * @return the output stream
      * @throws IOException
      */
-    protected ObjectOutputStream getOutputStream() throws IOException {
-        return new ObjectOutputStream(new BufferedOutputStream(handler.getOutputStream()));
+    protected SortedSetOutput<E> getOutputStream() throws IOException {
+        return serializer.getOutput(new BufferedOutputStream(handler.getOutputStream()));
     }
     
     /**
-     * Write T to an object output stream
+     * Get the serializer used to persist this set
      * 
-     * @param stream
-     * @param t
-     * @throws IOException
-     */
-    protected void writeObject(ObjectOutputStream stream, E t) throws IOException {
-        if (t == null) {
-            stream.writeObject(NULL_OBJECT);
-        } else {
-            stream.writeObject(t);
-        }
-    }
-    
-    /**
-     * Read T from an object input stream
-     *
-     * @param stream
-     * @return
-     * @throws IOException
-     * @throws ClassNotFoundException
+     * @return the serializer
      */
-    @SuppressWarnings("unchecked")
-    protected E readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
-        Object o = stream.readObject();
-        if (o instanceof NullObject) {
-            return null;
-        } else {
-            return (E) o;
-        }
+    public SortedSetSerializer<E> getSerializer() {
+        return serializer;
     }
     
     /**
@@ -391,11 +450,11 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         if (persisted) {
             try {
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInput<E> stream = getInputStream();
                 try {
                     Object[] data = new Object[size];
                     for (int i = 0; i < size; i++) {
-                        data[i] = readObject(stream);
+                        data[i] = stream.readObject();
                     }
                     return data;
                 } finally {
@@ -415,12 +474,12 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         if (persisted) {
             try {
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInput<E> stream = getInputStream();
                 try {
                     T[] dest = a;
                     int i = 0;
                     for (; i < size; i++) {
-                        T obj = (T) readObject(stream);
+                        T obj = (T) stream.readObject();
                         if (dest.length <= i) {
                             T[] newDest = (T[]) (Array.newInstance(a.getClass().getComponentType(), size));
                             System.arraycopy(dest, 0, newDest, 0, i);
@@ -478,10 +537,10 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
                     all.add((E) o);
                 }
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInput<E> stream = getInputStream();
                 try {
                     for (int i = 0; i < size; i++) {
-                        E obj = readObject(stream);
+                        E obj = stream.readObject();
                         if (all.remove(obj)) {
                             if (all.isEmpty()) {
                                 return true;
@@ -576,10 +635,10 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         if (persisted) {
             try {
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInput<E> stream = getInputStream();
                 try {
                     if (size != 0) {
-                        first = readObject(stream);
+                        first = stream.readObject();
                         gotFirst = true;
                     }
                 } catch (IOException ioe) {
@@ -611,10 +670,10 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         if (persisted) {
             try {
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInput<E> stream = getInputStream();
                 try {
                     for (int i = 0; i < size; i++) {
-                        E obj = readObject(stream);
+                        E obj = stream.readObject();
                         last = obj;
                         gotLast = true;
                     }
@@ -638,6 +697,67 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
     
     /********* Some sub classes ***********/
     
+    /**
+     * The default serializer which uses java serialization. Null values are persisted as a NullObject.
+     *
+     * @param <E>
+     */
+    public static class JavaSerializationSerializer<E extends Serializable> implements SortedSetSerializer<E> {
+        
+        @Override
+        public SortedSetInput<E> getInput(InputStream stream) throws IOException {
+            final ObjectInputStream in = new ObjectInputStream(stream);
+            return new SortedSetInput<E>() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public E readObject() throws IOException, ClassNotFoundException {
+                    Object o = in.readObject();
+                    if (o instanceof NullObject) {
+                        return null;
+                    } else {
+                        return (E) o;
+                    }
+                }
+                
+                @Override
+                public void close() throws IOException {
+                    in.close();
+                }
+            };
+        }
+        
+        @Override
+        public SortedSetOutput<E> getOutput(OutputStream stream) throws IOException {
+            final ObjectOutputStream out = new ObjectOutputStream(stream);
+            return new SortedSetOutput<E>() {
+                @Override
+                public void writeObject(E e) throws IOException {
+                    if (e == null) {
+                        out.writeObject(NULL_OBJECT);
+                    } else {
+                        out.writeObject(e);
+                    }
+                }
+                
+                @Override
+                public void writeSize(int size) throws IOException {
+                    out.writeInt(size);
+                }
+                
+                @Override
+                public void close() throws IOException {
+                    out.close();
+                }
+            };
+        }
+        
+        @Override
+        public String toString() {
+            return "java";
+        }
+    }
+    
+    
     /**
      * This is the iterator for a persisted FileSortedSet
      * 
@@ -647,7 +767,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
     protected class FileIterator implements Iterator<E> {
         private int size = 0;
         private int index = 0;
-        private ObjectInputStream stream = null;
+        private SortedSetInput<E> stream = null;
         
         public FileIterator() {
             try {
@@ -691,7 +811,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
                 throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
             }
             try {
-                E o = readObject(stream);
+                E o = stream.readObject();
                 index++;
                 if (index >= size) {
                     cleanup();
@@ -1,5 +1,7 @@
 package datawave.query.util.sortedset;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -8,19 +10,29 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.SortedSet;
 
+import datawave.query.util.sortedset.FileSortedSet.JavaSerializationSerializer;
 import datawave.query.util.sortedset.FileSortedSet.SortedSetFileHandler;
+import datawave.query.util.sortedset.FileSortedSet.SortedSetSerializer;
 
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.log4j.Logger;
 
-public class HdfsBackedSortedSet<E extends Serializable> extends BufferedFileBackedSortedSet<E> implements SortedSet<E> {
+public class HdfsBackedSortedSet<E extends Serializable> extends BufferedFileBackedSortedSet<E> implements SortedSet<E>, Closeable {
     private static final Logger log = Logger.getLogger(HdfsBackedSortedSet.class);
     private static final String FILENAME_PREFIX = "SortedSetFile.";
     
+    // the local cache budget this set holds a reference to, if any
+    private LocalCacheBudget localBudget = null;
+    private boolean closed = false;
+    
     public HdfsBackedSortedSet(HdfsBackedSortedSet<E> other) throws IOException {
         super(other);
+        if (other.localBudget != null) {
+            this.localBudget = other.localBudget;
+            this.localBudget.addReference();
+        }
     }
     
     public HdfsBackedSortedSet(FileSystem fs, Path uniqueDir, int maxOpenFiles) throws IOException {
@@ -33,7 +45,38 @@ public class HdfsBackedSortedSet<E extends Serializable> extends BufferedFileBac
     
     public HdfsBackedSortedSet(Comparator<? super E> comparator, int bufferPersistThreshold, FileSystem fs, Path uniqueDir, int maxOpenFiles)
                     throws IOException {
-        super(comparator, bufferPersistThreshold, maxOpenFiles, new SortedSetHdfsFileHandlerFactory(fs, uniqueDir));
+        this(comparator, new JavaSerializationSerializer<E>(), bufferPersistThreshold, fs, uniqueDir, maxOpenFiles);
+    }
+    
+    public HdfsBackedSortedSet(Comparator<? super E> comparator, SortedSetSerializer<E> serializer, int bufferPersistThreshold, FileSystem fs, Path uniqueDir,
+                    int maxOpenFiles) throws IOException {
+        this(comparator, serializer, bufferPersistThreshold, fs, uniqueDir, null, null, maxOpenFiles);
+    }
+    
+    /**
+     * Create a sorted set that will first persist files into a local directory until the local cache budget is exhausted, after which files will be persisted
+     * into hdfs.
+     * 
+     * @param comparator
+     * @param serializer
+     * @param bufferPersistThreshold
+     * @param fs
+     * @param uniqueDir
+     * @param localDir
+     *            the local directory, or null to persist directly to hdfs
+     * @param localBudget
+     *            the budget for the local directory
+     * @param maxOpenFiles
+     * @throws IOException
+     */
+    public HdfsBackedSortedSet(Comparator<? super E> comparator, SortedSetSerializer<E> serializer, int bufferPersistThreshold, FileSystem fs, Path uniqueDir,
+                    File localDir, LocalCacheBudget localBudget, int maxOpenFiles) throws IOException {
+        super(comparator, serializer, bufferPersistThreshold, maxOpenFiles, createHandlerFactory(fs, uniqueDir, localDir, localBudget));
+        
+        if (localDir != null && localBudget != null) {
+            this.localBudget = localBudget;
+            this.localBudget.addReference();
+        }
         
         // now load up this sorted set with any existing files
         FileStatus[] files = fs.listStatus(uniqueDir);
@@ -42,12 +85,65 @@ public class HdfsBackedSortedSet<E extends Serializable> extends BufferedFileBac
             for (FileStatus file : files) {
                 if (!file.isDir() && file.getPath().getName().startsWith(FILENAME_PREFIX)) {
                     count++;
-                    addSet(new FileSortedSet<>(comparator, new SortedSetHdfsFileHandler(fs, file.getPath()), true));
+                    addSet(new FileSortedSet<>(comparator, serializer, new SortedSetHdfsFileHandler(fs, file.getPath()), true));
+                }
+            }
+        }
+        
+        if (localDir != null) {
+            File[] localFiles = localDir.listFiles();
+            if (localFiles != null) {
+                for (File file : localFiles) {
+                    if (file.isFile() && file.getName().startsWith(FILENAME_PREFIX)) {
+                        count++;
+                        addSet(new FileSortedSet<>(comparator, serializer, new SortedSetLocalFileHandler(file, localBudget), true));
+                    }
                 }
             }
         }
         
-        ((SortedSetHdfsFileHandlerFactory) (this.handlerFactory)).setFileCount(count);
+        if (this.handlerFactory instanceof SortedSetTieredFileHandlerFactory) {
+            ((SortedSetTieredFileHandlerFactory) (this.handlerFactory)).setFileCount(count);
+        } else {
+            ((SortedSetHdfsFileHandlerFactory) (this.handlerFactory)).setFileCount(count);
+        }
+    }
+    
+    private static SortedSetFileHandlerFactory createHandlerFactory(FileSystem fs, Path uniqueDir, File localDir, LocalCacheBudget localBudget) {
+        SortedSetHdfsFileHandlerFactory hdfsFactory = new SortedSetHdfsFileHandlerFactory(fs, uniqueDir);
+        if (localDir == null || localBudget == null) {
+            return hdfsFactory;
+        }
+        return new SortedSetTieredFileHandlerFactory(localDir, localBudget, hdfsFactory);
+    }
+    
+    /**
+     * Does this set have any persisted files in the local directory
+     * 
+     * @return true if any persisted file is local
+     */
+    public boolean hasLocalData() {
+        for (FileSortedSet<E> fss : getSets()) {
+            if (fss.isPersisted() && fss.handler instanceof SortedSetLocalFileHandler && ((SortedSetLocalFileHandler) fss.handler).isLocal()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Release this set's reference to the local cache budget and any off heap memory held by its buffer. Once all sets using a local directory are closed, the
+     * directory is removed. The files of this set should have been cleared first if they are not to be used anymore.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            releaseOffHeapBuffer();
+            if (localBudget != null) {
+                localBudget.removeReference();
+            }
+        }
     }
     
     @Override
@@ -61,6 +157,8 @@ public class HdfsBackedSortedSet<E extends Serializable> extends BufferedFileBac
         for (FileSortedSet<E> fss : sortedSets) {
             if (fss.isPersisted() && fss.handler instanceof SortedSetHdfsFileHandler) {
                 ((SortedSetHdfsFileHandler) fss.handler).deleteFile();
+            } else if (fss.isPersisted() && fss.handler instanceof SortedSetLocalFileHandler) {
+                ((SortedSetLocalFileHandler) fss.handler).deleteFile();
             }
         }
     }
@@ -94,6 +192,50 @@ public class HdfsBackedSortedSet<E extends Serializable> extends BufferedFileBac
         
     }
     
+    /**
+     * A handler factory that creates files in a local directory while the local cache budget allows, and then falls back to the hdfs handler factory. A local
+     * file that outgrows the budget while being written is moved to the hdfs handler factory.
+     */
+    public static class SortedSetTieredFileHandlerFactory implements SortedSetFileHandlerFactory {
+        private File localDir;
+        private LocalCacheBudget budget;
+        private SortedSetHdfsFileHandlerFactory hdfsFactory;
+        private int fileCount = 0;
+        
+        public SortedSetTieredFileHandlerFactory(File localDir, LocalCacheBudget budget, SortedSetHdfsFileHandlerFactory hdfsFactory) {
+            this.localDir = localDir;
+            this.budget = budget;
+            this.hdfsFactory = hdfsFactory;
+        }
+        
+        void setFileCount(int count) {
+            this.fileCount = count;
+            this.hdfsFactory.setFileCount(count);
+        }
+        
+        @Override
+        public SortedSetFileHandler createHandler() throws IOException {
+            budget.touch();
+            if (budget.hasCapacity()) {
+                if (!localDir.exists() && !localDir.mkdirs() && !localDir.exists()) {
+                    log.warn("Unable to create local directory " + localDir + ", falling back to " + hdfsFactory);
+                } else {
+                    // generate a unique file name
+                    fileCount++;
+                    File file = new File(localDir, FILENAME_PREFIX + fileCount + '.' + System.currentTimeMillis());
+                    return new SortedSetLocalFileHandler(file, budget, hdfsFactory);
+                }
+            }
+            return hdfsFactory.createHandler();
+        }
+        
+        @Override
+        public String toString() {
+            return localDir.toString() + " (fileCount=" + fileCount + ", budget=" + budget + ") -> " + hdfsFactory;
+        }
+        
+    }
+    
     public static class SortedSetHdfsFileHandler implements SortedSetFileHandler {
         private FileSystem fs;
         private Path file;
@@ -0,0 +1,338 @@
+package datawave.query.util.sortedset;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import datawave.query.util.sortedset.FileSortedSet.SortedSetInput;
+import datawave.query.util.sortedset.FileSortedSet.SortedSetOutput;
+import datawave.query.util.sortedset.FileSortedSet.SortedSetSerializer;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A compact binary serializer for sets of KeyValueSerializable. This avoids the per object overhead of java serialization.
+ *
+ * The file starts with a small header (magic, version, flags). Each entry is then written as a flags byte followed by the row, column family, column qualifier
+ * and column visibility, each of which is prefix compressed against the previous key (vint shared prefix length, vint suffix length, suffix bytes). The
+ * timestamp is written as a vlong and the value as a length prefixed byte array. If compression is enabled, entries are gathered into blocks which are deflated
+ * individually (vint raw length, vint compressed length, compressed bytes). As required by the FileSortedSet, the size is written as the last 4 bytes.
+ */
+public class KeyValueBinarySerializer implements SortedSetSerializer<KeyValueSerializable> {
+    public static final int MAGIC = 0x4B56424E;
+    public static final byte VERSION = 1;
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    
+    private static final byte FLAG_BLOCK_COMPRESSED = 0x01;
+    
+    private static final byte ENTRY_NULL = 0x01;
+    private static final byte ENTRY_DELETED = 0x02;
+    
+    private static final int NUM_FIELDS = 4;
+    
+    private final boolean compressed;
+    private final int blockSize;
+    
+    public KeyValueBinarySerializer() {
+        this(false);
+    }
+    
+    public KeyValueBinarySerializer(boolean compressed) {
+        this(compressed, DEFAULT_BLOCK_SIZE);
+    }
+    
+    public KeyValueBinarySerializer(boolean compressed, int blockSize) {
+        this.compressed = compressed;
+        this.blockSize = blockSize;
+    }
+    
+    public boolean isCompressed() {
+        return compressed;
+    }
+    
+    public int getBlockSize() {
+        return blockSize;
+    }
+    
+    @Override
+    public SortedSetInput<KeyValueSerializable> getInput(InputStream stream) throws IOException {
+        return new BinaryInput(stream);
+    }
+    
+    @Override
+    public SortedSetOutput<KeyValueSerializable> getOutput(OutputStream stream) throws IOException {
+        return new BinaryOutput(stream, compressed, blockSize);
+    }
+    
+    @Override
+    public String toString() {
+        return (compressed ? "binary(compressed, blockSize=" + blockSize + ')' : "binary");
+    }
+    
+    /**
+     * Write a field prefix compressed against the previous value of that field
+     *
+     * @param out
+     * @param current
+     * @param previous
+     * @throws IOException
+     */
+    private static void writeField(DataOutput out, ByteSequence current, ByteSequence previous) throws IOException {
+        byte[] data = current.getBackingArray();
+        int offset = current.offset();
+        int length = current.length();
+        int prefix = 0;
+        if (previous != null) {
+            byte[] prevData = previous.getBackingArray();
+            int prevOffset = previous.offset();
+            int max = Math.min(length, previous.length());
+            while (prefix < max && data[offset + prefix] == prevData[prevOffset + prefix]) {
+                prefix++;
+            }
+        }
+        WritableUtils.writeVInt(out, prefix);
+        WritableUtils.writeVInt(out, length - prefix);
+        out.write(data, offset + prefix, length - prefix);
+    }
+    
+    /**
+     * Read a field that was prefix compressed against the previous value of that field
+     *
+     * @param in
+     * @param previous
+     * @return the field bytes
+     * @throws IOException
+     */
+    private static byte[] readField(DataInput in, byte[] previous) throws IOException {
+        int prefix = WritableUtils.readVInt(in);
+        int suffix = WritableUtils.readVInt(in);
+        if (prefix > 0 && (previous == null || prefix > previous.length)) {
+            throw new IOException("Invalid shared prefix length " + prefix);
+        }
+        byte[] field = new byte[prefix + suffix];
+        if (prefix > 0) {
+            System.arraycopy(previous, 0, field, 0, prefix);
+        }
+        in.readFully(field, prefix, suffix);
+        return field;
+    }
+    
+    /**
+     * The binary output stream
+     */
+    private static class BinaryOutput implements SortedSetOutput<KeyValueSerializable> {
+        private final DataOutputStream out;
+        private final boolean compressed;
+        private final int blockSize;
+        private final ByteSequence[] previous = new ByteSequence[NUM_FIELDS];
+        
+        // the entries are written directly to the output stream unless we are compressing blocks
+        private final DataOutput entries;
+        private final DataOutputBuffer block;
+        private final Deflater deflater;
+        private byte[] compressedBuffer = null;
+        
+        public BinaryOutput(OutputStream stream, boolean compressed, int blockSize) throws IOException {
+            this.out = new DataOutputStream(stream);
+            this.compressed = compressed;
+            this.blockSize = blockSize;
+            if (compressed) {
+                this.block = new DataOutputBuffer(blockSize + 1024);
+                this.deflater = new Deflater(Deflater.BEST_SPEED);
+                this.entries = block;
+            } else {
+                this.block = null;
+                this.deflater = null;
+                this.entries = out;
+            }
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(compressed ? FLAG_BLOCK_COMPRESSED : 0);
+        }
+        
+        @Override
+        public void writeObject(KeyValueSerializable kv) throws IOException {
+            if (kv == null) {
+                entries.writeByte(ENTRY_NULL);
+            } else {
+                Key key = kv.getKey();
+                entries.writeByte(key.isDeleted() ? ENTRY_DELETED : 0);
+                writeField(key.getRowData(), 0);
+                writeField(key.getColumnFamilyData(), 1);
+                writeField(key.getColumnQualifierData(), 2);
+                writeField(key.getColumnVisibilityData(), 3);
+                WritableUtils.writeVLong(entries, key.getTimestamp());
+                WritableUtils.writeVInt(entries, kv.value.length);
+                entries.write(kv.value);
+            }
+            if (compressed && block.getLength() >= blockSize) {
+                flushBlock();
+            }
+        }
+        
+        private void writeField(ByteSequence field, int index) throws IOException {
+            KeyValueBinarySerializer.writeField(entries, field, previous[index]);
+            previous[index] = field;
+        }
+        
+        private void flushBlock() throws IOException {
+            int rawLength = block.getLength();
+            if (rawLength == 0) {
+                return;
+            }
+            if (compressedBuffer == null || compressedBuffer.length < rawLength) {
+                compressedBuffer = new byte[rawLength + 1024];
+            }
+            deflater.reset();
+            deflater.setInput(block.getData(), 0, rawLength);
+            deflater.finish();
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                if (compressedLength == compressedBuffer.length) {
+                    byte[] newBuffer = new byte[compressedBuffer.length * 2];
+                    System.arraycopy(compressedBuffer, 0, newBuffer, 0, compressedLength);
+                    compressedBuffer = newBuffer;
+                }
+                compressedLength += deflater.deflate(compressedBuffer, compressedLength, compressedBuffer.length - compressedLength);
+            }
+            WritableUtils.writeVInt(out, rawLength);
+            WritableUtils.writeVInt(out, compressedLength);
+            out.write(compressedBuffer, 0, compressedLength);
+            block.reset();
+        }
+        
+        @Override
+        public void writeSize(int size) throws IOException {
+            if (compressed) {
+                flushBlock();
+            }
+            out.writeInt(size);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+    }
+    
+    /**
+     * The binary input stream
+     */
+    private static class BinaryInput implements SortedSetInput<KeyValueSerializable> {
+        private final DataInputStream in;
+        private final boolean compressed;
+        private final byte[][] previous = new byte[NUM_FIELDS][];
+        
+        // the entries are read directly from the input stream unless we are decompressing blocks
+        private final DataInput entries;
+        private final DataInputBuffer block;
+        private final Inflater inflater;
+        private byte[] compressedBuffer = null;
+        private byte[] rawBuffer = null;
+        
+        public BinaryInput(InputStream stream) throws IOException {
+            this.in = new DataInputStream(stream);
+            int magic = in.readInt();
+            if (magic != MAGIC) {
+                throw new IOException("Not a binary key value sorted set file: " + Integer.toHexString(magic));
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary key value sorted set file version: " + version);
+            }
+            this.compressed = ((in.readByte() & FLAG_BLOCK_COMPRESSED) != 0);
+            if (compressed) {
+                this.block = new DataInputBuffer();
+                this.inflater = new Inflater();
+                this.entries = block;
+            } else {
+                this.block = null;
+                this.inflater = null;
+                this.entries = in;
+            }
+        }
+        
+        @Override
+        public KeyValueSerializable readObject() throws IOException {
+            if (compressed && block.getPosition() >= block.getLength()) {
+                readBlock();
+            }
+            byte flags = entries.readByte();
+            if ((flags & ENTRY_NULL) != 0) {
+                return null;
+            }
+            byte[] row = readField(0);
+            byte[] cf = readField(1);
+            byte[] cq = readField(2);
+            byte[] cv = readField(3);
+            long timestamp = WritableUtils.readVLong(entries);
+            byte[] value = new byte[WritableUtils.readVInt(entries)];
+            entries.readFully(value);
+            return new KeyValueSerializable(new Key(row, cf, cq, cv, timestamp, (flags & ENTRY_DELETED) != 0, false), value);
+        }
+        
+        private byte[] readField(int index) throws IOException {
+            byte[] field = KeyValueBinarySerializer.readField(entries, previous[index]);
+            previous[index] = field;
+            return field;
+        }
+        
+        private void readBlock() throws IOException {
+            int rawLength = WritableUtils.readVInt(in);
+            int compressedLength = WritableUtils.readVInt(in);
+            if (compressedBuffer == null || compressedBuffer.length < compressedLength) {
+                compressedBuffer = new byte[compressedLength];
+            }
+            if (rawBuffer == null || rawBuffer.length < rawLength) {
+                rawBuffer = new byte[rawLength];
+            }
+            in.readFully(compressedBuffer, 0, compressedLength);
+            inflater.reset();
+            inflater.setInput(compressedBuffer, 0, compressedLength);
+            try {
+                int length = 0;
+                while (length < rawLength && !inflater.finished()) {
+                    int inflated = inflater.inflate(rawBuffer, length, rawLength - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += inflated;
+                }
+                if (length != rawLength) {
+                    throw new IOException("Failed to inflate block: expected " + rawLength + " bytes but got " + length);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Failed to inflate block", e);
+            }
+            block.reset(rawBuffer, rawLength);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                if (inflater != null) {
+                    inflater.end();
+                }
+            }
+        }
+    }
+}
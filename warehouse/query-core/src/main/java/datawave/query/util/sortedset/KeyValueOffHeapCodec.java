@@ -0,0 +1,124 @@
+package datawave.query.util.sortedset;
+
+import java.nio.ByteBuffer;
+
+import datawave.query.util.sortedset.OffHeapSortedSetBuffer.ElementCodec;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+
+/**
+ * Encodes KeyValueSerializable objects for an {@link OffHeapSortedSetBuffer}. An entry is encoded as a deleted flag byte, the row, column family, column
+ * qualifier and column visibility (each as an int length followed by the bytes), the timestamp, and the length prefixed value. The comparison works directly
+ * against the encoded bytes and matches {@link KeyValueSerializable#compareTo(KeyValueSerializable)}.
+ */
+public class KeyValueOffHeapCodec implements ElementCodec<KeyValueSerializable> {
+    
+    @Override
+    public int size(KeyValueSerializable kv) {
+        Key key = kv.getKey();
+        return 1 + 4 * 5 + key.getRowData().length() + key.getColumnFamilyData().length() + key.getColumnQualifierData().length()
+                        + key.getColumnVisibilityData().length() + 8 + kv.value.length;
+    }
+    
+    @Override
+    public void write(KeyValueSerializable kv, ByteBuffer buffer, int offset) {
+        ByteBuffer out = buffer.duplicate();
+        out.position(offset);
+        Key key = kv.getKey();
+        out.put(key.isDeleted() ? (byte) 1 : (byte) 0);
+        writeField(out, key.getRowData());
+        writeField(out, key.getColumnFamilyData());
+        writeField(out, key.getColumnQualifierData());
+        writeField(out, key.getColumnVisibilityData());
+        out.putLong(key.getTimestamp());
+        out.putInt(kv.value.length);
+        out.put(kv.value);
+    }
+    
+    private static void writeField(ByteBuffer out, ByteSequence field) {
+        out.putInt(field.length());
+        out.put(field.getBackingArray(), field.offset(), field.length());
+    }
+    
+    @Override
+    public KeyValueSerializable read(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(offset);
+        boolean deleted = (in.get() != 0);
+        byte[] row = readField(in);
+        byte[] cf = readField(in);
+        byte[] cq = readField(in);
+        byte[] cv = readField(in);
+        long timestamp = in.getLong();
+        byte[] value = readField(in);
+        return new KeyValueSerializable(new Key(row, cf, cq, cv, timestamp, deleted, false), value);
+    }
+    
+    private static byte[] readField(ByteBuffer in) {
+        byte[] field = new byte[in.getInt()];
+        in.get(field);
+        return field;
+    }
+    
+    @Override
+    public int compare(ByteBuffer buffer, int offset, int length, KeyValueSerializable kv) {
+        Key key = kv.getKey();
+        int position = offset + 1;
+        ByteSequence[] fields = {key.getRowData(), key.getColumnFamilyData(), key.getColumnQualifierData(), key.getColumnVisibilityData()};
+        for (ByteSequence field : fields) {
+            int fieldLength = buffer.getInt(position);
+            position += 4;
+            int comparison = compareUnsigned(buffer, position, fieldLength, field.getBackingArray(), field.offset(), field.length());
+            if (comparison != 0) {
+                return comparison;
+            }
+            position += fieldLength;
+        }
+        
+        // timestamps sort in descending order
+        long timestamp = buffer.getLong(position);
+        position += 8;
+        if (timestamp != key.getTimestamp()) {
+            return (timestamp < key.getTimestamp() ? 1 : -1);
+        }
+        
+        // deleted keys sort first
+        boolean deleted = (buffer.get(offset) != 0);
+        if (deleted != key.isDeleted()) {
+            return (deleted ? -1 : 1);
+        }
+        
+        int valueLength = buffer.getInt(position);
+        position += 4;
+        return compareSigned(buffer, position, valueLength, kv.value);
+    }
+    
+    /**
+     * Compare as done by the Key (unsigned bytes)
+     */
+    private static int compareUnsigned(ByteBuffer buffer, int position, int length, byte[] term, int termOffset, int termLength) {
+        int minSize = Math.min(length, termLength);
+        for (int i = 0; i < minSize; i++) {
+            int comparison = (buffer.get(position + i) & 0xFF) - (term[termOffset + i] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return length - termLength;
+    }
+    
+    /**
+     * Compare as done by the ByteArrayComparator (signed bytes)
+     */
+    private static int compareSigned(ByteBuffer buffer, int position, int length, byte[] term) {
+        int minSize = Math.min(length, term.length);
+        for (int i = 0; i < minSize; i++) {
+            int comparison = buffer.get(position + i) - term[i];
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return length - term.length;
+    }
+}
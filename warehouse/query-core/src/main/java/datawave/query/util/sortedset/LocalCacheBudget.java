@@ -0,0 +1,155 @@
+package datawave.query.util.sortedset;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * The number of bytes that may be written into a local cache directory before files are written to the next (hdfs) tier. Budgets are shared by all of the
+ * sorted sets using the same (query specific) local directory within this JVM. Each open sorted set holds a reference to the budget, and when the last one is
+ * closed the budget is dropped and its directory removed as local files are never reusable. A budget that has not been accessed for a while is dropped as well
+ * in case a set was never closed.
+ */
+public class LocalCacheBudget {
+    private static final Logger log = Logger.getLogger(LocalCacheBudget.class);
+    
+    // the amount of time after which an unused budget is dropped and its directory removed
+    public static final long EXPIRATION_MINUTES = 60;
+    
+    // the default number of bytes that may be written into a local cache directory
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    
+    private static final Cache<String,LocalCacheBudget> budgets = CacheBuilder.newBuilder().expireAfterAccess(EXPIRATION_MINUTES, TimeUnit.MINUTES)
+                    .removalListener(new RemovalListener<String,LocalCacheBudget>() {
+                        @Override
+                        public void onRemoval(RemovalNotification<String,LocalCacheBudget> notification) {
+                            notification.getValue().deleteDirectory();
+                        }
+                    }).build();
+    
+    private final File dir;
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong(0);
+    // the number of open sorted sets using this budget
+    private int references = 0;
+    
+    public LocalCacheBudget(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * Get the budget shared by all sets under the specified local directory
+     *
+     * @param dir
+     * @param maxBytes
+     *            the budget size if a new budget is created
+     * @return the budget
+     */
+    public static LocalCacheBudget getBudget(final File dir, final long maxBytes) {
+        try {
+            return budgets.get(dir.getAbsolutePath(), new Callable<LocalCacheBudget>() {
+                @Override
+                public LocalCacheBudget call() {
+                    return new LocalCacheBudget(dir, maxBytes);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to create a local cache budget for " + dir, e);
+        }
+    }
+    
+    /**
+     * Mark the budget as recently used so that it does not get expired
+     */
+    public void touch() {
+        budgets.getIfPresent(dir.getAbsolutePath());
+    }
+    
+    /**
+     * @return true if there is still room to write into the local directory
+     */
+    public boolean hasCapacity() {
+        return usedBytes.get() < maxBytes;
+    }
+    
+    /**
+     * Reserve bytes against the budget if they fit
+     * 
+     * @param bytes
+     * @return true if reserved, false if the budget would be exceeded
+     */
+    public boolean reserve(long bytes) {
+        long used = usedBytes.get();
+        while (used + bytes <= maxBytes) {
+            if (usedBytes.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+            used = usedBytes.get();
+        }
+        return false;
+    }
+    
+    /**
+     * Register a sorted set using this budget, making this the shared budget for the directory again if it had been dropped
+     */
+    public synchronized void addReference() {
+        references++;
+        budgets.asMap().putIfAbsent(dir.getAbsolutePath(), this);
+    }
+    
+    /**
+     * Unregister a closed sorted set. When no sets remain, the budget is dropped and its directory removed.
+     */
+    public synchronized void removeReference() {
+        if (references > 0 && --references == 0) {
+            budgets.asMap().remove(dir.getAbsolutePath(), this);
+        }
+    }
+    
+    public void add(long bytes) {
+        usedBytes.addAndGet(bytes);
+    }
+    
+    public void release(long bytes) {
+        usedBytes.addAndGet(-bytes);
+    }
+    
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public File getDirectory() {
+        return dir;
+    }
+    
+    private synchronized void deleteDirectory() {
+        // a set may have registered again since this budget was dropped
+        if (references > 0) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Removing local cache directory " + dir);
+        }
+        FileUtil.fullyDelete(dir);
+    }
+    
+    @Override
+    public String toString() {
+        return dir + " (" + usedBytes.get() + '/' + maxBytes + ')';
+    }
+}
@@ -0,0 +1,219 @@
+package datawave.query.util.sortedset;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.server.client.HdfsZooInstance;
+import org.apache.accumulo.server.conf.ServerConfigurationFactory;
+import org.apache.accumulo.server.util.time.SimpleTimer;
+import org.apache.log4j.Logger;
+
+/**
+ * An arena of fixed size direct byte buffer chunks used to hold the in-memory portion of sorted sets outside of the java heap. The total amount of direct
+ * memory allocated is limited by a budget which is shared across all queries within the JVM (i.e. per tablet server). Released chunks are pooled and reused as
+ * direct buffers are expensive to allocate. When the budget is exhausted, no chunk is returned and the caller is expected to fall back to heap memory.
+ */
+public class OffHeapArena {
+    private static final Logger log = Logger.getLogger(OffHeapArena.class);
+    
+    public static final String MAX_BYTES_PROP = "tserver.datawave.ivarator.offheap.max.bytes";
+    public static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    
+    private static final Object instanceSemaphore = new Object();
+    private static volatile OffHeapArena instance;
+    
+    private final int chunkSize;
+    private volatile long maxBytes;
+    private final ConcurrentLinkedQueue<ByteBuffer> freeChunks = new ConcurrentLinkedQueue<>();
+    
+    // metrics
+    private final AtomicLong allocatedBytes = new AtomicLong(0);
+    private final AtomicLong usedBytes = new AtomicLong(0);
+    private final AtomicLong peakUsedBytes = new AtomicLong(0);
+    private final AtomicLong chunkAllocations = new AtomicLong(0);
+    private final AtomicLong chunkReuses = new AtomicLong(0);
+    private final AtomicLong rejections = new AtomicLong(0);
+    
+    public OffHeapArena(long maxBytes) {
+        this(maxBytes, DEFAULT_CHUNK_SIZE);
+    }
+    
+    public OffHeapArena(long maxBytes, int chunkSize) {
+        this.maxBytes = maxBytes;
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * Get the arena shared by all queries in this tablet server. The budget is taken from the {@value #MAX_BYTES_PROP} property and is periodically refreshed.
+     *
+     * @return the shared arena
+     */
+    public static OffHeapArena getInstance() {
+        if (instance == null) {
+            synchronized (instanceSemaphore) {
+                if (instance == null) {
+                    instance = createInstance();
+                }
+            }
+        }
+        return instance;
+    }
+    
+    private static OffHeapArena createInstance() {
+        ServerConfigurationFactory confFactory = null;
+        try {
+            confFactory = new ServerConfigurationFactory(HdfsZooInstance.getInstance());
+        } catch (Throwable e) {
+            log.error("Unable to get the accumulo configuration, using the default off heap budget (" + DEFAULT_MAX_BYTES + " bytes)");
+        }
+        final ServerConfigurationFactory factory = confFactory;
+        final OffHeapArena arena = new OffHeapArena(getMaxBytes(factory));
+        SimpleTimer.getInstance(AccumuloConfiguration.getDefaultConfiguration()).schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long max = getMaxBytes(factory);
+                    if (arena.getMaxBytes() != max) {
+                        log.info("Changing " + MAX_BYTES_PROP + " to " + max);
+                        arena.setMaxBytes(max);
+                    }
+                    if (log.isDebugEnabled() && arena.getAllocatedBytes() > 0) {
+                        log.debug("Ivarator off heap arena: " + arena);
+                    }
+                } catch (Throwable t) {
+                    log.error(t, t);
+                }
+            }
+        }, 1000, 10 * 1000);
+        return arena;
+    }
+    
+    private static long getMaxBytes(ServerConfigurationFactory confFactory) {
+        if (confFactory != null) {
+            AccumuloConfiguration conf = confFactory.getConfiguration();
+            Map<String,String> properties = new TreeMap<>();
+            conf.getProperties(properties, new AccumuloConfiguration.MatchFilter(MAX_BYTES_PROP));
+            if (properties.containsKey(MAX_BYTES_PROP)) {
+                return AccumuloConfiguration.getMemoryInBytes(properties.get(MAX_BYTES_PROP));
+            }
+        }
+        return DEFAULT_MAX_BYTES;
+    }
+    
+    /**
+     * Get a cleared chunk of {@link #getChunkSize()} bytes.
+     *
+     * @return a direct byte buffer, or null if the budget has been exhausted
+     */
+    public ByteBuffer allocate() {
+        ByteBuffer chunk = freeChunks.poll();
+        if (chunk != null) {
+            chunkReuses.incrementAndGet();
+        } else {
+            long allocated = allocatedBytes.addAndGet(chunkSize);
+            if (allocated > maxBytes) {
+                allocatedBytes.addAndGet(-chunkSize);
+                rejections.incrementAndGet();
+                return null;
+            }
+            try {
+                chunk = ByteBuffer.allocateDirect(chunkSize);
+            } catch (OutOfMemoryError e) {
+                allocatedBytes.addAndGet(-chunkSize);
+                rejections.incrementAndGet();
+                log.warn("Unable to allocate an off heap chunk of " + chunkSize + " bytes", e);
+                return null;
+            }
+            chunkAllocations.incrementAndGet();
+        }
+        chunk.clear();
+        long used = usedBytes.addAndGet(chunkSize);
+        long peak = peakUsedBytes.get();
+        while (used > peak && !peakUsedBytes.compareAndSet(peak, used)) {
+            peak = peakUsedBytes.get();
+        }
+        return chunk;
+    }
+    
+    /**
+     * Return a chunk obtained via {@link #allocate()} to this arena. The chunk must no longer be referenced by the caller.
+     *
+     * @param chunk
+     */
+    public void release(ByteBuffer chunk) {
+        usedBytes.addAndGet(-chunkSize);
+        if (allocatedBytes.get() > maxBytes) {
+            // the budget has been lowered, let the garbage collector free this one
+            allocatedBytes.addAndGet(-chunkSize);
+        } else {
+            freeChunks.offer(chunk);
+        }
+    }
+    
+    /**
+     * @return true if a chunk can currently be obtained without exceeding the budget
+     */
+    public boolean hasCapacity() {
+        return !freeChunks.isEmpty() || allocatedBytes.get() + chunkSize <= maxBytes;
+    }
+    
+    public int getChunkSize() {
+        return chunkSize;
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        // drop pooled chunks beyond the new budget
+        while (allocatedBytes.get() > maxBytes && freeChunks.poll() != null) {
+            allocatedBytes.addAndGet(-chunkSize);
+        }
+    }
+    
+    /**
+     * @return the number of direct bytes allocated, including pooled chunks
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+    
+    /**
+     * @return the number of direct bytes currently handed out to sorted sets
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+    
+    public long getPeakUsedBytes() {
+        return peakUsedBytes.get();
+    }
+    
+    public long getChunkAllocations() {
+        return chunkAllocations.get();
+    }
+    
+    public long getChunkReuses() {
+        return chunkReuses.get();
+    }
+    
+    /**
+     * @return the number of times a chunk was requested but the budget was exhausted
+     */
+    public long getRejections() {
+        return rejections.get();
+    }
+    
+    @Override
+    public String toString() {
+        return "used=" + usedBytes.get() + ", allocated=" + allocatedBytes.get() + ", max=" + maxBytes + ", peak=" + peakUsedBytes.get() + ", allocations="
+                        + chunkAllocations.get() + ", reuses=" + chunkReuses.get() + ", rejections=" + rejections.get();
+    }
+}
@@ -0,0 +1,538 @@
+package datawave.query.util.sortedset;
+
+import java.io.Closeable;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import datawave.webservice.query.exception.DatawaveErrorCode;
+import datawave.webservice.query.exception.QueryException;
+
+/**
+ * A sorted set which keeps its elements in encoded form within chunks obtained from an {@link OffHeapArena}, and a separate array of locations and sizes in
+ * sorted order. This keeps the buffered entries of a file backed sorted set out of the java heap. If the arena budget has been exhausted, heap chunks are used
+ * instead so that the set contract is always honored, starting small and growing geometrically up to the arena chunk size. The ordering is the natural ordering
+ * of the elements as implemented by the codec. Removed entries leave holes in the chunks which are only reclaimed on clear.
+ * <p>
+ * The arena chunks are returned when the set is cleared (which includes being persisted by a {@link FileSortedSet}) or closed. A set that is dropped while
+ * still holding arena chunks has them returned once it has been garbage collected, the next time any set allocates from an arena.
+ *
+ * @param <E>
+ */
+public class OffHeapSortedSetBuffer<E> extends AbstractSet<E> implements SortedSet<E>, Closeable {
+    public static final int DEFAULT_CAPACITY = 64;
+    public static final int MIN_HEAP_CHUNK_SIZE = 4096;
+    
+    // the arena chunks of sets which were garbage collected without being cleared or closed
+    private static final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    // keeps the references reachable until they are enqueued or explicitly released
+    private static final Set<ArenaChunksReference> references = Collections.newSetFromMap(new ConcurrentHashMap<ArenaChunksReference,Boolean>());
+    
+    /**
+     * Encodes elements into and out of a byte buffer. The compare method must be consistent with the natural ordering of the elements.
+     *
+     * @param <E>
+     */
+    public interface ElementCodec<E> {
+        /**
+         * @param e
+         * @return the number of bytes needed to encode the element
+         */
+        int size(E e);
+        
+        void write(E e, ByteBuffer buffer, int offset);
+        
+        E read(ByteBuffer buffer, int offset, int length);
+        
+        /**
+         * Compare an encoded element to an element
+         *
+         * @param buffer
+         * @param offset
+         * @param length
+         * @param e
+         * @return a negative number, zero, or a positive number as the encoded element is less than, equal to, or greater than e
+         */
+        int compare(ByteBuffer buffer, int offset, int length, E e);
+    }
+    
+    protected final OffHeapArena arena;
+    protected final ElementCodec<E> codec;
+    
+    protected final List<ByteBuffer> chunks = new ArrayList<>();
+    // the chunks which were allocated from the arena (as opposed to the heap)
+    protected final List<ByteBuffer> arenaChunks = new ArrayList<>();
+    // registered while arena chunks are held
+    protected ArenaChunksReference arenaChunksReference = null;
+    protected int chunkPosition = 0;
+    // the size of the last heap chunk allocated
+    protected int heapChunkSize = 0;
+    
+    // the (chunk index << 32 | offset) of each entry in sorted order
+    protected long[] sortedLocations;
+    protected int[] sortedSizes;
+    protected int size = 0;
+    protected int modCount = 0;
+    protected long heapFallbacks = 0;
+    
+    public OffHeapSortedSetBuffer(OffHeapArena arena, ElementCodec<E> codec) {
+        this(arena, codec, DEFAULT_CAPACITY);
+    }
+    
+    public OffHeapSortedSetBuffer(OffHeapArena arena, ElementCodec<E> codec, int capacity) {
+        this.arena = arena;
+        this.codec = codec;
+        this.sortedLocations = new long[capacity];
+        this.sortedSizes = new int[capacity];
+    }
+    
+    /************************** Overridden methods *************************/
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        try {
+            return binarySearch((E) o, 0, size - 1) >= 0;
+        } catch (ClassCastException cce) {
+            return false;
+        }
+    }
+    
+    @Override
+    public Iterator<E> iterator() {
+        return new OffHeapIterator(0, size);
+    }
+    
+    @Override
+    public boolean add(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        int index = binarySearch(e, 0, size - 1);
+        if (index < 0) {
+            add(-1 - index, e);
+            return true;
+        }
+        return false;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        int index;
+        try {
+            index = binarySearch((E) o, 0, size - 1);
+        } catch (ClassCastException cce) {
+            return false;
+        }
+        if (index >= 0) {
+            remove(index);
+            return true;
+        }
+        return false;
+    }
+    
+    @Override
+    public void clear() {
+        modCount++;
+        size = 0;
+        releaseChunks();
+    }
+    
+    /**
+     * Return any arena chunks held by this set. The set is left empty and may still be used.
+     */
+    @Override
+    public void close() {
+        clear();
+    }
+    
+    @Override
+    public Comparator<? super E> comparator() {
+        // natural ordering as implemented by the codec
+        return null;
+    }
+    
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        return new OffHeapSubSet(fromElement, toElement);
+    }
+    
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        return new OffHeapSubSet(null, toElement);
+    }
+    
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        return new OffHeapSubSet(fromElement, null);
+    }
+    
+    @Override
+    public E first() {
+        if (size == 0) {
+            QueryException qe = new QueryException(DatawaveErrorCode.FETCH_FIRST_ELEMENT_ERROR);
+            throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
+        }
+        return get(0);
+    }
+    
+    @Override
+    public E last() {
+        if (size == 0) {
+            QueryException qe = new QueryException(DatawaveErrorCode.FETCH_LAST_ELEMENT_ERROR);
+            throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
+        }
+        return get(size - 1);
+    }
+    
+    /***************************** Other public methods *************************/
+    
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index is out of range");
+        }
+        long location = sortedLocations[index];
+        return codec.read(chunks.get((int) (location >>> 32)), (int) location, sortedSizes[index]);
+    }
+    
+    /**
+     * @return the number of chunks that had to be allocated on the heap because the arena budget was exhausted
+     */
+    public long getHeapFallbacks() {
+        return heapFallbacks;
+    }
+    
+    /**
+     * @return the number of bytes of arena memory held by this set
+     */
+    public long getOffHeapBytes() {
+        return arenaChunks.isEmpty() ? 0 : (long) arenaChunks.size() * arena.getChunkSize();
+    }
+    
+    /**
+     * Return the arena chunks of any sets which were garbage collected without being cleared or closed
+     */
+    public static void releaseCollected() {
+        ArenaChunksReference reference;
+        while ((reference = (ArenaChunksReference) collected.poll()) != null) {
+            reference.release();
+        }
+    }
+    
+    /******************************* The protected stuff ***************************/
+    
+    protected void add(int index, E value) {
+        modCount++;
+        int valueSize = codec.size(value);
+        long location = reserve(valueSize);
+        codec.write(value, chunks.get((int) (location >>> 32)), (int) location);
+        if (size == sortedLocations.length) {
+            int newLen = (size * 3) / 2 + 1;
+            sortedLocations = Arrays.copyOf(sortedLocations, newLen);
+            sortedSizes = Arrays.copyOf(sortedSizes, newLen);
+        }
+        System.arraycopy(sortedLocations, index, sortedLocations, index + 1, size - index);
+        System.arraycopy(sortedSizes, index, sortedSizes, index + 1, size - index);
+        sortedLocations[index] = location;
+        sortedSizes[index] = valueSize;
+        size++;
+    }
+    
+    protected void remove(int index) {
+        modCount++;
+        size--;
+        System.arraycopy(sortedLocations, index + 1, sortedLocations, index, size - index);
+        System.arraycopy(sortedSizes, index + 1, sortedSizes, index, size - index);
+        if (size == 0) {
+            releaseChunks();
+        }
+    }
+    
+    /**
+     * Reserve space for an encoded element, allocating a new chunk if needed
+     *
+     * @param valueSize
+     * @return the location (chunk index << 32 | offset)
+     */
+    protected long reserve(int valueSize) {
+        if (chunks.isEmpty() || chunks.get(chunks.size() - 1).capacity() - chunkPosition < valueSize) {
+            ByteBuffer chunk = null;
+            if (arena != null && valueSize <= arena.getChunkSize()) {
+                releaseCollected();
+                chunk = arena.allocate();
+            }
+            if (chunk == null) {
+                heapFallbacks++;
+                // start small and double, as a set may only need a fraction of a chunk once the budget is exhausted
+                int maxChunkSize = (arena == null ? OffHeapArena.DEFAULT_CHUNK_SIZE : arena.getChunkSize());
+                heapChunkSize = Math.min(heapChunkSize == 0 ? MIN_HEAP_CHUNK_SIZE : heapChunkSize * 2, maxChunkSize);
+                chunk = ByteBuffer.allocate(Math.max(valueSize, heapChunkSize));
+            } else {
+                if (arenaChunksReference == null) {
+                    arenaChunksReference = new ArenaChunksReference(this, arena, arenaChunks);
+                }
+                arenaChunks.add(chunk);
+            }
+            chunks.add(chunk);
+            chunkPosition = 0;
+        }
+        long location = (((long) (chunks.size() - 1)) << 32) | chunkPosition;
+        chunkPosition += valueSize;
+        return location;
+    }
+    
+    protected void releaseChunks() {
+        if (arenaChunksReference != null) {
+            arenaChunksReference.release();
+            arenaChunksReference = null;
+        }
+        chunks.clear();
+        chunkPosition = 0;
+        heapChunkSize = 0;
+    }
+    
+    protected int compare(int index, E term) {
+        long location = sortedLocations[index];
+        return codec.compare(chunks.get((int) (location >>> 32)), (int) location, sortedSizes[index], term);
+    }
+    
+    /**
+     * A binary search of the chunks based on the sorted location array
+     *
+     * @param term
+     * @param start
+     * @param end
+     * @return the index of the term, or (-(insertion point) - 1) if not found
+     */
+    protected int binarySearch(E term, int start, int end) {
+        while (start <= end) {
+            int middle = (start + end) >>> 1;
+            int comparison = compare(middle, term);
+            
+            if (comparison < 0)
+                start = middle + 1;
+            else if (comparison > 0)
+                end = middle - 1;
+            else
+                return middle;
+        }
+        // return a negative index if not found so we know where it should go
+        return -(start + 1);
+    }
+    
+    @SuppressWarnings("unchecked")
+    protected int compareElements(E e1, E e2) {
+        return ((Comparable<? super E>) e1).compareTo(e2);
+    }
+    
+    /**
+     * Holds the arena chunks of a set apart from the set itself, so that they can be returned to the arena once the set is no longer reachable.
+     */
+    protected static class ArenaChunksReference extends PhantomReference<Object> {
+        private final OffHeapArena arena;
+        private final List<ByteBuffer> arenaChunks;
+        
+        public ArenaChunksReference(Object set, OffHeapArena arena, List<ByteBuffer> arenaChunks) {
+            super(set, collected);
+            this.arena = arena;
+            this.arenaChunks = arenaChunks;
+            references.add(this);
+        }
+        
+        public void release() {
+            if (references.remove(this)) {
+                clear();
+                for (ByteBuffer chunk : arenaChunks) {
+                    arena.release(chunk);
+                }
+                arenaChunks.clear();
+            }
+        }
+    }
+    
+    protected class OffHeapIterator implements Iterator<E> {
+        protected int index;
+        protected int end;
+        protected int expectedModCount;
+        protected int last = -1;
+        
+        public OffHeapIterator(int start, int end) {
+            this.expectedModCount = modCount;
+            this.index = start;
+            this.end = end;
+        }
+        
+        final void checkModCount() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            checkModCount();
+            return index < end;
+        }
+        
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                QueryException qe = new QueryException(DatawaveErrorCode.FETCH_NEXT_ELEMENT_ERROR);
+                throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
+            }
+            last = index;
+            return get(index++);
+        }
+        
+        @Override
+        public void remove() {
+            checkModCount();
+            if (last >= 0) {
+                OffHeapSortedSetBuffer.this.remove(last);
+                index--;
+                end--;
+                last = -1;
+                expectedModCount = modCount;
+            } else {
+                throw new IllegalStateException("next needs to be called first");
+            }
+        }
+    }
+    
+    protected class OffHeapSubSet extends AbstractSet<E> implements SortedSet<E> {
+        protected final E from;
+        protected final E to;
+        
+        public OffHeapSubSet(E from, E to) {
+            if (from != null && to != null && compareElements(from, to) > 0) {
+                throw new IllegalArgumentException("The start is greater than the end");
+            }
+            this.from = from;
+            this.to = to;
+        }
+        
+        protected boolean inRange(E e) {
+            return (from == null || compareElements(e, from) >= 0) && (to == null || compareElements(e, to) < 0);
+        }
+        
+        /**
+         * @return {start inclusive, end exclusive}
+         */
+        protected int[] getRange() {
+            int start = (from == null ? 0 : binarySearch(from, 0, size - 1));
+            if (start < 0) {
+                start = -1 - start;
+            }
+            int end = (to == null ? size : binarySearch(to, 0, size - 1));
+            if (end < 0) {
+                end = -1 - end;
+            }
+            return new int[] {start, Math.max(start, end)};
+        }
+        
+        @Override
+        public Comparator<? super E> comparator() {
+            return null;
+        }
+        
+        @Override
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            if ((from != null && compareElements(fromElement, from) < 0) || (to != null && compareElements(to, toElement) < 0)) {
+                throw new IllegalArgumentException("Cannot create subset outside of the range of this subset");
+            }
+            return new OffHeapSubSet(fromElement, toElement);
+        }
+        
+        @Override
+        public SortedSet<E> headSet(E toElement) {
+            return subSet(from, toElement);
+        }
+        
+        @Override
+        public SortedSet<E> tailSet(E fromElement) {
+            return subSet(fromElement, to);
+        }
+        
+        @Override
+        public E first() {
+            int[] range = getRange();
+            if (range[0] == range[1]) {
+                QueryException qe = new QueryException(DatawaveErrorCode.FETCH_FIRST_ELEMENT_ERROR);
+                throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
+            }
+            return get(range[0]);
+        }
+        
+        @Override
+        public E last() {
+            int[] range = getRange();
+            if (range[0] == range[1]) {
+                QueryException qe = new QueryException(DatawaveErrorCode.FETCH_LAST_ELEMENT_ERROR);
+                throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
+            }
+            return get(range[1] - 1);
+        }
+        
+        @Override
+        public Iterator<E> iterator() {
+            int[] range = getRange();
+            return new OffHeapIterator(range[0], range[1]);
+        }
+        
+        @Override
+        public int size() {
+            int[] range = getRange();
+            return range[1] - range[0];
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean contains(Object o) {
+            return o != null && inRange((E) o) && OffHeapSortedSetBuffer.this.contains(o);
+        }
+        
+        @Override
+        public boolean add(E e) {
+            if (!inRange(e)) {
+                throw new IllegalArgumentException("Cannot add element outside of subset range");
+            }
+            return OffHeapSortedSetBuffer.this.add(e);
+        }
+        
+        @Override
+        public boolean remove(Object o) {
+            if (contains(o)) {
+                return OffHeapSortedSetBuffer.this.remove(o);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package datawave.query.util.sortedset;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import datawave.query.util.sortedset.BufferedFileBackedSortedSet.SortedSetFileHandlerFactory;
+import datawave.query.util.sortedset.FileSortedSet.SortedSetFileHandler;
+
+import org.apache.hadoop.io.IOUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * A sorted set file handler for a file in a local directory. The file is read through a memory mapped buffer, and the bytes written are reserved against a
+ * local cache budget as they are written. If a write would exceed the budget, then the bytes written so far are moved to a file created by the fallback
+ * handler factory (i.e. hdfs) and the remainder of the file is written there.
+ */
+public class SortedSetLocalFileHandler implements SortedSetFileHandler {
+    private static final Logger log = Logger.getLogger(SortedSetLocalFileHandler.class);
+    
+    private final File file;
+    private final LocalCacheBudget budget;
+    private final SortedSetFileHandlerFactory fallback;
+    // the handler the file was moved to once the budget was exhausted
+    private SortedSetFileHandler fallbackHandler = null;
+    // the number of bytes currently accounted against the budget for this file
+    private long accountedBytes = 0;
+    
+    public SortedSetLocalFileHandler(File file, LocalCacheBudget budget) {
+        this(file, budget, null);
+    }
+    
+    /**
+     * @param file
+     *            the local file
+     * @param budget
+     *            the budget to reserve the bytes written against
+     * @param fallback
+     *            the factory for the handler to use when a write would exceed the budget, or null to ignore the budget when writing
+     */
+    public SortedSetLocalFileHandler(File file, LocalCacheBudget budget, SortedSetFileHandlerFactory fallback) {
+        this.file = file;
+        this.budget = budget;
+        this.fallback = fallback;
+        // account for a file that already exists (e.g. when reloading a set)
+        if (file.exists()) {
+            account(file.length());
+        }
+    }
+    
+    public File getFile() {
+        return file;
+    }
+    
+    /**
+     * @return true if the file is in the local directory, false if it was moved to the fallback handler
+     */
+    public boolean isLocal() {
+        return fallbackHandler == null;
+    }
+    
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (fallbackHandler != null) {
+            return fallbackHandler.getInputStream();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Reading " + file);
+        }
+        long length = file.length();
+        // a single mapping is limited to Integer.MAX_VALUE bytes
+        if (length > Integer.MAX_VALUE) {
+            return new FileInputStream(file);
+        }
+        try (FileInputStream stream = new FileInputStream(file)) {
+            FileChannel channel = stream.getChannel();
+            // the mapping remains valid after the channel is closed
+            return new MappedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+    }
+    
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        // once moved, any rewrite of the file stays with the fallback handler
+        if (fallbackHandler != null) {
+            return fallbackHandler.getOutputStream();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Creating " + file);
+        }
+        // the file is being rewritten, so release whatever it held
+        account(0);
+        return new ReservingOutputStream(new FileOutputStream(file));
+    }
+    
+    private synchronized void account(long bytes) {
+        if (budget != null) {
+            budget.add(bytes - accountedBytes);
+            budget.touch();
+        }
+        accountedBytes = bytes;
+    }
+    
+    /**
+     * Reserve bytes about to be written against the budget.
+     * 
+     * @return true if reserved, false if the write would exceed the budget
+     */
+    private synchronized boolean reserve(long bytes) {
+        if (budget == null || fallback == null) {
+            return true;
+        }
+        if (budget.reserve(bytes)) {
+            accountedBytes += bytes;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Move the bytes written so far into a file created by the fallback handler factory.
+     * 
+     * @param local
+     *            the stream to the local file, which will be closed
+     * @return the stream to the fallback file
+     */
+    private OutputStream moveToFallback(OutputStream local) throws IOException {
+        local.close();
+        SortedSetFileHandler handler = fallback.createHandler();
+        if (log.isDebugEnabled()) {
+            log.debug("Local cache budget " + budget + " exhausted, moving " + file + " to " + handler);
+        }
+        OutputStream out = handler.getOutputStream();
+        try (InputStream in = new FileInputStream(file)) {
+            IOUtils.copyBytes(in, out, 64 * 1024, false);
+        } catch (IOException e) {
+            out.close();
+            handler.deleteFile();
+            throw e;
+        }
+        fallbackHandler = handler;
+        deleteLocalFile();
+        return out;
+    }
+    
+    @Override
+    public long getSize() {
+        if (fallbackHandler != null) {
+            return fallbackHandler.getSize();
+        }
+        return (file.exists() ? file.length() : -1);
+    }
+    
+    @Override
+    public void deleteFile() {
+        if (fallbackHandler != null) {
+            fallbackHandler.deleteFile();
+        }
+        deleteLocalFile();
+    }
+    
+    private void deleteLocalFile() {
+        if (log.isDebugEnabled()) {
+            log.debug("Deleting " + file);
+        }
+        if (file.exists() && !file.delete()) {
+            log.error("Failed to delete file " + file + ": delete returned false");
+        }
+        account(0);
+    }
+    
+    @Override
+    public String toString() {
+        return (fallbackHandler == null ? file.toString() : fallbackHandler.toString());
+    }
+    
+    /**
+     * An output stream that reserves each write against the budget, and moves the file to the fallback handler when a reservation fails
+     */
+    private class ReservingOutputStream extends OutputStream {
+        private OutputStream out;
+        
+        private ReservingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            if (fallbackHandler == null && !reserve(1)) {
+                out = moveToFallback(out);
+            }
+            out.write(b);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (fallbackHandler == null && !reserve(len)) {
+                out = moveToFallback(out);
+            }
+            out.write(b, off, len);
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } finally {
+                // reconcile the reservations with what actually landed in the local file
+                if (fallbackHandler == null) {
+                    account(file.length());
+                }
+            }
+        }
+    }
+    
+    /**
+     * An input stream over a memory mapped file
+     */
+    public static class MappedInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        
+        public MappedInputStream(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int read() {
+            return (buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1);
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+        
+        @Override
+        public long skip(long n) {
+            if (n <= 0) {
+                return 0;
+            }
+            int count = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+        
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
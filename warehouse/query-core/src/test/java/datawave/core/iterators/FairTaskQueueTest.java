@@ -0,0 +1,151 @@
+package datawave.core.iterators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FairTaskQueueTest {
+    
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {}
+    };
+    
+    private List<String> drain(FairTaskQueue queue) {
+        List<String> order = new ArrayList<>();
+        Runnable task = queue.poll();
+        while (task != null) {
+            order.add(((FairTaskQueue.Task) task).getQueryId());
+            task = queue.poll();
+        }
+        return order;
+    }
+    
+    @Test
+    public void testFairAcrossQueries() {
+        FairTaskQueue queue = new FairTaskQueue();
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new FairTaskQueue.Task(queue, NOOP, "big", FairTaskQueue.DEFAULT_PRIORITY));
+        }
+        queue.offer(new FairTaskQueue.Task(queue, NOOP, "small", FairTaskQueue.DEFAULT_PRIORITY));
+        queue.offer(new FairTaskQueue.Task(queue, NOOP, "small", FairTaskQueue.DEFAULT_PRIORITY));
+        
+        Map<String,FairTaskQueue.TaskCounts> counts = queue.getTaskCounts();
+        Assert.assertEquals(10, counts.get("big").getQueued());
+        Assert.assertEquals(2, counts.get("small").getQueued());
+        Assert.assertEquals(12, queue.size());
+        
+        List<String> order = drain(queue);
+        Assert.assertEquals(12, order.size());
+        // the small query does not wait behind the big one
+        Assert.assertEquals("big", order.get(0));
+        Assert.assertEquals("small", order.get(1));
+        Assert.assertEquals("big", order.get(2));
+        Assert.assertEquals("small", order.get(3));
+        for (String queryId : order.subList(4, 12)) {
+            Assert.assertEquals("big", queryId);
+        }
+        Assert.assertTrue(queue.getTaskCounts().isEmpty());
+    }
+    
+    @Test
+    public void testPriority() {
+        FairTaskQueue queue = new FairTaskQueue();
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new FairTaskQueue.Task(queue, NOOP, "low", 1));
+        }
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new FairTaskQueue.Task(queue, NOOP, "high", 4));
+        }
+        
+        // the high priority query gets four dispatches for every one of the low priority query
+        List<String> order = drain(queue).subList(0, 10);
+        int high = 0;
+        for (String queryId : order) {
+            if (queryId.equals("high")) {
+                high++;
+            }
+        }
+        Assert.assertEquals(8, high);
+    }
+    
+    @Test
+    public void testIdleQueryDoesNotAccumulateCredit() {
+        FairTaskQueue queue = new FairTaskQueue();
+        for (int i = 0; i < 5; i++) {
+            queue.offer(new FairTaskQueue.Task(queue, NOOP, "a", FairTaskQueue.DEFAULT_PRIORITY));
+        }
+        Assert.assertEquals(5, drain(queue).size());
+        
+        // a query arriving later starts at the current virtual time
+        queue.offer(new FairTaskQueue.Task(queue, NOOP, "b", FairTaskQueue.DEFAULT_PRIORITY));
+        queue.offer(new FairTaskQueue.Task(queue, NOOP, "b", FairTaskQueue.DEFAULT_PRIORITY));
+        queue.offer(new FairTaskQueue.Task(queue, NOOP, "a", FairTaskQueue.DEFAULT_PRIORITY));
+        List<String> order = drain(queue);
+        Assert.assertEquals("b", order.get(0));
+        Assert.assertEquals("a", order.get(1));
+        Assert.assertEquals("b", order.get(2));
+    }
+    
+    @Test
+    public void testUntaggedAndRemove() {
+        FairTaskQueue queue = new FairTaskQueue();
+        queue.offer(NOOP);
+        Runnable task = new FairTaskQueue.Task(queue, NOOP, "a", FairTaskQueue.DEFAULT_PRIORITY);
+        queue.offer(task);
+        Assert.assertEquals(1, queue.getTaskCounts().get("").getQueued());
+        Assert.assertTrue(queue.remove(task));
+        Assert.assertFalse(queue.getTaskCounts().containsKey("a"));
+        Assert.assertSame(NOOP, queue.poll());
+        Assert.assertNull(queue.poll());
+    }
+    
+    @Test
+    public void testRunningCounts() throws Exception {
+        FairTaskQueue queue = new FairTaskQueue();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, queue);
+        try {
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            FairTaskQueue.Task blocking = new FairTaskQueue.Task(queue, new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "a", FairTaskQueue.DEFAULT_PRIORITY);
+            pool.execute(blocking);
+            started.await();
+            FairTaskQueue.Task queued = new FairTaskQueue.Task(queue, NOOP, "a", FairTaskQueue.DEFAULT_PRIORITY);
+            pool.execute(queued);
+            
+            FairTaskQueue.TaskCounts counts = queue.getTaskCounts().get("a");
+            Assert.assertEquals(1, counts.getRunning());
+            Assert.assertEquals(1, counts.getQueued());
+            
+            release.countDown();
+            for (Future<?> future : new Future<?>[] {blocking, queued}) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            // the running count is decremented just after the future completes
+            long end = System.currentTimeMillis() + 10000;
+            while (!queue.getTaskCounts().isEmpty() && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(queue.getTaskCounts().isEmpty());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
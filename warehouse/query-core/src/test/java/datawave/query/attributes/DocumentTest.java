@@ -0,0 +1,21 @@
+package datawave.query.attributes;
+
+import java.io.ObjectStreamClass;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DocumentTest {
+    
+    @Test
+    public void testSerializedFormIsUnchanged() {
+        // the java serialized form must remain that of a TreeMap backed document, regardless of the compact representation
+        ObjectStreamClass streamClass = ObjectStreamClass.lookup(Document.class);
+        Assert.assertEquals(1L, streamClass.getSerialVersionUID());
+        Assert.assertEquals(3, streamClass.getFields().length);
+        Assert.assertEquals(int.class, streamClass.getField("_count").getType());
+        Assert.assertEquals(long.class, streamClass.getField("_bytes").getType());
+        Assert.assertEquals(TreeMap.class, streamClass.getField("dict").getType());
+    }
+}
@@ -0,0 +1,101 @@
+package datawave.query.attributes;
+
+import java.util.Map;
+
+import datawave.query.function.deserializer.KryoDocumentDeserializer;
+import datawave.query.function.deserializer.LazyKryoDocumentDeserializer;
+import datawave.query.function.serializer.KryoDocumentSerializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class LazyAttributeMapTest {
+    
+    private static final Key DOC_KEY = new Key("20180101_0", "datatype\u0000uid", "", "A&B", 1514808000000L);
+    
+    private Document createDocument() {
+        Document d = new Document(DOC_KEY, true);
+        d.put("FIELD_A", new Content("value a", DOC_KEY, true));
+        d.put("FIELD_B", new Numeric("12", DOC_KEY, true));
+        d.put("FIELD_C", new Content("value c1", DOC_KEY, true));
+        d.put("FIELD_C", new Content("value c2", DOC_KEY, true));
+        Document child = new Document(DOC_KEY, true);
+        child.put("CHILD", new Content("child value", DOC_KEY, true));
+        d.put("FIELD_D", child);
+        return d;
+    }
+    
+    private Document roundTrip(Document d, boolean compress) {
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer(false, compress, true);
+        Map.Entry<Key,Value> serialized = serializer.apply(Maps.immutableEntry(DOC_KEY, d));
+        return new LazyKryoDocumentDeserializer().apply(serialized).getValue();
+    }
+    
+    @Test
+    public void testDecodedOnAccess() {
+        Document expected = createDocument();
+        Document actual = roundTrip(expected, false);
+        LazyAttributeMap attributes = (LazyAttributeMap) actual._getDictionary();
+        
+        // the size and visibility are available without decoding anything
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.getColumnVisibility(), actual.getColumnVisibility());
+        Assert.assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        Assert.assertTrue(actual.containsKey("FIELD_B"));
+        for (String field : expected.getDictionary().keySet()) {
+            Assert.assertFalse(attributes.isDecoded(field));
+        }
+        
+        Assert.assertEquals(expected.get("FIELD_B"), actual.get("FIELD_B"));
+        Assert.assertTrue(attributes.isDecoded("FIELD_B"));
+        Assert.assertFalse(attributes.isDecoded("FIELD_A"));
+        
+        Assert.assertEquals(expected.getDictionary(), actual.getDictionary());
+        Assert.assertTrue(attributes.isDecoded("FIELD_A"));
+        Assert.assertTrue(attributes.isDecoded("FIELD_D"));
+    }
+    
+    @Test
+    public void testModifyLazyDocument() {
+        Document expected = createDocument();
+        Document actual = roundTrip(expected, false);
+        
+        expected.put("FIELD_A", new Content("another a", DOC_KEY, true));
+        actual.put("FIELD_A", new Content("another a", DOC_KEY, true));
+        expected.removeAll("FIELD_B");
+        actual.removeAll("FIELD_B");
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.getDictionary(), actual.getDictionary());
+    }
+    
+    @Test
+    public void testCompressed() {
+        Document expected = createDocument();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            builder.append('x');
+        }
+        expected.put("FIELD_E", new Content(builder.toString(), DOC_KEY, true));
+        
+        Document actual = roundTrip(expected, true);
+        Assert.assertEquals(expected.getDictionary(), actual.getDictionary());
+    }
+    
+    @Test
+    public void testKryoFormatUnchanged() {
+        // documents that are not indexed are still readable by the original deserializer
+        Document expected = createDocument();
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer(false, false);
+        Map.Entry<Key,Value> serialized = serializer.apply(Maps.immutableEntry(DOC_KEY, expected));
+        Document actual = new KryoDocumentDeserializer().apply(serialized).getValue();
+        Assert.assertEquals(expected.getDictionary(), actual.getDictionary());
+        
+        // the serializer buffer is reused for the next document
+        serialized = serializer.apply(Maps.immutableEntry(DOC_KEY, new Document(DOC_KEY, true)));
+        Assert.assertEquals(0, new KryoDocumentDeserializer().apply(serialized).getValue().size());
+    }
+}
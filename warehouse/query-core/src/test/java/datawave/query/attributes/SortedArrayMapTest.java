@@ -0,0 +1,84 @@
+package datawave.query.attributes;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SortedArrayMapTest {
+    
+    @Test
+    public void testAgainstTreeMap() {
+        Random random = new Random(2468);
+        TreeMap<String,Integer> expected = new TreeMap<>();
+        SortedArrayMap<Integer> actual = new SortedArrayMap<>();
+        for (int i = 0; i < 5000; i++) {
+            String key = "FIELD_" + random.nextInt(200);
+            switch (random.nextInt(4)) {
+                case 0:
+                    Assert.assertEquals(expected.remove(key), actual.remove(key));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.get(key), actual.get(key));
+                    Assert.assertEquals(expected.containsKey(key), actual.containsKey(key));
+                    break;
+                default:
+                    Assert.assertEquals(expected.put(key, i), actual.put(key, i));
+            }
+            Assert.assertEquals(expected.size(), actual.size());
+        }
+        
+        // iteration order matches and the maps are equal both ways
+        Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(actual, expected);
+        Assert.assertEquals(expected.hashCode(), actual.hashCode());
+        
+        actual.trimToSize();
+        Assert.assertEquals(expected, actual);
+        actual.put("AAA", -1);
+        expected.put("AAA", -1);
+        Assert.assertEquals(expected, actual);
+    }
+    
+    @Test
+    public void testIteratorRemoveAndSetValue() {
+        SortedArrayMap<Integer> map = new SortedArrayMap<>();
+        for (int i = 0; i < 20; i++) {
+            map.put("F" + (char) ('A' + i), i);
+        }
+        Iterator<Map.Entry<String,Integer>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String,Integer> entry = it.next();
+            if (entry.getValue() % 2 == 0) {
+                it.remove();
+            } else {
+                entry.setValue(entry.getValue() * 10);
+            }
+        }
+        Assert.assertEquals(10, map.size());
+        List<Integer> values = new ArrayList<>(map.values());
+        for (int i = 0; i < values.size(); i++) {
+            Assert.assertEquals(Integer.valueOf((i * 2 + 1) * 10), values.get(i));
+        }
+    }
+    
+    @Test
+    public void testFieldNamesInterned() {
+        SortedArrayMap<Integer> map1 = new SortedArrayMap<>();
+        SortedArrayMap<Integer> map2 = new SortedArrayMap<>();
+        map1.put(new String("FIELD"), 1);
+        map2.put(new String("FIELD"), 2);
+        Assert.assertSame(map1.keySet().iterator().next(), map2.keySet().iterator().next());
+    }
+    
+    @Test(expected = NullPointerException.class)
+    public void testNullKey() {
+        new SortedArrayMap<Integer>().put(null, 1);
+    }
+}
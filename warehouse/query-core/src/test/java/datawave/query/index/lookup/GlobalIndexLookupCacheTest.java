@@ -0,0 +1,163 @@
+package datawave.query.index.lookup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class GlobalIndexLookupCacheTest {
+    
+    private static final IteratorSetting UIDS = new IteratorSetting(30, "uids", "datawave.query.index.lookup.CreateUidsIterator");
+    
+    private static GlobalIndexLookupCache.LookupKey key(String term, String... auths) {
+        return new GlobalIndexLookupCache.LookupKey("shardIndex", Collections.singleton(new Authorizations(auths)), new Range(term),
+                        Collections.singletonList(UIDS), GlobalIndexLookupCache.ScannerType.RANGE_STREAM, 10);
+    }
+    
+    private static List<Entry<Key,Value>> entries(String term, int count, int valueSize) {
+        List<Entry<Key,Value>> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(Maps.immutableEntry(new Key(term), new Value(new byte[valueSize])));
+        }
+        return entries;
+    }
+    
+    private static List<Entry<Key,Value>> consume(Iterator<Entry<Key,Value>> itr) {
+        List<Entry<Key,Value>> consumed = new ArrayList<>();
+        while (itr.hasNext()) {
+            consumed.add(itr.next());
+        }
+        return consumed;
+    }
+    
+    @Test
+    public void testCachedWhenConsumed() {
+        GlobalIndexLookupCache cache = new GlobalIndexLookupCache(1024 * 1024, 0);
+        List<Entry<Key,Value>> entries = entries("term", 5, 10);
+        
+        Assert.assertNull(cache.get(key("term", "A")));
+        Iterator<Entry<Key,Value>> itr = cache.caching(key("term", "A"), entries.iterator());
+        itr.next();
+        // a partially consumed lookup is not cached
+        Assert.assertNull(cache.get(key("term", "A")));
+        
+        consume(itr);
+        Assert.assertEquals(entries, cache.get(key("term", "A")));
+        Assert.assertEquals(1, cache.getStats().hitCount());
+        Assert.assertEquals(2, cache.getStats().missCount());
+    }
+    
+    @Test
+    public void testAuthorizationsAreDistinct() {
+        GlobalIndexLookupCache cache = new GlobalIndexLookupCache(1024 * 1024, 0);
+        consume(cache.caching(key("term", "A", "B"), entries("term", 5, 10).iterator()));
+        
+        Assert.assertNotNull(cache.get(key("term", "B", "A")));
+        Assert.assertNull(cache.get(key("term", "A")));
+        Assert.assertNull(cache.get(key("term", "A", "B", "C")));
+        Assert.assertNull(cache.get(key("other", "A", "B")));
+        
+        GlobalIndexLookupCache.LookupKey multiple = new GlobalIndexLookupCache.LookupKey("shardIndex", Sets.newHashSet(new Authorizations("A"),
+                        new Authorizations("B")), new Range("term"), Collections.singletonList(UIDS), GlobalIndexLookupCache.ScannerType.RANGE_STREAM, 10);
+        Assert.assertNull(cache.get(multiple));
+    }
+    
+    @Test
+    public void testIteratorOptionsAreDistinct() {
+        GlobalIndexLookupCache cache = new GlobalIndexLookupCache(1024 * 1024, 0);
+        consume(cache.caching(key("term", "A"), entries("term", 5, 10).iterator()));
+        
+        IteratorSetting collapsed = new IteratorSetting(30, "uids", "datawave.query.index.lookup.CreateUidsIterator");
+        collapsed.addOption(CreateUidsIterator.COLLAPSE_UIDS, "true");
+        GlobalIndexLookupCache.LookupKey key = new GlobalIndexLookupCache.LookupKey("shardIndex", Collections.singleton(new Authorizations("A")), new Range(
+                        "term"), Lists.newArrayList(collapsed), GlobalIndexLookupCache.ScannerType.RANGE_STREAM, 10);
+        Assert.assertNull(cache.get(key));
+    }
+    
+    @Test
+    public void testScannersAreDistinct() {
+        GlobalIndexLookupCache cache = new GlobalIndexLookupCache(1024 * 1024, 0);
+        consume(cache.caching(key("term", "A"), entries("term", 5, 10).iterator()));
+        
+        // the range stream scanners collapse days by the shards per day threshold, so neither the threshold nor the scanner may differ
+        Assert.assertNull(cache.get(new GlobalIndexLookupCache.LookupKey("shardIndex", Collections.singleton(new Authorizations("A")), new Range("term"),
+                        Collections.singletonList(UIDS), GlobalIndexLookupCache.ScannerType.RANGE_STREAM, 20)));
+        Assert.assertNull(cache.get(new GlobalIndexLookupCache.LookupKey("shardIndex", Collections.singleton(new Authorizations("A")), new Range("term"),
+                        Collections.singletonList(UIDS), GlobalIndexLookupCache.ScannerType.BATCH, 10)));
+        
+        // the batch scanner does not use the threshold
+        consume(cache.caching(new GlobalIndexLookupCache.LookupKey("shardIndex", Collections.singleton(new Authorizations("A")), new Range("term"),
+                        Collections.singletonList(UIDS), GlobalIndexLookupCache.ScannerType.BATCH, 10), entries("term", 5, 10).iterator()));
+        Assert.assertNotNull(cache.get(new GlobalIndexLookupCache.LookupKey("shardIndex", Collections.singleton(new Authorizations("A")), new Range("term"),
+                        Collections.singletonList(UIDS), GlobalIndexLookupCache.ScannerType.BATCH, 20)));
+    }
+    
+    @Test
+    public void testLargeLookupNotCached() {
+        List<Entry<Key,Value>> entries = entries("term", 10, 1000);
+        GlobalIndexLookupCache cache = new GlobalIndexLookupCache(GlobalIndexLookupCache.sizeOf(entries) * 8, 0);
+        
+        Assert.assertEquals(entries, consume(cache.caching(key("term", "A"), entries.iterator())));
+        Assert.assertNull(cache.get(key("term", "A")));
+        Assert.assertEquals(1, cache.getUncacheableCount());
+    }
+    
+    @Test
+    public void testBoundedBySize() {
+        List<Entry<Key,Value>> entries = entries("term", 1, 1000);
+        GlobalIndexLookupCache cache = new GlobalIndexLookupCache(GlobalIndexLookupCache.sizeOf(entries) * 20, 0);
+        for (int i = 0; i < 100; i++) {
+            consume(cache.caching(key("term" + i, "A"), entries.iterator()));
+        }
+        Assert.assertTrue(cache.size() <= 20);
+        Assert.assertTrue(cache.getStats().evictionCount() >= 80);
+    }
+    
+    @Test
+    public void testSharedInstance() {
+        GlobalIndexLookupCache cache = GlobalIndexLookupCache.getInstance(1024 * 1024, 1000);
+        Assert.assertSame(cache, GlobalIndexLookupCache.getInstance(1024 * 1024, 1000));
+        
+        // another configuration changes the limits of the same cache
+        Assert.assertSame(cache, GlobalIndexLookupCache.getInstance(2048 * 1024, 2000));
+        Assert.assertEquals(2048 * 1024, cache.getMaxBytes());
+        Assert.assertEquals(2000, cache.getTtlMillis());
+    }
+    
+    @Test
+    public void testSetLimits() {
+        List<Entry<Key,Value>> entries = entries("term", 5, 10);
+        GlobalIndexLookupCache cache = new GlobalIndexLookupCache(1024 * 1024, 0);
+        consume(cache.caching(key("term", "A"), entries.iterator()));
+        Assert.assertNotNull(cache.get(key("term", "A")));
+        
+        cache.setLimits(GlobalIndexLookupCache.sizeOf(entries) * 16, 1000);
+        Assert.assertEquals(GlobalIndexLookupCache.sizeOf(entries) * 16, cache.getMaxBytes());
+        
+        // the cached lookups are dropped, but the stats are kept
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNull(cache.get(key("term", "A")));
+        Assert.assertEquals(1, cache.getStats().hitCount());
+        Assert.assertEquals(1, cache.getStats().missCount());
+        
+        // and the new size bounds the lookups which are cached
+        consume(cache.caching(key("term", "A"), entries.iterator()));
+        Assert.assertEquals(entries, cache.get(key("term", "A")));
+        consume(cache.caching(key("term", "B"), entries("term", 5, 11).iterator()));
+        Assert.assertNull(cache.get(key("term", "B")));
+        Assert.assertEquals(1, cache.getUncacheableCount());
+    }
+}
@@ -0,0 +1,146 @@
+package datawave.query.index.lookup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import datawave.query.jexl.JexlNodeFactory;
+
+import org.apache.commons.jexl2.parser.JexlNode;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+
+/**
+ * Compares the sorted merge used to intersect and union uid sets with the hash based merge it replaced, using shard level uid cardinalities. This is not run as
+ * part of the build; run the main method with the test classpath. The arguments are the number of uids per shard for each side (default 1000 and 5000) and
+ * the fraction of the smaller side that is shared with the larger side (default 0.1).
+ */
+public class SortedUidSetsBenchmark {
+    
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1000;
+    
+    private static ImmutableSortedSet<IndexMatch> uids(List<String> uids, JexlNode node) {
+        List<IndexMatch> matches = new ArrayList<>(uids.size());
+        for (String uid : uids) {
+            matches.add(new IndexMatch(uid, node));
+        }
+        return ImmutableSortedSet.copyOf(matches);
+    }
+    
+    private static String uid(Random random) {
+        return "datatype\u0000" + Integer.toString(random.nextInt(), 36) + '.' + Integer.toString(random.nextInt(), 36) + '.'
+                        + Integer.toString(random.nextInt(), 36);
+    }
+    
+    /**
+     * The merge used before the sorted merge: the uids are hashed into a multimap of nodes, the matches collected in a hash set, and then sorted
+     */
+    static Set<IndexMatch> hashIntersect(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+        HashMultimap<String,JexlNode> ids = HashMultimap.create();
+        for (IndexMatch match : Iterables.concat(uids1, uids2)) {
+            JexlNode newNode = match.getNode();
+            if (null != newNode)
+                ids.put(match.uid, newNode);
+        }
+        Set<IndexMatch> matches = Sets.newHashSet();
+        for (String uid : ids.keySet()) {
+            Set<JexlNode> nodes = Sets.newHashSet(ids.get(uid));
+            if (nodes.size() > 1) {
+                nodes.addAll(delayedNodes);
+                matches.add(new IndexMatch(nodes, uid, IndexMatchType.AND));
+            }
+        }
+        return ImmutableSortedSet.copyOf(matches);
+    }
+    
+    static Set<IndexMatch> hashUnion(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+        HashMultimap<String,JexlNode> ids = HashMultimap.create();
+        for (IndexMatch match : Iterables.concat(uids1, uids2)) {
+            JexlNode newNode = match.getNode();
+            if (null != newNode)
+                ids.put(match.uid, newNode);
+        }
+        Set<IndexMatch> matches = Sets.newHashSet();
+        for (String uid : ids.keySet()) {
+            Set<JexlNode> nodes = Sets.newHashSet(ids.get(uid));
+            nodes.addAll(delayedNodes);
+            matches.add(new IndexMatch(nodes, uid, IndexMatchType.OR));
+        }
+        return ImmutableSortedSet.copyOf(matches);
+    }
+    
+    private interface Merge {
+        Set<IndexMatch> merge(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes);
+    }
+    
+    private static void run(String name, Merge merge, Set<IndexMatch> uids1, Set<IndexMatch> uids2) {
+        List<JexlNode> delayedNodes = Collections.emptyList();
+        int size = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            size += merge.merge(uids1, uids2, delayedNodes).size();
+        }
+        
+        System.gc();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            size += merge.merge(uids1, uids2, delayedNodes).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%-16s %10.1f us/op (%d)", name, elapsed / 1000.0 / ITERATIONS, size));
+    }
+    
+    public static void main(String[] args) {
+        int leftSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int rightSize = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        double overlap = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+        
+        Random random = new Random(42);
+        List<String> left = new ArrayList<>();
+        List<String> right = new ArrayList<>();
+        for (int i = 0; i < leftSize; i++) {
+            String uid = uid(random);
+            left.add(uid);
+            if (random.nextDouble() < overlap) {
+                right.add(uid);
+            }
+        }
+        while (right.size() < rightSize) {
+            right.add(uid(random));
+        }
+        
+        final Set<IndexMatch> uids1 = uids(left, JexlNodeFactory.buildEQNode("FIELD_A", "a"));
+        final Set<IndexMatch> uids2 = uids(right, JexlNodeFactory.buildEQNode("FIELD_B", "b"));
+        System.out.println("uids " + uids1.size() + " x " + uids2.size() + ", overlap " + overlap);
+        
+        run("hash intersect", new Merge() {
+            @Override
+            public Set<IndexMatch> merge(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+                return hashIntersect(uids1, uids2, delayedNodes);
+            }
+        }, uids1, uids2);
+        run("sorted intersect", new Merge() {
+            @Override
+            public Set<IndexMatch> merge(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+                return SortedUidSets.intersect(uids1, uids2, delayedNodes);
+            }
+        }, uids1, uids2);
+        run("hash union", new Merge() {
+            @Override
+            public Set<IndexMatch> merge(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+                return hashUnion(uids1, uids2, delayedNodes);
+            }
+        }, uids1, uids2);
+        run("sorted union", new Merge() {
+            @Override
+            public Set<IndexMatch> merge(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+                return SortedUidSets.union(uids1, uids2, delayedNodes);
+            }
+        }, uids1, uids2);
+    }
+}
@@ -0,0 +1,101 @@
+package datawave.query.index.lookup;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import datawave.query.jexl.JexlNodeFactory;
+
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class SortedUidSetsTest {
+    
+    private final JexlNode nodeA = JexlNodeFactory.buildEQNode("FIELD_A", "a");
+    private final JexlNode nodeB = JexlNodeFactory.buildEQNode("FIELD_B", "b");
+    private final JexlNode delayed = JexlNodeFactory.buildEQNode("FIELD_C", "c");
+    
+    private static Set<IndexMatch> matches(JexlNode node, String... uids) {
+        Set<IndexMatch> matches = new HashSet<>();
+        for (String uid : uids) {
+            matches.add(new IndexMatch(uid, node));
+        }
+        return matches;
+    }
+    
+    private static List<String> uids(Set<IndexMatch> matches) {
+        List<String> uids = Lists.newArrayList();
+        for (IndexMatch match : matches) {
+            uids.add(match.getUid());
+        }
+        return uids;
+    }
+    
+    @Test
+    public void testIntersect() {
+        IndexInfo left = new IndexInfo(matches(nodeA, "uid3", "uid1", "uid2", "uid5"));
+        IndexInfo right = new IndexInfo(matches(nodeB, "uid4", "uid2", "uid5", "uid6"));
+        
+        ImmutableSortedSet<IndexMatch> merged = SortedUidSets.intersect(left.uids(), right.uids(), Collections.singletonList(delayed));
+        Assert.assertEquals(Lists.newArrayList("uid2", "uid5"), uids(merged));
+        for (IndexMatch match : merged) {
+            Assert.assertEquals(IndexMatchType.AND, match.type);
+            Assert.assertEquals(Sets.newHashSet(nodeA, nodeB, delayed), new HashSet<>(match.myNodes));
+        }
+        
+        // the intersector used by the index info produces the same matches
+        Assert.assertEquals(merged, left.intersect(left.uids(), right.uids(), Collections.singletonList(delayed)));
+    }
+    
+    @Test
+    public void testIntersectRequiresDistinctNodes() {
+        Set<IndexMatch> left = matches(nodeA, "uid1", "uid2");
+        Set<IndexMatch> right = matches(nodeA, "uid2", "uid3");
+        Assert.assertTrue(SortedUidSets.intersect(left, right, Collections.<JexlNode> emptyList()).isEmpty());
+        
+        right = matches(null, "uid2", "uid3");
+        Assert.assertTrue(SortedUidSets.intersect(left, right, Collections.singletonList(delayed)).isEmpty());
+    }
+    
+    @Test
+    public void testUnion() {
+        Set<IndexMatch> left = matches(nodeA, "uid3", "uid1");
+        Set<IndexMatch> right = matches(nodeB, "uid2", "uid3");
+        right.addAll(matches(null, "uid4"));
+        
+        ImmutableSortedSet<IndexMatch> merged = SortedUidSets.union(left, right, Collections.<JexlNode> emptyList());
+        Assert.assertEquals(Lists.newArrayList("uid1", "uid2", "uid3"), uids(merged));
+        
+        IndexMatch match = merged.first();
+        Assert.assertEquals(IndexMatchType.OR, match.type);
+        Assert.assertEquals(Sets.newHashSet(nodeA), new HashSet<>(match.myNodes));
+        Assert.assertEquals(Sets.newHashSet(nodeA, nodeB), new HashSet<>(merged.last().myNodes));
+    }
+    
+    @Test
+    public void testUnionEmpty() {
+        Set<IndexMatch> left = matches(nodeA, "uid1");
+        Set<IndexMatch> empty = ImmutableSortedSet.of();
+        Assert.assertEquals(Lists.newArrayList("uid1"), uids(SortedUidSets.union(left, empty, Collections.<JexlNode> emptyList())));
+        Assert.assertEquals(Lists.newArrayList("uid1"), uids(SortedUidSets.union(empty, left, Collections.<JexlNode> emptyList())));
+    }
+    
+    @Test
+    public void testAnd() {
+        Set<IndexMatch> uids = matches(nodeA, "uid2", "uid1");
+        uids.addAll(matches(null, "uid3"));
+        
+        Assert.assertTrue(SortedUidSets.and(uids, Collections.<JexlNode> emptyList()).isEmpty());
+        
+        ImmutableSortedSet<IndexMatch> merged = SortedUidSets.and(uids, Collections.singletonList(delayed));
+        Assert.assertEquals(Lists.newArrayList("uid1", "uid2"), uids(merged));
+        Assert.assertEquals(Sets.newHashSet(nodeA, delayed), new HashSet<>(merged.first().myNodes));
+        Assert.assertEquals(IndexMatchType.AND, merged.first().type);
+    }
+}
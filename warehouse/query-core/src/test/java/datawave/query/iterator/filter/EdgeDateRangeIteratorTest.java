@@ -0,0 +1,143 @@
+package datawave.query.iterator.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import datawave.core.iterators.ColumnRangeIterator;
+import datawave.edge.util.EdgeKey;
+import datawave.query.Constants;
+import datawave.query.config.EdgeQueryConfiguration;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class EdgeDateRangeIteratorTest {
+    
+    private static final Value EMPTY_VALUE = new Value(new byte[0]);
+    
+    /**
+     * Counts the keys read from and the seeks made on the source
+     */
+    private static class CountingIterator extends WrappingIterator {
+        int nexts = 0;
+        int seeks = 0;
+        
+        @Override
+        public void next() throws IOException {
+            nexts++;
+            super.next();
+        }
+        
+        @Override
+        public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+            seeks++;
+            super.seek(range, columnFamilies, inclusive);
+        }
+    }
+    
+    private static Key edge(String sink, String type, String date, EdgeKey.DATE_TYPE dateType) {
+        return EdgeKey.newBuilder().setFormat(EdgeKey.EDGE_FORMAT.STANDARD).setSourceData("SOURCE").setSinkData(sink).setType(type)
+                        .setSourceRelationship("FROM").setSinkRelationship("TO").setSourceAttribute1("CAT1").setSinkAttribute1("CAT2").setYyyymmdd(date)
+                        .setAttribute2("ATTR2").setAttribute3("ATTR3").setDateType(dateType).build().encode();
+    }
+    
+    private static TreeMap<Key,Value> data() {
+        TreeMap<Key,Value> data = Maps.newTreeMap();
+        for (String sink : new String[] {"SINK1", "SINK2"}) {
+            for (String type : new String[] {"TYPE1", "TYPE2"}) {
+                for (int day = 1; day <= 28; day++) {
+                    String date = String.format("201801%02d", day);
+                    data.put(edge(sink, type, date, EdgeKey.DATE_TYPE.EVENT_ONLY), EMPTY_VALUE);
+                    data.put(edge(sink, type, date, EdgeKey.DATE_TYPE.ACTIVITY_ONLY), EMPTY_VALUE);
+                    data.put(edge(sink, type, date, EdgeKey.DATE_TYPE.ACTIVITY_AND_EVENT), EMPTY_VALUE);
+                }
+            }
+        }
+        return data;
+    }
+    
+    private static Map<String,String> options(String begin, String end, int skipLimit, EdgeQueryConfiguration.dateType dateType) throws IOException {
+        Map<String,String> options = Maps.newHashMap();
+        options.put(ColumnRangeIterator.RANGE_NAME, ColumnRangeIterator.encodeRange(new Range(new Key(begin), new Key(end + Constants.MAX_UNICODE_STRING))));
+        options.put(ColumnRangeIterator.SKIP_LIMIT_NAME, Integer.toString(skipLimit));
+        options.put(EdgeQueryConfiguration.DATE_RANGE_TYPE, dateType.name());
+        return options;
+    }
+    
+    private static List<Key> scan(SortedKeyValueIterator<Key,Value> iterator) throws IOException {
+        List<Key> keys = Lists.newArrayList();
+        iterator.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+        while (iterator.hasTop()) {
+            keys.add(iterator.getTopKey());
+            iterator.next();
+        }
+        return keys;
+    }
+    
+    private static List<Key> expected(TreeMap<Key,Value> data, String begin, String end, EdgeQueryConfiguration.dateType dateType) {
+        boolean[] accepted = EdgeDateRangeIterator.getAcceptedDateTypes(dateType.name());
+        List<Key> keys = Lists.newArrayList();
+        for (Key key : data.keySet()) {
+            String date = key.getColumnQualifier().toString().substring(0, 8);
+            if (date.compareTo(begin) >= 0 && date.compareTo(end) <= 0 && (null == accepted || accepted[EdgeKey.getDateType(key).ordinal()])) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+    
+    @Test
+    public void testDateRange() throws IOException {
+        TreeMap<Key,Value> data = data();
+        for (EdgeQueryConfiguration.dateType dateType : new EdgeQueryConfiguration.dateType[] {EdgeQueryConfiguration.dateType.EVENT,
+                        EdgeQueryConfiguration.dateType.ACTIVITY, EdgeQueryConfiguration.dateType.ANY}) {
+            EdgeDateRangeIterator iterator = new EdgeDateRangeIterator();
+            iterator.init(new SortedMapIterator(data), options("20180110", "20180112", 10, dateType), null);
+            List<Key> keys = scan(iterator);
+            assertEquals(expected(data, "20180110", "20180112", dateType), keys);
+            assertTrue(!keys.isEmpty());
+        }
+    }
+    
+    @Test
+    public void testSeeksPastDates() throws IOException {
+        TreeMap<Key,Value> data = data();
+        CountingIterator source = new CountingIterator();
+        source.init(new SortedMapIterator(data), null, null);
+        
+        EdgeDateRangeIterator iterator = new EdgeDateRangeIterator();
+        iterator.init(source, options("20180120", "20180120", 2, EdgeQueryConfiguration.dateType.ANY), null);
+        List<Key> keys = scan(iterator);
+        assertEquals(expected(data, "20180120", "20180120", EdgeQueryConfiguration.dateType.ANY), keys);
+        
+        // each of the four column families is entered with a seek rather than by reading every date before the range
+        assertTrue("read " + source.nexts + " of " + data.size() + " keys", source.nexts < data.size() / 4);
+        assertTrue(source.seeks > 4);
+    }
+    
+    @Test
+    public void testDeepCopy() throws IOException {
+        TreeMap<Key,Value> data = data();
+        EdgeDateRangeIterator iterator = new EdgeDateRangeIterator();
+        iterator.init(new SortedMapIterator(data), options("20180101", "20180103", 10, EdgeQueryConfiguration.dateType.ACTIVITY), null);
+        SortedKeyValueIterator<Key,Value> copy = iterator.deepCopy((IteratorEnvironment) null);
+        assertEquals(expected(data, "20180101", "20180103", EdgeQueryConfiguration.dateType.ACTIVITY), scan(copy));
+    }
+}
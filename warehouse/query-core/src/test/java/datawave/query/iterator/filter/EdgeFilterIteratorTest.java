@@ -0,0 +1,83 @@
+package datawave.query.iterator.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import datawave.edge.model.EdgeModelAware.Fields.FieldKey;
+import datawave.edge.util.EdgeKey;
+import datawave.edge.util.EdgeKeyUtil;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class EdgeFilterIteratorTest {
+    
+    private EdgeFilterIterator filter;
+    
+    @Before
+    public void setup() throws Exception {
+        Map<String,String> options = Maps.newHashMap();
+        options.put(EdgeFilterIterator.JEXL_OPTION, "true");
+        options.put(EdgeFilterIterator.PROTOBUF_OPTION, "true");
+        options.put(EdgeFilterIterator.INCLUDE_STATS_OPTION, "true");
+        filter = new EdgeFilterIterator();
+        filter.init(null, options);
+    }
+    
+    private static Key key(String row, String cf, String cq) {
+        return new Key(new Text(row), new Text(cf), new Text(cq));
+    }
+    
+    private static Key edge(EdgeKey.EDGE_FORMAT format, EdgeKey.STATS_TYPE statsType, EdgeKey.DATE_TYPE dateType) {
+        EdgeKey.EdgeKeyBuilder builder = EdgeKey.newBuilder().setFormat(format).setSourceData("SOURCE").setSinkData("SINK").setType("TYPE")
+                        .setSourceRelationship("FROM").setSinkRelationship("TO").setSourceAttribute1("CAT1").setSinkAttribute1("CAT2").setYyyymmdd("20180101")
+                        .setAttribute2("ATTR2").setAttribute3("ATTR3").setDateType(dateType);
+        if (statsType != null) {
+            builder.setStatsType(statsType);
+        }
+        return builder.build().encode();
+    }
+    
+    private void verifySameAsDisassembled(Key key) {
+        // copy as the map is reused
+        Map<FieldKey,String> components = new HashMap<>(filter.getKeyComponents(key));
+        Assert.assertEquals(key.toString(), EdgeKeyUtil.dissasembleKey(key, true), components);
+    }
+    
+    @Test
+    public void testEncodedEdges() {
+        for (EdgeKey.DATE_TYPE dateType : EdgeKey.DATE_TYPE.values()) {
+            verifySameAsDisassembled(edge(EdgeKey.EDGE_FORMAT.STANDARD, null, dateType));
+            verifySameAsDisassembled(edge(EdgeKey.EDGE_FORMAT.STATS, EdgeKey.STATS_TYPE.ACTIVITY, dateType));
+        }
+    }
+    
+    @Test
+    public void testEmptyParts() {
+        // protobuf, trailing empty attributes are dropped
+        verifySameAsDisassembled(key("SOURCE\0SINK", "TYPE/FROM-TO", "20180101/CAT1-CAT2//"));
+        verifySameAsDisassembled(key("SOURCE\0SINK", "TYPE/FROM-TO", "20180101/CAT1-CAT2/ATTR2/"));
+        verifySameAsDisassembled(key("SOURCE\0SINK", "TYPE/FROM-TO", "///"));
+        // date protobuf, unless there is a date type
+        verifySameAsDisassembled(key("SOURCE\0SINK", "TYPE/FROM-TO", "20180101/CAT1-CAT2///A"));
+        verifySameAsDisassembled(key("SOURCE\0SINK", "TYPE/FROM-TO", "20180101/CAT1-CAT2///"));
+        // stats protobuf
+        verifySameAsDisassembled(key("SOURCE", "STATS/ACTIVITY/TYPE/FROM", "20180101/CAT1//"));
+        // no sink
+        verifySameAsDisassembled(key("SOURCE\0", "TYPE/FROM-TO", "20180101/CAT1-CAT2/ATTR2/ATTR3"));
+    }
+    
+    @Test
+    public void testOtherVersions() {
+        // these are disassembled as strings
+        verifySameAsDisassembled(key("SOURCE\0SINK", "TYPE/FROM-TO/CAT1-CAT2", "20180101"));
+        verifySameAsDisassembled(key("SOURCE\0SINK", "TYPE/FROM-TO/CAT1-CAT2/ATTR2", "20180101"));
+        verifySameAsDisassembled(key("SOURCE", "STATS/ACTIVITY/TYPE/FROM/CAT1", "20180101"));
+        verifySameAsDisassembled(key("SOURCE\0SINK", "TYPE", "20180101"));
+    }
+}
@@ -0,0 +1,98 @@
+package datawave.query.iterator.pipeline;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptivePipelineControllerTest {
+    
+    private static class TestController extends AdaptivePipelineController {
+        private double saturation = 0.0d;
+        
+        public TestController(int maxPipelines) {
+            super(maxPipelines);
+        }
+        
+        @Override
+        protected double getPoolSaturation() {
+            return saturation;
+        }
+    }
+    
+    private static final long MS = 1000000L;
+    
+    @Test
+    public void testGrowsWhenWaitingOnEvaluations() {
+        TestController controller = new TestController(25);
+        Assert.assertEquals(AdaptivePipelineController.INITIAL_PIPELINES, controller.getTargetPipelines());
+        
+        // expensive evaluations that the consumer is blocked on
+        for (int i = 0; i < 100; i++) {
+            controller.evaluated(100 * MS, 100 * MS);
+        }
+        Assert.assertEquals(25, controller.getTargetPipelines());
+        Assert.assertEquals(25, controller.getPeakPipelines());
+        Assert.assertTrue(controller.getGrows() > 0);
+        Assert.assertEquals(0, controller.getShrinks());
+        Assert.assertEquals(100, controller.getEvaluations());
+        Assert.assertEquals(100 * 100 * MS, controller.getWaitNanos());
+    }
+    
+    @Test
+    public void testNoGrowthWithoutWaiting() {
+        TestController controller = new TestController(25);
+        for (int i = 0; i < 100; i++) {
+            controller.evaluated(0, 0);
+        }
+        Assert.assertEquals(AdaptivePipelineController.MIN_PIPELINES, controller.getTargetPipelines());
+        Assert.assertEquals(0, controller.getGrows());
+    }
+    
+    @Test
+    public void testShrinksWhenSaturated() {
+        TestController controller = new TestController(16);
+        for (int i = 0; i < 100; i++) {
+            controller.evaluated(100 * MS, 100 * MS);
+        }
+        Assert.assertEquals(16, controller.getTargetPipelines());
+        
+        controller.saturation = 1.5d;
+        controller.adjust(MS, controller.getPoolSaturation());
+        Assert.assertEquals(8, controller.getTargetPipelines());
+        for (int i = 0; i < 100; i++) {
+            controller.evaluated(100 * MS, 100 * MS);
+        }
+        Assert.assertEquals(AdaptivePipelineController.MIN_PIPELINES, controller.getTargetPipelines());
+        Assert.assertTrue(controller.getSaturatedWindows() > 1);
+        Assert.assertEquals(16, controller.getPeakPipelines());
+    }
+    
+    @Test
+    public void testShrinksForFastEvaluations() {
+        TestController controller = new TestController(8);
+        for (int i = 0; i < 100; i++) {
+            controller.evaluated(100 * MS, 100 * MS);
+        }
+        Assert.assertEquals(8, controller.getTargetPipelines());
+        
+        // evaluations are much cheaper than the time the consumer spends per result
+        controller.windowEvaluations = 10;
+        controller.windowEvaluationNanos = 10;
+        controller.windowWaitNanos = 0;
+        controller.adjust(100 * MS, 0.0d);
+        Assert.assertEquals(7, controller.getTargetPipelines());
+        Assert.assertEquals(1, controller.getShrinks());
+    }
+    
+    @Test
+    public void testBounds() {
+        TestController controller = new TestController(1);
+        Assert.assertEquals(1, controller.getTargetPipelines());
+        for (int i = 0; i < 100; i++) {
+            controller.evaluated(100 * MS, 100 * MS);
+        }
+        Assert.assertEquals(1, controller.getTargetPipelines());
+        
+        controller = new TestController(0);
+        Assert.assertEquals(1, controller.getMaxPipelines());
+    }
+}
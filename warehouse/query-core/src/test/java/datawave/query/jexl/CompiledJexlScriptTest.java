@@ -0,0 +1,99 @@
+package datawave.query.jexl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.Script;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompiledJexlScriptTest {
+    
+    private static final List<String> QUERIES = Arrays.asList("FOO == 'bar'", "FOO != 'bar'", "FOO == 'bar' && BAR == 'baz'", "FOO == 'bar' || BAR == 'baz'",
+                    "!(FOO == 'bar')", "FOO =~ 'ba.*'", "FOO !~ 'ba.*'", "FOO =~ 'ba.*' && !(BAR == 'foo')", "MISSING == 'bar'", "MISSING != 'bar'",
+                    "NUM > 5", "NUM >= 10", "NUM < 20 && NUM > 1", "NUM >= '1' && NUM <= '3'", "((FOO == 'bar') && ((NUM > 5) || (BAR == 'x')))",
+                    "FOO == 'bar' && (ASTDelayedPredicate = true) && BAR == 'baz'", "filter:includeRegex(FOO, 'ba.*')",
+                    "FOO == 'x' || filter:includeRegex(BAR, 'b.*')", "filter:includeRegex(FOO, 'ba.*') && filter:includeRegex(BAR, 'b.*')",
+                    "filter:includeRegex(FOO, 'ba.*').size() > 0", "true", "false || FOO == 'bar'", "MULTI == 'a' && MULTI == 'c'", "MULTI =~ 'b|d'");
+    
+    private DatawaveJexlContext createContext(int i) {
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        if (i % 2 == 0) {
+            context.set("FOO", "bar");
+        } else {
+            context.set("FOO", "foo");
+        }
+        if (i % 3 == 0) {
+            context.set("BAR", "baz");
+        }
+        context.set("NUM", i * 3);
+        context.set("MULTI", Arrays.asList("a", "b", "c").subList(0, 1 + i % 3));
+        return context;
+    }
+    
+    private Object execute(Script script, DatawaveJexlContext context) {
+        try {
+            return script.execute(context);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+    
+    private Object execute(CompiledJexlScript script, DatawaveJexlContext context) {
+        try {
+            return script.execute(context);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+    
+    private void verify(JexlArithmetic interpretedArithmetic, JexlArithmetic compiledArithmetic) {
+        DatawaveJexlEngine interpretedEngine = ArithmeticJexlEngines.getEngine(interpretedArithmetic);
+        DatawaveJexlEngine compiledEngine = ArithmeticJexlEngines.getEngine(compiledArithmetic);
+        for (String query : QUERIES) {
+            Script script = interpretedEngine.createScript(query);
+            CompiledJexlScript compiled = compiledEngine.createCompiledScript(query);
+            for (int i = 0; i < 10; i++) {
+                Object expected = execute(script, createContext(i));
+                Object actual = execute(compiled, createContext(i));
+                Assert.assertEquals(query + " against context " + i, expected, actual);
+                if (!(expected instanceof Class)) {
+                    Assert.assertEquals(query + " against context " + i, DatawaveInterpreter.isMatched(expected), DatawaveInterpreter.isMatched(actual));
+                }
+                if (interpretedArithmetic instanceof HitListArithmetic) {
+                    HitListArithmetic expectedHits = (HitListArithmetic) interpretedArithmetic;
+                    HitListArithmetic actualHits = (HitListArithmetic) compiledArithmetic;
+                    Assert.assertEquals(query + " hits against context " + i, expectedHits.getHitSet(), actualHits.getHitSet());
+                    expectedHits.clear();
+                    actualHits.clear();
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testDefaultArithmetic() {
+        verify(new DefaultArithmetic(), new DefaultArithmetic());
+    }
+    
+    @Test
+    public void testHitListArithmetic() {
+        verify(new HitListArithmetic(), new HitListArithmetic());
+    }
+    
+    @Test
+    public void testCompilation() {
+        DatawaveJexlEngine engine = ArithmeticJexlEngines.getEngine(new DefaultArithmetic());
+        CompiledJexlScript compiled = engine.createCompiledScript("FOO == 'bar' && (BAR =~ 'ba.*' || !(NUM > 5))");
+        Assert.assertEquals(0, compiled.getInterpretedNodes());
+        Assert.assertTrue(compiled.getCompiledNodes() > 0);
+        
+        compiled = engine.createCompiledScript("FOO == 'bar' && filter:includeRegex(BAR, 'ba.*')");
+        Assert.assertEquals(1, compiled.getInterpretedNodes());
+        
+        // ranges are evaluated as a whole by the interpreter
+        compiled = engine.createCompiledScript("NUM >= '1' && NUM <= '3'");
+        Assert.assertEquals(1, compiled.getInterpretedNodes());
+    }
+}
@@ -0,0 +1,118 @@
+package datawave.query.jexl.visitors;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.data.MetadataCardinalityCounts;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.planner.pushdown.CostEstimator;
+import datawave.query.util.MetadataHelper;
+
+import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.easymock.EasyMock;
+import org.easymock.EasyMockSupport;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderByCostVisitorTest extends EasyMockSupport {
+    
+    private ShardQueryConfiguration config;
+    private MetadataHelper helper;
+    
+    @Before
+    public void setup() throws Exception {
+        config = new ShardQueryConfiguration();
+        helper = createMock(MetadataHelper.class);
+        
+        Map<String,Map<String,MetadataCardinalityCounts>> termCounts = new HashMap<>();
+        addCounts(termCounts, "FOO", "a", 10);
+        addCounts(termCounts, "BAR", "b", 1000);
+        addCounts(termCounts, "BAZ", "c", 5);
+        // stale counts for a field which is no longer indexed
+        addCounts(termCounts, "ZIP", "e", 1);
+        EasyMock.expect(helper.getTermCountsWithRootAuths()).andReturn(termCounts).anyTimes();
+        for (String field : new String[] {"FOO", "BAR", "BAZ"}) {
+            EasyMock.expect(helper.isIndexed(EasyMock.eq(field), EasyMock.<Set<String>> anyObject())).andReturn(true).anyTimes();
+        }
+        EasyMock.expect(helper.isIndexed(EasyMock.eq("ZIP"), EasyMock.<Set<String>> anyObject())).andReturn(false).anyTimes();
+        EasyMock.expect(helper.isIndexed(EasyMock.eq("QUX"), EasyMock.<Set<String>> anyObject())).andReturn(false).anyTimes();
+        replayAll();
+    }
+    
+    private static void addCounts(Map<String,Map<String,MetadataCardinalityCounts>> termCounts, String field, String value, long count) {
+        MetadataCardinalityCounts counts = new MetadataCardinalityCounts(field, value, count, count * 10, 10, 100000, 1000, 10);
+        termCounts.put(field, Collections.singletonMap(value, counts));
+    }
+    
+    private ASTJexlScript order(String query) throws Exception {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery(query);
+        return OrderByCostVisitor.order(script, config, new CostEstimator(config, null, helper), Collections.<String> emptySet());
+    }
+    
+    @Test
+    public void testOrder() throws Exception {
+        ASTJexlScript script = order("QUX == 'd' && FOO == 'a' && BAR == 'b' && BAZ == 'c'");
+        
+        Assert.assertEquals("BAZ == 'c' && FOO == 'a' && BAR == 'b' && QUX == 'd'", JexlStringBuildingVisitor.buildQuery(script));
+        Assert.assertEquals(Long.valueOf(5), config.getPlanEstimates().get("estimatedIndexCardinality"));
+        Assert.assertEquals(Long.valueOf(0), config.getPlanEstimates().get("delayedTerms"));
+        verifyAll();
+    }
+    
+    @Test
+    public void testNestedOrder() throws Exception {
+        ASTJexlScript script = order("BAR == 'b' && (FOO == 'a' || BAR == 'b') && BAZ == 'c'");
+        
+        Assert.assertEquals("BAZ == 'c' && (FOO == 'a' || BAR == 'b') && BAR == 'b'", JexlStringBuildingVisitor.buildQuery(script));
+        Assert.assertEquals(Long.valueOf(5), config.getPlanEstimates().get("estimatedIndexCardinality"));
+    }
+    
+    @Test
+    public void testUnknownUnion() throws Exception {
+        ASTJexlScript script = order("FOO == 'a' || QUX == 'd'");
+        
+        Assert.assertEquals("FOO == 'a' || QUX == 'd'", JexlStringBuildingVisitor.buildQuery(script));
+        Assert.assertEquals(Long.valueOf(-1), config.getPlanEstimates().get("estimatedIndexCardinality"));
+    }
+    
+    @Test
+    public void testDelayNonSelectiveTerms() throws Exception {
+        config.setMaxIndexCardinalityRatio(100);
+        ASTJexlScript script = order("BAR == 'b' && FOO == 'a' && BAZ == 'c'");
+        
+        JexlNode and = script.jjtGetChild(0);
+        Assert.assertEquals(3, and.jjtGetNumChildren());
+        Assert.assertEquals("BAZ == 'c'", JexlStringBuildingVisitor.buildQuery(and.jjtGetChild(0)));
+        Assert.assertEquals("FOO == 'a'", JexlStringBuildingVisitor.buildQuery(and.jjtGetChild(1)));
+        Assert.assertTrue(ASTDelayedPredicate.instanceOf(and.jjtGetChild(2)));
+        Assert.assertEquals(Long.valueOf(1), config.getPlanEstimates().get("delayedTerms"));
+    }
+    
+    @Test
+    public void testIndexOnlyTermsAreNotDelayed() throws Exception {
+        config.setMaxIndexCardinalityRatio(100);
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("BAR == 'b' && BAZ == 'c'");
+        OrderByCostVisitor.order(script, config, new CostEstimator(config, null, helper), Collections.singleton("BAR"));
+        
+        Assert.assertEquals("BAZ == 'c' && BAR == 'b'", JexlStringBuildingVisitor.buildQuery(script));
+        Assert.assertEquals(Long.valueOf(0), config.getPlanEstimates().get("delayedTerms"));
+    }
+    
+    @Test
+    public void testUnindexedTermsDoNotTriggerDelays() throws Exception {
+        config.setMaxIndexCardinalityRatio(100);
+        ASTJexlScript script = order("ZIP == 'e' && FOO == 'a' && BAR == 'b'");
+        
+        // the term counts for ZIP are ignored, so FOO is the most selective term and BAR is within the ratio
+        Assert.assertEquals("FOO == 'a' && BAR == 'b' && ZIP == 'e'", JexlStringBuildingVisitor.buildQuery(script));
+        Assert.assertEquals(Long.valueOf(10), config.getPlanEstimates().get("estimatedIndexCardinality"));
+        Assert.assertEquals(Long.valueOf(0), config.getPlanEstimates().get("delayedTerms"));
+        verifyAll();
+    }
+}
@@ -0,0 +1,121 @@
+package datawave.query.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+
+import datawave.webservice.query.metric.BaseQueryMetric.PageMetric;
+import datawave.webservice.query.metric.QueryMetric;
+import datawave.webservice.query.metric.QueryMetricSummary;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Combiner;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryMetricsRollupTest {
+    
+    private static final String ROLLUP_TABLE_NAME = "QueryMetrics_s";
+    
+    private static QueryMetric createMetric(String queryId, long... pagesizes) {
+        QueryMetric metric = new QueryMetric();
+        metric.setQueryId(queryId);
+        metric.setCreateDate(new Date(0));
+        for (long pagesize : pagesizes) {
+            metric.addPageMetric(new PageMetric(pagesize, pagesize * 10, 0, 0));
+        }
+        return metric;
+    }
+    
+    @Test
+    public void testDelta() {
+        // a new query
+        QueryMetricsRollup delta = QueryMetricsRollup.getDelta(createMetric("a"), Collections.singletonList(new QueryMetric()));
+        Assert.assertEquals(1, delta.getQueryCount());
+        Assert.assertEquals(0, delta.getTotalPages());
+        
+        // only the pages which were not stored before
+        delta = QueryMetricsRollup.getDelta(createMetric("a", 5, 20, 7), Collections.singletonList(createMetric("a", 5)));
+        Assert.assertEquals(0, delta.getQueryCount());
+        Assert.assertEquals(2, delta.getTotalPages());
+        Assert.assertEquals(27, delta.getTotalPageResultSize());
+        Assert.assertEquals(7, delta.getMinPageResultSize());
+        Assert.assertEquals(20, delta.getMaxPageResultSize());
+        Assert.assertEquals(270, delta.getTotalPageResponseTime());
+        
+        // nothing new
+        Assert.assertNull(QueryMetricsRollup.getDelta(createMetric("a", 5), Collections.singletonList(createMetric("a", 5))));
+    }
+    
+    @Test
+    public void testValueRoundTrip() {
+        QueryMetricsRollup rollup = QueryMetricsRollup.getDelta(createMetric("a", 5, 20), Collections.<QueryMetric> emptyList());
+        Assert.assertEquals(rollup.toString(), QueryMetricsRollup.fromValue(rollup.toValue()).toString());
+        Assert.assertEquals("1,2,25,5,20,250,50,200", rollup.toString());
+    }
+    
+    @Test
+    public void testAddTo() {
+        QueryMetricSummary expected = new QueryMetricSummary();
+        QueryMetricSummary actual = new QueryMetricSummary();
+        QueryMetricsRollup rollup = new QueryMetricsRollup();
+        for (QueryMetric metric : new QueryMetric[] {createMetric("a", 5, 20), createMetric("b"), createMetric("c", 3)}) {
+            expected.addQuery();
+            rollup.addQuery();
+            for (PageMetric page : metric.getPageTimes()) {
+                expected.addPage(page.getPagesize(), page.getReturnTime());
+                rollup.addPage(page.getPagesize(), page.getReturnTime());
+            }
+        }
+        rollup.addTo(actual);
+        
+        Assert.assertEquals(expected.getQueryCount(), actual.getQueryCount());
+        Assert.assertEquals(expected.getTotalPages(), actual.getTotalPages());
+        Assert.assertEquals(expected.getTotalPageResultSize(), actual.getTotalPageResultSize());
+        Assert.assertEquals(expected.getMinPageResultSize(), actual.getMinPageResultSize());
+        Assert.assertEquals(expected.getMaxPageResultSize(), actual.getMaxPageResultSize());
+        Assert.assertEquals(expected.getTotalPageResponseTime(), actual.getTotalPageResponseTime());
+        Assert.assertEquals(expected.getMinPageResponseTime(), actual.getMinPageResponseTime());
+        Assert.assertEquals(expected.getMaxPageResponseTime(), actual.getMaxPageResponseTime());
+    }
+    
+    @Test
+    public void testCombiner() throws Exception {
+        InMemoryInstance instance = new InMemoryInstance(QueryMetricsRollupTest.class.toString());
+        Connector connector = instance.getConnector("root", new PasswordToken());
+        connector.securityOperations().changeUserAuthorizations("root", new Authorizations("PUBLIC"));
+        connector.tableOperations().create(ROLLUP_TABLE_NAME);
+        IteratorSetting setting = new IteratorSetting(10, QueryMetricsRollupCombiner.class);
+        Combiner.setCombineAllColumns(setting, true);
+        connector.tableOperations().attachIterator(ROLLUP_TABLE_NAME, setting);
+        
+        BatchWriter writer = connector.createBatchWriter(ROLLUP_TABLE_NAME, new BatchWriterConfig());
+        long timestamp = 1;
+        for (QueryMetric metric : new QueryMetric[] {createMetric("a", 5, 20), createMetric("b", 3), createMetric("c")}) {
+            writer.addMutation(QueryMetricsRollup.getDelta(metric, Collections.<QueryMetric> emptyList()).toMutation(metric.getCreateDate(), "user1",
+                            new ColumnVisibility("PUBLIC"), timestamp++));
+        }
+        writer.close();
+        
+        Scanner scanner = connector.createScanner(ROLLUP_TABLE_NAME, new Authorizations("PUBLIC"));
+        List<String> entries = new ArrayList<>();
+        for (Entry<Key,Value> entry : scanner) {
+            entries.add(entry.getKey().getRow() + " " + entry.getKey().getColumnFamily() + ":" + entry.getKey().getColumnQualifier() + " "
+                            + entry.getValue());
+        }
+        Assert.assertEquals(Arrays.asList("1970010100 all: 3,3,28,3,20,280,30,200", "1970010100 user:user1 3,3,28,3,20,280,30,200"), entries);
+    }
+}
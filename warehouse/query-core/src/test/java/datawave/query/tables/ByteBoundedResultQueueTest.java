@@ -0,0 +1,139 @@
+package datawave.query.tables;
+
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class ByteBoundedResultQueueTest {
+    
+    private static Entry<Key,Value> entry(String row, int valueSize) {
+        return Maps.immutableEntry(new Key(row), new Value(new byte[valueSize]));
+    }
+    
+    @Test
+    public void testBoundedByBytes() throws InterruptedException {
+        Entry<Key,Value> entry = entry("row", 1000);
+        long size = ByteBoundedResultQueue.sizeOf(entry);
+        ByteBoundedResultQueue queue = new ByteBoundedResultQueue(1000, size * 4);
+        
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(queue.offer(entry));
+        }
+        Assert.assertEquals(size * 4, queue.getBytes());
+        Assert.assertEquals(0, queue.remainingCapacity());
+        Assert.assertFalse(queue.offer(entry));
+        Assert.assertFalse(queue.offer(entry, 10, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, queue.getBlockedOffers());
+        Assert.assertFalse(queue.hasDemand());
+        
+        // taking results credits the bytes back
+        Assert.assertNotNull(queue.poll());
+        Assert.assertFalse(queue.hasDemand());
+        Assert.assertNotNull(queue.poll());
+        Assert.assertTrue(queue.hasDemand());
+        Assert.assertEquals(size * 2, queue.getBytes());
+        Assert.assertTrue(queue.offer(entry));
+        Assert.assertEquals(size * 4, queue.getPeakBytes());
+    }
+    
+    @Test
+    public void testBoundedByEntries() {
+        ByteBoundedResultQueue queue = new ByteBoundedResultQueue(2, 1024 * 1024);
+        Assert.assertTrue(queue.offer(entry("a", 10)));
+        Assert.assertTrue(queue.offer(entry("b", 10)));
+        Assert.assertFalse(queue.offer(entry("c", 10)));
+        Assert.assertEquals(0, queue.remainingCapacity());
+        Assert.assertEquals("a", queue.poll().getKey().getRow().toString());
+        Assert.assertEquals("b", queue.poll().getKey().getRow().toString());
+        Assert.assertNull(queue.poll());
+        Assert.assertEquals(0, queue.getBytes());
+    }
+    
+    @Test
+    public void testLargeEntryAdmittedWhenEmpty() {
+        ByteBoundedResultQueue queue = new ByteBoundedResultQueue(10, 100);
+        Assert.assertTrue(queue.offer(entry("big", 1000)));
+        Assert.assertFalse(queue.offer(entry("small", 1)));
+        queue.poll();
+        Assert.assertTrue(queue.offer(entry("small", 1)));
+    }
+    
+    @Test
+    public void testProducerResumesWhenConsumed() throws Exception {
+        final Entry<Key,Value> entry = entry("row", 1000);
+        final ByteBoundedResultQueue queue = new ByteBoundedResultQueue(1000, ByteBoundedResultQueue.sizeOf(entry) * 2);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 100; i++) {
+                        if (!queue.offer(entry, 10, TimeUnit.SECONDS)) {
+                            failed.set(true);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    failed.set(true);
+                }
+                done.countDown();
+            }
+        };
+        producer.start();
+        
+        int consumed = 0;
+        while (consumed < 100) {
+            if (queue.poll(10, TimeUnit.SECONDS) != null) {
+                consumed++;
+            }
+            Assert.assertTrue(queue.size() <= 2);
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertFalse(failed.get());
+        Assert.assertEquals(0, queue.getBytes());
+        Assert.assertTrue(queue.getPeakBytes() <= ByteBoundedResultQueue.sizeOf(entry) * 2);
+    }
+    
+    @Test
+    public void testAwaitDemand() throws Exception {
+        Entry<Key,Value> entry = entry("row", 1000);
+        long size = ByteBoundedResultQueue.sizeOf(entry);
+        final ByteBoundedResultQueue queue = new ByteBoundedResultQueue(1000, size * 4);
+        
+        Assert.assertTrue(queue.awaitDemand(0, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(queue.offer(entry));
+        }
+        Assert.assertFalse(queue.awaitDemand(10, TimeUnit.MILLISECONDS));
+        
+        // the waiter is woken once the consumer drains the queue to the low water mark
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final AtomicBoolean demand = new AtomicBoolean(false);
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    waiting.countDown();
+                    demand.set(queue.awaitDemand(1, TimeUnit.MINUTES));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        waiter.start();
+        waiting.await();
+        Assert.assertNotNull(queue.poll());
+        Assert.assertNotNull(queue.poll());
+        waiter.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(waiter.isAlive());
+        Assert.assertTrue(demand.get());
+    }
+}
@@ -0,0 +1,174 @@
+package datawave.query.util.sortedset;
+
+import java.io.File;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import datawave.query.util.sortedset.HdfsBackedSortedSet.SortedSetHdfsFileHandler;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HdfsBackedSortedSetTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private FileSystem fs;
+    private Path hdfsDir;
+    private File localDir;
+    
+    @Before
+    public void setUp() throws Exception {
+        fs = FileSystem.getLocal(new Configuration());
+        hdfsDir = new Path(temporaryFolder.newFolder("hdfs").toURI());
+        localDir = new File(temporaryFolder.getRoot(), "local");
+    }
+    
+    private SortedSet<KeyValueSerializable> fill(SortedSet<KeyValueSerializable> set, int count) {
+        SortedSet<KeyValueSerializable> expected = new TreeSet<>();
+        for (int i = 0; i < count; i++) {
+            KeyValueSerializable kv = new KeyValueSerializable(new Key("row", "datatype\0uid." + i, "FIELD\0value"), new byte[0]);
+            set.add(kv);
+            expected.add(kv);
+        }
+        return expected;
+    }
+    
+    private int countLocal(HdfsBackedSortedSet<KeyValueSerializable> set) {
+        int count = 0;
+        for (FileSortedSet<KeyValueSerializable> fss : set.getSets()) {
+            if (fss.isPersisted() && fss.handler instanceof SortedSetLocalFileHandler && ((SortedSetLocalFileHandler) fss.handler).isLocal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private int countHdfs(HdfsBackedSortedSet<KeyValueSerializable> set) {
+        int count = 0;
+        for (FileSortedSet<KeyValueSerializable> fss : set.getSets()) {
+            if (fss.isPersisted() && fss.handler instanceof SortedSetHdfsFileHandler) {
+                count++;
+            } else if (fss.isPersisted() && fss.handler instanceof SortedSetLocalFileHandler && !((SortedSetLocalFileHandler) fss.handler).isLocal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Test
+    public void testLocalTierOnly() throws Exception {
+        LocalCacheBudget budget = new LocalCacheBudget(localDir, 1024L * 1024);
+        HdfsBackedSortedSet<KeyValueSerializable> set = new HdfsBackedSortedSet<>(null, new KeyValueBinarySerializer(), 100, fs, hdfsDir, localDir, budget,
+                        100);
+        SortedSet<KeyValueSerializable> expected = fill(set, 1000);
+        set.persist();
+        
+        Assert.assertTrue(set.hasLocalData());
+        Assert.assertEquals(0, countHdfs(set));
+        Assert.assertTrue(budget.getUsedBytes() > 0);
+        Assert.assertEquals(expected, new TreeSet<>(set));
+        
+        set.clear();
+        Assert.assertEquals(0, budget.getUsedBytes());
+    }
+    
+    @Test
+    public void testCloseReleasesOffHeapBuffer() throws Exception {
+        LocalCacheBudget budget = new LocalCacheBudget(localDir, 1024L * 1024);
+        OffHeapArena arena = new OffHeapArena(1024 * 1024, 4096);
+        HdfsBackedSortedSet<KeyValueSerializable> set = new HdfsBackedSortedSet<>(null, new KeyValueBinarySerializer(), 100, fs, hdfsDir, localDir, budget,
+                        100);
+        set.setOffHeapBuffer(arena, new KeyValueOffHeapCodec());
+        fill(set, 150);
+        Assert.assertTrue(set.hasLocalData());
+        Assert.assertTrue(arena.getUsedBytes() > 0);
+        
+        // the unpersisted buffer is returned to the arena without waiting on the garbage collector
+        set.close();
+        Assert.assertEquals(0, arena.getUsedBytes());
+    }
+    
+    @Test
+    public void testOverflowToHdfs() throws Exception {
+        LocalCacheBudget budget = new LocalCacheBudget(localDir, 2048);
+        HdfsBackedSortedSet<KeyValueSerializable> set = new HdfsBackedSortedSet<>(null, new KeyValueBinarySerializer(), 100, fs, hdfsDir, localDir, budget,
+                        100);
+        SortedSet<KeyValueSerializable> expected = fill(set, 1000);
+        set.persist();
+        
+        // the first files fit within the budget, the remaining go to hdfs
+        Assert.assertTrue(countLocal(set) > 0);
+        Assert.assertTrue(countHdfs(set) > 0);
+        Assert.assertTrue(budget.getUsedBytes() <= budget.getMaxBytes());
+        Assert.assertEquals(expected, new TreeSet<>(set));
+    }
+    
+    @Test
+    public void testFileLargerThanBudget() throws Exception {
+        LocalCacheBudget budget = new LocalCacheBudget(localDir, 512);
+        HdfsBackedSortedSet<KeyValueSerializable> set = new HdfsBackedSortedSet<>(null, new KeyValueBinarySerializer(), 1000, fs, hdfsDir, localDir, budget,
+                        100);
+        SortedSet<KeyValueSerializable> expected = fill(set, 1000);
+        set.persist();
+        
+        // the single file is moved to hdfs once it outgrows the budget
+        Assert.assertEquals(0, countLocal(set));
+        Assert.assertEquals(1, countHdfs(set));
+        Assert.assertFalse(set.hasLocalData());
+        Assert.assertEquals(0, budget.getUsedBytes());
+        Assert.assertEquals(0, localDir.list().length);
+        Assert.assertEquals(expected, new TreeSet<>(set));
+        
+        set.clear();
+        Assert.assertEquals(0, fs.listStatus(hdfsDir).length);
+    }
+    
+    @Test
+    public void testCloseRemovesDirectory() throws Exception {
+        File queryDir = new File(localDir, "query");
+        LocalCacheBudget budget = LocalCacheBudget.getBudget(queryDir, 1024L * 1024);
+        HdfsBackedSortedSet<KeyValueSerializable> first = new HdfsBackedSortedSet<>(null, new KeyValueBinarySerializer(), 100, fs, hdfsDir, new File(queryDir,
+                        "row1"), budget, 100);
+        HdfsBackedSortedSet<KeyValueSerializable> second = new HdfsBackedSortedSet<>(null, new KeyValueBinarySerializer(), 100, fs, hdfsDir, new File(queryDir,
+                        "row2"), budget, 100);
+        fill(first, 1000);
+        first.persist();
+        fill(second, 1000);
+        second.persist();
+        Assert.assertTrue(queryDir.exists());
+        
+        // the directory remains while any set is open
+        first.close();
+        first.close();
+        Assert.assertTrue(queryDir.exists());
+        Assert.assertSame(budget, LocalCacheBudget.getBudget(queryDir, 1024L * 1024));
+        
+        second.close();
+        Assert.assertFalse(queryDir.exists());
+        Assert.assertNotSame(budget, LocalCacheBudget.getBudget(queryDir, 1024L * 1024));
+    }
+    
+    @Test
+    public void testReload() throws Exception {
+        LocalCacheBudget budget = new LocalCacheBudget(localDir, 2048);
+        HdfsBackedSortedSet<KeyValueSerializable> set = new HdfsBackedSortedSet<>(null, new KeyValueBinarySerializer(), 100, fs, hdfsDir, localDir, budget,
+                        100);
+        SortedSet<KeyValueSerializable> expected = fill(set, 1000);
+        set.persist();
+        
+        HdfsBackedSortedSet<KeyValueSerializable> reloaded = new HdfsBackedSortedSet<>(null, new KeyValueBinarySerializer(), 100, fs, hdfsDir, localDir,
+                        new LocalCacheBudget(localDir, 2048), 100);
+        Assert.assertEquals(countLocal(set), countLocal(reloaded));
+        Assert.assertEquals(countHdfs(set), countHdfs(reloaded));
+        Assert.assertEquals(expected, new TreeSet<>(reloaded));
+    }
+}
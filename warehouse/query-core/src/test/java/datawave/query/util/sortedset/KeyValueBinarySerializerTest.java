@@ -0,0 +1,106 @@
+package datawave.query.util.sortedset;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import datawave.query.util.sortedset.FileSortedSet.JavaSerializationSerializer;
+import datawave.query.util.sortedset.FileSortedSet.SortedSetSerializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyValueBinarySerializerTest {
+    
+    private SortedSet<KeyValueSerializable> data = null;
+    
+    @Before
+    public void setUp() throws Exception {
+        data = new TreeSet<>();
+        for (int row = 0; row < 5; row++) {
+            for (int uid = 0; uid < 5000; uid++) {
+                Key key = new Key("20180101_" + row, "datatype\0uid." + uid, "FIELD\0value" + (uid % 7), "A&B", 1000L + uid);
+                data.add(new KeyValueSerializable(key, ("value" + uid).getBytes()));
+            }
+        }
+        Key deleted = new Key("20180101_9", "datatype\0deleted", "", "", Long.MAX_VALUE);
+        deleted.setDeleted(true);
+        data.add(new KeyValueSerializable(deleted, new byte[0]));
+        data.add(new KeyValueSerializable(new Key(), new byte[0]));
+    }
+    
+    private FileSortedSet<KeyValueSerializable> persist(SortedSetSerializer<KeyValueSerializable> serializer) throws IOException {
+        FileSortedSet<KeyValueSerializable> set = new FileSortedSet<>(null, serializer, new SortedSetTempFileHandler(), false);
+        set.addAll(data);
+        set.persist();
+        Assert.assertTrue(set.isPersisted());
+        return set;
+    }
+    
+    private void verify(FileSortedSet<KeyValueSerializable> set) throws Exception {
+        Assert.assertEquals(data.size(), set.size());
+        Assert.assertEquals(data.first(), set.first());
+        Assert.assertEquals(data.last(), set.last());
+        Iterator<KeyValueSerializable> expected = data.iterator();
+        Iterator<KeyValueSerializable> actual = set.iterator();
+        while (expected.hasNext()) {
+            Assert.assertTrue(actual.hasNext());
+            KeyValueSerializable e = expected.next();
+            KeyValueSerializable a = actual.next();
+            Assert.assertEquals(e, a);
+            Assert.assertEquals(e.getKey().isDeleted(), a.getKey().isDeleted());
+        }
+        Assert.assertFalse(actual.hasNext());
+        
+        set.load();
+        Assert.assertFalse(set.isPersisted());
+        Assert.assertEquals(data, set);
+    }
+    
+    @Test
+    public void testBinary() throws Exception {
+        verify(persist(new KeyValueBinarySerializer(false)));
+    }
+    
+    @Test
+    public void testCompressedBinary() throws Exception {
+        verify(persist(new KeyValueBinarySerializer(true)));
+    }
+    
+    @Test
+    public void testSmallBlocks() throws Exception {
+        verify(persist(new KeyValueBinarySerializer(true, 100)));
+    }
+    
+    @Test
+    public void testJava() throws Exception {
+        verify(persist(new JavaSerializationSerializer<KeyValueSerializable>()));
+    }
+    
+    @Test
+    public void testBinaryIsSmaller() throws Exception {
+        SortedSetTempFileHandler javaHandler = (SortedSetTempFileHandler) persist(new JavaSerializationSerializer<KeyValueSerializable>()).handler;
+        SortedSetTempFileHandler binaryHandler = (SortedSetTempFileHandler) persist(new KeyValueBinarySerializer(false)).handler;
+        SortedSetTempFileHandler compressedHandler = (SortedSetTempFileHandler) persist(new KeyValueBinarySerializer(true)).handler;
+        Assert.assertTrue(binaryHandler.getSize() < javaHandler.getSize());
+        Assert.assertTrue(compressedHandler.getSize() < binaryHandler.getSize());
+    }
+    
+    @Test
+    public void testEmpty() throws Exception {
+        FileSortedSet<KeyValueSerializable> set = new FileSortedSet<>(null, new KeyValueBinarySerializer(true), new SortedSetTempFileHandler(), false);
+        set.persist();
+        Assert.assertEquals(0, set.size());
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertFalse(set.iterator().hasNext());
+    }
+    
+    @Test(expected = IOException.class)
+    public void testFormatMismatch() throws Exception {
+        FileSortedSet<KeyValueSerializable> set = persist(new JavaSerializationSerializer<KeyValueSerializable>());
+        new KeyValueBinarySerializer().getInput(set.handler.getInputStream());
+    }
+}
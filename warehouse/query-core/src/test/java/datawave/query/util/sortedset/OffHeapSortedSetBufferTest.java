@@ -0,0 +1,190 @@
+package datawave.query.util.sortedset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OffHeapSortedSetBufferTest {
+    
+    private List<KeyValueSerializable> data = null;
+    
+    @Before
+    public void setUp() throws Exception {
+        data = new ArrayList<>();
+        Random random = new Random(12345);
+        for (int i = 0; i < 2000; i++) {
+            Key key = new Key("row" + random.nextInt(10), "datatype\0uid." + random.nextInt(100), "FIELD\0" + (char) (random.nextInt(256)), "A&B",
+                            random.nextInt(3));
+            key.setDeleted(random.nextInt(10) == 0);
+            data.add(new KeyValueSerializable(key, new byte[] {(byte) random.nextInt(256)}));
+        }
+    }
+    
+    private void verify(SortedSet<KeyValueSerializable> expected, SortedSet<KeyValueSerializable> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.first(), actual.first());
+        Assert.assertEquals(expected.last(), actual.last());
+        Iterator<KeyValueSerializable> actualIt = actual.iterator();
+        for (KeyValueSerializable e : expected) {
+            KeyValueSerializable a = actualIt.next();
+            Assert.assertEquals(e, a);
+            Assert.assertEquals(e.getKey().isDeleted(), a.getKey().isDeleted());
+        }
+        Assert.assertFalse(actualIt.hasNext());
+    }
+    
+    @Test
+    public void testOrdering() {
+        OffHeapArena arena = new OffHeapArena(1024 * 1024, 4096);
+        OffHeapSortedSetBuffer<KeyValueSerializable> buffer = new OffHeapSortedSetBuffer<>(arena, new KeyValueOffHeapCodec());
+        TreeSet<KeyValueSerializable> expected = new TreeSet<>();
+        for (KeyValueSerializable kv : data) {
+            Assert.assertEquals(expected.add(kv), buffer.add(kv));
+        }
+        verify(expected, buffer);
+        for (KeyValueSerializable kv : data) {
+            Assert.assertTrue(buffer.contains(kv));
+        }
+        Assert.assertEquals(0, buffer.getHeapFallbacks());
+        Assert.assertTrue(arena.getUsedBytes() > 0);
+        
+        buffer.clear();
+        Assert.assertTrue(buffer.isEmpty());
+        Assert.assertEquals(0, arena.getUsedBytes());
+    }
+    
+    @Test
+    public void testSubSetsAndRemove() {
+        OffHeapSortedSetBuffer<KeyValueSerializable> buffer = new OffHeapSortedSetBuffer<>(new OffHeapArena(1024 * 1024, 4096), new KeyValueOffHeapCodec());
+        TreeSet<KeyValueSerializable> expected = new TreeSet<>();
+        buffer.addAll(data);
+        expected.addAll(data);
+        
+        KeyValueSerializable from = data.get(10);
+        KeyValueSerializable to = data.get(20);
+        if (from.compareTo(to) > 0) {
+            KeyValueSerializable tmp = from;
+            from = to;
+            to = tmp;
+        }
+        verify(expected.subSet(from, to), buffer.subSet(from, to));
+        verify(expected.headSet(to), buffer.headSet(to));
+        verify(expected.tailSet(from), buffer.tailSet(from));
+        
+        for (int i = 0; i < data.size(); i += 3) {
+            Assert.assertEquals(expected.remove(data.get(i)), buffer.remove(data.get(i)));
+        }
+        verify(expected, buffer);
+        
+        Iterator<KeyValueSerializable> it = buffer.iterator();
+        while (it.hasNext()) {
+            expected.remove(it.next());
+            it.remove();
+        }
+        Assert.assertTrue(expected.isEmpty());
+        Assert.assertTrue(buffer.isEmpty());
+    }
+    
+    @Test
+    public void testBudgetExhausted() {
+        OffHeapArena arena = new OffHeapArena(4096, 4096);
+        OffHeapSortedSetBuffer<KeyValueSerializable> buffer = new OffHeapSortedSetBuffer<>(arena, new KeyValueOffHeapCodec());
+        TreeSet<KeyValueSerializable> expected = new TreeSet<>();
+        buffer.addAll(data);
+        expected.addAll(data);
+        verify(expected, buffer);
+        
+        Assert.assertEquals(4096, buffer.getOffHeapBytes());
+        Assert.assertTrue(buffer.getHeapFallbacks() > 0);
+        Assert.assertTrue(arena.getRejections() > 0);
+        Assert.assertFalse(arena.hasCapacity());
+        
+        buffer.clear();
+        Assert.assertTrue(arena.hasCapacity());
+        Assert.assertEquals(1, arena.getChunkAllocations());
+    }
+    
+    @Test
+    public void testHeapFallbackGrows() {
+        OffHeapArena arena = new OffHeapArena(64 * 1024, 64 * 1024);
+        OffHeapSortedSetBuffer<KeyValueSerializable> buffer = new OffHeapSortedSetBuffer<>(arena, new KeyValueOffHeapCodec());
+        TreeSet<KeyValueSerializable> expected = new TreeSet<>();
+        buffer.addAll(data);
+        expected.addAll(data);
+        verify(expected, buffer);
+        
+        // one arena chunk, followed by heap chunks which double in size up to the arena chunk size
+        Assert.assertEquals(64 * 1024, buffer.getOffHeapBytes());
+        Assert.assertTrue(buffer.chunks.get(0).isDirect());
+        Assert.assertEquals(OffHeapSortedSetBuffer.MIN_HEAP_CHUNK_SIZE, buffer.chunks.get(1).capacity());
+        for (int i = 2; i < buffer.chunks.size(); i++) {
+            Assert.assertFalse(buffer.chunks.get(i).isDirect());
+            Assert.assertEquals(Math.min(buffer.chunks.get(i - 1).capacity() * 2, arena.getChunkSize()), buffer.chunks.get(i).capacity());
+        }
+        Assert.assertEquals(buffer.chunks.size() - 1, buffer.getHeapFallbacks());
+        
+        // the growth starts over once cleared
+        buffer.clear();
+        buffer.addAll(data.subList(0, 10));
+        Assert.assertEquals(1, buffer.chunks.size());
+        Assert.assertTrue(buffer.chunks.get(0).isDirect());
+    }
+    
+    @Test
+    public void testClose() {
+        OffHeapArena arena = new OffHeapArena(1024 * 1024, 4096);
+        OffHeapSortedSetBuffer<KeyValueSerializable> buffer = new OffHeapSortedSetBuffer<>(arena, new KeyValueOffHeapCodec());
+        buffer.addAll(data);
+        Assert.assertTrue(arena.getUsedBytes() > 0);
+        Assert.assertEquals(arena.getUsedBytes(), buffer.getOffHeapBytes());
+        
+        buffer.close();
+        Assert.assertTrue(buffer.isEmpty());
+        Assert.assertEquals(0, buffer.getOffHeapBytes());
+        Assert.assertEquals(0, arena.getUsedBytes());
+        
+        // closing again does not return the chunks twice
+        buffer.close();
+        Assert.assertEquals(0, arena.getUsedBytes());
+        
+        // and the set may still be used
+        buffer.add(data.get(0));
+        Assert.assertEquals(arena.getChunkSize(), arena.getUsedBytes());
+        buffer.close();
+        Assert.assertEquals(0, arena.getUsedBytes());
+    }
+    
+    @Test
+    public void testBufferedFileBackedSortedSet() throws Exception {
+        OffHeapArena arena = new OffHeapArena(1024 * 1024, 4096);
+        BufferedFileBackedSortedSet<KeyValueSerializable> set = new BufferedFileBackedSortedSet<>(null, new KeyValueBinarySerializer(), 500, 100,
+                        new BufferedFileBackedSortedSet.SortedSetFileHandlerFactory() {
+                            @Override
+                            public FileSortedSet.SortedSetFileHandler createHandler() throws IOException {
+                                return new SortedSetTempFileHandler();
+                            }
+                        });
+        set.setOffHeapBuffer(arena, new KeyValueOffHeapCodec());
+        TreeSet<KeyValueSerializable> expected = new TreeSet<>();
+        set.addAll(data.subList(0, 100));
+        for (KeyValueSerializable kv : data) {
+            set.add(kv);
+        }
+        expected.addAll(data);
+        Assert.assertTrue(set.hasPersistedData());
+        Assert.assertEquals(set.getBufferSize() > 0, arena.getUsedBytes() > 0);
+        
+        set.persist();
+        Assert.assertEquals(0, arena.getUsedBytes());
+        Assert.assertEquals(expected, new TreeSet<>(set));
+    }
+}
@@ -31,7 +31,13 @@ import io.protostuff.runtime.RuntimeSchema;
 @Produces({"text/yaml", "text/x-yaml", "application/x-yaml", "application/x-protobuf", "application/x-protostuff"})
 public class ProtostuffMessageBodyWriter implements MessageBodyWriter<Object> {
     
-    private LinkedBuffer buffer = LinkedBuffer.allocate(4096);
+    // providers are shared across requests, so each thread gets its own buffer
+    private static final ThreadLocal<LinkedBuffer> BUFFER = new ThreadLocal<LinkedBuffer>() {
+        @Override
+        protected LinkedBuffer initialValue() {
+            return LinkedBuffer.allocate(4096);
+        }
+    };
     
     @Override
     public long getSize(Object message, Class<?> clazz, Type type, Annotation[] annotations, MediaType media) {
@@ -53,6 +59,7 @@ public class ProtostuffMessageBodyWriter implements MessageBodyWriter<Object> {
         // This map must be mofified before any data is written to out,
         // since at that time the response headers will be flushed.
         
+        LinkedBuffer buffer = BUFFER.get();
         Schema<Object> schema = null;
         if (message instanceof Message) {
             Message<Object> msg = (Message<Object>) message;
@@ -0,0 +1,91 @@
+package datawave.webservice.util;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.MediaType;
+
+import datawave.user.UserAuthorizations;
+
+import io.protostuff.LinkedBuffer;
+import io.protostuff.ProtobufIOUtil;
+import io.protostuff.YamlIOUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProtostuffMessageBodyWriterTest {
+    
+    private static final MediaType PROTOBUF = MediaType.valueOf("application/x-protobuf");
+    private static final MediaType YAML = MediaType.valueOf("application/x-yaml");
+    
+    private static UserAuthorizations message(int id) {
+        // large enough to span several buffer segments
+        String[] auths = new String[500];
+        for (int i = 0; i < auths.length; i++) {
+            auths[i] = "AUTH_" + id + "_" + i;
+        }
+        return new UserAuthorizations(auths);
+    }
+    
+    private static byte[] write(ProtostuffMessageBodyWriter writer, UserAuthorizations message, MediaType media) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(message, UserAuthorizations.class, UserAuthorizations.class, new Annotation[0], media, null, out);
+        return out.toByteArray();
+    }
+    
+    @Test
+    public void testWritesProtobufAndYaml() throws Exception {
+        ProtostuffMessageBodyWriter writer = new ProtostuffMessageBodyWriter();
+        UserAuthorizations message = message(0);
+        
+        Assert.assertArrayEquals(ProtobufIOUtil.toByteArray(message, message.cachedSchema(), LinkedBuffer.allocate(4096)), write(writer, message, PROTOBUF));
+        Assert.assertArrayEquals(YamlIOUtil.toByteArray(message, message.cachedSchema(), LinkedBuffer.allocate(4096)), write(writer, message, YAML));
+        
+        // the buffer is cleared between writes
+        Assert.assertArrayEquals(write(writer, message, PROTOBUF), write(writer, message, PROTOBUF));
+    }
+    
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        // a single writer instance is shared by all requests
+        final ProtostuffMessageBodyWriter writer = new ProtostuffMessageBodyWriter();
+        final int threads = 8;
+        final List<UserAuthorizations> messages = new ArrayList<>();
+        final List<byte[]> expected = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            UserAuthorizations message = message(i);
+            messages.add(message);
+            expected.add(ProtobufIOUtil.toByteArray(message, message.cachedSchema(), LinkedBuffer.allocate(4096)));
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final int id = i;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int j = 0; j < 200; j++) {
+                            Assert.assertArrayEquals("Corrupted write for message " + id, expected.get(id), write(writer, messages.get(id), PROTOBUF));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                // rethrows any assertion failure from the writing thread
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -4,6 +4,8 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import datawave.webservice.query.configuration.QueryData;
@@ -46,6 +48,9 @@ public abstract class GenericQueryConfiguration {
     
     private Iterator<QueryData> queries = Iterators.emptyIterator();
     
+    // Estimates made while planning the query, recorded as predictions in the query metrics
+    private Map<String,Long> planEstimates = new LinkedHashMap<>();
+    
     /**
      * Empty default constructor
      */
@@ -165,6 +170,14 @@ public abstract class GenericQueryConfiguration {
         this.undisplayedVisibilities = undisplayedVisibilities;
     }
     
+    public Map<String,Long> getPlanEstimates() {
+        return planEstimates;
+    }
+    
+    public void setPlanEstimates(Map<String,Long> planEstimates) {
+        this.planEstimates = planEstimates;
+    }
+    
     /**
      * Checks for non-null, sane values for the configured values
      * 
@@ -21,6 +21,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -178,6 +180,26 @@ public class QueryExecutorBean implements QueryExecutor {
     
     private final Logger log = Logger.getLogger(QueryExecutorBean.class);
     
+    /**
+     * The serializers used by the streaming responses. JAXB contexts and the object mapper are thread safe and expensive to create, so they are shared across
+     * requests. The protostuff buffers are pooled per thread and only hold a page's worth of data while it is being written.
+     */
+    private static final ConcurrentMap<Class<?>,JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<>();
+    private static final MediaType PB_MEDIA_TYPE = new MediaType("application", "x-protobuf");
+    private static final MediaType YAML_MEDIA_TYPE = new MediaType("application", "x-yaml");
+    private static final ObjectMapper JSON_SERIALIZER = createJsonSerializer();
+    private static final ThreadLocal<LinkedBuffer> BUFFER = new ThreadLocal<LinkedBuffer>() {
+        @Override
+        protected LinkedBuffer initialValue() {
+            return LinkedBuffer.allocate(4096);
+        }
+    };
+    
+    /**
+     * The number of results transformed and written at a time by {@link #streamNext(String, HttpHeaders)}
+     */
+    static final int STREAMED_BATCH_SIZE = 1000;
+    
     @Inject
     private QueryCache queryCache;
     
@@ -1196,15 +1218,7 @@ public class QueryExecutorBean implements QueryExecutor {
         
         long pageNum = query.getLastPageNumber();
         
-        BaseQueryResponse response = query.getLogic().getTransformer(query.getSettings()).createResponse(resultList);
-        if (resultList.getResults().size() > 0) {
-            response.setHasResults(true);
-        } else {
-            response.setHasResults(false);
-        }
-        response.setPageNumber(pageNum);
-        response.setLogicName(query.getLogic().getLogicName());
-        response.setQueryId(queryId);
+        BaseQueryResponse response = createPageResponse(query.getLogic().getTransformer(query.getSettings()), query, queryId, pageNum, resultList);
         
         if (span != null) {
             span.data("pageNumber", Long.toString(pageNum));
@@ -1224,6 +1238,63 @@ public class QueryExecutorBean implements QueryExecutor {
         
     }
     
+    /**
+     * Streams the next page of results to the writer as it is read, in batches of {@link #STREAMED_BATCH_SIZE} results. Each batch is transformed into its own
+     * response, so only one batch of the page is held in memory at a time.
+     */
+    private void _streamNext(final RunningQuery query, final String queryId, Collection<String> proxyServers, Span span, final PageWriter writer)
+                    throws Exception {
+        // If we're tracing this query, then continue the trace for the next call.
+        TInfo traceInfo = query.getTraceInfo();
+        if (traceInfo != null) {
+            span = Trace.trace(traceInfo, "query:next");
+        }
+        
+        final QueryLogicTransformer transformer = query.getLogic().getTransformer(query.getSettings());
+        final long pageNum = query.getLastPageNumber() + 1;
+        
+        ResultsPage resultList;
+        try {
+            resultList = query.next(new RunningQuery.ResultsListener() {
+                @Override
+                public void resultsAvailable(ResultsPage results) throws Exception {
+                    writer.write(createPageResponse(transformer, query, queryId, pageNum, results));
+                }
+            }, STREAMED_BATCH_SIZE);
+        } catch (RejectedExecutionException e) {
+            // - race condition, query expired while user called next
+            throw new PreConditionFailedQueryException(DatawaveErrorCode.QUERY_TIMEOUT_OR_SERVER_ERROR, e, MessageFormat.format("id = {0}", queryId));
+        }
+        
+        if (span != null) {
+            span.data("pageNumber", Long.toString(pageNum));
+        }
+        
+        query.getMetric().setProxyServers(proxyServers);
+        
+        testForUncaughtException(query.getSettings(), resultList);
+        
+        // the last batch holds the status of the page, and is only empty if the page is
+        if (resultList.getResults().size() == 0) {
+            NoResultsQueryException qe = new NoResultsQueryException(DatawaveErrorCode.NO_QUERY_RESULTS_FOUND, MessageFormat.format("{0}", queryId));
+            throw new NoResultsException(qe);
+        }
+        writer.write(createPageResponse(transformer, query, queryId, pageNum, resultList));
+    }
+    
+    private BaseQueryResponse createPageResponse(QueryLogicTransformer transformer, RunningQuery query, String queryId, long pageNum, ResultsPage resultList) {
+        BaseQueryResponse response = transformer.createResponse(resultList);
+        if (resultList.getResults().size() > 0) {
+            response.setHasResults(true);
+        } else {
+            response.setHasResults(false);
+        }
+        response.setPageNumber(pageNum);
+        response.setLogicName(query.getLogic().getLogicName());
+        response.setQueryId(queryId);
+        return response;
+    }
+    
     /**
      *
      * @param uuid
@@ -1877,6 +1948,100 @@ public class QueryExecutorBean implements QueryExecutor {
         return response;
     }
     
+    /**
+     * Streams the next page of results from the query object. Rather than building the whole page before it is serialized, as {@link #next(String)} does, the
+     * results are transformed and written in batches as they are read. This bounds the memory used by large pages and sends the first results sooner. The page
+     * is written in the format of {@link #execute(String, MultivaluedMap, HttpHeaders)}, with one response for each batch. Each response holds the page
+     * number, and the last one holds whether the page is partial. Content lookups are not supported, use {@link #next(String)} for those queries.
+     *
+     * @param id
+     *            - (@Required)
+     * @see datawave.webservice.query.runner.QueryExecutorBean#next(String) for the @Required definition
+     *
+     * @return the page of results, as a sequence of datawave.webservice.result.BaseQueryResponse
+     * @RequestHeader X-ProxiedEntitiesChain use when proxying request for user, by specifying a chain of DNs of the identities to proxy
+     * @RequestHeader X-ProxiedIssuersChain required when using X-ProxiedEntitiesChain, specify one issuer DN per subject DN listed in X-ProxiedEntitiesChain
+     * @RequestHeader query-session-id session id value used for load balancing purposes. query-session-id can be placed in the request in a Cookie header or as
+     *                a query parameter
+     *
+     * @HTTP 200 success
+     * @HTTP 204 success and no results
+     * @HTTP 400 if the query is a content lookup
+     * @HTTP 401 if the query belongs to another user
+     * @HTTP 404 if id not found
+     * @HTTP 412 if the query is no longer alive, client should call {@link #reset(String)} and try again
+     * @HTTP 500 internal server error
+     */
+    @GET
+    @Produces("*/*")
+    @Path("/{id}/stream/next")
+    @GZIP
+    @Interceptors({ResponseInterceptor.class, RequiredInterceptor.class})
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    @Timed(name = "dw.query.streamNext", absolute = true)
+    public StreamingOutput streamNext(@Required("id") @PathParam("id") String id, @Context HttpHeaders httpHeaders) {
+        /**
+         * As with execute, the metrics for the page are captured by the NextStreamingOutputResponse as it is written, rather than by the
+         * QueryMetricsEnrichmentInterceptor.
+         */
+        VoidResponse response = new VoidResponse();
+        
+        Collection<String> proxyServers = null;
+        Principal p = ctx.getCallerPrincipal();
+        String userid = p.getName();
+        if (p instanceof DatawavePrincipal) {
+            DatawavePrincipal dp = (DatawavePrincipal) p;
+            userid = dp.getShortName();
+            proxyServers = dp.getProxyServers();
+        }
+        
+        MediaType responseType = getResponseType(httpHeaders, response);
+        try {
+            // Not calling getQueryById() here. We don't want to pull the persisted definition.
+            RunningQuery query = queryCache.get(id);
+            
+            // As in next, a query without a connection is either not in the cache or only there because of a call to list.
+            if (null == query || null == query.getConnection()) {
+                if (null == query) {
+                    List<Query> queries = persister.findById(id);
+                    if (queries == null || queries.size() != 1) {
+                        throw new NotFoundQueryException(DatawaveErrorCode.NO_QUERY_OBJECT_MATCH, MessageFormat.format("{0}", id));
+                    }
+                }
+                throw new PreConditionFailedQueryException(DatawaveErrorCode.QUERY_TIMEOUT_OR_SERVER_ERROR, MessageFormat.format("id = {0}", id));
+            }
+            
+            // Validate the query belongs to the caller
+            if (!query.getSettings().getOwner().equals(userid)) {
+                throw new UnauthorizedQueryException(DatawaveErrorCode.QUERY_OWNER_MISMATCH, MessageFormat.format("{0} != {1}", userid, query.getSettings()
+                                .getOwner()));
+            }
+            
+            Parameter contentLookupParam = query.getSettings().findParameter(LookupUUIDUtil.PARAM_CONTENT_LOOKUP);
+            if ((null != contentLookupParam) && Boolean.parseBoolean(contentLookupParam.getParameterValue())) {
+                throw new BadRequestQueryException(DatawaveErrorCode.CONTENT_LOOKUP_NOT_STREAMED, MessageFormat.format("{0}", id));
+            }
+            
+            Class<?> responseClass;
+            try {
+                responseClass = query.getLogic().getTransformer(query.getSettings()).createResponse(new ResultsPage()).getClass();
+            } catch (Exception e) {
+                throw new QueryException(DatawaveErrorCode.QUERY_TRANSFORM_ERROR, e);
+            }
+            
+            SerializationType serializationType = getSerializationType(responseType, responseClass, response);
+            return new NextStreamingOutputResponse(id, responseClass, response, query, serializationType, proxyServers);
+        } catch (DatawaveWebApplicationException e) {
+            throw e;
+        } catch (Exception e) {
+            QueryException qe = new QueryException(DatawaveErrorCode.QUERY_NEXT_ERROR, e, MessageFormat.format("query id: {0}", id));
+            log.error(qe);
+            response.addException(qe.getBottomQueryException());
+            int statusCode = qe.getBottomQueryException().getStatusCode();
+            throw new DatawaveWebApplicationException(qe, response, statusCode);
+        }
+    }
+    
     /**
      * Releases the resources associated with this query. Any currently running calls to 'next' on the query will continue until they finish. Calls to 'next'
      * after a 'close' will start over at page 1.
@@ -2903,25 +3068,9 @@ public class QueryExecutorBean implements QueryExecutor {
             proxyServers = dp.getProxyServers();
         }
         
-        final MediaType PB_MEDIA_TYPE = new MediaType("application", "x-protobuf");
-        final MediaType YAML_MEDIA_TYPE = new MediaType("application", "x-yaml");
         final VoidResponse response = new VoidResponse();
         
-        // HttpHeaders.getAcceptableMediaTypes returns a priority sorted list of acceptable response types.
-        // Find the first one in the list that we support.
-        MediaType responseType = null;
-        for (MediaType type : httpHeaders.getAcceptableMediaTypes()) {
-            if (type.equals(MediaType.APPLICATION_XML_TYPE) || type.equals(MediaType.APPLICATION_JSON_TYPE) || type.equals(PB_MEDIA_TYPE)
-                            || type.equals(YAML_MEDIA_TYPE)) {
-                responseType = type;
-                break;
-            }
-        }
-        if (null == responseType) {
-            QueryException qe = new QueryException(DatawaveErrorCode.UNSUPPORTED_MEDIA_TYPE);
-            response.addException(qe);
-            throw new DatawaveWebApplicationException(qe, response);
-        }
+        MediaType responseType = getResponseType(httpHeaders, response);
         
         // reference query necessary to avoid NPEs in getting the Transformer and BaseResponse
         Query q = new QueryImpl();
@@ -2948,30 +3097,7 @@ public class QueryExecutorBean implements QueryExecutor {
             throw new DatawaveWebApplicationException(qe, response, statusCode);
         }
         
-        SerializationType s;
-        if (responseType.equals(MediaType.APPLICATION_XML_TYPE)) {
-            s = SerializationType.XML;
-        } else if (responseType.equals(MediaType.APPLICATION_JSON_TYPE)) {
-            s = SerializationType.JSON;
-        } else if (responseType.equals(PB_MEDIA_TYPE)) {
-            if (!(Message.class.isAssignableFrom(responseClass))) {
-                QueryException qe = new QueryException(DatawaveErrorCode.BAD_RESPONSE_CLASS, MessageFormat.format("Response  class: {0}", responseClass));
-                response.addException(qe);
-                throw new DatawaveWebApplicationException(qe, response);
-            }
-            s = SerializationType.PB;
-        } else if (responseType.equals(YAML_MEDIA_TYPE)) {
-            if (!(Message.class.isAssignableFrom(responseClass))) {
-                QueryException qe = new QueryException(DatawaveErrorCode.BAD_RESPONSE_CLASS, MessageFormat.format("Response  class: {0}", responseClass));
-                response.addException(qe);
-                throw new DatawaveWebApplicationException(qe, response);
-            }
-            s = SerializationType.YAML;
-        } else {
-            QueryException qe = new QueryException(DatawaveErrorCode.INVALID_FORMAT, MessageFormat.format("format: {0}", responseType.toString()));
-            response.addException(qe);
-            throw new DatawaveWebApplicationException(qe, response);
-        }
+        SerializationType s = getSerializationType(responseType, responseClass, response);
         
         long start = System.nanoTime();
         GenericResponse<String> createResponse = null;
@@ -3128,10 +3254,170 @@ public class QueryExecutorBean implements QueryExecutor {
         return new AsyncResult<>(queryId);
     }
     
-    private enum SerializationType {
+    private static ObjectMapper createJsonSerializer() {
+        ObjectMapper jsonSerializer = new ObjectMapper();
+        jsonSerializer.enable(MapperFeature.USE_WRAPPER_NAME_AS_PROPERTY_NAME);
+        jsonSerializer.setAnnotationIntrospector(AnnotationIntrospector.pair(new JacksonAnnotationIntrospector(), new JaxbAnnotationIntrospector(
+                        jsonSerializer.getTypeFactory())));
+        // Don't close the output stream
+        jsonSerializer.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        return jsonSerializer;
+    }
+    
+    static JAXBContext getJaxbContext(Class<?> responseClass) throws JAXBException {
+        JAXBContext jaxbContext = JAXB_CONTEXTS.get(responseClass);
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(responseClass);
+            JAXBContext existing = JAXB_CONTEXTS.putIfAbsent(responseClass, jaxbContext);
+            if (existing != null) {
+                jaxbContext = existing;
+            }
+        }
+        return jaxbContext;
+    }
+    
+    /**
+     * HttpHeaders.getAcceptableMediaTypes returns a priority sorted list of acceptable response types. Find the first one in the list that the streaming
+     * responses support.
+     */
+    private MediaType getResponseType(HttpHeaders httpHeaders, VoidResponse response) {
+        for (MediaType type : httpHeaders.getAcceptableMediaTypes()) {
+            if (type.equals(MediaType.APPLICATION_XML_TYPE) || type.equals(MediaType.APPLICATION_JSON_TYPE) || type.equals(PB_MEDIA_TYPE)
+                            || type.equals(YAML_MEDIA_TYPE)) {
+                return type;
+            }
+        }
+        QueryException qe = new QueryException(DatawaveErrorCode.UNSUPPORTED_MEDIA_TYPE);
+        response.addException(qe);
+        throw new DatawaveWebApplicationException(qe, response);
+    }
+    
+    private SerializationType getSerializationType(MediaType responseType, Class<?> responseClass, VoidResponse response) {
+        if (responseType.equals(MediaType.APPLICATION_XML_TYPE)) {
+            return SerializationType.XML;
+        } else if (responseType.equals(MediaType.APPLICATION_JSON_TYPE)) {
+            return SerializationType.JSON;
+        } else if (responseType.equals(PB_MEDIA_TYPE) || responseType.equals(YAML_MEDIA_TYPE)) {
+            if (!(Message.class.isAssignableFrom(responseClass))) {
+                QueryException qe = new QueryException(DatawaveErrorCode.BAD_RESPONSE_CLASS, MessageFormat.format("Response  class: {0}", responseClass));
+                response.addException(qe);
+                throw new DatawaveWebApplicationException(qe, response);
+            }
+            return responseType.equals(PB_MEDIA_TYPE) ? SerializationType.PB : SerializationType.YAML;
+        } else {
+            QueryException qe = new QueryException(DatawaveErrorCode.INVALID_FORMAT, MessageFormat.format("format: {0}", responseType.toString()));
+            response.addException(qe);
+            throw new DatawaveWebApplicationException(qe, response);
+        }
+    }
+    
+    enum SerializationType {
         JSON, XML, PB, YAML;
     }
     
+    /**
+     * Writes a sequence of query responses to a stream with the shared serializers. JSON responses are written as the array of pages in a single object, while
+     * the other formats are written one after another.
+     */
+    static class PageWriter {
+        private final SerializationType serializationType;
+        private final OutputStream out;
+        private final Marshaller xmlSerializer;
+        private final JsonGenerator jsonGenerator;
+        private boolean sentResults = false;
+        private long bytesWritten = 0;
+        private long serializationTime = 0;
+        
+        PageWriter(SerializationType serializationType, Class<?> responseClass, OutputStream out) throws JAXBException, IOException {
+            this.serializationType = serializationType;
+            this.out = out;
+            this.xmlSerializer = getJaxbContext(responseClass).createMarshaller();
+            this.jsonGenerator = JSON_SERIALIZER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            this.jsonGenerator.enable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        }
+        
+        /**
+         * @return the number of bytes written for the page
+         */
+        long write(BaseQueryResponse page) throws Exception {
+            long serializationStart = System.nanoTime();
+            
+            // Wrap the output stream so that we can get a byte count
+            CountingOutputStream countingStream = new CountingOutputStream(out);
+            
+            switch (serializationType) {
+                case XML:
+                    xmlSerializer.marshal(page, countingStream);
+                    break;
+                case JSON:
+                    // First page!
+                    if (!sentResults) {
+                        jsonGenerator.writeStartObject();
+                        jsonGenerator.writeArrayFieldStart("Pages");
+                        jsonGenerator.flush();
+                    } else {
+                        // Delimiter for subsequent pages...
+                        countingStream.write(',');
+                    }
+                    JSON_SERIALIZER.writeValue(countingStream, page);
+                    break;
+                case PB:
+                    @SuppressWarnings("unchecked")
+                    Message<Object> pb = (Message<Object>) page;
+                    Schema<Object> pbSchema = pb.cachedSchema();
+                    LinkedBuffer pbBuffer = BUFFER.get();
+                    try {
+                        ProtobufIOUtil.writeTo(countingStream, page, pbSchema, pbBuffer);
+                    } finally {
+                        pbBuffer.clear();
+                    }
+                    break;
+                case YAML:
+                    @SuppressWarnings("unchecked")
+                    Message<Object> yaml = (Message<Object>) page;
+                    Schema<Object> yamlSchema = yaml.cachedSchema();
+                    LinkedBuffer yamlBuffer = BUFFER.get();
+                    try {
+                        YamlIOUtil.writeTo(countingStream, page, yamlSchema, yamlBuffer);
+                    } finally {
+                        yamlBuffer.clear();
+                    }
+                    break;
+            }
+            countingStream.flush();
+            sentResults = true;
+            bytesWritten += countingStream.getCount();
+            serializationTime += System.nanoTime() - serializationStart;
+            return countingStream.getCount();
+        }
+        
+        /**
+         * Completes the JSON object holding the pages, if any were written
+         */
+        void finish() throws IOException {
+            if (sentResults && serializationType == SerializationType.JSON) {
+                jsonGenerator.writeEndArray();
+                jsonGenerator.writeEndObject();
+                jsonGenerator.flush();
+            }
+        }
+        
+        boolean hasSentResults() {
+            return sentResults;
+        }
+        
+        long getBytesWritten() {
+            return bytesWritten;
+        }
+        
+        /**
+         * @return the total time spent writing pages, in nanoseconds
+         */
+        long getSerializationTime() {
+            return serializationTime;
+        }
+    }
+    
     public class ExecuteStreamingOutputResponse implements StreamingOutput {
         private String queryId = null;
         private Class<?> queryResponseClass = null;
@@ -3159,27 +3445,8 @@ public class QueryExecutorBean implements QueryExecutor {
         public void write(OutputStream out) throws IOException, WebApplicationException {
             
             try {
-                LinkedBuffer buffer = LinkedBuffer.allocate(4096);
-                Marshaller xmlSerializer;
-                try {
-                    JAXBContext jaxbContext = JAXBContext.newInstance(queryResponseClass);
-                    xmlSerializer = jaxbContext.createMarshaller();
-                } catch (JAXBException e1) {
-                    QueryException qe = new QueryException(DatawaveErrorCode.JAXB_CONTEXT_ERROR, e1, MessageFormat.format("class: {0}", queryResponseClass));
-                    log.error(qe);
-                    errorResponse.addException(qe.getBottomQueryException());
-                    throw new DatawaveWebApplicationException(qe, errorResponse);
-                }
-                ObjectMapper jsonSerializer = new ObjectMapper();
-                jsonSerializer.enable(MapperFeature.USE_WRAPPER_NAME_AS_PROPERTY_NAME);
-                jsonSerializer.setAnnotationIntrospector(AnnotationIntrospector.pair(new JacksonAnnotationIntrospector(), new JaxbAnnotationIntrospector(
-                                jsonSerializer.getTypeFactory())));
-                // Don't close the output stream
-                jsonSerializer.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
-                JsonGenerator jsonGenerator = jsonSerializer.getFactory().createGenerator(out, JsonEncoding.UTF8);
-                jsonGenerator.enable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+                PageWriter writer = createPageWriter(serializationType, queryResponseClass, errorResponse, out);
                 
-                boolean sentResults = false;
                 boolean done = false;
                 Span span = null;
                 List<PageMetric> pageMetrics = rq.getMetric().getPageTimes();
@@ -3190,48 +3457,13 @@ public class QueryExecutorBean implements QueryExecutor {
                         BaseQueryResponse page = _next(rq, queryId, proxies, span);
                         PageMetric pm = pageMetrics.get(pageMetrics.size() - 1);
                         
-                        // Wrap the output stream so that we can get a byte count
-                        CountingOutputStream countingStream = new CountingOutputStream(out);
-                        
                         long serializationStart = System.nanoTime();
-                        switch (serializationType) {
-                            case XML:
-                                xmlSerializer.marshal(page, countingStream);
-                                break;
-                            case JSON:
-                                // First page!
-                                if (!sentResults) {
-                                    jsonGenerator.writeStartObject();
-                                    jsonGenerator.writeArrayFieldStart("Pages");
-                                    jsonGenerator.flush();
-                                } else {
-                                    // Delimiter for subsequent pages...
-                                    countingStream.write(',');
-                                }
-                                jsonSerializer.writeValue(countingStream, page);
-                                break;
-                            case PB:
-                                @SuppressWarnings("unchecked")
-                                Message<Object> pb = (Message<Object>) page;
-                                Schema<Object> pbSchema = pb.cachedSchema();
-                                ProtobufIOUtil.writeTo(countingStream, page, pbSchema, buffer);
-                                buffer.clear();
-                                break;
-                            case YAML:
-                                @SuppressWarnings("unchecked")
-                                Message<Object> yaml = (Message<Object>) page;
-                                Schema<Object> yamlSchema = yaml.cachedSchema();
-                                YamlIOUtil.writeTo(countingStream, page, yamlSchema, buffer);
-                                buffer.clear();
-                                break;
-                        }
-                        countingStream.flush();
+                        long bytesWritten = writer.write(page);
                         long serializationTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - serializationStart);
                         pm.setSerializationTime(serializationTime);
                         long pageCallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - callStart);
                         pm.setCallTime(pageCallTime);
-                        pm.setBytesWritten(countingStream.getCount());
-                        sentResults = true;
+                        pm.setBytesWritten(bytesWritten);
                     } catch (Exception e) {
                         if (e instanceof NoResultsException || e.getCause() instanceof NoResultsException) {
                             // No more results, break out of loop
@@ -3243,13 +3475,9 @@ public class QueryExecutorBean implements QueryExecutor {
                     }
                 } while (!done);
                 
-                if (!sentResults)
+                if (!writer.hasSentResults())
                     throw new NoResultsQueryException(DatawaveErrorCode.RESULTS_NOT_SENT);
-                else if (serializationType == SerializationType.JSON) {
-                    jsonGenerator.writeEndArray();
-                    jsonGenerator.writeEndObject();
-                    jsonGenerator.flush();
-                }
+                writer.finish();
             } catch (DatawaveWebApplicationException e) {
                 throw e;
             } catch (Exception e) {
@@ -3273,6 +3501,96 @@ public class QueryExecutorBean implements QueryExecutor {
         
     }
     
+    private PageWriter createPageWriter(SerializationType serializationType, Class<?> queryResponseClass, VoidResponse errorResponse, OutputStream out)
+                    throws IOException {
+        try {
+            return new PageWriter(serializationType, queryResponseClass, out);
+        } catch (JAXBException e1) {
+            QueryException qe = new QueryException(DatawaveErrorCode.JAXB_CONTEXT_ERROR, e1, MessageFormat.format("class: {0}", queryResponseClass));
+            log.error(qe);
+            errorResponse.addException(qe.getBottomQueryException());
+            throw new DatawaveWebApplicationException(qe, errorResponse);
+        }
+    }
+    
+    public class NextStreamingOutputResponse implements StreamingOutput {
+        private String queryId = null;
+        private Class<?> queryResponseClass = null;
+        private VoidResponse errorResponse = null;
+        private RunningQuery rq = null;
+        private SerializationType serializationType = SerializationType.XML;
+        private Collection<String> proxies = null;
+        
+        public NextStreamingOutputResponse(String queryId, Class<?> queryResponseClass, VoidResponse errorResponse, RunningQuery rq,
+                        SerializationType serializationType, Collection<String> proxies) {
+            this.queryId = queryId;
+            this.queryResponseClass = queryResponseClass;
+            this.errorResponse = errorResponse;
+            this.rq = rq;
+            this.serializationType = serializationType;
+            this.proxies = proxies;
+        }
+        
+        public String getQueryId() {
+            return queryId;
+        }
+        
+        @Override
+        public void write(OutputStream out) throws IOException, WebApplicationException {
+            // Lock this so that this query cannot be used concurrently, until the page has been written.
+            if (!queryCache.lock(queryId)) {
+                QueryException qe = new QueryException(DatawaveErrorCode.QUERY_LOCKED_ERROR);
+                errorResponse.addException(qe);
+                throw new DatawaveWebApplicationException(qe, errorResponse);
+            }
+            
+            List<PageMetric> pageMetrics = rq.getMetric().getPageTimes();
+            int numPages = pageMetrics.size();
+            long callStart = System.nanoTime();
+            PageWriter writer = null;
+            try {
+                writer = createPageWriter(serializationType, queryResponseClass, errorResponse, out);
+                rq.setActiveCall(true);
+                _streamNext(rq, queryId, proxies, null, writer);
+                writer.finish();
+            } catch (NoResultsException e) {
+                throw e;
+            } catch (DatawaveWebApplicationException e) {
+                if (rq.getLogic().getCollectQueryMetrics()) {
+                    rq.getMetric().setError(e);
+                }
+                throw e;
+            } catch (Exception e) {
+                log.error("NextStreamingOutputResponse write Failed", e);
+                if (rq.getLogic().getCollectQueryMetrics()) {
+                    rq.getMetric().setError(e);
+                }
+                QueryException qe = new QueryException(DatawaveErrorCode.QUERY_NEXT_ERROR, e, MessageFormat.format("query id: {0}", queryId));
+                log.error(qe);
+                errorResponse.addException(qe.getBottomQueryException());
+                int statusCode = qe.getBottomQueryException().getStatusCode();
+                throw new DatawaveWebApplicationException(qe, errorResponse, statusCode);
+            } finally {
+                rq.setActiveCall(false);
+                queryCache.unlock(queryId);
+                if (rq.getLogic().getCollectQueryMetrics()) {
+                    // the page metric is only added once the page has been read, and includes the time spent writing its earlier batches
+                    if (writer != null && pageMetrics.size() > numPages) {
+                        PageMetric pm = pageMetrics.get(pageMetrics.size() - 1);
+                        pm.setSerializationTime(TimeUnit.NANOSECONDS.toMillis(writer.getSerializationTime()));
+                        pm.setCallTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - callStart));
+                        pm.setBytesWritten(writer.getBytesWritten());
+                    }
+                    try {
+                        metrics.updateMetric(rq.getMetric());
+                    } catch (Exception e) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+            }
+        }
+    }
+    
     public class ErrorResponse implements StreamingOutput {
         private GenericResponse<String> errorResponse = new GenericResponse<String>();
         private SerializationType serializationType = SerializationType.XML;
@@ -3286,11 +3604,10 @@ public class QueryExecutorBean implements QueryExecutor {
         public void write(OutputStream out) throws IOException, WebApplicationException {
             
             try {
-                LinkedBuffer buffer = LinkedBuffer.allocate(4096);
+                LinkedBuffer buffer = BUFFER.get();
                 Marshaller xmlSerializer;
                 try {
-                    JAXBContext jaxbContext = JAXBContext.newInstance(errorResponse.getClass());
-                    xmlSerializer = jaxbContext.createMarshaller();
+                    xmlSerializer = getJaxbContext(errorResponse.getClass()).createMarshaller();
                 } catch (JAXBException e1) {
                     QueryException qe = new QueryException(DatawaveErrorCode.JAXB_CONTEXT_ERROR, e1, MessageFormat.format("class: {0}",
                                     errorResponse.getClass()));
@@ -3298,12 +3615,7 @@ public class QueryExecutorBean implements QueryExecutor {
                     errorResponse.addException(qe.getBottomQueryException());
                     throw new DatawaveWebApplicationException(qe, errorResponse);
                 }
-                ObjectMapper jsonSerializer = new ObjectMapper();
-                jsonSerializer.enable(MapperFeature.USE_WRAPPER_NAME_AS_PROPERTY_NAME);
-                jsonSerializer.setAnnotationIntrospector(AnnotationIntrospector.pair(new JacksonAnnotationIntrospector(), new JaxbAnnotationIntrospector(
-                                jsonSerializer.getTypeFactory())));
-                // Don't close the output stream
-                jsonSerializer.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                ObjectMapper jsonSerializer = JSON_SERIALIZER;
                 JsonGenerator jsonGenerator = jsonSerializer.getFactory().createGenerator(out, JsonEncoding.UTF8);
                 jsonGenerator.enable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
                 
@@ -3328,15 +3640,21 @@ public class QueryExecutorBean implements QueryExecutor {
                             @SuppressWarnings("unchecked")
                             Message<Object> pb = (Message<Object>) page;
                             Schema<Object> pbSchema = pb.cachedSchema();
-                            ProtobufIOUtil.writeTo(countingStream, page, pbSchema, buffer);
-                            buffer.clear();
+                            try {
+                                ProtobufIOUtil.writeTo(countingStream, page, pbSchema, buffer);
+                            } finally {
+                                buffer.clear();
+                            }
                             break;
                         case YAML:
                             @SuppressWarnings("unchecked")
                             Message<Object> yaml = (Message<Object>) page;
                             Schema<Object> yamlSchema = yaml.cachedSchema();
-                            YamlIOUtil.writeTo(countingStream, page, yamlSchema, buffer);
-                            buffer.clear();
+                            try {
+                                YamlIOUtil.writeTo(countingStream, page, yamlSchema, buffer);
+                            } finally {
+                                buffer.clear();
+                            }
                             break;
                     }
                     countingStream.flush();
@@ -4,6 +4,7 @@ import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
@@ -164,6 +165,10 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             this.iter = this.logic.getTransformIterator(this.settings);
             // the configuration query string should now hold the planned query
             this.getMetric().setPlan(configuration.getQueryString());
+            // and the estimates that the planner based it on
+            for (Map.Entry<String,Long> estimate : configuration.getPlanEstimates().entrySet()) {
+                this.getMetric().addPrediction(new Prediction("Plan " + estimate.getKey(), estimate.getValue()));
+            }
             this.getMetric().setSetupTime((System.currentTimeMillis() - start));
             this.getMetric().setLifecycle(QueryMetric.Lifecycle.INITIALIZED);
             testForUncaughtException(0);
@@ -186,7 +191,39 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
         }
     }
     
+    /**
+     * Receives the results of a page in batches as they are read, so that a large page does not need to be held in memory until it is complete.
+     */
+    public interface ResultsListener {
+        /**
+         * @param results
+         *            the next batch of results for the page, which is not referenced again once this returns
+         * @throws Exception
+         *             if the results could not be handled, which fails the page
+         */
+        void resultsAvailable(ResultsPage results) throws Exception;
+    }
+    
     public ResultsPage next() throws Exception {
+        return next(null, 0);
+    }
+    
+    /**
+     * Gets the next page of results, passing them to the listener in batches of {@code batchSize} as they are read. The last batch is not passed to the
+     * listener but returned, with the status of the whole page, and is only empty if the page is.
+     *
+     * @param listener
+     *            the listener for the full batches of the page, or null to return the whole page
+     * @param batchSize
+     *            the number of results in each batch passed to the listener
+     * @return the results of the page which were not passed to the listener
+     * @throws Exception
+     *             if the results could not be read, or the listener failed
+     */
+    public ResultsPage next(ResultsListener listener, int batchSize) throws Exception {
+        if (listener != null && batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive: " + batchSize);
+        }
         // update AbstractRunningQuery.lastUsed
         touch();
         long pageStartTime = System.currentTimeMillis();
@@ -199,7 +236,7 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             long currentPageBytes = 0;
             
             // test for any exceptions prior to loop as hasNext() would likely be false;
-            testForUncaughtException(resultList.size());
+            testForUncaughtException(currentPageCount);
             
             while (!this.finished && ((future != null) || this.iter.hasNext())) {
                 // if we are canceled, then break out
@@ -283,6 +320,11 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                         this.finished = true;
                         break;
                     }
+                    // hand off a full batch only once there is another result, so that the last batch is always returned
+                    if (listener != null && resultList.size() >= batchSize) {
+                        listener.resultsAvailable(new ResultsPage(resultList, ResultsPage.Status.COMPLETE));
+                        resultList = new ArrayList<>();
+                    }
                     resultList.add(o);
                     if (this.logic.getPageByteTrigger() > 0) {
                         currentPageBytes += ObjectSizeOf.Sizer.getObjectSize(o);
@@ -291,17 +333,17 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                     numResults++;
                 }
                 
-                testForUncaughtException(resultList.size());
+                testForUncaughtException(currentPageCount);
             }
             
             // if the last hasNext() call failed, then we would catch the exception here
-            testForUncaughtException(resultList.size());
+            testForUncaughtException(currentPageCount);
             
             // Update the metric
             long now = System.currentTimeMillis();
             this.getMetric().addPageTime(currentPageCount, now - pageStartTime, pageStartTime, now);
             this.lastPageNumber++;
-            if (resultList.size() > 0) {
+            if (currentPageCount > 0) {
                 this.getMetric().setLifecycle(QueryMetric.Lifecycle.RESULTS);
             }
         } catch (Exception e) {
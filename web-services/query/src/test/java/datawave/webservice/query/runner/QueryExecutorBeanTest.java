@@ -8,6 +8,7 @@ import static org.powermock.api.support.membermodification.MemberMatcher.constru
 import static org.powermock.api.support.membermodification.MemberModifier.suppress;
 import static org.powermock.reflect.Whitebox.setInternalState;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.net.URISyntaxException;
@@ -26,10 +27,13 @@ import javax.ejb.EJBContext;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.xml.bind.JAXBContext;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -71,7 +75,9 @@ import datawave.webservice.query.metric.BaseQueryMetric.Prediction;
 import datawave.webservice.query.metric.QueryMetric;
 import datawave.webservice.query.metric.QueryMetricsBean;
 
+import datawave.webservice.result.DefaultEventQueryResponse;
 import datawave.webservice.result.GenericResponse;
+import datawave.webservice.result.VoidResponse;
 import org.apache.accumulo.core.client.Connector;
 import datawave.accumulo.inmemory.InMemoryInstance;
 import org.apache.accumulo.core.client.security.tokens.PasswordToken;
@@ -653,4 +659,40 @@ public class QueryExecutorBeanTest {
             }
         }
     }
+    
+    @Test
+    public void testJaxbContextsAreCached() throws Exception {
+        JAXBContext context = QueryExecutorBean.getJaxbContext(GenericResponse.class);
+        Assert.assertNotNull(context);
+        Assert.assertSame(context, QueryExecutorBean.getJaxbContext(GenericResponse.class));
+        
+        // each response class gets its own context
+        JAXBContext other = QueryExecutorBean.getJaxbContext(VoidResponse.class);
+        Assert.assertNotSame(context, other);
+        Assert.assertSame(other, QueryExecutorBean.getJaxbContext(VoidResponse.class));
+    }
+    
+    @Test
+    public void testPageWriterWritesJsonPages() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        QueryExecutorBean.PageWriter writer = new QueryExecutorBean.PageWriter(QueryExecutorBean.SerializationType.JSON, DefaultEventQueryResponse.class,
+                        out);
+        for (int i = 1; i <= 3; i++) {
+            DefaultEventQueryResponse page = new DefaultEventQueryResponse();
+            page.setQueryId("queryId");
+            page.setPageNumber(i);
+            writer.write(page);
+        }
+        writer.finish();
+        Assert.assertTrue(writer.hasSentResults());
+        
+        // the pages are written as a single object holding the array of pages
+        JsonNode pages = new ObjectMapper().readTree(out.toByteArray()).get("Pages");
+        Assert.assertEquals(3, pages.size());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(i + 1, pages.get(i).get("PageNumber").asLong());
+        }
+        // only the pages themselves are counted, not the object around them
+        Assert.assertTrue(writer.getBytesWritten() > 0 && writer.getBytesWritten() < out.size());
+    }
 }
@@ -2,10 +2,12 @@ package datawave.webservice.query.runner;
 
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.net.MalformedURLException;
@@ -28,6 +30,7 @@ import datawave.security.util.DnUtils.NpeUtils;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.query.QueryImpl;
 import datawave.webservice.query.cache.QueryMetricFactoryImpl;
+import datawave.webservice.query.cache.ResultsPage;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
 import datawave.webservice.query.logic.BaseQueryLogic;
 import datawave.webservice.query.logic.DatawaveRoleManager;
@@ -185,4 +188,49 @@ public class RunningQueryTest {
             Assert.fail("NullPointer encountered. This could be caused by configuration being null. Check logic.initialize() ");
         }
     }
+    
+    @Test
+    public void testNextInBatches() throws Exception {
+        DatawaveUser user = new DatawaveUser(userDN, UserType.USER, null, null, null, 0L);
+        DatawavePrincipal principal = new DatawavePrincipal(Collections.singletonList(user));
+        InMemoryInstance instance = new InMemoryInstance("test instance");
+        Connector connector = instance.getConnector("root", new PasswordToken(""));
+        
+        List<Object> results = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            results.add("result" + i);
+        }
+        QueryLogic<?> logic = createNiceMock(BaseQueryLogic.class);
+        expect(logic.initialize(anyObject(), anyObject(), anyObject())).andReturn(new SampleGenericQueryConfiguration());
+        expect(logic.getTransformIterator(settings)).andReturn(new TransformIterator(results.iterator()));
+        replay(logic);
+        settings.setPagesize(20);
+        RunningQuery query = new RunningQuery(connector, connectionPriority, logic, settings, methodAuths, principal, new QueryMetricFactoryImpl());
+        
+        final List<List<Object>> batches = new ArrayList<>();
+        RunningQuery.ResultsListener listener = new RunningQuery.ResultsListener() {
+            @Override
+            public void resultsAvailable(ResultsPage page) {
+                batches.add(page.getResults());
+            }
+        };
+        
+        // a page which fills its batches exactly still returns the last one, with the status of the page
+        ResultsPage page = query.next(listener, 10);
+        assertEquals(Collections.singletonList(results.subList(0, 10)), batches);
+        assertEquals(results.subList(10, 20), page.getResults());
+        assertEquals(ResultsPage.Status.COMPLETE, page.getStatus());
+        assertEquals(1, query.getLastPageNumber());
+        
+        batches.clear();
+        page = query.next(listener, 10);
+        assertTrue(batches.isEmpty());
+        assertEquals(results.subList(20, 25), page.getResults());
+        assertEquals(2, query.getLastPageNumber());
+        
+        page = query.next(listener, 10);
+        assertTrue(batches.isEmpty());
+        assertEquals(ResultsPage.Status.NONE, page.getStatus());
+        assertTrue(page.getResults().isEmpty());
+    }
 }